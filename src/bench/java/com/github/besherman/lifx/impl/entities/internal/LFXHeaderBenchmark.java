@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.entities.internal;
+
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import com.github.besherman.lifx.impl.util.LFXLongMap;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the header of a received message and looking up the light it 
+ * came from, the way the routing table and the response tracker do for 
+ * every message. Run it with -prof gc to see the bytes per message.
+ * 
+ * path reads the ids through getPath(), which creates the site id, the
+ * device id, the target and the path. values reads them as numbers with 
+ * getSiteIDValue() and getDeviceIDValue(), so only the message and its 
+ * data are allocated.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LFXHeaderBenchmark {
+    private static final long SITE = 0x112233445566L;
+    private static final long DEVICE = 0xd073d5000001L;
+    
+    private ByteBuffer received;
+    private final LFXLongMap<Object> lights = new LFXLongMap<>();
+    
+    @Setup
+    public void setUp() {
+        LxProtocol.Type messageType = LxProtocol.Type.LX_PROTOCOL_LIGHT_STATE;
+        LFXBinaryPath path = new LFXBinaryPath(new LFXSiteID(SITE), 
+                new LFXBinaryTargetID(new LFXDeviceID(DEVICE)));
+        int payloadSize = LxProtocol.getPayloadSize(messageType);
+        byte[] data = new byte[LFXMessage.BASE_MESSAGE_SIZE + payloadSize];
+        LFXMessage.writeHeader(ByteBuffer.wrap(data), messageType, path, payloadSize);
+        received = ByteBuffer.wrap(data);
+        lights.put(DEVICE, new Object());
+    }
+    
+    @Benchmark
+    public Object path() {
+        received.rewind();
+        LFXMessage message = new LFXMessage(received, null);
+        LFXBinaryPath path = message.getPath();
+        if(path.getBinaryTargetID().getTargetType() != LFXBinaryTargetType.DEVICE 
+                || path.getSiteID().getValue() != SITE) {
+            return null;
+        }
+        return lights.get(path.getBinaryTargetID().getDeviceID().getValue());
+    }
+    
+    @Benchmark
+    public Object values() {
+        received.rewind();
+        LFXMessage message = new LFXMessage(received, null);
+        if(message.getTargetType() != LFXBinaryTargetType.DEVICE 
+                || message.getSiteIDValue() != SITE) {
+            return null;
+        }
+        return lights.get(message.getDeviceIDValue());
+    }
+}
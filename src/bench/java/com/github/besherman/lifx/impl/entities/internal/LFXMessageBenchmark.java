@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.entities.internal;
+
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.LxProtocolTypeBase;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of decoding received messages and encoding messages to send,
+ * per message type. Decoding includes the copy of the received bytes, like
+ * the reader does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LFXMessageBenchmark {
+    @Param({
+        "LX_PROTOCOL_LIGHT_STATE", 
+        "LX_PROTOCOL_LIGHT_SET", 
+        "LX_PROTOCOL_LIGHT_SET_WAVEFORM", 
+        "LX_PROTOCOL_DEVICE_STATE_POWER", 
+        "LX_PROTOCOL_DEVICE_STATE_LABEL", 
+        "LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY",
+    })
+    public String type;
+    
+    private ByteBuffer received;
+    private LFXMessage outgoing;
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(512);
+    
+    @Setup
+    public void setUp() {
+        LxProtocol.Type messageType = LxProtocol.Type.valueOf(type);
+        LFXBinaryPath path = new LFXBinaryPath(new LFXSiteID(0x112233445566L), 
+                new LFXBinaryTargetID(new LFXDeviceID(0xd073d5000001L)));
+        
+        int payloadSize = LxProtocol.getPayloadSize(messageType);
+        byte[] data = new byte[LFXMessage.BASE_MESSAGE_SIZE + payloadSize];
+        // an all zero payload is valid for every type, random bytes are 
+        // not, LX_PROTOCOL_LIGHT_STATE for example logs a non zero dim field
+        LFXMessage.writeHeader(ByteBuffer.wrap(data), messageType, path, payloadSize);
+        received = ByteBuffer.wrap(data);
+        
+        LxProtocolTypeBase payload = new LFXMessage(ByteBuffer.wrap(data), null).getPayload();
+        outgoing = new LFXMessage(messageType, path, payload);
+    }
+    
+    @Benchmark
+    public LxProtocolTypeBase decode() {
+        received.rewind();
+        return new LFXMessage(received, null).getPayload();
+    }
+    
+    @Benchmark
+    public int encode() {
+        sendBuffer.clear();
+        outgoing.writeMessageDataRepresentation(sendBuffer);
+        return sendBuffer.position();
+    }
+}
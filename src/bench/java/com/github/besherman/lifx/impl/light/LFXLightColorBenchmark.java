@@ -0,0 +1,170 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.light;
+
+import com.github.besherman.lifx.LFXHSBKColor;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTypes;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import com.github.besherman.lifx.impl.network.LFXByteBufferPool;
+import com.github.besherman.lifx.impl.network.LFXInterfaceChannel;
+import com.github.besherman.lifx.impl.network.LFXLightHandlerModel;
+import com.github.besherman.lifx.impl.network.LFXMessageRouter;
+import com.github.besherman.lifx.impl.network.LFXSendScheduler;
+import com.github.besherman.lifx.impl.network.LFXSocketMessage;
+import com.github.besherman.lifx.impl.network.LFXTimerQueue;
+import com.github.besherman.lifx.impl.network.LFXTimingWheel;
+import com.github.besherman.lifx.impl.network.LFXTopologyCache;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One frame of an animation on 1000 lights: each light gets a new RGB 
+ * color, and the messages are encoded like the writer does. 
+ * 
+ * hsbkColors is how a color was sent before packed colors, through an 
+ * LFXHSBKColor, a LxProtocolLight.Set and a new message. packedColors is 
+ * LFXLightImpl.setColor(int, long), which packs the color through the 
+ * lookup tables and patches the light's message template.
+ * 
+ * The lights are loaded from a topology cache, so the router knows where 
+ * they are without a network. Nothing is sent, the only channel is bound 
+ * to the loopback interface. Run it with -prof gc to see the bytes per 
+ * frame, the buffers come from a pool but the queued messages do not.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LFXLightColorBenchmark {
+    private static final int LIGHTS = 1000;
+    
+    private File cacheFile;
+    private LFXTimingWheel wheel;
+    private LFXSendScheduler scheduler;
+    private LFXInterfaceChannel channel;
+    private LFXMessageRouter router;
+    private LFXTimerQueue timer;
+    private final LFXByteBufferPool pool = new LFXByteBufferPool(128, 16);
+    private final LFXLightImpl[] lights = new LFXLightImpl[LIGHTS];
+    private int frame = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        LFXSiteID site = new LFXSiteID(0x112233445566L);
+        long now = System.currentTimeMillis();
+        cacheFile = File.createTempFile("lifx-benchmark", ".properties");
+        LFXTopologyCache cache = new LFXTopologyCache(cacheFile, TimeUnit.HOURS.toMillis(1));
+        cache.putGateway(site, new InetSocketAddress("10.0.0.1", 56700), now);
+        for(int i = 0; i < LIGHTS; i++) {
+            cache.putLightRoute(new LFXDeviceID(0xd073d5000000L + i), site, 0, now);
+        }
+        cache.save();
+        
+        // the wheel is never started, so no timers run during the benchmark
+        wheel = new LFXTimingWheel(10, TimeUnit.MILLISECONDS, 64);
+        scheduler = new LFXSendScheduler(1e12, 1e12, 2 * LIGHTS);
+        router = new LFXMessageRouter(new LFXLightHandlerModel(), scheduler, wheel, cache);
+        channel = new LFXInterfaceChannel(new InetSocketAddress("127.0.0.1", 0), 8, null);
+        router.setChannels(channel, Collections.<LFXInterfaceChannel>emptyList());
+        router.open();
+        timer = router.createTimerQueue();
+        for(int i = 0; i < LIGHTS; i++) {
+            lights[i] = new LFXLightImpl(router, timer, new LFXDeviceID(0xd073d5000000L + i));
+        }
+        drain();
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for(LFXLightImpl light: lights) {
+            light.close();
+        }
+        timer.close();
+        router.close();
+        channel.getChannel().close();
+        cacheFile.delete();
+    }
+    
+    @Benchmark
+    public int hsbkColors() {
+        frame++;
+        for(int i = 0; i < LIGHTS; i++) {
+            LFXHSBKColor color = new LFXHSBKColor(rgb(i));
+            router.sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_SET, lights[i].getTarget(), 
+                    LFXBinaryTypes.getLXProtocolLightSetFromLFXHSBKColor(color, 0)));
+        }
+        return drain();
+    }
+    
+    @Benchmark
+    public int packedColors() {
+        frame++;
+        for(int i = 0; i < LIGHTS; i++) {
+            lights[i].setColor(rgb(i), 0);
+        }
+        return drain();
+    }
+    
+    private int rgb(int light) {
+        return (frame * 31 + light * 7) & 0xFFFFFF;
+    }
+    
+    /**
+     * Encodes and throws away the queued messages, returns how many there
+     * were.
+     */
+    private int drain() {
+        int count = 0;
+        LFXSocketMessage message;
+        try {
+            while((message = scheduler.poll(0, TimeUnit.NANOSECONDS)) != null) {
+                pool.release(message.encode(pool));
+                count++;
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetID;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetType;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol.Type;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol.Type.*;
+
+/**
+ * A copy of LFXResponseTracker from before the expected responses were 
+ * indexed, for LFXResponseTrackerBenchmark. Every response is checked 
+ * against every request that is waiting.
+ */
+public class LFXBaselineResponseTracker {
+    private LFXTimerQueue timerQueue;
+    private LFXSendScheduler outgoingQueue;
+    private final Map<LxProtocol.Type, LxProtocol.Type> reqResp = createReqResp();
+    private final Object lock = new Object();
+    private final Set<Expected> expectedResponses = new LinkedHashSet<>();
+    private final LFXRoutingTable routingTable;
+    
+    private int messageSendRateLimitInterval;
+    private int responseTrackerTimeout;
+    
+    public LFXBaselineResponseTracker(LFXRoutingTable routingTable) {
+        this.routingTable = routingTable;
+    }
+    
+    public void setOutgoingQueue(LFXSendScheduler outgoingQueue) {
+        this.outgoingQueue = outgoingQueue;
+    }    
+    
+    public void open(LFXTimingWheel timingWheel) {
+        timerQueue = new LFXTimerQueue(timingWheel);                
+        responseTrackerTimeout = LFXConstants.getResponseTrackerResendTimeout();        
+        messageSendRateLimitInterval = LFXConstants.getNetworkLoopSendRateLimitInterval();
+    }
+    
+    public void close() {
+        if(timerQueue != null) {
+            timerQueue.close();
+        }
+        synchronized(lock) {
+            expectedResponses.clear();
+        }
+    }
+    
+    public void trackResponse(LFXMessage message, LFXSocketMessage sm) {
+        LFXBinaryPath path = message.getPath();
+        LFXSiteID site = path.getSiteID();
+        if(site.isZeroSite()) {
+            return;
+        }
+        LFXBinaryTargetID target = path.getBinaryTargetID();
+        if(target.geTargetType() != LFXBinaryTargetType.DEVICE) {
+            return;
+        }
+        
+        Type expectedResponse = reqResp.get(message.getType());
+        if(expectedResponse != null) {
+            synchronized(lock) {
+                Expected ex = new Expected(expectedResponse, target.getDeviceID(), sm);
+                expectedResponses.add(ex);
+                ex.setTimeoutKey(timerQueue.doLater(ex, getTimeout(), TimeUnit.MILLISECONDS));
+            }
+        }        
+    }
+    
+
+    public void updateReponse(LFXMessage message) {
+        synchronized(lock) {
+            Iterator<Expected> it = expectedResponses.iterator();
+            while(it.hasNext()) {
+                Expected ex = it.next();
+                if(ex.isResponse(message)) {
+                    it.remove();                    
+                    timerQueue.cancel(ex.getTimeoutKey());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Returns how many milliseconds to wait for a response.
+     */
+    private long getTimeout() {
+        long timeout = responseTrackerTimeout;
+
+        // the outgoing message queue might be long, so we have to take
+        // take that into account as well            
+        timeout +=  outgoingQueue.size() * messageSendRateLimitInterval;
+        
+        return timeout;
+    }
+    
+    
+    /**
+     * Called by the timing wheel when there has been no response in time.
+     */
+    private void timedOut(Expected ex) {
+        synchronized(lock) {
+            if(!expectedResponses.remove(ex)) {
+                // the response arrived just before the timeout
+                return;
+            }
+            
+            if(ex.getMessage().isExpired(System.nanoTime())) {
+                // too late to care about the answer
+                Logger.getLogger(LFXBaselineResponseTracker.class.getName()).log(Level.FINE, "Giving up on " + ex.type);
+            } else if(routingTable.isLightStillAlive(ex.getDeviceID())) {                    
+                Logger.getLogger(LFXBaselineResponseTracker.class.getName()).log(Level.FINE, "Resending " + ex.type);
+                LFXSocketMessage copy = ex.getMessage().copy();
+                if(outgoingQueue.offer(copy)) {
+                    ex.setMessage(copy);
+                } else {
+                    Logger.getLogger(LFXBaselineResponseTracker.class.getName()).log(Level.SEVERE, 
+                            "Failed to send message, queue is full");
+                }
+                expectedResponses.add(ex);
+                ex.setTimeoutKey(timerQueue.doLater(ex, getTimeout(), TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+
+    
+    private static Map<LxProtocol.Type, LxProtocol.Type> createReqResp() {
+        Map<LxProtocol.Type, LxProtocol.Type> map = new HashMap<>();
+        map.put(LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY, LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY);
+        map.put(LX_PROTOCOL_DEVICE_GET_TIME, LX_PROTOCOL_DEVICE_STATE_TIME);
+        map.put(LX_PROTOCOL_DEVICE_GET_RESET_SWITCH, LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH);
+        map.put(LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD, LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD);
+        map.put(LX_PROTOCOL_DEVICE_GET_MESH_INFO, LX_PROTOCOL_DEVICE_STATE_MESH_INFO);
+        map.put(LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE, LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE);
+        map.put(LX_PROTOCOL_DEVICE_GET_WIFI_INFO, LX_PROTOCOL_DEVICE_STATE_WIFI_INFO);
+        map.put(LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE, LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE);
+        map.put(LX_PROTOCOL_DEVICE_GET_POWER, LX_PROTOCOL_DEVICE_STATE_POWER);
+        map.put(LX_PROTOCOL_DEVICE_GET_LABEL, LX_PROTOCOL_DEVICE_STATE_LABEL);
+        map.put(LX_PROTOCOL_DEVICE_GET_TAGS, LX_PROTOCOL_DEVICE_STATE_TAGS);         
+        // map.put(LX_PROTOCOL_DEVICE_GET_TAG_LABELS, LX_PROTOCOL_DEVICE_STATE_TAG_LABELS); // takes arguments
+        map.put(LX_PROTOCOL_DEVICE_GET_VERSION, LX_PROTOCOL_DEVICE_STATE_VERSION);
+        map.put(LX_PROTOCOL_DEVICE_GET_INFO, LX_PROTOCOL_DEVICE_STATE_INFO);
+        map.put(LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE, LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE);
+        map.put(LX_PROTOCOL_DEVICE_GET_LOCATION, LX_PROTOCOL_DEVICE_STATE_LOCATION);
+        map.put(LX_PROTOCOL_LIGHT_GET, LX_PROTOCOL_LIGHT_STATE);
+        map.put(LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE, LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE);
+        map.put(LX_PROTOCOL_LIGHT_GET_TEMPERATURE, LX_PROTOCOL_LIGHT_STATE_TEMPERATURE);
+        //map.put(LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT, LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT); // takes arguments
+        map.put(LX_PROTOCOL_LIGHT_GET_POWER, LX_PROTOCOL_LIGHT_STATE_POWER);
+        map.put(LX_PROTOCOL_WIFI_GET, LX_PROTOCOL_WIFI_STATE);
+        map.put(LX_PROTOCOL_WIFI_GET_ACCESS_POINT, LX_PROTOCOL_WIFI_STATE_ACCESS_POINT);
+        map.put(LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT, LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT);
+        map.put(LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE, LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE);
+        return map;        
+    }
+    
+    private class Expected implements Runnable {
+        private final Type type;
+        private final LFXDeviceID device;
+        private LFXSocketMessage socketMessage;
+        private Object timeoutKey;
+
+        public Expected(Type type, LFXDeviceID device, LFXSocketMessage message) {
+            this.type = type;
+            this.device = device;
+            this.socketMessage = message;
+        }
+
+        @Override
+        public void run() {
+            timedOut(this);
+        }
+        
+        public Object getTimeoutKey() {
+            return timeoutKey;
+        }
+        
+        public void setTimeoutKey(Object timeoutKey) {
+            this.timeoutKey = timeoutKey;
+        }
+        
+        public LFXSocketMessage getMessage() {
+            return socketMessage;
+        }      
+        
+        public void setMessage(LFXSocketMessage message) {
+            this.socketMessage = message;
+        }
+        
+        public LFXDeviceID getDeviceID() {
+            return device;
+        }
+        
+        public boolean isResponse(LFXMessage message) {
+            if(message.getType().equals(type)) {
+                LFXBinaryTargetID target = message.getPath().getBinaryTargetID();
+                if(target.geTargetType() == LFXBinaryTargetType.DEVICE) {
+                    if(this.device.equals(target.getDeviceID())) {
+                        return true;
+                    } 
+                }
+            }
+            
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s", type, device.getStringRepresentation());
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetID;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One response arriving while a number of requests are waiting, each to 
+ * its own light. The light is asked again right away, so the number of 
+ * outstanding requests stays the same.
+ * 
+ * baseline is LFXBaselineResponseTracker, the tracker from before the 
+ * requests were indexed, which checks every request. indexed is 
+ * LFXResponseTracker.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LFXResponseTrackerBenchmark {
+    private static final LFXSiteID SITE = new LFXSiteID(0x112233445566L);
+    private static final InetSocketAddress GATEWAY = new InetSocketAddress("10.0.0.1", 56700);
+    
+    @Param({"10", "1000", "10000"})
+    private int outstanding;
+    
+    private LFXTimingWheel wheel;
+    private LFXBaselineResponseTracker baselineTracker;
+    private LFXResponseTracker indexedTracker;
+    private LFXMessage[] requests;
+    private LFXSocketMessage[] socketMessages;
+    private LFXMessage[] responses;
+    private int next = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        // the wheel is never started, so no request times out
+        wheel = new LFXTimingWheel(10, TimeUnit.MILLISECONDS, 512);
+        LFXSendScheduler scheduler = new LFXSendScheduler(1e12, 1e12, 10);
+        LFXRoutingTable table = new LFXRoutingTable();
+        
+        requests = new LFXMessage[outstanding];
+        socketMessages = new LFXSocketMessage[outstanding];
+        responses = new LFXMessage[outstanding];
+        for(int i = 0; i < outstanding; i++) {
+            LFXDeviceID device = new LFXDeviceID(0xd073d5000000L + i);
+            LFXBinaryPath path = new LFXBinaryPath(SITE, new LFXBinaryTargetID(device));
+            table.addCachedLight(device, SITE, 0);
+            requests[i] = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, path);
+            socketMessages[i] = new LFXSocketMessage(requests[i], GATEWAY, null, LFXSocketMessage.LOW_PRIORITY);
+            responses[i] = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_STATE, path);
+        }
+        table.publish();
+        
+        baselineTracker = new LFXBaselineResponseTracker(table);
+        baselineTracker.setOutgoingQueue(scheduler);
+        baselineTracker.open(wheel);
+        indexedTracker = new LFXResponseTracker(table);
+        indexedTracker.setOutgoingQueue(scheduler);
+        indexedTracker.open(wheel);
+        for(int i = 0; i < outstanding; i++) {
+            baselineTracker.trackResponse(requests[i], socketMessages[i]);
+            indexedTracker.trackResponse(requests[i], socketMessages[i]);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        baselineTracker.close();
+        indexedTracker.close();
+    }
+    
+    @Benchmark
+    public void baseline() {
+        int i = nextLight();
+        baselineTracker.updateReponse(responses[i]);
+        baselineTracker.trackResponse(requests[i], socketMessages[i]);
+    }
+    
+    @Benchmark
+    public void indexed() {
+        int i = nextLight();
+        indexedTracker.updateReponse(responses[i]);
+        indexedTracker.trackResponse(requests[i], socketMessages[i]);
+    }
+    
+    private int nextLight() {
+        int i = next;
+        next = i + 1 < outstanding ? i + 1 : 0;
+        return i;
+    }
+}
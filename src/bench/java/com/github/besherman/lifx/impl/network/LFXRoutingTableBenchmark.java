@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetID;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolDevice;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt16;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Eight threads sending messages, each looking up the site of a light and
+ * the address of its gateway in the published snapshot.
+ * 
+ * With writing set, one more thread plays the reader thread the whole 
+ * time: it hears from the lights, moves one light back and forth between
+ * two sites so that every publish copies the lights, and publishes. The 
+ * lookups should cost about the same with and without it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class LFXRoutingTableBenchmark {
+    private static final int SITES = 4;
+    private static final int LIGHTS = 1000;
+    
+    @Param({"false", "true"})
+    private boolean writing;
+    
+    private LFXRoutingTable table;
+    private LFXDeviceID[] devices;
+    private LFXMessage[] heard;
+    private LFXMessage[] moved;
+    private Thread writer;
+    private volatile boolean running;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        table = new LFXRoutingTable();
+        devices = new LFXDeviceID[LIGHTS];
+        heard = new LFXMessage[LIGHTS];
+        for(int s = 0; s < SITES; s++) {
+            table.addCachedGateway(site(s), new InetSocketAddress("10.0.0." + (s + 1), 56700), null);
+        }
+        for(int i = 0; i < LIGHTS; i++) {
+            devices[i] = new LFXDeviceID(0xd073d5000000L + i);
+            heard[i] = power(site(i % SITES), devices[i]);
+            table.updateTableWithLight(heard[i]);
+        }
+        LFXDeviceID roaming = new LFXDeviceID(0xd073d5100000L);
+        moved = new LFXMessage[] {power(site(0), roaming), power(site(1), roaming)};
+        table.updateTableWithLight(moved[0]);
+        table.publish();
+        
+        if(writing) {
+            running = true;
+            writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long n = 0;
+                    while(running) {
+                        table.updateTableWithLight(heard[(int) (n % LIGHTS)]);
+                        table.updateTableWithLight(moved[(int) (n & 1)]);
+                        table.publish();
+                        n++;
+                    }
+                }
+            }, "routing table writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if(writer != null) {
+            running = false;
+            writer.join();
+            writer = null;
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class Reader {
+        private int next = 0;
+    }
+    
+    @Benchmark
+    public InetSocketAddress lookup(Reader reader) {
+        int i = reader.next;
+        reader.next = i + 1 < LIGHTS ? i + 1 : 0;
+        LFXSiteID site = table.getLightsSiteID(devices[i]);
+        return table.getAddressForSiteID(site);
+    }
+    
+    private static LFXSiteID site(int s) {
+        return new LFXSiteID(0x111111111111L * (s + 1));
+    }
+    
+    private static LFXMessage power(LFXSiteID site, LFXDeviceID device) {
+        return new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_POWER, 
+                new LFXBinaryPath(site, new LFXBinaryTargetID(device)), 
+                new LxProtocolDevice.StatePower(new UInt16(0xFFFF)));
+    }
+}
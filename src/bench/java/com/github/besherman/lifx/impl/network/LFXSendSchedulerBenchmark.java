@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetID;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * How many messages per second the writer gets from the send scheduler
+ * when every gateway has messages waiting, with the rate and burst from
+ * LFXConstants. Each gateway has its own token bucket, so the score 
+ * should grow with the number of gateways: at the default 50 messages 
+ * per second per gateway that is about 50, 100 and 200.
+ * 
+ * Every message that is taken is offered again, so no gateway runs out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LFXSendSchedulerBenchmark {
+    private static final int WAITING_PER_GATEWAY = 10;
+    
+    @Param({"1", "2", "4"})
+    private int gateways;
+    
+    private LFXSendScheduler scheduler;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        scheduler = new LFXSendScheduler(
+                LFXConstants.getSendRatePerGateway(), 
+                LFXConstants.getSendBurstPerGateway(), 
+                LFXConstants.getOutgoingQueueSize());
+        for(int g = 0; g < gateways; g++) {
+            LFXSiteID site = new LFXSiteID(0x111111111111L * (g + 1));
+            InetSocketAddress address = new InetSocketAddress("10.0.0." + (g + 1), 56700);
+            for(int i = 0; i < WAITING_PER_GATEWAY; i++) {
+                LFXDeviceID device = new LFXDeviceID(0xd073d5000000L + g * WAITING_PER_GATEWAY + i);
+                LFXMessage message = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, 
+                        new LFXBinaryPath(site, new LFXBinaryTargetID(device)));
+                scheduler.offer(new LFXSocketMessage(message, address, null, LFXSocketMessage.LOW_PRIORITY));
+            }
+        }
+    }
+    
+    @Benchmark
+    public LFXSocketMessage send() throws InterruptedException {
+        LFXSocketMessage message = scheduler.poll(1, TimeUnit.SECONDS);
+        scheduler.offer(message);
+        return message;
+    }
+}
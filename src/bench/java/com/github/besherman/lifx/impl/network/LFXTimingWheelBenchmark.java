@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cancelling a pending task and scheduling a new one in its place, the 
+ * way a response that arrives cancels its timeout and the next request 
+ * schedules another. The number of pending tasks stays the same, and 
+ * the time per operation should not depend on it.
+ * 
+ * The delays are spread over a minute, so most tasks wait for more than
+ * one turn of the wheel. The wheel is never started, so nothing runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LFXTimingWheelBenchmark {
+    private static final Runnable TASK = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+    
+    @Param({"1", "1000", "100000"})
+    private int pending;
+    
+    private LFXTimingWheel wheel;
+    private LFXTimingWheel.Timeout[] timeouts;
+    private long[] delays;
+    private int next = 0;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        wheel = new LFXTimingWheel(10, TimeUnit.MILLISECONDS, 512);
+        timeouts = new LFXTimingWheel.Timeout[pending];
+        delays = new long[pending];
+        Random random = new Random(0);
+        for(int i = 0; i < pending; i++) {
+            delays[i] = 1 + random.nextInt(60000);
+            timeouts[i] = wheel.schedule(TASK, delays[i], TimeUnit.MILLISECONDS);
+        }
+    }
+    
+    @Benchmark
+    public LFXTimingWheel.Timeout cancelAndSchedule() {
+        int i = next;
+        next = i + 1 < pending ? i + 1 : 0;
+        timeouts[i].cancel();
+        timeouts[i] = wheel.schedule(TASK, delays[i], TimeUnit.MILLISECONDS);
+        return timeouts[i];
+    }
+}
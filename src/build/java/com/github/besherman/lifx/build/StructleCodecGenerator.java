@@ -0,0 +1,354 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.build;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates LxCodec from the structle schema. It is not part of the library,
+ * it is compiled with the tests and the generate-structle profile runs it:
+ * 
+ *   mvn -Pgenerate-structle process-test-classes
+ * 
+ * The generated file is checked in, and a test fails the build if it 
+ * differs from what the schema generates.
+ */
+public class StructleCodecGenerator {
+    private static final String PACKAGE = "com.github.besherman.lifx.impl.entities.internal.structle";
+    private static final String CLASS_NAME = "LxCodec";
+    
+    private final Map<String, Struct> structs = new LinkedHashMap<>();
+    private final List<Struct> messages = new ArrayList<>();
+    
+    public static void main(String[] args) throws IOException {
+        if(args.length != 2) {
+            System.err.println("usage: StructleCodecGenerator <schema> <source root>");
+            System.exit(1);
+        }
+        
+        String source = generate(new File(args[0]));
+        
+        File file = getGeneratedFile(new File(args[1]));
+        File dir = file.getParentFile();
+        if(!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("failed to create " + dir);
+        }
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            out.write(source);
+        } finally {
+            out.close();
+        }
+        System.out.println("wrote " + file);
+    }
+    
+    /**
+     * Returns the source of LxCodec for the schema.
+     */
+    public static String generate(File schema) throws IOException {
+        StructleCodecGenerator generator = new StructleCodecGenerator();
+        generator.parse(schema);
+        
+        StringWriter source = new StringWriter();
+        PrintWriter out = new PrintWriter(source);
+        generator.write(out, schema.getName());
+        out.flush();
+        return source.toString();
+    }
+    
+    /**
+     * Returns where LxCodec is in the source root.
+     */
+    public static File getGeneratedFile(File sourceRoot) {
+        File dir = new File(sourceRoot, PACKAGE.replace('.', File.separatorChar));
+        return new File(dir, CLASS_NAME + ".java");
+    }
+    
+    private void parse(File schema) throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(schema), "UTF-8"));
+        try {
+            Struct current = null;
+            int lineNumber = 0;
+            String line;
+            while((line = in.readLine()) != null) {
+                lineNumber++;
+                int comment = line.indexOf('#');
+                if(comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                if(line.trim().isEmpty()) {
+                    continue;
+                }
+                
+                String[] words = line.trim().split("\\s+");
+                if(words[0].equals("struct") && words.length == 2) {
+                    current = new Struct(words[1], words[1], null, null);
+                    structs.put(current.name, current);
+                } else if(words[0].equals("message") && words.length == 3) {
+                    String[] parts = words[1].split("\\.");
+                    if(parts.length != 2) {
+                        throw new IOException(lineNumber + ": expected <Module>.<Name> but got " + words[1]);
+                    }
+                    current = new Struct(parts[0] + parts[1], parts[1], parts[0], words[2]);
+                    messages.add(current);
+                } else if(current != null && words.length == 2 && Character.isWhitespace(line.charAt(0))) {
+                    Struct struct = structs.get(words[0]);
+                    Primitive primitive = Primitive.get(words[0]);
+                    if(struct == null && primitive == null) {
+                        throw new IOException(lineNumber + ": unknown type " + words[0]);
+                    }
+                    current.fields.add(new Field(words[1], primitive, struct));
+                } else {
+                    throw new IOException(lineNumber + ": can not parse '" + line.trim() + "'");
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+    
+    private void write(PrintWriter out, String schemaName) {
+        out.println(LICENSE);
+        out.println("package " + PACKAGE + ";");
+        out.println();
+        out.println("import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol.Type;");
+        out.println("import java.nio.ByteBuffer;");
+        out.println();
+        out.println("/**");
+        out.println(" * Fixed offset codecs for the payloads in " + schemaName + ". The getters");
+        out.println(" * read a field from message data where the payload starts at offset and");
+        out.println(" * encode() writes a whole payload to a little endian buffer. Only strings");
+        out.println(" * allocate.");
+        out.println(" * ");
+        out.println(" * Generated by StructleCodecGenerator, do not edit.");
+        out.println(" */");
+        out.println("public final class " + CLASS_NAME + " {");
+        out.println();
+        out.println("    private " + CLASS_NAME + "() {");
+        out.println("    }");
+        for(Struct struct: structs.values()) {
+            writeStruct(out, struct);
+        }
+        for(Struct message: messages) {
+            writeStruct(out, message);
+        }
+        out.println("}");
+    }
+    
+    private void writeStruct(PrintWriter out, Struct struct) {
+        out.println();
+        out.println("    ////////////////////////////////////////////////////////////////////////////");
+        out.println("    // " + (struct.module != null 
+                ? "Lx::Protocol::" + struct.module + "::" + struct.wireName 
+                : "Lx::Protocol::Light::" + struct.wireName));
+        out.println("    ////////////////////////////////////////////////////////////////////////////");
+        out.println("    public static final class " + struct.name + " {");
+        if(struct.type != null) {
+            out.println("        public static final Type TYPE = Type." + struct.type + ";");
+        }
+        out.println("        public static final int SIZE = " + struct.size() + ";");
+        int offset = 0;
+        for(Field field: struct.fields) {
+            out.println("        public static final int " + field.constant() + " = " + offset + ";");
+            offset += field.size();
+        }
+        out.println();
+        out.println("        private " + struct.name + "() {");
+        out.println("        }");
+        
+        for(Field field: struct.fields) {
+            if(field.primitive != null) {
+                out.println();
+                out.println("        public static " + field.primitive.javaType + " get" + capitalize(field.name) + "(byte[] data, int offset) {");
+                out.println("            return " + field.primitive.read("data", "offset + " + field.constant()) + ";");
+                out.println("        }");
+            } else {
+                for(Field inner: field.struct.fields) {
+                    out.println();
+                    out.println("        public static " + inner.primitive.javaType + " get" + capitalize(field.name) + capitalize(inner.name) + "(byte[] data, int offset) {");
+                    out.println("            return " + field.struct.name + ".get" + capitalize(inner.name) + "(data, offset + " + field.constant() + ");");
+                    out.println("        }");
+                }
+            }
+        }
+        
+        List<String> params = new ArrayList<>();
+        for(Field field: struct.fields) {
+            if(field.primitive != null) {
+                params.add(field.primitive.javaType + " " + field.name);
+            } else {
+                for(Field inner: field.struct.fields) {
+                    params.add(inner.primitive.javaType + " " + field.name + capitalize(inner.name));
+                }
+            }
+        }
+        out.println();
+        StringBuilder signature = new StringBuilder("ByteBuffer buf");
+        for(String param: params) {
+            signature.append(", ").append(param);
+        }
+        out.println("        public static void encode(" + signature + ") {");
+        for(Field field: struct.fields) {
+            if(field.primitive != null) {
+                out.println("            " + field.primitive.write("buf", field.name) + ";");
+            } else {
+                StringBuilder args = new StringBuilder("buf");
+                for(Field inner: field.struct.fields) {
+                    args.append(", ").append(field.name).append(capitalize(inner.name));
+                }
+                out.println("            " + field.struct.name + ".encode(" + args + ");");
+            }
+        }
+        out.println("        }");
+        out.println("    }");
+    }
+    
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+    
+    private static class Struct {
+        private final String name;
+        private final String wireName;
+        private final String module;
+        private final String type;
+        private final List<Field> fields = new ArrayList<>();
+
+        public Struct(String name, String wireName, String module, String type) {
+            this.name = name;
+            this.wireName = wireName;
+            this.module = module;
+            this.type = type;
+        }
+        
+        public int size() {
+            int size = 0;
+            for(Field field: fields) {
+                size += field.size();
+            }
+            return size;
+        }
+    }
+    
+    private static class Field {
+        private final String name;
+        private final Primitive primitive;
+        private final Struct struct;
+
+        public Field(String name, Primitive primitive, Struct struct) {
+            this.name = name;
+            this.primitive = primitive;
+            this.struct = struct;
+        }
+        
+        public int size() {
+            return primitive != null ? primitive.size : struct.size();
+        }
+        
+        public String constant() {
+            return name.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+        }
+    }
+    
+    private static enum Primitive {
+        U8("u8", 1, "int", "readUInt8", "buf.put((byte) %s)"),
+        BOOL8("bool8", 1, "boolean", "readBool8", "buf.put((byte) (%s ? 0xff : 0))"),
+        I16("i16", 2, "int", "readInt16", "buf.putShort((short) %s)"),
+        U16("u16", 2, "int", "readUInt16", "buf.putShort((short) %s)"),
+        U32("u32", 4, "long", "readUInt32", "buf.putInt((int) %s)"),
+        U64("u64", 8, "long", "readUInt64", "buf.putLong(%s)"),
+        F32("f32", 4, "float", "readFloat32", "buf.putFloat(%s)"),
+        STR32("str32", 32, "String", "readString", "StructleTypes.writeString(buf, %s, 32)");
+        
+        private final String schemaName;
+        private final int size;
+        private final String javaType;
+        private final String reader;
+        private final String writer;
+
+        private Primitive(String schemaName, int size, String javaType, String reader, String writer) {
+            this.schemaName = schemaName;
+            this.size = size;
+            this.javaType = javaType;
+            this.reader = reader;
+            this.writer = writer;
+        }
+        
+        public String read(String data, String offset) {
+            return "StructleTypes." + reader + "(" + data + ", " + offset 
+                    + (this == STR32 ? ", 32)" : ")");
+        }
+        
+        public String write(String buf, String value) {
+            return String.format(writer, value).replace("buf", buf);
+        }
+        
+        public static Primitive get(String schemaName) {
+            for(Primitive p: values()) {
+                if(p.schemaName.equals(schemaName)) {
+                    return p;
+                }
+            }
+            return null;
+        }
+    }
+    
+    private static final String LICENSE = 
+            "/*\n" +
+            " * The MIT License\n" +
+            " *\n" +
+            " * Copyright 2015 Richard.\n" +
+            " *\n" +
+            " * Permission is hereby granted, free of charge, to any person obtaining a copy\n" +
+            " * of this software and associated documentation files (the \"Software\"), to deal\n" +
+            " * in the Software without restriction, including without limitation the rights\n" +
+            " * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell\n" +
+            " * copies of the Software, and to permit persons to whom the Software is\n" +
+            " * furnished to do so, subject to the following conditions:\n" +
+            " *\n" +
+            " * The above copyright notice and this permission notice shall be included in\n" +
+            " * all copies or substantial portions of the Software.\n" +
+            " *\n" +
+            " * THE SOFTWARE IS PROVIDED \"AS IS\", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR\n" +
+            " * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,\n" +
+            " * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE\n" +
+            " * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER\n" +
+            " * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,\n" +
+            " * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN\n" +
+            " * THE SOFTWARE.\n" +
+            " */";
+}
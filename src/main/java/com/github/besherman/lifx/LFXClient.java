@@ -25,6 +25,7 @@ package com.github.besherman.lifx;
 
 import com.github.besherman.lifx.impl.light.LFXDefaultLightHandler;
 import com.github.besherman.lifx.impl.network.LFXNetworkLoop;
+import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
@@ -51,6 +52,16 @@ public class LFXClient {
 				loop.setBroadcastAddress(broadcastAddress);
     }
     
+    /**
+     * Keeps what is known about the gateways and lights in the file between
+     * runs. When the client is opened the cached lights can be used right 
+     * away, without waiting for them to be discovered. Must be called 
+     * before the client is opened.
+     */
+    public void setCacheFile(File cacheFile) {
+        loop.setCacheFile(cacheFile);
+    }
+    
     /**
      * Returns the collection of lights.
      */
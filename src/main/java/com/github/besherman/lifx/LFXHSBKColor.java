@@ -37,6 +37,22 @@ public class LFXHSBKColor {
     private final float saturation;			// 0.0 - 1.0
     private final float brightness;			// 0.0 - 1.0
     private final int kelvin;				// 0 - 10,000
+    
+    // FRACTIONS[TRIANGLE[d] + n] is n / d scaled to 0 - 65535, for 0 <= n <= d <= 255
+    private static final int[] TRIANGLE = new int[256];
+    private static final char[] FRACTIONS = new char[256 * 257 / 2];
+    // LEVELS[c] is c / 255 scaled to 0 - 65535
+    private static final char[] LEVELS = new char[256];
+    
+    static {
+        for(int d = 0; d < 256; d++) {
+            TRIANGLE[d] = d * (d + 1) / 2;
+            for(int n = 0; n <= d; n++) {
+                FRACTIONS[TRIANGLE[d] + n] = d == 0 ? 0 : (char) (((float) n / (float) d) * 65535.0f);
+            }
+            LEVELS[d] = (char) (((float) d / 255.0f) * 65535.0f);
+        }
+    }
 
     /**
      * Creates a new color with a kelvin of 6500 (to match D6500).
@@ -121,6 +137,119 @@ public class LFXHSBKColor {
         return kelvin;
     }
 
+    /**
+     * Returns the color packed into a long, see {@link #pack(int, int, int, int)}.
+     */
+    public long toPacked() {
+        return pack((int) (hue / 360.0 * 65535.0f), 
+                (int) (saturation * 65535.0f), 
+                (int) (brightness * 65535.0f), 
+                kelvin);
+    }
+    
+    /**
+     * Returns a new color from a packed color.
+     */
+    public static LFXHSBKColor fromPacked(long packed) {
+        return new LFXHSBKColor(
+                (float) getPackedHue(packed) * 360.0f / 65535.0f, 
+                (float) getPackedSaturation(packed) / 65535.0f, 
+                (float) getPackedBrightness(packed) / 65535.0f, 
+                getPackedKelvin(packed));
+    }
+    
+    /**
+     * Packs a color into a long the way the lights receive it, so it can be
+     * sent without creating any objects. Hue, saturation and brightness are
+     * in the range [0, 65535], where a hue of 65535 is 360 degrees. The hue 
+     * is in the highest 16 bits, followed by saturation, brightness and 
+     * kelvin.
+     * 
+     * @param kelvin kelvin in the range [0, 10000]
+     */
+    public static long pack(int hue, int saturation, int brightness, int kelvin) {
+        if(kelvin < MIN_KELVIN || kelvin > MAX_KELVIN) {
+            throw new IllegalArgumentException("kelvin must be between 0 and 10 000");
+        }
+        return ((long) (hue & 0xffff) << 48) 
+                | ((long) (saturation & 0xffff) << 32)
+                | ((long) (brightness & 0xffff) << 16)
+                | kelvin;
+    }
+    
+    /**
+     * Packs an RGB color and a kelvin value. Gives the same color as 
+     * new LFXHSBKColor(color, kelvin).toPacked(), the hue can be one step
+     * off, but uses lookup tables instead of floating point math.
+     * 
+     * @param color an RGB color
+     * @param kelvin the kelvin value in the range [0, 10000]
+     */
+    public static long packRGB(int color, int kelvin) {
+        int r = (color >> 16) & 0xFF;
+        int g = (color >> 8) & 0xFF;
+        int b = color & 0xFF;
+        
+        int cmax = Math.max(r, Math.max(g, b));
+        int cmin = Math.min(r, Math.min(g, b));
+        int delta = cmax - cmin;
+        
+        int hue = 0;
+        if(delta != 0) {
+            // which sixth of the color wheel, and how far into the next
+            int sixths;
+            int n;
+            if(r == cmax) {
+                sixths = 0;
+                n = g - b;
+            } else if(g == cmax) {
+                sixths = 2;
+                n = b - r;
+            } else {
+                sixths = 4;
+                n = r - g;
+            }
+            int fraction = n >= 0 
+                    ? FRACTIONS[TRIANGLE[delta] + n] 
+                    : -FRACTIONS[TRIANGLE[delta] - n];
+            int scaled = sixths * 65535 + fraction;
+            if(scaled < 0) {
+                scaled += 6 * 65535;
+            }
+            hue = scaled / 6;
+        }
+        
+        return pack(hue, FRACTIONS[TRIANGLE[cmax] + delta], LEVELS[cmax], kelvin);
+    }
+    
+    /**
+     * Returns the hue of a packed color, [0, 65535].
+     */
+    public static int getPackedHue(long packed) {
+        return (int) (packed >>> 48) & 0xffff;
+    }
+    
+    /**
+     * Returns the saturation of a packed color, [0, 65535].
+     */
+    public static int getPackedSaturation(long packed) {
+        return (int) (packed >>> 32) & 0xffff;
+    }
+    
+    /**
+     * Returns the brightness of a packed color, [0, 65535].
+     */
+    public static int getPackedBrightness(long packed) {
+        return (int) (packed >>> 16) & 0xffff;
+    }
+    
+    /**
+     * Returns the kelvin of a packed color, [0, 10000].
+     */
+    public static int getPackedKelvin(long packed) {
+        return (int) packed & 0xffff;
+    }
+    
     @Override
     public String toString() {
         return "LFXHSBKColor{" + "hue=" + hue + ", sat=" + saturation + ", bri=" + brightness + ", kelvin=" + kelvin + '}';
@@ -28,7 +28,6 @@ import com.github.besherman.lifx.impl.util.LFXObjectUtils;
 
 import java.util.ArrayList;
 
-import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
 
@@ -59,22 +58,31 @@ public class LFXBinaryTargetID {
 
 
     private final LFXBinaryTargetType targetType;
-    private final Set<LFXTagID> groupTagField = EnumSet.noneOf(LFXTagID.class);
+    private final long groupTagMask;
     private final LFXDeviceID deviceId;
 
     public LFXBinaryTargetID() {
         targetType = LFXBinaryTargetType.BROADCAST;
+        groupTagMask = 0;
         deviceId = null;
     }
     
     public LFXBinaryTargetID(LFXDeviceID deviceId) {
         this.targetType = LFXBinaryTargetType.DEVICE;
+        this.groupTagMask = 0;
         this.deviceId = deviceId;
     }    
     
     public LFXBinaryTargetID(Set<LFXTagID> tagField) {        
-        targetType = tagField.isEmpty() ? LFXBinaryTargetType.BROADCAST : LFXBinaryTargetType.TAG;
-        groupTagField.addAll(tagField);        
+        this(LFXTagID.toMask(tagField));
+    }    
+    
+    /**
+     * Creates a target for the tags in the mask, see LFXTagID.toMask().
+     */
+    public LFXBinaryTargetID(long tagMask) {        
+        targetType = tagMask == 0 ? LFXBinaryTargetType.BROADCAST : LFXBinaryTargetType.TAG;
+        groupTagMask = tagMask;        
         deviceId = null;        
     }    
     
@@ -123,7 +131,7 @@ public class LFXBinaryTargetID {
                 return "*";
             }
             case TAG: {
-                return "#" + LFXTagID.pack(groupTagField).toHex();
+                return "#" + LFXTagID.pack(groupTagMask).toHex();
             }
             case DEVICE: {
                 return deviceId.toString();	
@@ -142,16 +150,28 @@ public class LFXBinaryTargetID {
         return targetType;
     }
 
+    /**
+     * Returns a copy of the tags.
+     */
     public Set<LFXTagID> getGroupTagField() {
-        return groupTagField;
+        return LFXTagID.fromMask(groupTagMask);
+    }
+    
+    /**
+     * Returns the tags as a bit mask, see LFXTagID.toMask().
+     */
+    public long getGroupTagMask() {
+        return groupTagMask;
     }
 
     public List<LFXBinaryTargetID> getIndividualGroupTargetIDs() {
-        // For future optimisation, this could get generated once, when a groupTargetID is created
         List<LFXBinaryTargetID> targetIDs = new ArrayList<>();
 
-        for(LFXTagID tag: groupTagField) {
-            targetIDs.add(new LFXBinaryTargetID(EnumSet.of(tag)));
+        long mask = groupTagMask;
+        while(mask != 0) {
+            long bit = Long.lowestOneBit(mask);
+            targetIDs.add(new LFXBinaryTargetID(bit));
+            mask &= ~bit;
         }
         
         return targetIDs;
@@ -161,7 +181,7 @@ public class LFXBinaryTargetID {
     public int hashCode() {
         int hash = 7;
         hash = 43 * hash + LFXObjectUtils.hashCode(this.targetType);
-        hash = 43 * hash + LFXObjectUtils.hashCode(this.groupTagField);
+        hash = 43 * hash + (int) (this.groupTagMask ^ (this.groupTagMask >>> 32));
         hash = 43 * hash + LFXObjectUtils.hashCode(this.deviceId);
         return hash;
     }
@@ -178,7 +198,7 @@ public class LFXBinaryTargetID {
         if (this.targetType != other.targetType) {
             return false;
         }
-        if (!LFXObjectUtils.equals(this.groupTagField, other.groupTagField)) {
+        if (this.groupTagMask != other.groupTagMask) {
             return false;
         }
         if (!LFXObjectUtils.equals(this.deviceId, other.deviceId)) {
@@ -27,11 +27,14 @@ package com.github.besherman.lifx.impl.entities.internal;
 import com.github.besherman.lifx.LFXHSBKColor;
 import com.github.besherman.lifx.LFXInterfaceFirmware;
 import com.github.besherman.lifx.impl.entities.LFXPowerState;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxCodec;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolLight;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt16;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt32;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Calendar;
 import java.util.Date;
 
@@ -49,7 +52,11 @@ public class LFXBinaryTypes {
     }
 
     public static LFXPowerState getLFXPowerStateFromLFXProtocolPowerLevel(UInt16 powerLevel) {
-        if (powerLevel.getValue() == 0) {
+        return getLFXPowerStateFromLFXProtocolPowerLevel(powerLevel.getValue());
+    }
+
+    public static LFXPowerState getLFXPowerStateFromLFXProtocolPowerLevel(int powerLevel) {
+        if (powerLevel == 0) {
             return LFXPowerState.OFF;
         } else {
             return LFXPowerState.ON;
@@ -57,32 +64,39 @@ public class LFXBinaryTypes {
     }
 
     public static LFXHSBKColor getLFXHSBKColorFromLXProtocolLightHsbk(LxProtocolLight.Hsbk protocolHsbk) {
-        float hue = (float) protocolHsbk.getHue().getValue() * 360.0f / (float) UInt16.MAX_U16_VALUE;
-        float saturation = (float) protocolHsbk.getSaturation().getValue() / (float) UInt16.MAX_U16_VALUE;
-        float brightness = (float) protocolHsbk.getBrightness().getValue() / (float) UInt16.MAX_U16_VALUE;
-        int kelvin = protocolHsbk.getKelvin().getValue();
+        float hue = (float) protocolHsbk.getHueValue() * 360.0f / (float) UInt16.MAX_U16_VALUE;
+        float saturation = (float) protocolHsbk.getSaturationValue() / (float) UInt16.MAX_U16_VALUE;
+        float brightness = (float) protocolHsbk.getBrightnessValue() / (float) UInt16.MAX_U16_VALUE;
+        int kelvin = protocolHsbk.getKelvinValue();
 
         LFXHSBKColor color = new LFXHSBKColor(hue, saturation, brightness, kelvin);
 
         return color;
     }
 
+    /**
+     * Returns the color as a Hsbk that reads its fields from the encoded 
+     * bytes, instead of one wrapper per field.
+     */
     public static LxProtocolLight.Hsbk getLXProtocolLightHsbkFromLFXHSBKColor(LFXHSBKColor color) {
-        int hue = (int) (color.getHue() / 360.0 * (float) UInt16.MAX_U16_VALUE);
-        int saturation = (int) (color.getSaturation() * (float) UInt16.MAX_U16_VALUE);
-        int brightness = (int) (color.getBrightness() * (float) UInt16.MAX_U16_VALUE);
-        int kelvin = color.getKelvin();
-
-        UInt16 wrappedHue = new UInt16(hue);
-        UInt16 wrappedSaturation = new UInt16(saturation);
-        UInt16 wrappedBrightness = new UInt16(brightness);
-        UInt16 wrappedKelvin = new UInt16(kelvin);
-
-        Object padding = new Object();
-
-        LxProtocolLight.Hsbk lightHSBK = new LxProtocolLight.Hsbk(padding, wrappedHue, wrappedSaturation, wrappedBrightness, wrappedKelvin);
+        long packed = color.toPacked();
+        byte[] bytes = new byte[LxCodec.Hsbk.SIZE];
+        LxCodec.Hsbk.encode(ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 
+                LFXHSBKColor.getPackedHue(packed), LFXHSBKColor.getPackedSaturation(packed), 
+                LFXHSBKColor.getPackedBrightness(packed), LFXHSBKColor.getPackedKelvin(packed));
+        return new LxProtocolLight.Hsbk(bytes);
+    }
 
-        return lightHSBK;
+    /**
+     * Returns a LX_PROTOCOL_LIGHT_SET payload for the color without the
+     * intermediate wrappers.
+     */
+    public static LxProtocolLight.Set getLXProtocolLightSetFromLFXHSBKColor(LFXHSBKColor color, long duration) {
+        long packed = color.toPacked();
+        return new LxProtocolLight.Set(0, 
+                LFXHSBKColor.getPackedHue(packed), LFXHSBKColor.getPackedSaturation(packed), 
+                LFXHSBKColor.getPackedBrightness(packed), LFXHSBKColor.getPackedKelvin(packed), 
+                duration);
     }
     
 
@@ -150,4 +150,39 @@ public class LFXByteUtils {
 
         arr[index] = (byte) (arr[index] | (1 << bitPosition));
     }
+
+    /**
+     * Reads six bytes as an unsigned 48 bit number, the first byte is the
+     * most significant. Used for the site and device ids.
+     */
+    public static long readUInt48(byte[] data, int offset) {
+        long value = 0;
+        for (int i = 0; i < 6; i++) {
+            value = (value << 8) | (data[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Writes the number as six bytes, the opposite of readUInt48().
+     */
+    public static void writeUInt48(long value, byte[] dest, int offset) {
+        for (int i = 5; i >= 0; i--) {
+            dest[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * Returns the same string as byteArrayToHexString() would for the six
+     * bytes of the number.
+     */
+    public static String uint48ToHexString(long value) {
+        char[] hexChars = new char[12];
+        for (int i = 11; i >= 0; i--) {
+            hexChars[i] = hexArray[(int) (value & 0x0F)];
+            value >>>= 4;
+        }
+        return new String(hexChars);
+    }
 }
@@ -23,52 +23,94 @@
  */
 package com.github.besherman.lifx.impl.entities.internal;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 /**
- *
+ * The id of a device, the six bytes are kept in a long so that creating 
+ * and comparing ids is cheap.
+ * 
  * @author Richard
  */
 public class LFXDeviceID {
     private static final int DEVICE_TARGET_ID_BYTES = 6;
-    private final byte[] deviceBytes;
-    private final String stringRepresentation;
+    private static final long MASK = 0xFFFFFFFFFFFFL;
+    private final long value;
+    
+    // created when it is first asked for
+    private String stringRepresentation;
 
     public LFXDeviceID(byte[] bytes) {
         if(bytes == null) {
             throw new IllegalArgumentException("bytes can not be null");            
         }
-        this.stringRepresentation = LFXByteUtils.byteArrayToHexString(bytes);
         if(bytes.length != DEVICE_TARGET_ID_BYTES) {
             throw new IllegalArgumentException("bytes expected to be " + 
-                    DEVICE_TARGET_ID_BYTES + " was " + bytes.length + ": " + stringRepresentation);
+                    DEVICE_TARGET_ID_BYTES + " was " + bytes.length + ": " + LFXByteUtils.byteArrayToHexString(bytes));
         }
         
-        deviceBytes = Arrays.copyOf(bytes, DEVICE_TARGET_ID_BYTES);
+        this.value = LFXByteUtils.readUInt48(bytes, 0);
     }
     
     public LFXDeviceID(String hexString) {
-        this.deviceBytes = LFXByteUtils.hexStringToByteArray(hexString);
+        this(LFXByteUtils.hexStringToByteArray(hexString));
         this.stringRepresentation = hexString;
     }
     
+    /**
+     * Creates an id from the lower 48 bits of the value.
+     */
+    public LFXDeviceID(long value) {
+        this.value = value & MASK;
+    }
+    
+    /**
+     * Reads the id from six bytes in the array.
+     */
+    public static LFXDeviceID fromBytes(byte[] data, int offset) {
+        return new LFXDeviceID(LFXByteUtils.readUInt48(data, offset));
+    }
+    
+    /**
+     * Returns the id as a 48 bit number, the first byte is the most 
+     * significant.
+     */
+    public long getValue() {
+        return value;
+    }
+    
     public byte[] getDeviceDataValue() {
-        return Arrays.copyOf(deviceBytes, DEVICE_TARGET_ID_BYTES);
+        byte[] bytes = new byte[DEVICE_TARGET_ID_BYTES];
+        LFXByteUtils.writeUInt48(value, bytes, 0);
+        return bytes;
+    }
+    
+    /**
+     * Puts the six bytes of the id in the buffer.
+     */
+    public void writeTo(ByteBuffer buf) {
+        for(int shift = 40; shift >= 0; shift -= 8) {
+            buf.put((byte)(value >>> shift));
+        }
     }
     
     public String getStringRepresentation() {
-        return stringRepresentation;
+        String s = stringRepresentation;
+        if(s == null) {
+            s = LFXByteUtils.uint48ToHexString(value);
+            stringRepresentation = s;
+        }
+        return s;
     }
 
     @Override
     public String toString() {
-        return "LFXDeviceID{" + stringRepresentation + '}';
+        return "LFXDeviceID{" + getStringRepresentation() + '}';
     }
     
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 37 * hash + Arrays.hashCode(this.deviceBytes);
+        hash = 37 * hash + (int) (this.value ^ (this.value >>> 32));
         return hash;
     }
 
@@ -81,7 +123,7 @@ public class LFXDeviceID {
             return false;
         }
         final LFXDeviceID other = (LFXDeviceID) obj;
-        if (!Arrays.equals(this.deviceBytes, other.deviceBytes)) {
+        if (this.value != other.value) {
             return false;
         }
         return true;
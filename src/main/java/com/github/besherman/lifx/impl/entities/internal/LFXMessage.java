@@ -24,8 +24,6 @@
  */
 package com.github.besherman.lifx.impl.entities.internal;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,11 +33,11 @@ import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.LxProtocolTypeBase;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt64;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
-import java.util.Set;
 
 public class LFXMessage {
-    private static final String PAYLOAD_SIZE_METHOD_NAME = "getPayloadSize";
 
     private static final short ADDRESSABLE_BIT = 0x1000;
     private static final short TAGGED_BIT = 0x2000;
@@ -48,7 +46,10 @@ public class LFXMessage {
     //private static final short ACKNOWLEDGEMENT_BIT = 0x0001;
     private static final int LX_PROTOCOL_V1 = 1024;
     private static final int CURRENT_PROTOCOL = LX_PROTOCOL_V1;
-    private static final int BASE_MESSAGE_SIZE = 36;
+    /**
+     * The size of the header, the payload starts right after it.
+     */
+    public static final int BASE_MESSAGE_SIZE = 36;
     private static final int PAYLOAD_START_INDEX = 36;    
     
 
@@ -70,17 +71,34 @@ public class LFXMessage {
     
     private final long atTime;
     
-    private final LFXBinaryPath path;
+    // For incoming messages the path is created from the header on first 
+    // use, the routing only needs the values below
+    private volatile LFXBinaryPath path;
+    
+    // The site, the device id or tag mask and if it is tagged, as read from
+    // the header of an incoming message
+    private final long siteValue;
+    private final long targetValue;
+    private final boolean tagged;
     
     
-    private final LxProtocolTypeBase payload;
+    // For incoming messages the payload is decoded from the data on first use
+    private volatile LxProtocolTypeBase payload;
+    
+    // The data of an incoming message or of an outgoing message that was 
+    // encoded by a template, null for other outgoing messages
+    private final byte[] data;
     
     // Network host (this will be set by the Message Router to be the host of the receiving
     // network connection). For outgoing messages, this will be nil.
     private final InetAddress sourceNetworkHost;
 
-    // 
-    private final int incomingHash;
+    // Computed from the data on first use, 0 until then
+    private int incomingHash;
+    
+    // Set when the data of an outgoing message that was encoded by a 
+    // template has been written, see reuseData()
+    private volatile boolean written = false;
     
     /**
      * Creates a new message with specific type. Used for outgoing messages.
@@ -98,7 +116,10 @@ public class LFXMessage {
         this.target = null;
         this.size = 0;
         this.atTime = 0;
-        this.incomingHash = 0;
+        this.data = null;
+        this.siteValue = 0;
+        this.targetValue = 0;
+        this.tagged = false;
     }
 
     /**
@@ -125,7 +146,10 @@ public class LFXMessage {
         this.sourceNetworkHost = null;
         this.size = 0;
         this.atTime = 0;        
-        this.incomingHash = 0;
+        this.data = null;
+        this.siteValue = 0;
+        this.targetValue = 0;
+        this.tagged = false;
     }    
 
     public LFXMessage(Type type, LFXBinaryPath path) {
@@ -145,88 +169,87 @@ public class LFXMessage {
         this.target = null;
         this.size = 0;
         this.atTime = 0;        
-        this.incomingHash = 0;
+        this.data = null;
+        this.siteValue = 0;
+        this.targetValue = 0;
+        this.tagged = false;
+    }
+    
+    /**
+     * Creates an outgoing message from data that already holds the header 
+     * and the payload, as encoded by LFXMessageTemplate. The data is owned
+     * by the message and is sent as it is.
+     */
+    public LFXMessage(LFXBinaryPath path, byte[] data) {
+        this.timestamp = System.currentTimeMillis();
+        this.messageDirection = LFXMessageDirection.OUTGOING;
+        this.protocol = CURRENT_PROTOCOL;
+        this.payload = null;
+        this.messageType = getTypeFromMessageData(data);
+        this.path = path;
+        this.data = data;
+        
+        // final 
+        this.sourceNetworkHost = null;
+        this.target = null;
+        this.size = 0;
+        this.atTime = 0;
+        this.siteValue = 0;
+        this.targetValue = 0;
+        this.tagged = false;
     }
     
     public LFXMessage(byte[] data) {
-        if (data == null || data.length == 0) {
-            throw new RuntimeException("data is missing");
-        }
-
-        byte[] bytes = new byte[data.length];
-        LFXByteUtils.copyBytesIntoByteArray(bytes, data);
-
+        this(copyOf(data), null);
+    }    
+    
+    /**
+     * Creates an incoming message from the remaining bytes in the buffer.
+     * The bytes are copied once, the buffer can be reused afterwards.
+     */
+    public LFXMessage(ByteBuffer buf, InetAddress sourceNetworkHost) {
+        this(copyOf(buf), sourceNetworkHost);
+    }
+    
+    /**
+     * Creates an incoming message. The data is owned by the message.
+     */
+    private LFXMessage(byte[] bytes, InetAddress sourceNetworkHost) {
         if (!messageIsAddressable(bytes)) {
             // We don't know how to deal with non-addressable messages, but the bulbs are sometimes not setting this flag correctly
             throw new RuntimeException("Message claims to be non-addressable");
         }
 
-        int protocol = getProtocolFromMessageData(bytes);
+        this.messageType = getTypeFromMessageData(bytes);
+        this.timestamp = System.currentTimeMillis();
+        this.messageDirection = LFXMessageDirection.INCOMING;
+        this.size = getSizeFromMessageData(bytes);
+        this.protocol = getProtocolFromMessageData(bytes);
+        
+        this.siteValue = LFXByteUtils.readUInt48(bytes, 16);
+        this.tagged = getIsTaggedFromMessageData(bytes);
+        if (tagged) {            
+            this.targetValue = getTagMaskFromMessageData(bytes);
+        } else {
+            this.targetValue = LFXByteUtils.readUInt48(bytes, 8);
+        }
+        
         if (protocol != CURRENT_PROTOCOL) {
             
             // TODO: can't we just remove this?
             
             Logger.getLogger(LFXMessage.class.getName()).log(Level.WARNING, "Handling non-protocol message of protocol {0}", protocol);
-            //return LFXMessageA.initWithNonProtocolMessageData(data);
-            this.messageType = getTypeFromMessageData(data);
-
-            this.timestamp = System.currentTimeMillis();
-            this.messageDirection = LFXMessageDirection.INCOMING;
-
-            byte[] bytes_2 = new byte[data.length];
-            LFXByteUtils.copyBytesIntoByteArray(bytes_2, data);
-
-            this.size = getSizeFromMessageData(data);
-            this.protocol = getProtocolFromMessageData(data);
-
-            LFXSiteID site = new LFXSiteID(getSiteIDFromMessageData(data));
-
-            LFXBinaryTargetID target = null;
-            if (getIsTaggedFromMessageData(bytes_2)) {            
-                Set<LFXTagID> tags = LFXTagID.unpack(new UInt64(getTargetFromMessageData(bytes_2)));
-                target = new LFXBinaryTargetID(tags);
-            } else {
-                LFXDeviceID deviceId = new LFXDeviceID(getTargetFromMessageData(bytes_2));
-                target = new LFXBinaryTargetID(deviceId);
-            }
-            this.path = new LFXBinaryPath(site, target);                
             
             // final 
             this.atTime = 0;
-            this.payload = null;
-            this.incomingHash = 0;
+            this.data = null;
         } else {        
-            this.messageType = getTypeFromMessageData(data);
-
-            this.timestamp = System.currentTimeMillis();
-            this.messageDirection = LFXMessageDirection.INCOMING;
-
-            byte[] bytes_1 = new byte[data.length];
-            LFXByteUtils.copyBytesIntoByteArray(bytes_1, data);
-
-            this.size = getSizeFromMessageData(bytes_1);
-            this.protocol = getProtocolFromMessageData(bytes_1);
-            this.atTime = getAtTimeFromMessageData(bytes_1);
-            this.incomingHash = getHashFromMessageData(bytes_1);
-
-            LFXSiteID site_1 = new LFXSiteID(getSiteIDFromMessageData(bytes_1));
-
-            LFXBinaryTargetID target_1;
-            if (getIsTaggedFromMessageData(bytes_1)) {            
-                Set<LFXTagID> tags = LFXTagID.unpack(new UInt64(getTargetFromMessageData(bytes_1)));
-                target_1 = new LFXBinaryTargetID(tags);
-            } else {
-                LFXDeviceID deviceId = new LFXDeviceID(getTargetFromMessageData(bytes_1));
-                target_1 = new LFXBinaryTargetID(deviceId);
-            }
-
-            this.path = new LFXBinaryPath(site_1, target_1);
-
-            this.payload = getPayloadFromMessageData(bytes_1);            
+            this.atTime = getAtTimeFromMessageData(bytes);
+            this.data = bytes;
         }        
         
         // final 
-        this.sourceNetworkHost = null;
+        this.sourceNetworkHost = sourceNetworkHost;
         this.target = null;        
     }    
 
@@ -241,7 +264,18 @@ public class LFXMessage {
         this.path = path;
         this.payload = other.payload;
         this.sourceNetworkHost = sourceNetworkHost;
-        this.incomingHash = 0;
+        this.siteValue = other.siteValue;
+        this.targetValue = other.targetValue;
+        this.tagged = other.tagged;
+        
+        if(other.isEncodedOutgoing() && path != other.path) {
+            // the path is part of the encoded header
+            this.data = Arrays.copyOf(other.data, other.data.length);
+            writeHeader(ByteBuffer.wrap(this.data), messageType, path, protocol, atTime, 
+                    this.data.length - BASE_MESSAGE_SIZE);
+        } else {
+            this.data = other.data;
+        }
     }
     
     
@@ -252,6 +286,11 @@ public class LFXMessage {
     }    
     
     public byte[] getMessageDataRepresentation() {
+        if(isEncodedOutgoing()) {
+            return Arrays.copyOf(data, data.length);
+        }
+        
+        LxProtocolTypeBase payload = getPayload();
         byte[] data;
 
         if (payload != null) {
@@ -271,13 +310,14 @@ public class LFXMessage {
         }
         
         
+        LFXBinaryPath path = getPath();
         writeSiteIDToMessage(path.getSiteID().getDataValue(), data);
 
         if (path.getBinaryTargetID().geTargetType() == LFXBinaryTargetType.DEVICE) {
             writeTargetIDtoMessage(path.getBinaryTargetID().getDeviceID().getDeviceDataValue(), data);
             writeIsTaggedToMessage(false, data);
         } else {
-            UInt64 tags = LFXTagID.pack(path.getBinaryTargetID().getGroupTagField());
+            UInt64 tags = LFXTagID.pack(path.getBinaryTargetID().getGroupTagMask());
             //writeTargetIDtoMessage(path.getBinaryTargetID().getGroupTagField().tagData, data);
             writeTargetIDtoMessage(tags.getBytes(), data);
             writeIsTaggedToMessage(true, data);
@@ -298,6 +338,95 @@ public class LFXMessage {
         return data;
     }    
     
+    /**
+     * Writes the message to the buffer at its current position, the same
+     * bytes as {@link #getMessageDataRepresentation()} but without the 
+     * intermediate arrays. The buffer is switched to little endian and its
+     * position is moved past the message.
+     */
+    public void writeMessageDataRepresentation(ByteBuffer buf) {
+        if(isEncodedOutgoing()) {
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.put(data);
+            written = true;
+            return;
+        }
+        
+        LxProtocolTypeBase payload = getPayload();
+        int start = buf.position();
+        int payloadSize = payload != null ? LxProtocol.getPayloadSize(messageType) : 0;
+        writeHeader(buf, messageType, getPath(), protocol, atTime, payloadSize);
+        if(payload != null) {
+            payload.encodeTo(buf);
+        }        
+        // pooled buffers are not zeroed
+        while(buf.position() < start + BASE_MESSAGE_SIZE + payloadSize) {
+            buf.put((byte)0);
+        }
+    }
+    
+    /**
+     * Returns the data of an outgoing message that was encoded by a template
+     * if it has been written since the message was created or last reused, 
+     * otherwise null. The caller owns the data from then on and may change 
+     * it and send the message again. 
+     * 
+     * This only works for messages that are written once, messages that may
+     * be resent must not be reused.
+     */
+    public byte[] reuseData() {
+        if(isEncodedOutgoing() && written) {
+            written = false;
+            // the payload is decoded again from the new data
+            payload = null;
+            return data;
+        }
+        return null;
+    }
+    
+    /**
+     * Writes the header of an outgoing message with a payload of the given
+     * size to the buffer at its current position. The buffer is switched to
+     * little endian and its position is moved to where the payload starts,
+     * so the payload can be written right after, for example with 
+     * LxProtocolLight.Set.encode().
+     */
+    public static void writeHeader(ByteBuffer buf, Type type, LFXBinaryPath path, int payloadSize) {
+        writeHeader(buf, type, path, CURRENT_PROTOCOL, 0, payloadSize);
+    }
+    
+    private static void writeHeader(ByteBuffer buf, Type type, LFXBinaryPath path, int protocol, long atTime, int payloadSize) {
+        int start = buf.position();
+        boolean tagged = path.getBinaryTargetID().geTargetType() != LFXBinaryTargetType.DEVICE;
+        
+        int protocolField = (protocol & PROTOCOL_VERSION_BITS) | ADDRESSABLE_BIT;
+        if(tagged) {
+            protocolField |= TAGGED_BIT;
+        }
+        
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        buf.putShort(start, (short)(BASE_MESSAGE_SIZE + payloadSize));
+        buf.putShort(start + 2, (short)protocolField);
+        buf.putInt(start + 4, 0);
+        
+        if(tagged) {
+            buf.putLong(start + 8, path.getBinaryTargetID().getGroupTagMask());
+        } else {
+            buf.position(start + 8);
+            path.getBinaryTargetID().getDeviceID().writeTo(buf);
+            buf.putShort(start + 14, (short)0);
+        }
+        
+        buf.position(start + 16);
+        path.getSiteID().writeTo(buf);
+        buf.putShort(start + 22, (short)0);
+        buf.putLong(start + 24, atTime);
+        buf.putShort(start + 32, (short)getTypeValue(type));
+        buf.putShort(start + 34, (short)0);
+        
+        buf.position(start + PAYLOAD_START_INDEX);
+    }
+    
     public long getTimestamp() {
         return timestamp;
     }
@@ -313,56 +442,94 @@ public class LFXMessage {
      * TODO: remove this?
      */
     public int getIncomingHash() {
-        return incomingHash;
+        int hash = incomingHash;
+        if(hash == 0 && data != null && messageDirection == LFXMessageDirection.INCOMING) {
+            hash = getHashFromMessageData(data);
+            incomingHash = hash;
+        }
+        return hash;
     }
 
     public boolean isAResponseMessage() {
-        switch(getType()) {
-            case LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY:
-            case LX_PROTOCOL_DEVICE_STATE_TIME:
-            case LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH:
-            case LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD:
-            case LX_PROTOCOL_DEVICE_STATE_MESH_INFO:
-            case LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE:
-            case LX_PROTOCOL_DEVICE_STATE_WIFI_INFO:
-            case LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE:
-            case LX_PROTOCOL_DEVICE_STATE_POWER:
-            case LX_PROTOCOL_DEVICE_STATE_LABEL:
-            case LX_PROTOCOL_DEVICE_STATE_TAGS:
-            case LX_PROTOCOL_DEVICE_STATE_TAG_LABELS:
-            case LX_PROTOCOL_DEVICE_STATE_VERSION:
-            case LX_PROTOCOL_DEVICE_STATE_INFO:
-            case LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE:
-            case LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE:
-            case LX_PROTOCOL_DEVICE_STATE_LOCATION:
-            case LX_PROTOCOL_DEVICE_STATE_GROUP:
-            case LX_PROTOCOL_DEVICE_ECHO_REQUEST:
-            case LX_PROTOCOL_LIGHT_STATE:
-            case LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE:
-            case LX_PROTOCOL_LIGHT_STATE_TEMPERATURE:
-            case LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT:
-            case LX_PROTOCOL_LIGHT_STATE_POWER:
-            //case LX_PROTOCOL_WAN_STATE:
-            //case LX_PROTOCOL_WAN_STATE_AUTH_KEY:
-            //case LX_PROTOCOL_WAN_STATE_KEEP_ALIVE:
-            //case LX_PROTOCOL_WAN_STATE_HOST:
-            case LX_PROTOCOL_WIFI_STATE:
-            //case LX_PROTOCOL_WIFI_STATE_ACCESS_POINTS:
-            case LX_PROTOCOL_WIFI_STATE_ACCESS_POINT:
-            case LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT:
-            case LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE:     
-                return true;
-        }
-        return false;        
+        return isAResponseType(getType());
+    }
+    
+    /**
+     * Returns true if messages of the given type are responses from a light.
+     */
+    public static boolean isAResponseType(Type type) {
+        return LxProtocol.getTypeInfo(type).isResponse();
     }
 
 
+    /**
+     * Returns the payload. The payload of an incoming message is decoded 
+     * the first time this is called, so messages that are only routed by 
+     * their header never pay for it.
+     */
     public <T extends LxProtocolTypeBase> T getPayload() {
-        return (T)payload;
+        LxProtocolTypeBase result = payload;
+        if(result == null && data != null) {
+            result = getPayloadFromMessageData(data);
+            payload = result;
+        }
+        return (T)result;
     }
 
+    /**
+     * Returns the path. The path of an incoming message is created the 
+     * first time this is called, the routing uses getTargetType(), 
+     * getSiteIDValue() and getDeviceIDValue() which don't create it.
+     */
     public LFXBinaryPath getPath() {
-        return path;
+        LFXBinaryPath result = path;
+        if(result == null) {
+            LFXBinaryTargetID target = tagged 
+                    ? new LFXBinaryTargetID(targetValue) 
+                    : new LFXBinaryTargetID(new LFXDeviceID(targetValue));
+            result = new LFXBinaryPath(new LFXSiteID(siteValue), target);
+            path = result;
+        }
+        return result;
+    }
+    
+    public LFXBinaryTargetType getTargetType() {
+        LFXBinaryPath result = path;
+        if(result != null) {
+            return result.getBinaryTargetID().getTargetType();
+        }
+        if(!tagged) {
+            return LFXBinaryTargetType.DEVICE;
+        }
+        return targetValue == 0 ? LFXBinaryTargetType.BROADCAST : LFXBinaryTargetType.TAG;
+    }
+    
+    /**
+     * Returns the value of the site id, see LFXSiteID.getValue().
+     */
+    public long getSiteIDValue() {
+        LFXBinaryPath result = path;
+        return result != null ? result.getSiteID().getValue() : siteValue;
+    }
+    
+    /**
+     * Returns the value of the device id, see LFXDeviceID.getValue().
+     * 
+     * @throws IllegalStateException if the target is not a device
+     */
+    public long getDeviceIDValue() {
+        LFXBinaryPath result = path;
+        if(result != null) {
+            return result.getBinaryTargetID().getDeviceID().getValue();
+        }
+        if(tagged) {
+            throw new IllegalStateException("target is not DEVICE it is " + getTargetType());
+        }
+        return targetValue;
+    }
+    
+    private boolean isEncodedOutgoing() {
+        return messageDirection == LFXMessageDirection.OUTGOING && data != null;
     }
     
     public InetAddress getSourceNetworkHost() {
@@ -378,7 +545,7 @@ public class LFXMessage {
     }
     
     public LFXMessage withSource(InetAddress sourceNetworkHost) {
-        return new LFXMessage(this, path, sourceNetworkHost);
+        return new LFXMessage(this, getPath(), sourceNetworkHost);
     }    
     
     
@@ -386,6 +553,39 @@ public class LFXMessage {
     // Static methods
     ////////////////////////////////////////////////////////////////////////////
     
+    /**
+     * Returns the type of the message in the buffer without consuming it, or 
+     * null if the buffer does not hold a known addressable message. This is
+     * used to skip messages before they are parsed.
+     */
+    public static Type peekType(ByteBuffer buf) {
+        int start = buf.position();
+        if(buf.remaining() < BASE_MESSAGE_SIZE) {
+            return null;
+        }
+        buf.order(ByteOrder.LITTLE_ENDIAN);
+        if((buf.getShort(start + 2) & ADDRESSABLE_BIT) == 0) {
+            return null;
+        }
+        return LxProtocol.getType(buf.getShort(start + 32) & 0xffff);
+    }
+    
+    private static byte[] copyOf(byte[] data) {
+        if (data == null || data.length == 0) {
+            throw new RuntimeException("data is missing");
+        }
+        return Arrays.copyOf(data, data.length);
+    }
+    
+    private static byte[] copyOf(ByteBuffer buf) {
+        if (buf == null || !buf.hasRemaining()) {
+            throw new RuntimeException("data is missing");
+        }
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+    
     private static boolean messageIsAddressable(byte[] data) {
         boolean addressable = false;
         short protocol = StructleTypes.getShortValue(data[2], data[3]);
@@ -424,60 +624,27 @@ public class LFXMessage {
     /**
      * Returns a hash of the message data, excluding the time.
      */
-    private static int getHashFromMessageData(byte[] _data) {
-        byte[] copy = Arrays.copyOf(_data, _data.length);
-
-        // clear out atTime because that will be different every time even
-        // if the message is the same
-        copy[24] = 0;
-        copy[25] = 0;
-        copy[26] = 0;
-        copy[27] = 0;
-        copy[28] = 0;
-        copy[29] = 0;
-        copy[30] = 0;
-        copy[31] = 0;
-        
-        return LFXByteUtils.byteArrayToHexString(copy).hashCode();
-    }
-
-    private static byte[] getSiteIDFromMessageData(byte[] data) {
-        byte[] siteIdArray = new byte[6];
-        siteIdArray[0] = data[16];
-        siteIdArray[1] = data[17];
-        siteIdArray[2] = data[18];
-        siteIdArray[3] = data[19];
-        siteIdArray[4] = data[20];
-        siteIdArray[5] = data[21];
-
-        return siteIdArray;
+    private static int getHashFromMessageData(byte[] data) {
+        int hash = 1;
+        for(int i = 0; i < data.length; i++) {
+            // skip atTime because that will be different every time even
+            // if the message is the same
+            if(i < 24 || i > 31) {
+                hash = 31 * hash + data[i];
+            }
+        }
+        return hash;
     }
 
-    private static byte[] getTargetFromMessageData(byte[] data) {
-        boolean tagged = getIsTaggedFromMessageData(data);
-        byte[] targetByteArray = null;
-
-        if (tagged) {
-            targetByteArray = new byte[8];
-            targetByteArray[0] = data[8];
-            targetByteArray[1] = data[9];
-            targetByteArray[2] = data[10];
-            targetByteArray[3] = data[11];
-            targetByteArray[4] = data[12];
-            targetByteArray[5] = data[13];
-            targetByteArray[6] = data[14];
-            targetByteArray[7] = data[15];
-        } else {
-            targetByteArray = new byte[6];
-            targetByteArray[0] = data[8];
-            targetByteArray[1] = data[9];
-            targetByteArray[2] = data[10];
-            targetByteArray[3] = data[11];
-            targetByteArray[4] = data[12];
-            targetByteArray[5] = data[13];
+    /**
+     * Reads the tags field of a tagged message as a bit mask.
+     */
+    private static long getTagMaskFromMessageData(byte[] data) {
+        long mask = 0;
+        for (int i = 15; i >= 8; i--) {
+            mask = (mask << 8) | (data[i] & 0xFF);
         }
-
-        return targetByteArray;
+        return mask;
     }
 
     private static boolean getIsTaggedFromMessageData(byte[] data) {
@@ -494,10 +661,10 @@ public class LFXMessage {
     }
 
     private static Type getTypeFromMessageData(byte[] data) {
-        short typeValue = StructleTypes.getShortValue(data[32], data[33]);
-        Type type = LxProtocol.typeMap.get((int) typeValue);
+        int typeValue = StructleTypes.getShortValue(data[32], data[33]) & 0xffff;
+        Type type = LxProtocol.getType(typeValue);
         if(type == null) {
-            throw new IllegalStateException("message data has type value=" + typeValue + " which is not in LxProtocol.typeMap");
+            throw new IllegalStateException("message data has type value=" + typeValue + " which is not a known LxProtocol.Type");
         }
 
         return type;
@@ -512,16 +679,11 @@ public class LFXMessage {
             throw new IllegalStateException("messageType is null in message data");
         }
         
-        Class<? extends LxProtocolTypeBase> messagePayloadClass = LxProtocol.typeClassMap.get(messageType);
-        if(messagePayloadClass == null) {
-            throw new IllegalStateException(messageType + " is missing from LxProtocol.typeClassMap");
-        }
-
         LxProtocolTypeBase payload = null;        
         try {
-            payload = messagePayloadClass.getDeclaredConstructor(new Class[]{byte[].class, int.class}).newInstance(data, PAYLOAD_START_INDEX);
-        } catch (InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | NoSuchMethodException e) {
-            String msg = String.format("Faild to create class %s from payload %s", messagePayloadClass.getName(), StructleTypes.bytesToString(data));
+            payload = LxProtocol.decodePayload(messageType, data, PAYLOAD_START_INDEX);
+        } catch (RuntimeException e) {
+            String msg = String.format("Faild to create payload %s from %s", messageType, StructleTypes.bytesToString(data));
             Logger.getLogger(LFXMessage.class.getName()).log(Level.SEVERE, msg, e);
         }
 
@@ -530,23 +692,7 @@ public class LFXMessage {
 
 
     private int getMessageDataRepresentationLength() {
-        int prePayloadLength = BASE_MESSAGE_SIZE;
-
-        Class<? extends LxProtocolTypeBase> payloadClass = LxProtocol.typeClassMap.get(messageType);
-        int payloadLength = 0;
-
-        try {
-            Method method = payloadClass.getMethod(PAYLOAD_SIZE_METHOD_NAME);
-            Object o = method.invoke(null);
-
-            if (o != null) {
-                payloadLength = (Integer) o;
-            }
-        } catch (IllegalAccessException | IllegalArgumentException | NoSuchMethodException | InvocationTargetException e) {
-            Logger.getLogger(LFXMessage.class.getName()).log(Level.SEVERE, null, e);
-        }
-
-        return (payloadLength + prePayloadLength);
+        return BASE_MESSAGE_SIZE + LxProtocol.getPayloadSize(messageType);
     }
 
     private static void writeSizeToMessage(short size, byte[] data) {
@@ -590,8 +736,16 @@ public class LFXMessage {
         data[31] = atTimeBytes[7];
     }
 
+    private static int getTypeValue(Type type) {
+        int typeValue = LxProtocol.getTypeValue(type);
+        if(typeValue < 0) {
+            throw new IllegalStateException(type + " has no value in LxProtocol");
+        }
+        return typeValue;
+    }
+
     private static void writeTypeToMessage(Type type, byte[] data) {
-        int typeValue = LxProtocol.typeValueMap.get(type);
+        int typeValue = getTypeValue(type);
 //        short typeValueShort = (short) typeValue;
 //        data[32] = (byte) (typeValueShort & 0xff);
 //        data[33] = (byte) ((typeValueShort >> 8) & 0xff);
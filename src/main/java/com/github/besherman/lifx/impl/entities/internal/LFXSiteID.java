@@ -24,7 +24,7 @@
  */
 package com.github.besherman.lifx.impl.entities.internal;
 
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 
 /**
  * What is a site you ask? Good question.
@@ -33,25 +33,47 @@ import java.util.Arrays;
  * But it is not the address of the interface that sends us messages. 
  * Current working hypothesis: It's the PAN controller's mesh interface MAC address.
  * 
- * This is part of {@link LFXBinaryPath}.
+ * This is part of {@link LFXBinaryPath}. The six bytes are kept in a long so
+ * that creating and comparing ids is cheap.
  */
 public class LFXSiteID {
     private static final int LFX_SITE_ID_NUMBER_OF_BYTES = 6;
+    private static final long MASK = 0xFFFFFFFFFFFFL;
 
-    private final byte[] data;
+    private final long value;
 
     // When a device hasn't been added to a site yet, it will have a 'zero' Site ID.
     public LFXSiteID() {
-        this.data = new byte[LFX_SITE_ID_NUMBER_OF_BYTES];
-        Arrays.fill(data, (byte)0);
+        this.value = 0;
     }
     
     public LFXSiteID(byte[] data) {
-        this.data = Arrays.copyOf(data, data.length);        
+        if(data.length != LFX_SITE_ID_NUMBER_OF_BYTES) {
+            throw new IllegalArgumentException("data expected to be " + 
+                    LFX_SITE_ID_NUMBER_OF_BYTES + " was " + data.length);
+        }
+        this.value = LFXByteUtils.readUInt48(data, 0);
     }
     
+    /**
+     * Creates a site id from the hex string, or the zero site from "*".
+     */
     public LFXSiteID(String siteIDString) {
-        this(LFXByteUtils.hexStringToByteArray(siteIDString));
+        this(siteIDString.equals("*") ? 0 : LFXByteUtils.readUInt48(LFXByteUtils.hexStringToByteArray(siteIDString), 0));
+    }
+    
+    /**
+     * Creates a site id from the lower 48 bits of the value.
+     */
+    public LFXSiteID(long value) {
+        this.value = value & MASK;
+    }
+    
+    /**
+     * Reads the site id from six bytes in the array.
+     */
+    public static LFXSiteID fromBytes(byte[] data, int offset) {
+        return new LFXSiteID(LFXByteUtils.readUInt48(data, offset));
     }
 
 
@@ -60,16 +82,35 @@ public class LFXSiteID {
             return "*";
         }
 
-        return LFXByteUtils.byteArrayToHexString(data);
+        return LFXByteUtils.uint48ToHexString(value);
     }
 
     public byte[] getDataValue() {
+        byte[] data = new byte[LFX_SITE_ID_NUMBER_OF_BYTES];
+        LFXByteUtils.writeUInt48(value, data, 0);
         return data;
     }
+    
+    /**
+     * Returns the id as a 48 bit number, the first byte is the most 
+     * significant.
+     */
+    public long getValue() {
+        return value;
+    }
+    
+    /**
+     * Puts the six bytes of the id in the buffer.
+     */
+    public void writeTo(ByteBuffer buf) {
+        for(int shift = 40; shift >= 0; shift -= 8) {
+            buf.put((byte)(value >>> shift));
+        }
+    }
 
     
     public boolean isZeroSite() {
-        return LFXByteUtils.isByteArrayEmpty(data);
+        return value == 0;
     }
 
     @Override
@@ -80,7 +121,7 @@ public class LFXSiteID {
     @Override
     public int hashCode() {
         int hash = 3;
-        hash = 79 * hash + Arrays.hashCode(this.data);
+        hash = 79 * hash + (int) (this.value ^ (this.value >>> 32));
         return hash;
     }
 
@@ -93,7 +134,7 @@ public class LFXSiteID {
             return false;
         }
         final LFXSiteID other = (LFXSiteID) obj;
-        if (!Arrays.equals(this.data, other.data)) {
+        if (this.value != other.value) {
             return false;
         }
         return true;
@@ -25,120 +25,158 @@
 package com.github.besherman.lifx.impl.entities.internal;
 
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt64;
-import java.math.BigInteger;
 import java.util.EnumSet;
 import java.util.Set;
 
 /**
+ * The 64 tags a light can have. Internally a set of tags is a 64 bit mask
+ * where bit n is set if TAG_(n+1) is in the set, the same layout as the
+ * tags field in the protocol.
  *
  * @author Richard
  */
 public enum LFXTagID {
-    TAG_01(bits(0)), 
-    TAG_02(bits(1)), 
-    TAG_03(bits(2)), 
-    TAG_04(bits(3)), 
-    TAG_05(bits(4)), 
-    TAG_06(bits(5)), 
-    TAG_07(bits(6)), 
-    TAG_08(bits(7)), 
-    TAG_09(bits(8)), 
-    TAG_10(bits(9)), 
-    TAG_11(bits(10)), 
-    TAG_12(bits(11)), 
-    TAG_13(bits(12)), 
-    TAG_14(bits(13)), 
-    TAG_15(bits(14)), 
-    TAG_16(bits(15)), 
-    TAG_17(bits(16)), 
-    TAG_18(bits(17)), 
-    TAG_19(bits(18)), 
-    TAG_20(bits(19)), 
-    TAG_21(bits(20)), 
-    TAG_22(bits(21)), 
-    TAG_23(bits(22)), 
-    TAG_24(bits(23)), 
-    TAG_25(bits(24)), 
-    TAG_26(bits(25)), 
-    TAG_27(bits(26)), 
-    TAG_28(bits(27)), 
-    TAG_29(bits(28)), 
-    TAG_30(bits(29)), 
-    TAG_31(bits(30)), 
-    TAG_32(bits(31)), 
-    TAG_33(bits(32)), 
-    TAG_34(bits(33)), 
-    TAG_35(bits(34)), 
-    TAG_36(bits(35)), 
-    TAG_37(bits(36)), 
-    TAG_38(bits(37)), 
-    TAG_39(bits(38)), 
-    TAG_40(bits(39)), 
-    TAG_41(bits(40)), 
-    TAG_42(bits(41)), 
-    TAG_43(bits(42)), 
-    TAG_44(bits(43)), 
-    TAG_45(bits(44)), 
-    TAG_46(bits(45)), 
-    TAG_47(bits(46)), 
-    TAG_48(bits(47)), 
-    TAG_49(bits(48)), 
-    TAG_50(bits(49)), 
-    TAG_51(bits(50)), 
-    TAG_52(bits(51)), 
-    TAG_53(bits(52)), 
-    TAG_54(bits(53)), 
-    TAG_55(bits(54)), 
-    TAG_56(bits(55)), 
-    TAG_57(bits(56)), 
-    TAG_58(bits(57)), 
-    TAG_59(bits(58)), 
-    TAG_60(bits(59)), 
-    TAG_61(bits(60)), 
-    TAG_62(bits(61)), 
-    TAG_63(bits(62)), 
-    TAG_64(bits(63));
+    TAG_01,
+    TAG_02,
+    TAG_03,
+    TAG_04,
+    TAG_05,
+    TAG_06,
+    TAG_07,
+    TAG_08,
+    TAG_09,
+    TAG_10,
+    TAG_11,
+    TAG_12,
+    TAG_13,
+    TAG_14,
+    TAG_15,
+    TAG_16,
+    TAG_17,
+    TAG_18,
+    TAG_19,
+    TAG_20,
+    TAG_21,
+    TAG_22,
+    TAG_23,
+    TAG_24,
+    TAG_25,
+    TAG_26,
+    TAG_27,
+    TAG_28,
+    TAG_29,
+    TAG_30,
+    TAG_31,
+    TAG_32,
+    TAG_33,
+    TAG_34,
+    TAG_35,
+    TAG_36,
+    TAG_37,
+    TAG_38,
+    TAG_39,
+    TAG_40,
+    TAG_41,
+    TAG_42,
+    TAG_43,
+    TAG_44,
+    TAG_45,
+    TAG_46,
+    TAG_47,
+    TAG_48,
+    TAG_49,
+    TAG_50,
+    TAG_51,
+    TAG_52,
+    TAG_53,
+    TAG_54,
+    TAG_55,
+    TAG_56,
+    TAG_57,
+    TAG_58,
+    TAG_59,
+    TAG_60,
+    TAG_61,
+    TAG_62,
+    TAG_63,
+    TAG_64;
+    
+    /**
+     * The mask with all tags set.
+     */
+    public static final long ALL_TAGS_MASK = -1L;
+    
+    private static final LFXTagID[] TAGS = values();
         
     public static EnumSet<LFXTagID> unpack(UInt64 value) {
-        EnumSet<LFXTagID> result = EnumSet.allOf(LFXTagID.class);
-        BigInteger tmp = value.getBigIntegerValue();
-        for(LFXTagID tag: values()) {
-            if(tmp.and(tag.value).equals(BigInteger.ZERO)) {
-                result.remove(tag);
-            }
+        return fromMask(toMask(value));
+    }
+    
+    /**
+     * Returns the tags in the protocol field as a bit mask.
+     */
+    public static long toMask(UInt64 value) {
+        return value.getSignedValue();
+    }
+    
+    /**
+     * Returns the tags as a bit mask, bit n is set if TAG_(n+1) is in the set.
+     */
+    public static long toMask(Set<LFXTagID> tags) {
+        long mask = 0;
+        for(LFXTagID tag: tags) {
+            mask |= tag.getMask();
+        }
+        return mask;
+    }
+    
+    /**
+     * Returns the tags in the bit mask, the opposite of toMask().
+     */
+    public static EnumSet<LFXTagID> fromMask(long mask) {
+        EnumSet<LFXTagID> result = EnumSet.noneOf(LFXTagID.class);
+        while(mask != 0) {
+            result.add(TAGS[Long.numberOfTrailingZeros(mask)]);
+            mask &= mask - 1;
         }
         return result;
     }
     
+    /**
+     * Returns the tag for bit n in a mask.
+     */
+    public static LFXTagID fromBit(int bit) {
+        return TAGS[bit];
+    }
+    
     public static UInt64 pack(Set<LFXTagID> tags) {
-        BigInteger value = BigInteger.ZERO;
-        for(LFXTagID tag: tags) {
-            value = value.or(tag.value);
-        }
-        
-        return new UInt64(value);
+        return pack(toMask(tags));
     }    
+    
+    /**
+     * Returns the bit mask as the protocol field.
+     */
+    public static UInt64 pack(long mask) {
+        return new UInt64(mask);
+    }
 
 
     ////////////////////////////////////////////////////////////////////////////
     // Object 
     ////////////////////////////////////////////////////////////////////////////
-    private final BigInteger value;
     
-    private LFXTagID(BigInteger value) {
-        this.value = value;
+    /**
+     * Returns the bit that represents this tag.
+     */
+    public long getMask() {
+        return 1L << ordinal();
     }
     
     public String bitField() {
         StringBuilder builder = new StringBuilder();
         for(int i = 0; i < 64; i++) {
-            builder.append(value.testBit(i) ? "1" : "0");
+            builder.append((getMask() >>> i & 1) != 0 ? "1" : "0");
         }
         return builder.toString();
     }
-    
-    
-    private static BigInteger bits(int pow) {
-        return (new BigInteger("2")).pow(pow);
-    }
 }
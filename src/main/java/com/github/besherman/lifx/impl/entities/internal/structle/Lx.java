@@ -28,6 +28,7 @@ package com.github.besherman.lifx.impl.entities.internal.structle;
  **** GENERATED CODE ****
  Start Of File: Lx.java 
  */
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.LxProtocolTypeBase;
@@ -174,6 +175,13 @@ public class Lx {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(size.getBytes());
+            buf.put(_protocol.getBytes());
+            buf.put(reserved.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -411,6 +419,16 @@ public class Lx {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(size.getBytes());
+            buf.put(_protocol.getBytes());
+            buf.put(reserved.getBytes());
+            buf.put(target);
+            buf.put(site);
+            buf.put(_routing.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -865,6 +883,20 @@ public class Lx {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(size.getBytes());
+            buf.put(_protocol.getBytes());
+            buf.put(reserved.getBytes());
+            buf.put(target);
+            buf.put(site);
+            buf.put(_routing.getBytes());
+            buf.put(at_time.getBytes());
+            buf.put(type.getBytes());
+            buf.put(reserved2);
+            payload.encodeTo(buf);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -0,0 +1,574 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.entities.internal.structle;
+
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol.Type;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed offset codecs for the payloads in lx-protocol.schema. The getters
+ * read a field from message data where the payload starts at offset and
+ * encode() writes a whole payload to a little endian buffer. Only strings
+ * allocate.
+ * 
+ * Generated by StructleCodecGenerator, do not edit.
+ */
+public final class LxCodec {
+
+    private LxCodec() {
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Light::Hsbk
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class Hsbk {
+        public static final int SIZE = 8;
+        public static final int HUE = 0;
+        public static final int SATURATION = 2;
+        public static final int BRIGHTNESS = 4;
+        public static final int KELVIN = 6;
+
+        private Hsbk() {
+        }
+
+        public static int getHue(byte[] data, int offset) {
+            return StructleTypes.readUInt16(data, offset + HUE);
+        }
+
+        public static int getSaturation(byte[] data, int offset) {
+            return StructleTypes.readUInt16(data, offset + SATURATION);
+        }
+
+        public static int getBrightness(byte[] data, int offset) {
+            return StructleTypes.readUInt16(data, offset + BRIGHTNESS);
+        }
+
+        public static int getKelvin(byte[] data, int offset) {
+            return StructleTypes.readUInt16(data, offset + KELVIN);
+        }
+
+        public static void encode(ByteBuffer buf, int hue, int saturation, int brightness, int kelvin) {
+            buf.putShort((short) hue);
+            buf.putShort((short) saturation);
+            buf.putShort((short) brightness);
+            buf.putShort((short) kelvin);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StatePanGateway
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStatePanGateway {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY;
+        public static final int SIZE = 5;
+        public static final int SERVICE = 0;
+        public static final int PORT = 1;
+
+        private DeviceStatePanGateway() {
+        }
+
+        public static int getService(byte[] data, int offset) {
+            return StructleTypes.readUInt8(data, offset + SERVICE);
+        }
+
+        public static long getPort(byte[] data, int offset) {
+            return StructleTypes.readUInt32(data, offset + PORT);
+        }
+
+        public static void encode(ByteBuffer buf, int service, long port) {
+            buf.put((byte) service);
+            buf.putInt((int) port);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StateTime
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStateTime {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_TIME;
+        public static final int SIZE = 8;
+        public static final int TIME = 0;
+
+        private DeviceStateTime() {
+        }
+
+        public static long getTime(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TIME);
+        }
+
+        public static void encode(ByteBuffer buf, long time) {
+            buf.putLong(time);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::SetPower
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceSetPower {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_SET_POWER;
+        public static final int SIZE = 2;
+        public static final int LEVEL = 0;
+
+        private DeviceSetPower() {
+        }
+
+        public static int getLevel(byte[] data, int offset) {
+            return StructleTypes.readUInt16(data, offset + LEVEL);
+        }
+
+        public static void encode(ByteBuffer buf, int level) {
+            buf.putShort((short) level);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StatePower
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStatePower {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_POWER;
+        public static final int SIZE = 2;
+        public static final int LEVEL = 0;
+
+        private DeviceStatePower() {
+        }
+
+        public static int getLevel(byte[] data, int offset) {
+            return StructleTypes.readUInt16(data, offset + LEVEL);
+        }
+
+        public static void encode(ByteBuffer buf, int level) {
+            buf.putShort((short) level);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::SetLabel
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceSetLabel {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_SET_LABEL;
+        public static final int SIZE = 32;
+        public static final int LABEL = 0;
+
+        private DeviceSetLabel() {
+        }
+
+        public static String getLabel(byte[] data, int offset) {
+            return StructleTypes.readString(data, offset + LABEL, 32);
+        }
+
+        public static void encode(ByteBuffer buf, String label) {
+            StructleTypes.writeString(buf, label, 32);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StateLabel
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStateLabel {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_LABEL;
+        public static final int SIZE = 32;
+        public static final int LABEL = 0;
+
+        private DeviceStateLabel() {
+        }
+
+        public static String getLabel(byte[] data, int offset) {
+            return StructleTypes.readString(data, offset + LABEL, 32);
+        }
+
+        public static void encode(ByteBuffer buf, String label) {
+            StructleTypes.writeString(buf, label, 32);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::SetTags
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceSetTags {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_SET_TAGS;
+        public static final int SIZE = 8;
+        public static final int TAGS = 0;
+
+        private DeviceSetTags() {
+        }
+
+        public static long getTags(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TAGS);
+        }
+
+        public static void encode(ByteBuffer buf, long tags) {
+            buf.putLong(tags);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StateTags
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStateTags {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_TAGS;
+        public static final int SIZE = 8;
+        public static final int TAGS = 0;
+
+        private DeviceStateTags() {
+        }
+
+        public static long getTags(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TAGS);
+        }
+
+        public static void encode(ByteBuffer buf, long tags) {
+            buf.putLong(tags);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::GetTagLabels
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceGetTagLabels {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS;
+        public static final int SIZE = 8;
+        public static final int TAGS = 0;
+
+        private DeviceGetTagLabels() {
+        }
+
+        public static long getTags(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TAGS);
+        }
+
+        public static void encode(ByteBuffer buf, long tags) {
+            buf.putLong(tags);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::SetTagLabels
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceSetTagLabels {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS;
+        public static final int SIZE = 40;
+        public static final int TAGS = 0;
+        public static final int LABEL = 8;
+
+        private DeviceSetTagLabels() {
+        }
+
+        public static long getTags(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TAGS);
+        }
+
+        public static String getLabel(byte[] data, int offset) {
+            return StructleTypes.readString(data, offset + LABEL, 32);
+        }
+
+        public static void encode(ByteBuffer buf, long tags, String label) {
+            buf.putLong(tags);
+            StructleTypes.writeString(buf, label, 32);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StateTagLabels
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStateTagLabels {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS;
+        public static final int SIZE = 40;
+        public static final int TAGS = 0;
+        public static final int LABEL = 8;
+
+        private DeviceStateTagLabels() {
+        }
+
+        public static long getTags(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TAGS);
+        }
+
+        public static String getLabel(byte[] data, int offset) {
+            return StructleTypes.readString(data, offset + LABEL, 32);
+        }
+
+        public static void encode(ByteBuffer buf, long tags, String label) {
+            buf.putLong(tags);
+            StructleTypes.writeString(buf, label, 32);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StateVersion
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStateVersion {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_VERSION;
+        public static final int SIZE = 12;
+        public static final int VENDOR = 0;
+        public static final int PRODUCT = 4;
+        public static final int VERSION = 8;
+
+        private DeviceStateVersion() {
+        }
+
+        public static long getVendor(byte[] data, int offset) {
+            return StructleTypes.readUInt32(data, offset + VENDOR);
+        }
+
+        public static long getProduct(byte[] data, int offset) {
+            return StructleTypes.readUInt32(data, offset + PRODUCT);
+        }
+
+        public static long getVersion(byte[] data, int offset) {
+            return StructleTypes.readUInt32(data, offset + VERSION);
+        }
+
+        public static void encode(ByteBuffer buf, long vendor, long product, long version) {
+            buf.putInt((int) vendor);
+            buf.putInt((int) product);
+            buf.putInt((int) version);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Device::StateInfo
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class DeviceStateInfo {
+        public static final Type TYPE = Type.LX_PROTOCOL_DEVICE_STATE_INFO;
+        public static final int SIZE = 24;
+        public static final int TIME = 0;
+        public static final int UPTIME = 8;
+        public static final int DOWNTIME = 16;
+
+        private DeviceStateInfo() {
+        }
+
+        public static long getTime(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TIME);
+        }
+
+        public static long getUptime(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + UPTIME);
+        }
+
+        public static long getDowntime(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + DOWNTIME);
+        }
+
+        public static void encode(ByteBuffer buf, long time, long uptime, long downtime) {
+            buf.putLong(time);
+            buf.putLong(uptime);
+            buf.putLong(downtime);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Light::Set
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class LightSet {
+        public static final Type TYPE = Type.LX_PROTOCOL_LIGHT_SET;
+        public static final int SIZE = 13;
+        public static final int STREAM = 0;
+        public static final int COLOR = 1;
+        public static final int DURATION = 9;
+
+        private LightSet() {
+        }
+
+        public static int getStream(byte[] data, int offset) {
+            return StructleTypes.readUInt8(data, offset + STREAM);
+        }
+
+        public static int getColorHue(byte[] data, int offset) {
+            return Hsbk.getHue(data, offset + COLOR);
+        }
+
+        public static int getColorSaturation(byte[] data, int offset) {
+            return Hsbk.getSaturation(data, offset + COLOR);
+        }
+
+        public static int getColorBrightness(byte[] data, int offset) {
+            return Hsbk.getBrightness(data, offset + COLOR);
+        }
+
+        public static int getColorKelvin(byte[] data, int offset) {
+            return Hsbk.getKelvin(data, offset + COLOR);
+        }
+
+        public static long getDuration(byte[] data, int offset) {
+            return StructleTypes.readUInt32(data, offset + DURATION);
+        }
+
+        public static void encode(ByteBuffer buf, int stream, int colorHue, int colorSaturation, int colorBrightness, int colorKelvin, long duration) {
+            buf.put((byte) stream);
+            Hsbk.encode(buf, colorHue, colorSaturation, colorBrightness, colorKelvin);
+            buf.putInt((int) duration);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Light::SetWaveform
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class LightSetWaveform {
+        public static final Type TYPE = Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM;
+        public static final int SIZE = 21;
+        public static final int STREAM = 0;
+        public static final int TRANSIENTTYPE = 1;
+        public static final int COLOR = 2;
+        public static final int PERIOD = 10;
+        public static final int CYCLES = 14;
+        public static final int DUTY_CYCLE = 18;
+        public static final int WAVEFORM = 20;
+
+        private LightSetWaveform() {
+        }
+
+        public static int getStream(byte[] data, int offset) {
+            return StructleTypes.readUInt8(data, offset + STREAM);
+        }
+
+        public static boolean getTransienttype(byte[] data, int offset) {
+            return StructleTypes.readBool8(data, offset + TRANSIENTTYPE);
+        }
+
+        public static int getColorHue(byte[] data, int offset) {
+            return Hsbk.getHue(data, offset + COLOR);
+        }
+
+        public static int getColorSaturation(byte[] data, int offset) {
+            return Hsbk.getSaturation(data, offset + COLOR);
+        }
+
+        public static int getColorBrightness(byte[] data, int offset) {
+            return Hsbk.getBrightness(data, offset + COLOR);
+        }
+
+        public static int getColorKelvin(byte[] data, int offset) {
+            return Hsbk.getKelvin(data, offset + COLOR);
+        }
+
+        public static long getPeriod(byte[] data, int offset) {
+            return StructleTypes.readUInt32(data, offset + PERIOD);
+        }
+
+        public static float getCycles(byte[] data, int offset) {
+            return StructleTypes.readFloat32(data, offset + CYCLES);
+        }
+
+        public static int getDutyCycle(byte[] data, int offset) {
+            return StructleTypes.readInt16(data, offset + DUTY_CYCLE);
+        }
+
+        public static int getWaveform(byte[] data, int offset) {
+            return StructleTypes.readUInt8(data, offset + WAVEFORM);
+        }
+
+        public static void encode(ByteBuffer buf, int stream, boolean transienttype, int colorHue, int colorSaturation, int colorBrightness, int colorKelvin, long period, float cycles, int dutyCycle, int waveform) {
+            buf.put((byte) stream);
+            buf.put((byte) (transienttype ? 0xff : 0));
+            Hsbk.encode(buf, colorHue, colorSaturation, colorBrightness, colorKelvin);
+            buf.putInt((int) period);
+            buf.putFloat(cycles);
+            buf.putShort((short) dutyCycle);
+            buf.put((byte) waveform);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Light::SetDimAbsolute
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class LightSetDimAbsolute {
+        public static final Type TYPE = Type.LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE;
+        public static final int SIZE = 6;
+        public static final int BRIGHTNESS = 0;
+        public static final int DURATION = 2;
+
+        private LightSetDimAbsolute() {
+        }
+
+        public static int getBrightness(byte[] data, int offset) {
+            return StructleTypes.readInt16(data, offset + BRIGHTNESS);
+        }
+
+        public static long getDuration(byte[] data, int offset) {
+            return StructleTypes.readUInt32(data, offset + DURATION);
+        }
+
+        public static void encode(ByteBuffer buf, int brightness, long duration) {
+            buf.putShort((short) brightness);
+            buf.putInt((int) duration);
+        }
+    }
+
+    ////////////////////////////////////////////////////////////////////////////
+    // Lx::Protocol::Light::State
+    ////////////////////////////////////////////////////////////////////////////
+    public static final class LightState {
+        public static final Type TYPE = Type.LX_PROTOCOL_LIGHT_STATE;
+        public static final int SIZE = 52;
+        public static final int COLOR = 0;
+        public static final int DIM = 8;
+        public static final int POWER = 10;
+        public static final int LABEL = 12;
+        public static final int TAGS = 44;
+
+        private LightState() {
+        }
+
+        public static int getColorHue(byte[] data, int offset) {
+            return Hsbk.getHue(data, offset + COLOR);
+        }
+
+        public static int getColorSaturation(byte[] data, int offset) {
+            return Hsbk.getSaturation(data, offset + COLOR);
+        }
+
+        public static int getColorBrightness(byte[] data, int offset) {
+            return Hsbk.getBrightness(data, offset + COLOR);
+        }
+
+        public static int getColorKelvin(byte[] data, int offset) {
+            return Hsbk.getKelvin(data, offset + COLOR);
+        }
+
+        public static int getDim(byte[] data, int offset) {
+            return StructleTypes.readInt16(data, offset + DIM);
+        }
+
+        public static int getPower(byte[] data, int offset) {
+            return StructleTypes.readUInt16(data, offset + POWER);
+        }
+
+        public static String getLabel(byte[] data, int offset) {
+            return StructleTypes.readString(data, offset + LABEL, 32);
+        }
+
+        public static long getTags(byte[] data, int offset) {
+            return StructleTypes.readUInt64(data, offset + TAGS);
+        }
+
+        public static void encode(ByteBuffer buf, int colorHue, int colorSaturation, int colorBrightness, int colorKelvin, int dim, int power, String label, long tags) {
+            Hsbk.encode(buf, colorHue, colorSaturation, colorBrightness, colorKelvin);
+            buf.putShort((short) dim);
+            buf.putShort((short) power);
+            StructleTypes.writeString(buf, label, 32);
+            buf.putLong(tags);
+        }
+    }
+}
@@ -24,7 +24,7 @@
  */
 package com.github.besherman.lifx.impl.entities.internal.structle;
 
-import java.util.HashMap;
+import java.util.Arrays;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.LxProtocolTypeBase;
 
 @SuppressWarnings("unused")
@@ -122,261 +122,754 @@ public class LxProtocol {
         LX_PROTOCOL_WAN_CLOUD_MSG_406,				// LX_PROTOCOL_WAN_CLOUD_MSG_406 = 406
     };
 
-    public static final HashMap<Type, Integer> typeValueMap = new HashMap<>();
-    public static final HashMap<Integer, Type> typeMap = new HashMap<>();
-    public static final HashMap<Type, Class<? extends LxProtocolTypeBase>> typeClassMap = new HashMap<>();
+    // everything about a type is kept in arrays indexed by Type.ordinal(), 
+    // and typesByValue is indexed by the value the type has on the wire
+    private static final Type[] types = Type.values();
+    private static final int[] typeValues = new int[types.length];
+    private static final Class<?>[] payloadClasses = new Class<?>[types.length];
+    private static final TypeInfo[] typeInfos = new TypeInfo[types.length];
+    private static final Type[] typesByValue;
 
     static {
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_SITE, 1);
-        typeMap.put(1, Type.LX_PROTOCOL_DEVICE_SET_SITE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY, 2);
-        typeMap.put(2, Type.LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY, 3);
-        typeMap.put(3, Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_TIME, 4);
-        typeMap.put(4, Type.LX_PROTOCOL_DEVICE_GET_TIME);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_TIME, 5);
-        typeMap.put(5, Type.LX_PROTOCOL_DEVICE_SET_TIME);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_TIME, 6);
-        typeMap.put(6, Type.LX_PROTOCOL_DEVICE_STATE_TIME);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_RESET_SWITCH, 7);
-        typeMap.put(7, Type.LX_PROTOCOL_DEVICE_GET_RESET_SWITCH);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH, 8);
-        typeMap.put(8, Type.LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD, 9);
-        typeMap.put(9, Type.LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD, 10);
-        typeMap.put(10, Type.LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD, 11);
-        typeMap.put(11, Type.LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_MESH_INFO, 12);
-        typeMap.put(12, Type.LX_PROTOCOL_DEVICE_GET_MESH_INFO);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_MESH_INFO, 13);
-        typeMap.put(13, Type.LX_PROTOCOL_DEVICE_STATE_MESH_INFO);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE, 14);
-        typeMap.put(14, Type.LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE, 15);
-        typeMap.put(15, Type.LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_WIFI_INFO, 16);
-        typeMap.put(16, Type.LX_PROTOCOL_DEVICE_GET_WIFI_INFO);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_WIFI_INFO, 17);
-        typeMap.put(17, Type.LX_PROTOCOL_DEVICE_STATE_WIFI_INFO);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE, 18);
-        typeMap.put(18, Type.LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE, 19);
-        typeMap.put(19, Type.LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_POWER, 20);
-        typeMap.put(20, Type.LX_PROTOCOL_DEVICE_GET_POWER);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_POWER, 21);
-        typeMap.put(21, Type.LX_PROTOCOL_DEVICE_SET_POWER);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_POWER, 22);
-        typeMap.put(22, Type.LX_PROTOCOL_DEVICE_STATE_POWER);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_LABEL, 23);
-        typeMap.put(23, Type.LX_PROTOCOL_DEVICE_GET_LABEL);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_LABEL, 24);
-        typeMap.put(24, Type.LX_PROTOCOL_DEVICE_SET_LABEL);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_LABEL, 25);
-        typeMap.put(25, Type.LX_PROTOCOL_DEVICE_STATE_LABEL);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_TAGS, 26);
-        typeMap.put(26, Type.LX_PROTOCOL_DEVICE_GET_TAGS);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_TAGS, 27);
-        typeMap.put(27, Type.LX_PROTOCOL_DEVICE_SET_TAGS);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_TAGS, 28);
-        typeMap.put(28, Type.LX_PROTOCOL_DEVICE_STATE_TAGS);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS, 29);
-        typeMap.put(29, Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS, 30);
-        typeMap.put(30, Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS, 31);
-        typeMap.put(31, Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_VERSION, 32);
-        typeMap.put(32, Type.LX_PROTOCOL_DEVICE_GET_VERSION);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_VERSION, 33);
-        typeMap.put(33, Type.LX_PROTOCOL_DEVICE_STATE_VERSION);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_INFO, 34);
-        typeMap.put(34, Type.LX_PROTOCOL_DEVICE_GET_INFO);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_INFO, 35);
-        typeMap.put(35, Type.LX_PROTOCOL_DEVICE_STATE_INFO);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE, 36);
-        typeMap.put(36, Type.LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE, 37);
-        typeMap.put(37, Type.LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_REBOOT, 38);
-        typeMap.put(38, Type.LX_PROTOCOL_DEVICE_REBOOT);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE, 39);
-        typeMap.put(39, Type.LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_DISABLE_FACTORY_TEST_MODE, 40);
-        typeMap.put(40, Type.LX_PROTOCOL_DEVICE_DISABLE_FACTORY_TEST_MODE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE, 41);
-        typeMap.put(41, Type.LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_LOCATION, 48);
-        typeMap.put(48, Type.LX_PROTOCOL_DEVICE_GET_LOCATION);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_LOCATION, 50);
-        typeMap.put(50, Type.LX_PROTOCOL_DEVICE_STATE_LOCATION);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_GET_GROUP, 51);
-        typeMap.put(51, Type.LX_PROTOCOL_DEVICE_GET_GROUP);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_STATE_GROUP, 53);
-        typeMap.put(53, Type.LX_PROTOCOL_DEVICE_STATE_GROUP);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_ECHO_REQUEST, 58);
-        typeMap.put(58, Type.LX_PROTOCOL_DEVICE_ECHO_REQUEST);
-        typeValueMap.put(Type.LX_PROTOCOL_DEVICE_ECHO_RESPONSE, 59);
-        typeMap.put(59, Type.LX_PROTOCOL_DEVICE_ECHO_RESPONSE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_GET, 101);
-        typeMap.put(101, Type.LX_PROTOCOL_LIGHT_GET);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET, 102);
-        typeMap.put(102, Type.LX_PROTOCOL_LIGHT_SET);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM, 103);
-        typeMap.put(103, Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE, 104);
-        typeMap.put(104, Type.LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE, 105);
-        typeMap.put(105, Type.LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET_RGBW, 106);
-        typeMap.put(106, Type.LX_PROTOCOL_LIGHT_SET_RGBW);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_STATE, 107);
-        typeMap.put(107, Type.LX_PROTOCOL_LIGHT_STATE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE, 108);
-        typeMap.put(108, Type.LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE, 109);
-        typeMap.put(109, Type.LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_GET_TEMPERATURE, 110);
-        typeMap.put(110, Type.LX_PROTOCOL_LIGHT_GET_TEMPERATURE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_STATE_TEMPERATURE, 111);
-        typeMap.put(111, Type.LX_PROTOCOL_LIGHT_STATE_TEMPERATURE);
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS, 112);
-        typeMap.put(112, Type.LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS);        
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT, 113);
-        typeMap.put(113, Type.LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT);       
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT, 114);
-        typeMap.put(114, Type.LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT);       
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT, 115);
-        typeMap.put(115, Type.LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT);       
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_GET_POWER, 116);
-        typeMap.put(116, Type.LX_PROTOCOL_LIGHT_GET_POWER);       
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_STATE_POWER, 117);
-        typeMap.put(117, Type.LX_PROTOCOL_LIGHT_STATE_POWER);       
-        typeValueMap.put(Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL, 118);
-        typeMap.put(118, Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL);       
+        Arrays.fill(typeValues, -1);
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_SITE.ordinal()] = 1;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY.ordinal()] = 2;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY.ordinal()] = 3;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_TIME.ordinal()] = 4;
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_TIME.ordinal()] = 5;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_TIME.ordinal()] = 6;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_RESET_SWITCH.ordinal()] = 7;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH.ordinal()] = 8;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD.ordinal()] = 9;
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD.ordinal()] = 10;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD.ordinal()] = 11;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_MESH_INFO.ordinal()] = 12;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_MESH_INFO.ordinal()] = 13;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE.ordinal()] = 14;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE.ordinal()] = 15;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_WIFI_INFO.ordinal()] = 16;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_WIFI_INFO.ordinal()] = 17;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE.ordinal()] = 18;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE.ordinal()] = 19;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_POWER.ordinal()] = 20;
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_POWER.ordinal()] = 21;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_POWER.ordinal()] = 22;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_LABEL.ordinal()] = 23;
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_LABEL.ordinal()] = 24;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_LABEL.ordinal()] = 25;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_TAGS.ordinal()] = 26;
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_TAGS.ordinal()] = 27;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_TAGS.ordinal()] = 28;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS.ordinal()] = 29;
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS.ordinal()] = 30;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS.ordinal()] = 31;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_VERSION.ordinal()] = 32;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_VERSION.ordinal()] = 33;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_INFO.ordinal()] = 34;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_INFO.ordinal()] = 35;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE.ordinal()] = 36;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE.ordinal()] = 37;
+        typeValues[Type.LX_PROTOCOL_DEVICE_REBOOT.ordinal()] = 38;
+        typeValues[Type.LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE.ordinal()] = 39;
+        typeValues[Type.LX_PROTOCOL_DEVICE_DISABLE_FACTORY_TEST_MODE.ordinal()] = 40;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE.ordinal()] = 41;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_LOCATION.ordinal()] = 48;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_LOCATION.ordinal()] = 50;
+        typeValues[Type.LX_PROTOCOL_DEVICE_GET_GROUP.ordinal()] = 51;
+        typeValues[Type.LX_PROTOCOL_DEVICE_STATE_GROUP.ordinal()] = 53;
+        typeValues[Type.LX_PROTOCOL_DEVICE_ECHO_REQUEST.ordinal()] = 58;
+        typeValues[Type.LX_PROTOCOL_DEVICE_ECHO_RESPONSE.ordinal()] = 59;
+        typeValues[Type.LX_PROTOCOL_LIGHT_GET.ordinal()] = 101;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET.ordinal()] = 102;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM.ordinal()] = 103;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE.ordinal()] = 104;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE.ordinal()] = 105;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET_RGBW.ordinal()] = 106;
+        typeValues[Type.LX_PROTOCOL_LIGHT_STATE.ordinal()] = 107;
+        typeValues[Type.LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE.ordinal()] = 108;
+        typeValues[Type.LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE.ordinal()] = 109;
+        typeValues[Type.LX_PROTOCOL_LIGHT_GET_TEMPERATURE.ordinal()] = 110;
+        typeValues[Type.LX_PROTOCOL_LIGHT_STATE_TEMPERATURE.ordinal()] = 111;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS.ordinal()] = 112;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT.ordinal()] = 113;
+        typeValues[Type.LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT.ordinal()] = 114;
+        typeValues[Type.LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT.ordinal()] = 115;
+        typeValues[Type.LX_PROTOCOL_LIGHT_GET_POWER.ordinal()] = 116;
+        typeValues[Type.LX_PROTOCOL_LIGHT_STATE_POWER.ordinal()] = 117;
+        typeValues[Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL.ordinal()] = 118;
         
         
-        typeValueMap.put(Type.LX_PROTOCOL_WAN_CONNECT_PLAIN, 201);
-        typeMap.put(201, Type.LX_PROTOCOL_WAN_CONNECT_PLAIN);
-        typeValueMap.put(Type.LX_PROTOCOL_WAN_CONNECT_KEY, 202);
-        typeMap.put(202, Type.LX_PROTOCOL_WAN_CONNECT_KEY);
-        typeValueMap.put(Type.LX_PROTOCOL_WAN_STATE_CONNECT, 203);
-        typeMap.put(203, Type.LX_PROTOCOL_WAN_STATE_CONNECT);
-        typeValueMap.put(Type.LX_PROTOCOL_WAN_SUB, 204);
-        typeMap.put(204, Type.LX_PROTOCOL_WAN_SUB);
-        typeValueMap.put(Type.LX_PROTOCOL_WAN_UNSUB, 205);
-        typeMap.put(205, Type.LX_PROTOCOL_WAN_UNSUB);
-        typeValueMap.put(Type.LX_PROTOCOL_WAN_STATE_SUB, 206);
-        typeMap.put(206, Type.LX_PROTOCOL_WAN_STATE_SUB);
-        typeValueMap.put(Type.LX_PROTOCOL_WIFI_GET, 301);
-        typeMap.put(301, Type.LX_PROTOCOL_WIFI_GET);
-        typeValueMap.put(Type.LX_PROTOCOL_WIFI_SET, 302);
-        typeMap.put(302, Type.LX_PROTOCOL_WIFI_SET);
-        typeValueMap.put(Type.LX_PROTOCOL_WIFI_STATE, 303);
-        typeMap.put(303, Type.LX_PROTOCOL_WIFI_STATE);
-        typeValueMap.put(Type.LX_PROTOCOL_WIFI_GET_ACCESS_POINT, 304);
-        typeMap.put(304, Type.LX_PROTOCOL_WIFI_GET_ACCESS_POINT);
-        typeValueMap.put(Type.LX_PROTOCOL_WIFI_SET_ACCESS_POINT, 305);
-        typeMap.put(305, Type.LX_PROTOCOL_WIFI_SET_ACCESS_POINT);
-        typeValueMap.put(Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINT, 306);
-        typeMap.put(306, Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINT);
-        typeValueMap.put(Type.LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT, 401);
-        typeMap.put(401, Type.LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT);
-        typeValueMap.put(Type.LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT, 402);
-        typeMap.put(402, Type.LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT);
-        typeValueMap.put(Type.LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE, 403);
-        typeMap.put(403, Type.LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE);
-        typeValueMap.put(Type.LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE, 404);
-        typeMap.put(404, Type.LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE);
-        typeValueMap.put(Type.LX_PROTOCOL_WAN_CLOUD_MSG_406, 406);
-        typeMap.put(406, Type.LX_PROTOCOL_WAN_CLOUD_MSG_406);
+        typeValues[Type.LX_PROTOCOL_WAN_CONNECT_PLAIN.ordinal()] = 201;
+        typeValues[Type.LX_PROTOCOL_WAN_CONNECT_KEY.ordinal()] = 202;
+        typeValues[Type.LX_PROTOCOL_WAN_STATE_CONNECT.ordinal()] = 203;
+        typeValues[Type.LX_PROTOCOL_WAN_SUB.ordinal()] = 204;
+        typeValues[Type.LX_PROTOCOL_WAN_UNSUB.ordinal()] = 205;
+        typeValues[Type.LX_PROTOCOL_WAN_STATE_SUB.ordinal()] = 206;
+        typeValues[Type.LX_PROTOCOL_WIFI_GET.ordinal()] = 301;
+        typeValues[Type.LX_PROTOCOL_WIFI_SET.ordinal()] = 302;
+        typeValues[Type.LX_PROTOCOL_WIFI_STATE.ordinal()] = 303;
+        typeValues[Type.LX_PROTOCOL_WIFI_GET_ACCESS_POINT.ordinal()] = 304;
+        typeValues[Type.LX_PROTOCOL_WIFI_SET_ACCESS_POINT.ordinal()] = 305;
+        typeValues[Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINT.ordinal()] = 306;
+        typeValues[Type.LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT.ordinal()] = 401;
+        typeValues[Type.LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT.ordinal()] = 402;
+        typeValues[Type.LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE.ordinal()] = 403;
+        typeValues[Type.LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE.ordinal()] = 404;
+        typeValues[Type.LX_PROTOCOL_WAN_CLOUD_MSG_406.ordinal()] = 406;
 
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_SITE, LxProtocolDevice.SetSite.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY, LxProtocolDevice.GetPanGateway.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY, LxProtocolDevice.StatePanGateway.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_TIME, LxProtocolDevice.GetTime.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_TIME, LxProtocolDevice.SetTime.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_TIME, LxProtocolDevice.StateTime.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_RESET_SWITCH, LxProtocolDevice.GetResetSwitch.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH, LxProtocolDevice.StateResetSwitch.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD, LxProtocolDevice.GetDummyLoad.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD, LxProtocolDevice.SetDummyLoad.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD, LxProtocolDevice.StateDummyLoad.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_MESH_INFO, LxProtocolDevice.GetMeshInfo.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_MESH_INFO, LxProtocolDevice.StateMeshInfo.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE, LxProtocolDevice.GetMeshFirmware.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE, LxProtocolDevice.StateMeshFirmware.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_WIFI_INFO, LxProtocolDevice.GetWifiInfo.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_WIFI_INFO, LxProtocolDevice.StateWifiInfo.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE, LxProtocolDevice.GetWifiFirmware.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE, LxProtocolDevice.StateWifiFirmware.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_POWER, LxProtocolDevice.GetPower.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_POWER, LxProtocolDevice.SetPower.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_POWER, LxProtocolDevice.StatePower.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_LABEL, LxProtocolDevice.GetLabel.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_LABEL, LxProtocolDevice.SetLabel.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_LABEL, LxProtocolDevice.StateLabel.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_TAGS, LxProtocolDevice.GetTags.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_TAGS, LxProtocolDevice.SetTags.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_TAGS, LxProtocolDevice.StateTags.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS, LxProtocolDevice.GetTagLabels.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS, LxProtocolDevice.SetTagLabels.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS, LxProtocolDevice.StateTagLabels.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_VERSION, LxProtocolDevice.GetVersion.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_VERSION, LxProtocolDevice.StateVersion.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_INFO, LxProtocolDevice.GetInfo.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_INFO, LxProtocolDevice.StateInfo.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE, LxProtocolDevice.GetMcuRailVoltage.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE, LxProtocolDevice.StateMcuRailVoltage.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_LOCATION, LxProtocolDevice.StateLocation.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_REBOOT, LxProtocolDevice.Reboot.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE, LxProtocolDevice.SetFactoryTestMode.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_DISABLE_FACTORY_TEST_MODE, LxProtocolDevice.DisableFactoryTestMode.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE, LxProtocolDevice.StateFactoryTestMode.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_LOCATION, LxProtocolDevice.GetLocation.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_GET_GROUP, LxProtocolDevice.GetGroup.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_STATE_GROUP, LxProtocolDevice.StateGroup.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_ECHO_REQUEST, LxProtocolDevice.EchoRequest.class);
-        typeClassMap.put(Type.LX_PROTOCOL_DEVICE_ECHO_RESPONSE, LxProtocolDevice.EchoResponse.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_GET, LxProtocolLight.Get.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET, LxProtocolLight.Set.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM, LxProtocolLight.SetWaveform.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE, LxProtocolLight.SetDimAbsolute.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE, LxProtocolLight.SetDimRelative.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_RGBW, LxProtocolLight.SetRgbw.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_STATE, LxProtocolLight.State.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE, LxProtocolLight.GetRailVoltage.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE, LxProtocolLight.StateRailVoltage.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_GET_TEMPERATURE, LxProtocolLight.GetTemperature.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_STATE_TEMPERATURE, LxProtocolLight.StateTemperature.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS, LxProtocolLight.SetCalibrationCoefficients.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT, LxProtocolLight.SetSimpleEvent.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT, LxProtocolLight.GetSimpleEvent.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT, LxProtocolLight.StateSimpleEvent.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_GET_POWER, LxProtocolLight.GetPower.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_POWER, LxProtocolLight.SetPower.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_STATE_POWER, LxProtocolLight.StatePower.class);
-        typeClassMap.put(Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL, LxProtocolLight.SetWaveformOptional.class);
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_SITE.ordinal()] = LxProtocolDevice.SetSite.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY.ordinal()] = LxProtocolDevice.GetPanGateway.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY.ordinal()] = LxProtocolDevice.StatePanGateway.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_TIME.ordinal()] = LxProtocolDevice.GetTime.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_TIME.ordinal()] = LxProtocolDevice.SetTime.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_TIME.ordinal()] = LxProtocolDevice.StateTime.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_RESET_SWITCH.ordinal()] = LxProtocolDevice.GetResetSwitch.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH.ordinal()] = LxProtocolDevice.StateResetSwitch.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD.ordinal()] = LxProtocolDevice.GetDummyLoad.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD.ordinal()] = LxProtocolDevice.SetDummyLoad.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD.ordinal()] = LxProtocolDevice.StateDummyLoad.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_MESH_INFO.ordinal()] = LxProtocolDevice.GetMeshInfo.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_MESH_INFO.ordinal()] = LxProtocolDevice.StateMeshInfo.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE.ordinal()] = LxProtocolDevice.GetMeshFirmware.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE.ordinal()] = LxProtocolDevice.StateMeshFirmware.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_WIFI_INFO.ordinal()] = LxProtocolDevice.GetWifiInfo.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_WIFI_INFO.ordinal()] = LxProtocolDevice.StateWifiInfo.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE.ordinal()] = LxProtocolDevice.GetWifiFirmware.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE.ordinal()] = LxProtocolDevice.StateWifiFirmware.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_POWER.ordinal()] = LxProtocolDevice.GetPower.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_POWER.ordinal()] = LxProtocolDevice.SetPower.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_POWER.ordinal()] = LxProtocolDevice.StatePower.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_LABEL.ordinal()] = LxProtocolDevice.GetLabel.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_LABEL.ordinal()] = LxProtocolDevice.SetLabel.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_LABEL.ordinal()] = LxProtocolDevice.StateLabel.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_TAGS.ordinal()] = LxProtocolDevice.GetTags.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_TAGS.ordinal()] = LxProtocolDevice.SetTags.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_TAGS.ordinal()] = LxProtocolDevice.StateTags.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS.ordinal()] = LxProtocolDevice.GetTagLabels.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS.ordinal()] = LxProtocolDevice.SetTagLabels.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS.ordinal()] = LxProtocolDevice.StateTagLabels.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_VERSION.ordinal()] = LxProtocolDevice.GetVersion.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_VERSION.ordinal()] = LxProtocolDevice.StateVersion.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_INFO.ordinal()] = LxProtocolDevice.GetInfo.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_INFO.ordinal()] = LxProtocolDevice.StateInfo.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE.ordinal()] = LxProtocolDevice.GetMcuRailVoltage.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE.ordinal()] = LxProtocolDevice.StateMcuRailVoltage.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_LOCATION.ordinal()] = LxProtocolDevice.StateLocation.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_REBOOT.ordinal()] = LxProtocolDevice.Reboot.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE.ordinal()] = LxProtocolDevice.SetFactoryTestMode.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_DISABLE_FACTORY_TEST_MODE.ordinal()] = LxProtocolDevice.DisableFactoryTestMode.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE.ordinal()] = LxProtocolDevice.StateFactoryTestMode.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_LOCATION.ordinal()] = LxProtocolDevice.GetLocation.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_GET_GROUP.ordinal()] = LxProtocolDevice.GetGroup.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_STATE_GROUP.ordinal()] = LxProtocolDevice.StateGroup.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_ECHO_REQUEST.ordinal()] = LxProtocolDevice.EchoRequest.class;
+        payloadClasses[Type.LX_PROTOCOL_DEVICE_ECHO_RESPONSE.ordinal()] = LxProtocolDevice.EchoResponse.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_GET.ordinal()] = LxProtocolLight.Get.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET.ordinal()] = LxProtocolLight.Set.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM.ordinal()] = LxProtocolLight.SetWaveform.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE.ordinal()] = LxProtocolLight.SetDimAbsolute.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE.ordinal()] = LxProtocolLight.SetDimRelative.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_RGBW.ordinal()] = LxProtocolLight.SetRgbw.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_STATE.ordinal()] = LxProtocolLight.State.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE.ordinal()] = LxProtocolLight.GetRailVoltage.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE.ordinal()] = LxProtocolLight.StateRailVoltage.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_GET_TEMPERATURE.ordinal()] = LxProtocolLight.GetTemperature.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_STATE_TEMPERATURE.ordinal()] = LxProtocolLight.StateTemperature.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS.ordinal()] = LxProtocolLight.SetCalibrationCoefficients.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT.ordinal()] = LxProtocolLight.SetSimpleEvent.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT.ordinal()] = LxProtocolLight.GetSimpleEvent.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT.ordinal()] = LxProtocolLight.StateSimpleEvent.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_GET_POWER.ordinal()] = LxProtocolLight.GetPower.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_POWER.ordinal()] = LxProtocolLight.SetPower.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_STATE_POWER.ordinal()] = LxProtocolLight.StatePower.class;
+        payloadClasses[Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL.ordinal()] = LxProtocolLight.SetWaveformOptional.class;
         
-        typeClassMap.put(Type.LX_PROTOCOL_WAN_CONNECT_PLAIN, LxProtocolWan.ConnectPlain.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WAN_CONNECT_KEY, LxProtocolWan.ConnectKey.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WAN_STATE_CONNECT, LxProtocolWan.StateConnect.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WAN_SUB, LxProtocolWan.Sub.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WAN_UNSUB, LxProtocolWan.Unsub.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WAN_STATE_SUB, LxProtocolWan.StateSub.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WIFI_GET, LxProtocolWifi.Get.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WIFI_SET, LxProtocolWifi.Set.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WIFI_STATE, LxProtocolWifi.State.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WIFI_GET_ACCESS_POINT, LxProtocolWifi.GetAccessPoint.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WIFI_SET_ACCESS_POINT, LxProtocolWifi.SetAccessPoint.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINT, LxProtocolWifi.StateAccessPoint.class);
-        typeClassMap.put(Type.LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT, LxProtocolSensor.GetAmbientLight.class);
-        typeClassMap.put(Type.LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT, LxProtocolSensor.StateAmbientLight.class);
-        typeClassMap.put(Type.LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE, LxProtocolSensor.GetDimmerVoltage.class);
-        typeClassMap.put(Type.LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE, LxProtocolSensor.StateDimmerVoltage.class);
-        typeClassMap.put(Type.LX_PROTOCOL_WAN_CLOUD_MSG_406, LxProtocolWan.Unknown.class);
+        payloadClasses[Type.LX_PROTOCOL_WAN_CONNECT_PLAIN.ordinal()] = LxProtocolWan.ConnectPlain.class;
+        payloadClasses[Type.LX_PROTOCOL_WAN_CONNECT_KEY.ordinal()] = LxProtocolWan.ConnectKey.class;
+        payloadClasses[Type.LX_PROTOCOL_WAN_STATE_CONNECT.ordinal()] = LxProtocolWan.StateConnect.class;
+        payloadClasses[Type.LX_PROTOCOL_WAN_SUB.ordinal()] = LxProtocolWan.Sub.class;
+        payloadClasses[Type.LX_PROTOCOL_WAN_UNSUB.ordinal()] = LxProtocolWan.Unsub.class;
+        payloadClasses[Type.LX_PROTOCOL_WAN_STATE_SUB.ordinal()] = LxProtocolWan.StateSub.class;
+        payloadClasses[Type.LX_PROTOCOL_WIFI_GET.ordinal()] = LxProtocolWifi.Get.class;
+        payloadClasses[Type.LX_PROTOCOL_WIFI_SET.ordinal()] = LxProtocolWifi.Set.class;
+        payloadClasses[Type.LX_PROTOCOL_WIFI_STATE.ordinal()] = LxProtocolWifi.State.class;
+        payloadClasses[Type.LX_PROTOCOL_WIFI_GET_ACCESS_POINT.ordinal()] = LxProtocolWifi.GetAccessPoint.class;
+        payloadClasses[Type.LX_PROTOCOL_WIFI_SET_ACCESS_POINT.ordinal()] = LxProtocolWifi.SetAccessPoint.class;
+        payloadClasses[Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINT.ordinal()] = LxProtocolWifi.StateAccessPoint.class;
+        payloadClasses[Type.LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT.ordinal()] = LxProtocolSensor.GetAmbientLight.class;
+        payloadClasses[Type.LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT.ordinal()] = LxProtocolSensor.StateAmbientLight.class;
+        payloadClasses[Type.LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE.ordinal()] = LxProtocolSensor.GetDimmerVoltage.class;
+        payloadClasses[Type.LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE.ordinal()] = LxProtocolSensor.StateDimmerVoltage.class;
+        payloadClasses[Type.LX_PROTOCOL_WAN_CLOUD_MSG_406.ordinal()] = LxProtocolWan.Unknown.class;
     }
-}
\ No newline at end of file
+
+    // requests and the responses the lights answer them with, the ones that
+    // take arguments are left out since their responses can't be told apart
+    private static final Type[][] REQUEST_RESPONSES = {
+        {Type.LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY, Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY},
+        {Type.LX_PROTOCOL_DEVICE_GET_TIME, Type.LX_PROTOCOL_DEVICE_STATE_TIME},
+        {Type.LX_PROTOCOL_DEVICE_GET_RESET_SWITCH, Type.LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH},
+        {Type.LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD, Type.LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD},
+        {Type.LX_PROTOCOL_DEVICE_GET_MESH_INFO, Type.LX_PROTOCOL_DEVICE_STATE_MESH_INFO},
+        {Type.LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE, Type.LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE},
+        {Type.LX_PROTOCOL_DEVICE_GET_WIFI_INFO, Type.LX_PROTOCOL_DEVICE_STATE_WIFI_INFO},
+        {Type.LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE, Type.LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE},
+        {Type.LX_PROTOCOL_DEVICE_GET_POWER, Type.LX_PROTOCOL_DEVICE_STATE_POWER},
+        {Type.LX_PROTOCOL_DEVICE_GET_LABEL, Type.LX_PROTOCOL_DEVICE_STATE_LABEL},
+        {Type.LX_PROTOCOL_DEVICE_GET_TAGS, Type.LX_PROTOCOL_DEVICE_STATE_TAGS},
+        // {Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS, Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS}, // takes arguments
+        {Type.LX_PROTOCOL_DEVICE_GET_VERSION, Type.LX_PROTOCOL_DEVICE_STATE_VERSION},
+        {Type.LX_PROTOCOL_DEVICE_GET_INFO, Type.LX_PROTOCOL_DEVICE_STATE_INFO},
+        {Type.LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE, Type.LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE},
+        {Type.LX_PROTOCOL_DEVICE_GET_LOCATION, Type.LX_PROTOCOL_DEVICE_STATE_LOCATION},
+        {Type.LX_PROTOCOL_LIGHT_GET, Type.LX_PROTOCOL_LIGHT_STATE},
+        {Type.LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE, Type.LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE},
+        {Type.LX_PROTOCOL_LIGHT_GET_TEMPERATURE, Type.LX_PROTOCOL_LIGHT_STATE_TEMPERATURE},
+        // {Type.LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT, Type.LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT}, // takes arguments
+        {Type.LX_PROTOCOL_LIGHT_GET_POWER, Type.LX_PROTOCOL_LIGHT_STATE_POWER},
+        {Type.LX_PROTOCOL_WIFI_GET, Type.LX_PROTOCOL_WIFI_STATE},
+        {Type.LX_PROTOCOL_WIFI_GET_ACCESS_POINT, Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINT},
+        {Type.LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT, Type.LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT},
+        {Type.LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE, Type.LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE},
+    };
+    
+    // the messages the lights send, the ones that are passed on to the handlers
+    private static final Type[] RESPONSES = {
+        Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY,
+        Type.LX_PROTOCOL_DEVICE_STATE_TIME,
+        Type.LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH,
+        Type.LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD,
+        Type.LX_PROTOCOL_DEVICE_STATE_MESH_INFO,
+        Type.LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE,
+        Type.LX_PROTOCOL_DEVICE_STATE_WIFI_INFO,
+        Type.LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE,
+        Type.LX_PROTOCOL_DEVICE_STATE_POWER,
+        Type.LX_PROTOCOL_DEVICE_STATE_LABEL,
+        Type.LX_PROTOCOL_DEVICE_STATE_TAGS,
+        Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS,
+        Type.LX_PROTOCOL_DEVICE_STATE_VERSION,
+        Type.LX_PROTOCOL_DEVICE_STATE_INFO,
+        Type.LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE,
+        Type.LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE,
+        Type.LX_PROTOCOL_DEVICE_STATE_LOCATION,
+        Type.LX_PROTOCOL_DEVICE_STATE_GROUP,
+        Type.LX_PROTOCOL_DEVICE_ECHO_REQUEST,
+        Type.LX_PROTOCOL_LIGHT_STATE,
+        Type.LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE,
+        Type.LX_PROTOCOL_LIGHT_STATE_TEMPERATURE,
+        Type.LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT,
+        Type.LX_PROTOCOL_LIGHT_STATE_POWER,
+        //Type.LX_PROTOCOL_WAN_STATE,
+        //Type.LX_PROTOCOL_WAN_STATE_AUTH_KEY,
+        //Type.LX_PROTOCOL_WAN_STATE_KEEP_ALIVE,
+        //Type.LX_PROTOCOL_WAN_STATE_HOST,
+        Type.LX_PROTOCOL_WIFI_STATE,
+        //Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINTS,
+        Type.LX_PROTOCOL_WIFI_STATE_ACCESS_POINT,
+        Type.LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT,
+        Type.LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE,
+    };
+    
+    // the messages that change what the user sees
+    private static final Type[] CHANGES = {
+        Type.LX_PROTOCOL_DEVICE_SET_SITE,
+        Type.LX_PROTOCOL_DEVICE_SET_TIME,
+        Type.LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD,
+        Type.LX_PROTOCOL_DEVICE_SET_POWER,
+        Type.LX_PROTOCOL_DEVICE_SET_LABEL,
+        Type.LX_PROTOCOL_DEVICE_SET_TAGS,
+        Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS,
+        Type.LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE,
+        Type.LX_PROTOCOL_LIGHT_SET,
+        Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM,
+        Type.LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE,
+        Type.LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE,
+        Type.LX_PROTOCOL_LIGHT_SET_RGBW,
+        Type.LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS,
+        Type.LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT,
+        Type.LX_PROTOCOL_LIGHT_SET_POWER,
+        Type.LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL,
+        Type.LX_PROTOCOL_WIFI_SET,
+        Type.LX_PROTOCOL_WIFI_SET_ACCESS_POINT,
+    };
+
+    static {
+        int maxValue = 0;
+        for(int value: typeValues) {
+            maxValue = Math.max(maxValue, value);
+        }
+        typesByValue = new Type[maxValue + 1];
+        for(Type type: types) {
+            int value = typeValues[type.ordinal()];
+            if(value >= 0) {
+                typesByValue[value] = type;
+            }
+        }
+        
+        Type[] responseTypes = new Type[types.length];
+        for(Type[] pair: REQUEST_RESPONSES) {
+            responseTypes[pair[0].ordinal()] = pair[1];
+        }
+        boolean[] responses = new boolean[types.length];
+        for(Type type: RESPONSES) {
+            responses[type.ordinal()] = true;
+        }
+        boolean[] changes = new boolean[types.length];
+        for(Type type: CHANGES) {
+            changes[type.ordinal()] = true;
+        }
+        for(Type type: types) {
+            int i = type.ordinal();
+            typeInfos[i] = new TypeInfo(type, typeValues[i], lookupPayloadSize(type), 
+                    responseTypes[i], responses[i], changes[i]);
+        }
+    }
+
+    /**
+     * Returns what is known about the type.
+     */
+    public static TypeInfo getTypeInfo(Type type) {
+        return typeInfos[type.ordinal()];
+    }
+
+    /**
+     * Returns the type with the given protocol value, or null if there is
+     * no such type.
+     */
+    public static Type getType(int value) {
+        return value >= 0 && value < typesByValue.length ? typesByValue[value] : null;
+    }
+
+    /**
+     * Returns the protocol value of the type, or -1 if the type has none.
+     */
+    public static int getTypeValue(Type type) {
+        return typeValues[type.ordinal()];
+    }
+
+    /**
+     * Returns the size in bytes of the payload of the type.
+     */
+    public static int getPayloadSize(Type type) {
+        return typeInfos[type.ordinal()].getPayloadSize();
+    }
+
+    /**
+     * Returns the class of the payload of the type.
+     */
+    public static Class<?> getPayloadClass(Type type) {
+        return payloadClasses[type.ordinal()];
+    }
+
+    /**
+     * Creates the payload of the type from message data, the payload starts
+     * at the offset.
+     */
+    public static LxProtocolTypeBase decodePayload(Type type, byte[] data, int offset) {
+        switch(type) {
+            case LX_PROTOCOL_DEVICE_SET_SITE:
+                return new LxProtocolDevice.SetSite(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY:
+                return new LxProtocolDevice.GetPanGateway(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY:
+                return new LxProtocolDevice.StatePanGateway(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_TIME:
+                return new LxProtocolDevice.GetTime(data, offset);
+            case LX_PROTOCOL_DEVICE_SET_TIME:
+                return new LxProtocolDevice.SetTime(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_TIME:
+                return new LxProtocolDevice.StateTime(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_RESET_SWITCH:
+                return new LxProtocolDevice.GetResetSwitch(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH:
+                return new LxProtocolDevice.StateResetSwitch(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD:
+                return new LxProtocolDevice.GetDummyLoad(data, offset);
+            case LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD:
+                return new LxProtocolDevice.SetDummyLoad(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD:
+                return new LxProtocolDevice.StateDummyLoad(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_MESH_INFO:
+                return new LxProtocolDevice.GetMeshInfo(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_MESH_INFO:
+                return new LxProtocolDevice.StateMeshInfo(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE:
+                return new LxProtocolDevice.GetMeshFirmware(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE:
+                return new LxProtocolDevice.StateMeshFirmware(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_WIFI_INFO:
+                return new LxProtocolDevice.GetWifiInfo(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_WIFI_INFO:
+                return new LxProtocolDevice.StateWifiInfo(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE:
+                return new LxProtocolDevice.GetWifiFirmware(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE:
+                return new LxProtocolDevice.StateWifiFirmware(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_POWER:
+                return new LxProtocolDevice.GetPower(data, offset);
+            case LX_PROTOCOL_DEVICE_SET_POWER:
+                return new LxProtocolDevice.SetPower(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_POWER:
+                return new LxProtocolDevice.StatePower(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_LABEL:
+                return new LxProtocolDevice.GetLabel(data, offset);
+            case LX_PROTOCOL_DEVICE_SET_LABEL:
+                return new LxProtocolDevice.SetLabel(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_LABEL:
+                return new LxProtocolDevice.StateLabel(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_TAGS:
+                return new LxProtocolDevice.GetTags(data, offset);
+            case LX_PROTOCOL_DEVICE_SET_TAGS:
+                return new LxProtocolDevice.SetTags(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_TAGS:
+                return new LxProtocolDevice.StateTags(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_TAG_LABELS:
+                return new LxProtocolDevice.GetTagLabels(data, offset);
+            case LX_PROTOCOL_DEVICE_SET_TAG_LABELS:
+                return new LxProtocolDevice.SetTagLabels(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_TAG_LABELS:
+                return new LxProtocolDevice.StateTagLabels(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_VERSION:
+                return new LxProtocolDevice.GetVersion(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_VERSION:
+                return new LxProtocolDevice.StateVersion(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_INFO:
+                return new LxProtocolDevice.GetInfo(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_INFO:
+                return new LxProtocolDevice.StateInfo(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE:
+                return new LxProtocolDevice.GetMcuRailVoltage(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE:
+                return new LxProtocolDevice.StateMcuRailVoltage(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_LOCATION:
+                return new LxProtocolDevice.StateLocation(data, offset);
+            case LX_PROTOCOL_DEVICE_REBOOT:
+                return new LxProtocolDevice.Reboot(data, offset);
+            case LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE:
+                return new LxProtocolDevice.SetFactoryTestMode(data, offset);
+            case LX_PROTOCOL_DEVICE_DISABLE_FACTORY_TEST_MODE:
+                return new LxProtocolDevice.DisableFactoryTestMode(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE:
+                return new LxProtocolDevice.StateFactoryTestMode(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_LOCATION:
+                return new LxProtocolDevice.GetLocation(data, offset);
+            case LX_PROTOCOL_DEVICE_GET_GROUP:
+                return new LxProtocolDevice.GetGroup(data, offset);
+            case LX_PROTOCOL_DEVICE_STATE_GROUP:
+                return new LxProtocolDevice.StateGroup(data, offset);
+            case LX_PROTOCOL_DEVICE_ECHO_REQUEST:
+                return new LxProtocolDevice.EchoRequest(data, offset);
+            case LX_PROTOCOL_DEVICE_ECHO_RESPONSE:
+                return new LxProtocolDevice.EchoResponse(data, offset);
+            case LX_PROTOCOL_LIGHT_GET:
+                return new LxProtocolLight.Get(data, offset);
+            case LX_PROTOCOL_LIGHT_SET:
+                return new LxProtocolLight.Set(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_WAVEFORM:
+                return new LxProtocolLight.SetWaveform(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE:
+                return new LxProtocolLight.SetDimAbsolute(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE:
+                return new LxProtocolLight.SetDimRelative(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_RGBW:
+                return new LxProtocolLight.SetRgbw(data, offset);
+            case LX_PROTOCOL_LIGHT_STATE:
+                return new LxProtocolLight.State(data, offset);
+            case LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE:
+                return new LxProtocolLight.GetRailVoltage(data, offset);
+            case LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE:
+                return new LxProtocolLight.StateRailVoltage(data, offset);
+            case LX_PROTOCOL_LIGHT_GET_TEMPERATURE:
+                return new LxProtocolLight.GetTemperature(data, offset);
+            case LX_PROTOCOL_LIGHT_STATE_TEMPERATURE:
+                return new LxProtocolLight.StateTemperature(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS:
+                return new LxProtocolLight.SetCalibrationCoefficients(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT:
+                return new LxProtocolLight.SetSimpleEvent(data, offset);
+            case LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT:
+                return new LxProtocolLight.GetSimpleEvent(data, offset);
+            case LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT:
+                return new LxProtocolLight.StateSimpleEvent(data, offset);
+            case LX_PROTOCOL_LIGHT_GET_POWER:
+                return new LxProtocolLight.GetPower(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_POWER:
+                return new LxProtocolLight.SetPower(data, offset);
+            case LX_PROTOCOL_LIGHT_STATE_POWER:
+                return new LxProtocolLight.StatePower(data, offset);
+            case LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL:
+                return new LxProtocolLight.SetWaveformOptional(data, offset);
+            case LX_PROTOCOL_WAN_CONNECT_PLAIN:
+                return new LxProtocolWan.ConnectPlain(data, offset);
+            case LX_PROTOCOL_WAN_CONNECT_KEY:
+                return new LxProtocolWan.ConnectKey(data, offset);
+            case LX_PROTOCOL_WAN_STATE_CONNECT:
+                return new LxProtocolWan.StateConnect(data, offset);
+            case LX_PROTOCOL_WAN_SUB:
+                return new LxProtocolWan.Sub(data, offset);
+            case LX_PROTOCOL_WAN_UNSUB:
+                return new LxProtocolWan.Unsub(data, offset);
+            case LX_PROTOCOL_WAN_STATE_SUB:
+                return new LxProtocolWan.StateSub(data, offset);
+            case LX_PROTOCOL_WIFI_GET:
+                return new LxProtocolWifi.Get(data, offset);
+            case LX_PROTOCOL_WIFI_SET:
+                return new LxProtocolWifi.Set(data, offset);
+            case LX_PROTOCOL_WIFI_STATE:
+                return new LxProtocolWifi.State(data, offset);
+            case LX_PROTOCOL_WIFI_GET_ACCESS_POINT:
+                return new LxProtocolWifi.GetAccessPoint(data, offset);
+            case LX_PROTOCOL_WIFI_SET_ACCESS_POINT:
+                return new LxProtocolWifi.SetAccessPoint(data, offset);
+            case LX_PROTOCOL_WIFI_STATE_ACCESS_POINT:
+                return new LxProtocolWifi.StateAccessPoint(data, offset);
+            case LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT:
+                return new LxProtocolSensor.GetAmbientLight(data, offset);
+            case LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT:
+                return new LxProtocolSensor.StateAmbientLight(data, offset);
+            case LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE:
+                return new LxProtocolSensor.GetDimmerVoltage(data, offset);
+            case LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE:
+                return new LxProtocolSensor.StateDimmerVoltage(data, offset);
+            case LX_PROTOCOL_WAN_CLOUD_MSG_406:
+                return new LxProtocolWan.Unknown(data, offset);
+            default:
+                throw new IllegalArgumentException(type + " has no payload class");
+        }
+    }
+
+    private static int lookupPayloadSize(Type type) {
+        switch(type) {
+            case LX_PROTOCOL_DEVICE_SET_SITE:
+                return LxProtocolDevice.SetSite.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY:
+                return LxProtocolDevice.GetPanGateway.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY:
+                return LxProtocolDevice.StatePanGateway.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_TIME:
+                return LxProtocolDevice.GetTime.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_SET_TIME:
+                return LxProtocolDevice.SetTime.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_TIME:
+                return LxProtocolDevice.StateTime.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_RESET_SWITCH:
+                return LxProtocolDevice.GetResetSwitch.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH:
+                return LxProtocolDevice.StateResetSwitch.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD:
+                return LxProtocolDevice.GetDummyLoad.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD:
+                return LxProtocolDevice.SetDummyLoad.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD:
+                return LxProtocolDevice.StateDummyLoad.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_MESH_INFO:
+                return LxProtocolDevice.GetMeshInfo.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_MESH_INFO:
+                return LxProtocolDevice.StateMeshInfo.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE:
+                return LxProtocolDevice.GetMeshFirmware.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE:
+                return LxProtocolDevice.StateMeshFirmware.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_WIFI_INFO:
+                return LxProtocolDevice.GetWifiInfo.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_WIFI_INFO:
+                return LxProtocolDevice.StateWifiInfo.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE:
+                return LxProtocolDevice.GetWifiFirmware.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE:
+                return LxProtocolDevice.StateWifiFirmware.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_POWER:
+                return LxProtocolDevice.GetPower.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_SET_POWER:
+                return LxProtocolDevice.SetPower.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_POWER:
+                return LxProtocolDevice.StatePower.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_LABEL:
+                return LxProtocolDevice.GetLabel.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_SET_LABEL:
+                return LxProtocolDevice.SetLabel.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_LABEL:
+                return LxProtocolDevice.StateLabel.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_TAGS:
+                return LxProtocolDevice.GetTags.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_SET_TAGS:
+                return LxProtocolDevice.SetTags.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_TAGS:
+                return LxProtocolDevice.StateTags.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_TAG_LABELS:
+                return LxProtocolDevice.GetTagLabels.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_SET_TAG_LABELS:
+                return LxProtocolDevice.SetTagLabels.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_TAG_LABELS:
+                return LxProtocolDevice.StateTagLabels.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_VERSION:
+                return LxProtocolDevice.GetVersion.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_VERSION:
+                return LxProtocolDevice.StateVersion.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_INFO:
+                return LxProtocolDevice.GetInfo.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_INFO:
+                return LxProtocolDevice.StateInfo.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE:
+                return LxProtocolDevice.GetMcuRailVoltage.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE:
+                return LxProtocolDevice.StateMcuRailVoltage.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_LOCATION:
+                return LxProtocolDevice.StateLocation.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_REBOOT:
+                return LxProtocolDevice.Reboot.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE:
+                return LxProtocolDevice.SetFactoryTestMode.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_DISABLE_FACTORY_TEST_MODE:
+                return LxProtocolDevice.DisableFactoryTestMode.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_FACTORY_TEST_MODE:
+                return LxProtocolDevice.StateFactoryTestMode.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_LOCATION:
+                return LxProtocolDevice.GetLocation.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_GET_GROUP:
+                return LxProtocolDevice.GetGroup.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_STATE_GROUP:
+                return LxProtocolDevice.StateGroup.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_ECHO_REQUEST:
+                return LxProtocolDevice.EchoRequest.getPayloadSize();
+            case LX_PROTOCOL_DEVICE_ECHO_RESPONSE:
+                return LxProtocolDevice.EchoResponse.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_GET:
+                return LxProtocolLight.Get.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET:
+                return LxProtocolLight.Set.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_WAVEFORM:
+                return LxProtocolLight.SetWaveform.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE:
+                return LxProtocolLight.SetDimAbsolute.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE:
+                return LxProtocolLight.SetDimRelative.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_RGBW:
+                return LxProtocolLight.SetRgbw.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_STATE:
+                return LxProtocolLight.State.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE:
+                return LxProtocolLight.GetRailVoltage.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE:
+                return LxProtocolLight.StateRailVoltage.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_GET_TEMPERATURE:
+                return LxProtocolLight.GetTemperature.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_STATE_TEMPERATURE:
+                return LxProtocolLight.StateTemperature.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS:
+                return LxProtocolLight.SetCalibrationCoefficients.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT:
+                return LxProtocolLight.SetSimpleEvent.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT:
+                return LxProtocolLight.GetSimpleEvent.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT:
+                return LxProtocolLight.StateSimpleEvent.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_GET_POWER:
+                return LxProtocolLight.GetPower.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_POWER:
+                return LxProtocolLight.SetPower.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_STATE_POWER:
+                return LxProtocolLight.StatePower.getPayloadSize();
+            case LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL:
+                return LxProtocolLight.SetWaveformOptional.getPayloadSize();
+            case LX_PROTOCOL_WAN_CONNECT_PLAIN:
+                return LxProtocolWan.ConnectPlain.getPayloadSize();
+            case LX_PROTOCOL_WAN_CONNECT_KEY:
+                return LxProtocolWan.ConnectKey.getPayloadSize();
+            case LX_PROTOCOL_WAN_STATE_CONNECT:
+                return LxProtocolWan.StateConnect.getPayloadSize();
+            case LX_PROTOCOL_WAN_SUB:
+                return LxProtocolWan.Sub.getPayloadSize();
+            case LX_PROTOCOL_WAN_UNSUB:
+                return LxProtocolWan.Unsub.getPayloadSize();
+            case LX_PROTOCOL_WAN_STATE_SUB:
+                return LxProtocolWan.StateSub.getPayloadSize();
+            case LX_PROTOCOL_WIFI_GET:
+                return LxProtocolWifi.Get.getPayloadSize();
+            case LX_PROTOCOL_WIFI_SET:
+                return LxProtocolWifi.Set.getPayloadSize();
+            case LX_PROTOCOL_WIFI_STATE:
+                return LxProtocolWifi.State.getPayloadSize();
+            case LX_PROTOCOL_WIFI_GET_ACCESS_POINT:
+                return LxProtocolWifi.GetAccessPoint.getPayloadSize();
+            case LX_PROTOCOL_WIFI_SET_ACCESS_POINT:
+                return LxProtocolWifi.SetAccessPoint.getPayloadSize();
+            case LX_PROTOCOL_WIFI_STATE_ACCESS_POINT:
+                return LxProtocolWifi.StateAccessPoint.getPayloadSize();
+            case LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT:
+                return LxProtocolSensor.GetAmbientLight.getPayloadSize();
+            case LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT:
+                return LxProtocolSensor.StateAmbientLight.getPayloadSize();
+            case LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE:
+                return LxProtocolSensor.GetDimmerVoltage.getPayloadSize();
+            case LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE:
+                return LxProtocolSensor.StateDimmerVoltage.getPayloadSize();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * What is known about a message type, looked up with getTypeInfo().
+     */
+    public static final class TypeInfo {
+        private final Type type;
+        private final int value;
+        private final int payloadSize;
+        private final Type responseType;
+        private final boolean response;
+        private final boolean change;
+
+        private TypeInfo(Type type, int value, int payloadSize, Type responseType, boolean response, boolean change) {
+            this.type = type;
+            this.value = value;
+            this.payloadSize = payloadSize;
+            this.responseType = responseType;
+            this.response = response;
+            this.change = change;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Returns the value of the type on the wire, or -1 if it has none.
+         */
+        public int getValue() {
+            return value;
+        }
+
+        public int getPayloadSize() {
+            return payloadSize;
+        }
+
+        /**
+         * Returns the type the lights answer a message of this type with, 
+         * or null if there is no answer to wait for.
+         */
+        public Type getResponseType() {
+            return responseType;
+        }
+
+        /**
+         * Returns true if messages of this type are sent by the lights.
+         */
+        public boolean isResponse() {
+            return response;
+        }
+
+        /**
+         * Returns true if messages of this type change the state of the 
+         * lights, those are the ones the user is waiting to see.
+         */
+        public boolean isChange() {
+            return change;
+        }
+
+        @Override
+        public String toString() {
+            return "TypeInfo{" + "type=" + type + ", value=" + value + ", payloadSize=" + payloadSize + '}';
+        }
+    }
+}
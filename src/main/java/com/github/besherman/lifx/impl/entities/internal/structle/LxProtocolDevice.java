@@ -24,6 +24,7 @@
  */
 package com.github.besherman.lifx.impl.entities.internal.structle;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -38,6 +39,7 @@ import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.U
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt8;
 
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 
 @SuppressWarnings("unused")
@@ -145,6 +147,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(site);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -172,6 +179,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -185,6 +196,9 @@ public class LxProtocolDevice {
         private UInt8 service;            // Field: service - Structle::Uint8 byte offset: 0
         private UInt32 port;            // Field: port - Structle::Uint32 byte offset: 1
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 5;
 
         public StatePanGateway(byte[] bytes) {
@@ -197,19 +211,8 @@ public class LxProtocolDevice {
                         String.format("LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
 
-            byte[] member0Data = new byte[1];
-            member0Data[0] = bytes[initialOffset + 0];
-
-            service = new UInt8(member0Data);
-
-            byte[] member1Data = new byte[4];
-            member1Data[0] = bytes[initialOffset + 1];
-            member1Data[1] = bytes[initialOffset + 2];
-            member1Data[2] = bytes[initialOffset + 3];
-            member1Data[3] = bytes[initialOffset + 4];
-
-            port = new UInt32(member1Data);
-
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public StatePanGateway(Object padding, UInt8 service, UInt32 port) {
@@ -218,17 +221,31 @@ public class LxProtocolDevice {
         }
 
         public UInt8 getService() {
+            if(service == null && data != null) {
+                service = new UInt8(Arrays.copyOfRange(data, dataOffset + 0, dataOffset + 1));
+            }
             return service;
         }
 
+        public int getServiceValue() {
+            return service != null ? service.getValue() : LxCodec.DeviceStatePanGateway.getService(data, dataOffset);
+        }
+
         public UInt32 getPort() {
+            if(port == null && data != null) {
+                port = new UInt32(Arrays.copyOfRange(data, dataOffset + 1, dataOffset + 5));
+            }
             return port;
         }
 
+        public long getPortValue() {
+            return port != null ? port.getValue() : LxCodec.DeviceStatePanGateway.getPort(data, dataOffset);
+        }
+
         @Override
         public void printMessageData() {
-            service.printValue("service");            // Field: service - Structle::Uint8 byte offset: 5
-            port.printValue("port");            // Field: port - Structle::Uint32 byte offset: 5
+            getService().printValue("service");            // Field: service - Structle::Uint8 byte offset: 5
+            getPort().printValue("port");            // Field: port - Structle::Uint32 byte offset: 5
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt8 service, UInt32 port) {
@@ -258,6 +275,10 @@ public class LxProtocolDevice {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -284,6 +305,16 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+            buf.put(service.getBytes());
+            buf.put(port.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -319,6 +350,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -408,6 +443,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(time.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -420,6 +460,9 @@ public class LxProtocolDevice {
         // Fields: time;
         private UInt64 time;            // Field: time - Structle::Uint64 byte offset: 0
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 8;
 
         public StateTime(byte[] bytes) {
@@ -432,19 +475,8 @@ public class LxProtocolDevice {
                         String.format("LX_PROTOCOL_DEVICE_STATE_TIME has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
 
-
-            byte[] member0Data = new byte[8];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-            member0Data[2] = bytes[initialOffset + 2];
-            member0Data[3] = bytes[initialOffset + 3];
-            member0Data[4] = bytes[initialOffset + 4];
-            member0Data[5] = bytes[initialOffset + 5];
-            member0Data[6] = bytes[initialOffset + 6];
-            member0Data[7] = bytes[initialOffset + 7];
-
-            time = new UInt64(member0Data);
-
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public StateTime(Object padding, UInt64 time) {
@@ -452,12 +484,19 @@ public class LxProtocolDevice {
         }
 
         public UInt64 getTime() {
+            if(time == null && data != null) {
+                time = new UInt64(Arrays.copyOfRange(data, dataOffset + 0, dataOffset + 8));
+            }
             return time;
         }
 
+        public long getTimeValue() {
+            return time != null ? time.getSignedValue() : LxCodec.DeviceStateTime.getTime(data, dataOffset);
+        }
+
         @Override
         public void printMessageData() {
-            time.printValue("time");            // Field: time - Structle::Uint64 byte offset: 8
+            getTime().printValue("time");            // Field: time - Structle::Uint64 byte offset: 8
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt64 time) {
@@ -479,6 +518,10 @@ public class LxProtocolDevice {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -497,6 +540,15 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+            buf.put(time.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -531,6 +583,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -613,6 +669,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(position.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -660,6 +721,10 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -741,6 +806,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(on.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -820,6 +890,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(on.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -856,6 +931,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1032,6 +1111,14 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(signal.getBytes());
+            buf.put(tx.getBytes());
+            buf.put(rx.getBytes());
+            buf.put(mcu_temperature.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1067,6 +1154,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1221,6 +1312,13 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(build.getBytes());
+            buf.put(install.getBytes());
+            buf.put(version.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1257,6 +1355,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1432,6 +1534,14 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(signal.getBytes());
+            buf.put(tx.getBytes());
+            buf.put(rx.getBytes());
+            buf.put(mcu_temperature.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1467,6 +1577,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1620,6 +1734,13 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(build.getBytes());
+            buf.put(install.getBytes());
+            buf.put(version.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1656,6 +1777,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1738,6 +1863,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            LxCodec.DeviceSetPower.encode(buf, level.getValue());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1750,6 +1880,9 @@ public class LxProtocolDevice {
         // Fields: level;
         private UInt16 level;            // Field: level - Structle::Uint16 byte offset: 0
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 2;
 
         public StatePower(byte[] bytes) {
@@ -1762,11 +1895,8 @@ public class LxProtocolDevice {
                         String.format("payload has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
 
-            byte[] member0Data = new byte[2];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-
-            level = new UInt16(member0Data);
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public StatePower(UInt16 level) {
@@ -1774,12 +1904,19 @@ public class LxProtocolDevice {
         }
 
         public UInt16 getLevel() {
+            if(level == null && data != null) {
+                level = new UInt16(Arrays.copyOfRange(data, dataOffset + 0, dataOffset + 2));
+            }
             return level;
         }
 
+        public int getLevelValue() {
+            return level != null ? level.getValue() : LxCodec.DeviceStatePower.getLevel(data, dataOffset);
+        }
+
         @Override
         public void printMessageData() {
-            level.printValue("level");            // Field: level - Structle::Uint16 byte offset: 2
+            getLevel().printValue("level");            // Field: level - Structle::Uint16 byte offset: 2
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt16 level) {
@@ -1801,6 +1938,10 @@ public class LxProtocolDevice {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -1819,6 +1960,15 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+            buf.put(level.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1870,6 +2020,10 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2039,6 +2193,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            StructleTypes.writeString(buf, label, 32);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2051,6 +2210,9 @@ public class LxProtocolDevice {
         // Fields: label;
         private String label;            // Field: label - Structle::String byte offset: 0
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 32;
 
         public StateLabel(byte[] bytes) {
@@ -2063,53 +2225,8 @@ public class LxProtocolDevice {
                         String.format("payload has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
 
-            byte[] member0Data = new byte[32];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-            member0Data[2] = bytes[initialOffset + 2];
-            member0Data[3] = bytes[initialOffset + 3];
-            member0Data[4] = bytes[initialOffset + 4];
-            member0Data[5] = bytes[initialOffset + 5];
-            member0Data[6] = bytes[initialOffset + 6];
-            member0Data[7] = bytes[initialOffset + 7];
-            member0Data[8] = bytes[initialOffset + 8];
-            member0Data[9] = bytes[initialOffset + 9];
-            member0Data[10] = bytes[initialOffset + 10];
-            member0Data[11] = bytes[initialOffset + 11];
-            member0Data[12] = bytes[initialOffset + 12];
-            member0Data[13] = bytes[initialOffset + 13];
-            member0Data[14] = bytes[initialOffset + 14];
-            member0Data[15] = bytes[initialOffset + 15];
-            member0Data[16] = bytes[initialOffset + 16];
-            member0Data[17] = bytes[initialOffset + 17];
-            member0Data[18] = bytes[initialOffset + 18];
-            member0Data[19] = bytes[initialOffset + 19];
-            member0Data[20] = bytes[initialOffset + 20];
-            member0Data[21] = bytes[initialOffset + 21];
-            member0Data[22] = bytes[initialOffset + 22];
-            member0Data[23] = bytes[initialOffset + 23];
-            member0Data[24] = bytes[initialOffset + 24];
-            member0Data[25] = bytes[initialOffset + 25];
-            member0Data[26] = bytes[initialOffset + 26];
-            member0Data[27] = bytes[initialOffset + 27];
-            member0Data[28] = bytes[initialOffset + 28];
-            member0Data[29] = bytes[initialOffset + 29];
-            member0Data[30] = bytes[initialOffset + 30];
-            member0Data[31] = bytes[initialOffset + 31];
-
-            int endOfStringIndex = member0Data.length;
-            for (int i = 0; i < member0Data.length; i++) {
-                if (member0Data[i] == 0x00) {
-                    endOfStringIndex = i;
-                    break;
-                }
-            }
-
-            try {
-                label = new String(member0Data, 0, endOfStringIndex, "UTF-8");
-            } catch (UnsupportedEncodingException ex) {
-                throw new InternalError("UTF-8 is not avaliable as encoding");
-            }
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public StateLabel(Object padding, String label) {
@@ -2117,13 +2234,16 @@ public class LxProtocolDevice {
         }
 
         public String getLabel() {
+            if(label == null && data != null) {
+                label = LxCodec.DeviceStateLabel.getLabel(data, dataOffset);
+            }
             return label;
         }
 
         @Override
         public void printMessageData() {
             //System.out.println( label);			// Field: label - Structle::String byte offset: 32
-            Logger.getLogger(StateLabel.class.getName()).log(Level.FINE, label);
+            Logger.getLogger(StateLabel.class.getName()).log(Level.FINE, getLabel());
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, String label) {
@@ -2158,11 +2278,25 @@ public class LxProtocolDevice {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             byte[] bytes = new byte[getPayloadSize()];
             loadMessageDataWithPayloadAtOffset(bytes, 0, label);
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+
+            StructleTypes.writeString(buf, label, 32);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2199,6 +2333,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2288,6 +2426,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(tags.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2300,6 +2443,9 @@ public class LxProtocolDevice {
         // Fields: tags;
         private UInt64 tags;            // Field: tags - Structle::Uint64 byte offset: 0
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 8;
 
         public StateTags(byte[] bytes) {
@@ -2312,18 +2458,8 @@ public class LxProtocolDevice {
                         String.format("payload has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
 
-            byte[] member0Data = new byte[8];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-            member0Data[2] = bytes[initialOffset + 2];
-            member0Data[3] = bytes[initialOffset + 3];
-            member0Data[4] = bytes[initialOffset + 4];
-            member0Data[5] = bytes[initialOffset + 5];
-            member0Data[6] = bytes[initialOffset + 6];
-            member0Data[7] = bytes[initialOffset + 7];
-
-            tags = new UInt64(member0Data);
-
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public StateTags(Object padding, UInt64 tags) {
@@ -2331,12 +2467,19 @@ public class LxProtocolDevice {
         }
 
         public UInt64 getTags() {
+            if(tags == null && data != null) {
+                tags = new UInt64(Arrays.copyOfRange(data, dataOffset + 0, dataOffset + 8));
+            }
             return tags;
         }
 
+        public long getTagsValue() {
+            return tags != null ? tags.getSignedValue() : LxCodec.DeviceStateTags.getTags(data, dataOffset);
+        }
+
         @Override
         public void printMessageData() {
-            tags.printValue("tags");            // Field: tags - Structle::Uint64 byte offset: 8
+            getTags().printValue("tags");            // Field: tags - Structle::Uint64 byte offset: 8
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt64 tags) {
@@ -2359,6 +2502,10 @@ public class LxProtocolDevice {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -2377,6 +2524,15 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+            buf.put(tags.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2466,6 +2622,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(tags.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2671,6 +2832,12 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(tags.getBytes());
+            StructleTypes.writeString(buf, label, 32);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2684,6 +2851,9 @@ public class LxProtocolDevice {
         private UInt64 tags;            // Field: tags - Structle::Uint64 byte offset: 0
         private String label;            // Field: label - Structle::String byte offset: 8
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 40;
 
         public StateTagLabels(byte[] bytes) {
@@ -2696,75 +2866,8 @@ public class LxProtocolDevice {
                         String.format("payload has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
 
-            byte[] member0Data = new byte[8];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-            member0Data[2] = bytes[initialOffset + 2];
-            member0Data[3] = bytes[initialOffset + 3];
-            member0Data[4] = bytes[initialOffset + 4];
-            member0Data[5] = bytes[initialOffset + 5];
-            member0Data[6] = bytes[initialOffset + 6];
-            member0Data[7] = bytes[initialOffset + 7];
-
-            tags = new UInt64(member0Data);
-
-            byte[] member1Data = new byte[32];
-            member1Data[0] = bytes[initialOffset + 8];
-            member1Data[1] = bytes[initialOffset + 9];
-            member1Data[2] = bytes[initialOffset + 10];
-            member1Data[3] = bytes[initialOffset + 11];
-            member1Data[4] = bytes[initialOffset + 12];
-            member1Data[5] = bytes[initialOffset + 13];
-            member1Data[6] = bytes[initialOffset + 14];
-            member1Data[7] = bytes[initialOffset + 15];
-            member1Data[8] = bytes[initialOffset + 16];
-            member1Data[9] = bytes[initialOffset + 17];
-            member1Data[10] = bytes[initialOffset + 18];
-            member1Data[11] = bytes[initialOffset + 19];
-            member1Data[12] = bytes[initialOffset + 20];
-            member1Data[13] = bytes[initialOffset + 21];
-            member1Data[14] = bytes[initialOffset + 22];
-            member1Data[15] = bytes[initialOffset + 23];
-            member1Data[16] = bytes[initialOffset + 24];
-            member1Data[17] = bytes[initialOffset + 25];
-            member1Data[18] = bytes[initialOffset + 26];
-            member1Data[19] = bytes[initialOffset + 27];
-            member1Data[20] = bytes[initialOffset + 28];
-            member1Data[21] = bytes[initialOffset + 29];
-            member1Data[22] = bytes[initialOffset + 30];
-            member1Data[23] = bytes[initialOffset + 31];
-            member1Data[24] = bytes[initialOffset + 32];
-            member1Data[25] = bytes[initialOffset + 33];
-            member1Data[26] = bytes[initialOffset + 34];
-            member1Data[27] = bytes[initialOffset + 35];
-            member1Data[28] = bytes[initialOffset + 36];
-            member1Data[29] = bytes[initialOffset + 37];
-            member1Data[30] = bytes[initialOffset + 38];
-            member1Data[31] = bytes[initialOffset + 39];
-
-            int endOfStringIndex;
-            byte[] subString;
-
-            endOfStringIndex = member1Data.length;
-
-            for (int i = 0; i < member1Data.length; i++) {
-                if (member1Data[i] == 0x00) {
-                    endOfStringIndex = i;
-                    break;
-                }
-            }
-
-            subString = new byte[endOfStringIndex];
-            for (int i = 0; i < endOfStringIndex; i++) {
-                subString[i] = member1Data[i];
-            }
-
-            try {
-                label = new String(subString, "UTF-8");
-            } catch (UnsupportedEncodingException ex) {
-                throw new InternalError();
-            }
-
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public StateTagLabels(UInt64 tags, String label) {
@@ -2773,18 +2876,28 @@ public class LxProtocolDevice {
         }
 
         public UInt64 getTags() {
+            if(tags == null && data != null) {
+                tags = new UInt64(Arrays.copyOfRange(data, dataOffset + 0, dataOffset + 8));
+            }
             return tags;
         }
 
+        public long getTagsValue() {
+            return tags != null ? tags.getSignedValue() : LxCodec.DeviceStateTagLabels.getTags(data, dataOffset);
+        }
+
         public String getLabel() {
+            if(label == null && data != null) {
+                label = LxCodec.DeviceStateTagLabels.getLabel(data, dataOffset);
+            }
             return label;
         }
 
         @Override
         public void printMessageData() {
-            tags.printValue("tags");            // Field: tags - Structle::Uint64 byte offset: 40
+            getTags().printValue("tags");            // Field: tags - Structle::Uint64 byte offset: 40
             //System.out.println( label);			// Field: label - Structle::String byte offset: 40
-            Logger.getLogger(StateTagLabels.class.getName()).log(Level.FINE, label);
+            Logger.getLogger(StateTagLabels.class.getName()).log(Level.FINE, getLabel());
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt64 tags, String label) {
@@ -2833,6 +2946,10 @@ public class LxProtocolDevice {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -2877,6 +2994,17 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+
+            buf.put(tags.getBytes());
+            StructleTypes.writeString(buf, label, 32);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2913,6 +3041,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3059,6 +3191,13 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(vendor.getBytes());
+            buf.put(product.getBytes());
+            buf.put(version.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3110,6 +3249,10 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3124,6 +3267,9 @@ public class LxProtocolDevice {
         private UInt64 uptime;            // Field: uptime - Structle::Uint64 byte offset: 8
         private UInt64 downtime;            // Field: downtime - Structle::Uint64 byte offset: 16
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 24;
 
         public StateInfo(byte[] bytes) {
@@ -3136,42 +3282,8 @@ public class LxProtocolDevice {
                         String.format("payload has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
 
-            byte[] member0Data = new byte[8];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-            member0Data[2] = bytes[initialOffset + 2];
-            member0Data[3] = bytes[initialOffset + 3];
-            member0Data[4] = bytes[initialOffset + 4];
-            member0Data[5] = bytes[initialOffset + 5];
-            member0Data[6] = bytes[initialOffset + 6];
-            member0Data[7] = bytes[initialOffset + 7];
-
-            time = new UInt64(member0Data);
-
-            byte[] member1Data = new byte[8];
-            member1Data[0] = bytes[initialOffset + 8];
-            member1Data[1] = bytes[initialOffset + 9];
-            member1Data[2] = bytes[initialOffset + 10];
-            member1Data[3] = bytes[initialOffset + 11];
-            member1Data[4] = bytes[initialOffset + 12];
-            member1Data[5] = bytes[initialOffset + 13];
-            member1Data[6] = bytes[initialOffset + 14];
-            member1Data[7] = bytes[initialOffset + 15];
-
-            uptime = new UInt64(member1Data);
-
-            byte[] member2Data = new byte[8];
-            member2Data[0] = bytes[initialOffset + 16];
-            member2Data[1] = bytes[initialOffset + 17];
-            member2Data[2] = bytes[initialOffset + 18];
-            member2Data[3] = bytes[initialOffset + 19];
-            member2Data[4] = bytes[initialOffset + 20];
-            member2Data[5] = bytes[initialOffset + 21];
-            member2Data[6] = bytes[initialOffset + 22];
-            member2Data[7] = bytes[initialOffset + 23];
-
-            downtime = new UInt64(member2Data);
-
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public StateInfo(Object padding, UInt64 time, UInt64 uptime, UInt64 downtime) {
@@ -3181,22 +3293,43 @@ public class LxProtocolDevice {
         }
 
         public UInt64 getTime() {
+            if(time == null && data != null) {
+                time = new UInt64(Arrays.copyOfRange(data, dataOffset + 0, dataOffset + 8));
+            }
             return time;
         }
 
+        public long getTimeValue() {
+            return time != null ? time.getSignedValue() : LxCodec.DeviceStateInfo.getTime(data, dataOffset);
+        }
+
         public UInt64 getUptime() {
+            if(uptime == null && data != null) {
+                uptime = new UInt64(Arrays.copyOfRange(data, dataOffset + 8, dataOffset + 16));
+            }
             return uptime;
         }
 
+        public long getUptimeValue() {
+            return uptime != null ? uptime.getSignedValue() : LxCodec.DeviceStateInfo.getUptime(data, dataOffset);
+        }
+
         public UInt64 getDowntime() {
+            if(downtime == null && data != null) {
+                downtime = new UInt64(Arrays.copyOfRange(data, dataOffset + 16, dataOffset + 24));
+            }
             return downtime;
         }
 
+        public long getDowntimeValue() {
+            return downtime != null ? downtime.getSignedValue() : LxCodec.DeviceStateInfo.getDowntime(data, dataOffset);
+        }
+
         @Override
         public void printMessageData() {
-            time.printValue("time");            // Field: time - Structle::Uint64 byte offset: 24
-            uptime.printValue("uptime");            // Field: uptime - Structle::Uint64 byte offset: 24
-            downtime.printValue("downtime");            // Field: downtime - Structle::Uint64 byte offset: 24
+            getTime().printValue("time");            // Field: time - Structle::Uint64 byte offset: 24
+            getUptime().printValue("uptime");            // Field: uptime - Structle::Uint64 byte offset: 24
+            getDowntime().printValue("downtime");            // Field: downtime - Structle::Uint64 byte offset: 24
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt64 time, UInt64 uptime, UInt64 downtime) {
@@ -3234,6 +3367,10 @@ public class LxProtocolDevice {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -3268,6 +3405,17 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+            buf.put(time.getBytes());
+            buf.put(uptime.getBytes());
+            buf.put(downtime.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3304,6 +3452,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3388,6 +3540,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(voltage.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3439,6 +3596,10 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3520,6 +3681,11 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(on.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3571,6 +3737,10 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3680,6 +3850,12 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(on.getBytes());
+            buf.put(disabled.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3717,6 +3893,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3783,9 +3963,20 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(location, 0, 16);
+            StructleTypes.writeString(buf, label, 32);
+            buf.put(updated_at.getBytes());
+        }
+
         public String getLabel() {
             return label;
         }
+
+        public static int getPayloadSize() {
+            return PAYLOAD_SIZE;
+        }
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -3820,6 +4011,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3886,9 +4081,20 @@ public class LxProtocolDevice {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(group, 0, 16);
+            StructleTypes.writeString(buf, label, 32);
+            buf.put(updated_at.getBytes());
+        }
+
         public String getLabel() {
             return label;
         }
+
+        public static int getPayloadSize() {
+            return PAYLOAD_SIZE;
+        }
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -3903,8 +4109,8 @@ public class LxProtocolDevice {
         }
 
         public EchoRequest(byte[] bytes, int initialOffset) {
-            thebytes = new byte[bytes.length];
-            System.arraycopy(bytes, initialOffset, thebytes, 0, bytes.length);
+            thebytes = new byte[bytes.length - initialOffset];
+            System.arraycopy(bytes, initialOffset, thebytes, 0, thebytes.length);
         }
 
         public EchoRequest() {
@@ -3920,6 +4126,11 @@ public class LxProtocolDevice {
             return thebytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(thebytes);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3952,6 +4163,10 @@ public class LxProtocolDevice {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -3973,7 +4188,7 @@ public class LxProtocolDevice {
         System.arraycopy(labelchars, 0, labelBytes, 0, labelchars.length);
 
         System.arraycopy(labelBytes, 0, arr, offset, stringLength);
-        return offset + labelchars.length;
+        return offset + stringLength;
     }
 
     private static int addUint64ToByteArray(UInt64 uInt64, byte[] arr, int offset) {
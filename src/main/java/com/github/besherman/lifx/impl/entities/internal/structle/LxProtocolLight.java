@@ -41,6 +41,7 @@ import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.U
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 @SuppressWarnings("unused")
@@ -84,40 +85,23 @@ public class LxProtocolLight {
         private UInt16 brightness;			// Field: brightness - Structle::Uint16 byte offset: 4
         private UInt16 kelvin;			// Field: kelvin - Structle::Uint16 byte offset: 6
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 8;
 
         public Hsbk(byte[] bytes) {
-            if(bytes.length != PAYLOAD_SIZE) {
-                Logger.getLogger(getClass().getName()).log(Level.SEVERE, 
-                        String.format("payload has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
+            this(bytes, 0);
+        }
 
+        public Hsbk(byte[] bytes, int initialOffset) {
+            if(bytes.length < initialOffset + PAYLOAD_SIZE) {
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE, 
+                        String.format("payload has less data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
-            int initialOffset = 0;
-            
-            byte[] member0Data = new byte[2];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-
-            hue = new UInt16(member0Data);
-
-            byte[] member1Data = new byte[2];
-            member1Data[0] = bytes[initialOffset + 2];
-            member1Data[1] = bytes[initialOffset + 3];
-
-            saturation = new UInt16(member1Data);
-
-            byte[] member2Data = new byte[2];
-            member2Data[0] = bytes[initialOffset + 4];
-            member2Data[1] = bytes[initialOffset + 5];
-
-            brightness = new UInt16(member2Data);
-
-            byte[] member3Data = new byte[2];
-            member3Data[0] = bytes[initialOffset + 6];
-            member3Data[1] = bytes[initialOffset + 7];
-
-            kelvin = new UInt16(member3Data);
 
+            data = bytes;
+            dataOffset = initialOffset;
         }
 
         public Hsbk(Object padding, UInt16 hue, UInt16 saturation, UInt16 brightness, UInt16 kelvin) {
@@ -128,27 +112,55 @@ public class LxProtocolLight {
         }
 
         public UInt16 getHue() {
+            if(hue == null && data != null) {
+                hue = new UInt16(Arrays.copyOfRange(data, dataOffset + 0, dataOffset + 2));
+            }
             return hue;
         }
 
+        public int getHueValue() {
+            return hue != null ? hue.getValue() : LxCodec.Hsbk.getHue(data, dataOffset);
+        }
+
         public UInt16 getSaturation() {
+            if(saturation == null && data != null) {
+                saturation = new UInt16(Arrays.copyOfRange(data, dataOffset + 2, dataOffset + 4));
+            }
             return saturation;
         }
 
+        public int getSaturationValue() {
+            return saturation != null ? saturation.getValue() : LxCodec.Hsbk.getSaturation(data, dataOffset);
+        }
+
         public UInt16 getBrightness() {
+            if(brightness == null && data != null) {
+                brightness = new UInt16(Arrays.copyOfRange(data, dataOffset + 4, dataOffset + 6));
+            }
             return brightness;
         }
 
+        public int getBrightnessValue() {
+            return brightness != null ? brightness.getValue() : LxCodec.Hsbk.getBrightness(data, dataOffset);
+        }
+
         public UInt16 getKelvin() {
+            if(kelvin == null && data != null) {
+                kelvin = new UInt16(Arrays.copyOfRange(data, dataOffset + 6, dataOffset + 8));
+            }
             return kelvin;
         }
 
+        public int getKelvinValue() {
+            return kelvin != null ? kelvin.getValue() : LxCodec.Hsbk.getKelvin(data, dataOffset);
+        }
+
         @Override
         public void printMessageData() {
-            hue.printValue("hue");			// Field: hue - Structle::Uint16 byte offset: 8
-            saturation.printValue("saturation");			// Field: saturation - Structle::Uint16 byte offset: 8
-            brightness.printValue("brightness");			// Field: brightness - Structle::Uint16 byte offset: 8
-            kelvin.printValue("kelvin");			// Field: kelvin - Structle::Uint16 byte offset: 8
+            getHue().printValue("hue");			// Field: hue - Structle::Uint16 byte offset: 8
+            getSaturation().printValue("saturation");			// Field: saturation - Structle::Uint16 byte offset: 8
+            getBrightness().printValue("brightness");			// Field: brightness - Structle::Uint16 byte offset: 8
+            getKelvin().printValue("kelvin");			// Field: kelvin - Structle::Uint16 byte offset: 8
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt16 hue, UInt16 saturation, UInt16 brightness, UInt16 kelvin) {
@@ -194,6 +206,10 @@ public class LxProtocolLight {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -236,6 +252,22 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+            } else {
+                encode(buf, hue.getValue(), saturation.getValue(), brightness.getValue(), kelvin.getValue());
+            }
+        }
+
+        /**
+         * Writes a color to the little endian buffer without creating a Hsbk.
+         */
+        public static void encode(ByteBuffer buf, int hue, int saturation, int brightness, int kelvin) {
+            LxCodec.Hsbk.encode(buf, hue, saturation, brightness, kelvin);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -273,6 +305,10 @@ public class LxProtocolLight {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -288,6 +324,13 @@ public class LxProtocolLight {
         private Hsbk color;		// Field: color - Lx::Protocol::Light::Hsbk byte offset: 1
         private UInt32 duration;			// Field: duration - Structle::Uint32 byte offset: 9
 
+        private int streamValue;            // used when created from primitives
+        private int hue;
+        private int saturation;
+        private int brightness;
+        private int kelvin;
+        private long durationValue;
+
         private static final int PAYLOAD_SIZE = 13;
 
         public Set(byte[] bytes) {
@@ -332,23 +375,46 @@ public class LxProtocolLight {
             this.duration = duration;
         }
 
+        /**
+         * Creates the payload from primitives, the wrappers are only created
+         * if the getters are called.
+         */
+        public Set(int stream, int hue, int saturation, int brightness, int kelvin, long duration) {
+            this.streamValue = stream;
+            this.hue = hue;
+            this.saturation = saturation;
+            this.brightness = brightness;
+            this.kelvin = kelvin;
+            this.durationValue = duration;
+        }
+
         public UInt8 getStream() {
+            if(stream == null) {
+                stream = new UInt8(streamValue);
+            }
             return stream;
         }
 
         public Hsbk getColor() {
+            if(color == null) {
+                color = new Hsbk(null, new UInt16(hue), new UInt16(saturation), 
+                        new UInt16(brightness), new UInt16(kelvin));
+            }
             return color;
         }
 
         public UInt32 getDuration() {
+            if(duration == null) {
+                duration = new UInt32(durationValue);
+            }
             return duration;
         }
 
         @Override
         public void printMessageData() {
-            stream.printValue("stream");			// Field: stream - Structle::Uint8 byte offset: 13
-            color.printMessageData();		// Field: color - Lx::Protocol::Light::Hsbk byte offset: 13
-            duration.printValue("duration");			// Field: duration - Structle::Uint32 byte offset: 13
+            getStream().printValue("stream");			// Field: stream - Structle::Uint8 byte offset: 13
+            getColor().printMessageData();		// Field: color - Lx::Protocol::Light::Hsbk byte offset: 13
+            getDuration().printValue("duration");			// Field: duration - Structle::Uint32 byte offset: 13
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, UInt8 stream, Hsbk color, UInt32 duration) {
@@ -394,7 +460,7 @@ public class LxProtocolLight {
             byte[] memberData;
 
             // = name.getBytes();        		
-            memberData = stream.getBytes();
+            memberData = getStream().getBytes();
 
             for (int i = 0; i < (memberData.length); i++) {
                 bytes[(offset + i)] = memberData[i];
@@ -402,7 +468,7 @@ public class LxProtocolLight {
 
             offset += memberData.length;
             // = name.getBytes();        		
-            memberData = color.getBytes();
+            memberData = getColor().getBytes();
 
             for (int i = 0; i < (memberData.length); i++) {
                 bytes[(offset + i)] = memberData[i];
@@ -410,7 +476,7 @@ public class LxProtocolLight {
 
             offset += memberData.length;
             // = name.getBytes();        		
-            memberData = duration.getBytes();
+            memberData = getDuration().getBytes();
 
             for (int i = 0; i < (memberData.length); i++) {
                 bytes[(offset + i)] = memberData[i];
@@ -421,6 +487,26 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(color == null) {
+                LxCodec.LightSet.encode(buf, streamValue, hue, saturation, brightness, kelvin, durationValue);
+            } else {
+                buf.put((byte) getStream().getValue());
+                color.encodeTo(buf);
+                buf.putInt((int) getDuration().getValue());
+            }
+        }
+
+        /**
+         * Writes a LX_PROTOCOL_LIGHT_SET payload to the little endian buffer
+         * without creating any objects. Used together with 
+         * LFXMessage.writeHeader() to stream colors.
+         */
+        public static void encode(ByteBuffer buf, int hue, int saturation, int brightness, int kelvin, long duration) {
+            LxCodec.LightSet.encode(buf, 0, hue, saturation, brightness, kelvin, duration);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -685,6 +771,17 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(stream.getBytes());
+            buf.put(transienttype.getBytes());
+            color.encodeTo(buf);
+            buf.put(period.getBytes());
+            buf.put(cycles.getBytes());
+            buf.put(duty_cycle.getBytes());
+            buf.put(waveform.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -800,6 +897,12 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(brightness.getBytes());
+            buf.put(duration.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -917,6 +1020,12 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(brightness.getBytes());
+            buf.put(duration.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1088,6 +1197,14 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(red.getBytes());
+            buf.put(green.getBytes());
+            buf.put(blue.getBytes());
+            buf.put(white.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1178,6 +1295,11 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            color.encodeTo(buf);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1195,6 +1317,9 @@ public class LxProtocolLight {
         private String label;			// Field: label - Structle::String byte offset: 12
         private UInt64 tags;			// Field: tags - Structle::Uint64 byte offset: 44
 
+        private byte[] data;            // set when the payload is a view over message data
+        private int dataOffset;
+
         private static final int PAYLOAD_SIZE = 52;
 
         public State(byte[] bytes) {
@@ -1206,100 +1331,14 @@ public class LxProtocolLight {
                 Logger.getLogger(State.class.getName()).log(Level.SEVERE, 
                         String.format("LX_PROTOCOL_LIGHT_STATE has more data than advertised: %s", StructleTypes.bytesToString(bytes)));
             }
-            byte[] member0Data = new byte[8];
-            member0Data[0] = bytes[initialOffset + 0];
-            member0Data[1] = bytes[initialOffset + 1];
-            member0Data[2] = bytes[initialOffset + 2];
-            member0Data[3] = bytes[initialOffset + 3];
-            member0Data[4] = bytes[initialOffset + 4];
-            member0Data[5] = bytes[initialOffset + 5];
-            member0Data[6] = bytes[initialOffset + 6];
-            member0Data[7] = bytes[initialOffset + 7];
 
-            color = new Hsbk(member0Data);		// Field: color - Lx::Protocol::Light::Hsbk byte offset: 0
-
-            byte[] member1Data = new byte[2];
-            member1Data[0] = bytes[initialOffset + 8];
-            member1Data[1] = bytes[initialOffset + 9];
+            data = bytes;
+            dataOffset = initialOffset;
 
-            dim = new Int16(member1Data);
-            
-            if(dim.getValue() != 0) {
+            if(getDimValue() != 0) {
                 Logger.getLogger(State.class.getName()).log(Level.INFO, 
                         String.format("LX_PROTOCOL_LIGHT_STATE field dim is non null: %s", StructleTypes.bytesToString(bytes)));
             }
-
-            byte[] member2Data = new byte[2];
-            member2Data[0] = bytes[initialOffset + 10];
-            member2Data[1] = bytes[initialOffset + 11];
-
-            power = new UInt16(member2Data);
-
-            byte[] member3Data = new byte[32];
-            member3Data[0] = bytes[initialOffset + 12];
-            member3Data[1] = bytes[initialOffset + 13];
-            member3Data[2] = bytes[initialOffset + 14];
-            member3Data[3] = bytes[initialOffset + 15];
-            member3Data[4] = bytes[initialOffset + 16];
-            member3Data[5] = bytes[initialOffset + 17];
-            member3Data[6] = bytes[initialOffset + 18];
-            member3Data[7] = bytes[initialOffset + 19];
-            member3Data[8] = bytes[initialOffset + 20];
-            member3Data[9] = bytes[initialOffset + 21];
-            member3Data[10] = bytes[initialOffset + 22];
-            member3Data[11] = bytes[initialOffset + 23];
-            member3Data[12] = bytes[initialOffset + 24];
-            member3Data[13] = bytes[initialOffset + 25];
-            member3Data[14] = bytes[initialOffset + 26];
-            member3Data[15] = bytes[initialOffset + 27];
-            member3Data[16] = bytes[initialOffset + 28];
-            member3Data[17] = bytes[initialOffset + 29];
-            member3Data[18] = bytes[initialOffset + 30];
-            member3Data[19] = bytes[initialOffset + 31];
-            member3Data[20] = bytes[initialOffset + 32];
-            member3Data[21] = bytes[initialOffset + 33];
-            member3Data[22] = bytes[initialOffset + 34];
-            member3Data[23] = bytes[initialOffset + 35];
-            member3Data[24] = bytes[initialOffset + 36];
-            member3Data[25] = bytes[initialOffset + 37];
-            member3Data[26] = bytes[initialOffset + 38];
-            member3Data[27] = bytes[initialOffset + 39];
-            member3Data[28] = bytes[initialOffset + 40];
-            member3Data[29] = bytes[initialOffset + 41];
-            member3Data[30] = bytes[initialOffset + 42];
-            member3Data[31] = bytes[initialOffset + 43];
-
-            int endOfStringIndex;
-            byte[] subString;
-
-            endOfStringIndex = member3Data.length;
-
-            for (int i = 0; i < member3Data.length; i++) {
-                if (member3Data[i] == 0x00) {
-                    endOfStringIndex = i;
-                    break;
-                }
-            }
-
-            subString = new byte[endOfStringIndex];
-            for (int i = 0; i < endOfStringIndex; i++) {
-                subString[i] = member3Data[i];
-            }
-
-            label = new String(subString);
-
-            byte[] member4Data = new byte[8];
-            member4Data[0] = bytes[initialOffset + 44];
-            member4Data[1] = bytes[initialOffset + 45];
-            member4Data[2] = bytes[initialOffset + 46];
-            member4Data[3] = bytes[initialOffset + 47];
-            member4Data[4] = bytes[initialOffset + 48];
-            member4Data[5] = bytes[initialOffset + 49];
-            member4Data[6] = bytes[initialOffset + 50];
-            member4Data[7] = bytes[initialOffset + 51];
-
-            tags = new UInt64(member4Data);
-
         }
 
         public State(Object padding, Hsbk color, Int16 dim, UInt16 power, String label, UInt64 tags) {
@@ -1314,6 +1353,9 @@ public class LxProtocolLight {
          * Returns the bulb's color. 
          */
         public Hsbk getColor() {
+            if(color == null && data != null) {
+                color = new Hsbk(data, dataOffset + 0);
+            }
             return color;
         }
 
@@ -1321,34 +1363,58 @@ public class LxProtocolLight {
          * Not used. Always returns 0 so far.
          */
         public Int16 getDim() {
+            if(dim == null && data != null) {
+                dim = new Int16(Arrays.copyOfRange(data, dataOffset + 8, dataOffset + 10));
+            }
             return dim;
         }
 
+        public int getDimValue() {
+            return dim != null ? dim.getValue() : LxCodec.LightState.getDim(data, dataOffset);
+        }
+
         /**
          * Returns 0 for OFF and 1 for ON.
          */
         public UInt16 getPower() {
+            if(power == null && data != null) {
+                power = new UInt16(Arrays.copyOfRange(data, dataOffset + 10, dataOffset + 12));
+            }
             return power;
         }
 
+        public int getPowerValue() {
+            return power != null ? power.getValue() : LxCodec.LightState.getPower(data, dataOffset);
+        }
+
         /**
          * Returns the lights label. Max 32 bytes.
          */
         public String getLabel() {
+            if(label == null && data != null) {
+                label = LxCodec.LightState.getLabel(data, dataOffset);
+            }
             return label;
         }
 
         public UInt64 getTags() {
+            if(tags == null && data != null) {
+                tags = new UInt64(Arrays.copyOfRange(data, dataOffset + 44, dataOffset + 52));
+            }
             return tags;
         }
 
+        public long getTagsValue() {
+            return tags != null ? tags.getSignedValue() : LxCodec.LightState.getTags(data, dataOffset);
+        }
+
         @Override
         public void printMessageData() {
-            color.printMessageData();		// Field: color - Lx::Protocol::Light::Hsbk byte offset: 52
-            dim.printValue("dim");				// Field: dim - Structle::Int16 byte offset: 52
-            power.printValue("power");			// Field: power - Structle::Uint16 byte offset: 52
+            getColor().printMessageData();		// Field: color - Lx::Protocol::Light::Hsbk byte offset: 52
+            getDim().printValue("dim");				// Field: dim - Structle::Int16 byte offset: 52
+            getPower().printValue("power");			// Field: power - Structle::Uint16 byte offset: 52
             //System.out.println( label);			// Field: label - Structle::String byte offset: 52
-            tags.printValue("tags");			// Field: tags - Structle::Uint64 byte offset: 52
+            getTags().printValue("tags");			// Field: tags - Structle::Uint64 byte offset: 52
         }
 
         public static void loadMessageDataWithPayloadAtOffset(byte[] messageData, int offset, Hsbk color, Int16 dim, UInt16 power, String label, UInt64 tags) {
@@ -1420,6 +1486,10 @@ public class LxProtocolLight {
 
         @Override
         public byte[] getBytes() {
+            if(data != null) {
+                return Arrays.copyOfRange(data, dataOffset, dataOffset + PAYLOAD_SIZE);
+            }
+
             int offset = 0;
 
             byte[] bytes = new byte[getPayloadSize()];
@@ -1487,6 +1557,20 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            if(data != null) {
+                buf.put(data, dataOffset, PAYLOAD_SIZE);
+                return;
+            }
+
+            color.encodeTo(buf);
+            buf.put(dim.getBytes());
+            buf.put(power.getBytes());
+            StructleTypes.writeString(buf, label, 32);
+            buf.put(tags.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1540,6 +1624,10 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1626,6 +1714,11 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(voltage.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1678,6 +1771,10 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1761,6 +1858,11 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(temperature.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1908,6 +2010,13 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(x.getBytes());
+            buf.put(y.getBytes());
+            buf.put(z.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2119,6 +2228,14 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            r.encodeTo(buf);
+            g.encodeTo(buf);
+            b.encodeTo(buf);
+            w.encodeTo(buf);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2227,6 +2344,15 @@ public class LxProtocolLight {
             }
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(index.getBytes());
+            buf.put(time.getBytes());
+            buf.put(power.getBytes());
+            buf.put(duration.getBytes());
+            waveform.encodeTo(buf);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2270,6 +2396,11 @@ public class LxProtocolLight {
             return index.getBytes();
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(index.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2380,6 +2511,16 @@ public class LxProtocolLight {
             }
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(index.getBytes());
+            buf.put(time.getBytes());
+            buf.put(power.getBytes());
+            buf.put(duration.getBytes());
+            waveform.encodeTo(buf);
+            buf.put(max.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2424,6 +2565,11 @@ public class LxProtocolLight {
             return Arrays.copyOfRange(value, 0, value.length);
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(value);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2468,6 +2614,11 @@ public class LxProtocolLight {
             return Arrays.copyOfRange(value, 0, value.length);
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(value);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2513,6 +2664,11 @@ public class LxProtocolLight {
             return Arrays.copyOfRange(value, 0, value.length);
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(value);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2558,6 +2714,11 @@ public class LxProtocolLight {
             return Arrays.copyOfRange(value, 0, value.length);
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(value);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -2720,6 +2881,19 @@ public class LxProtocolLight {
             return bytes;
         }
 
+        /**
+         * Writes the same bytes as getBytes() to the little endian buffer.
+         */
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(stream.getBytes());
+            buf.put(transienttype.getBytes());
+            color.encodeTo(buf);
+            buf.put(period.getBytes());
+            buf.put(cycles.getBytes());
+            buf.put(skew_ratio.getBytes());
+            buf.put(waveform.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -24,6 +24,7 @@
  */
 package com.github.besherman.lifx.impl.entities.internal.structle;
 
+import java.nio.ByteBuffer;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.Float32;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.LxProtocolTypeBase;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt32;
@@ -64,6 +65,10 @@ public class LxProtocolSensor {
             return new byte[0];
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -150,6 +155,11 @@ public class LxProtocolSensor {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(lux.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -200,6 +210,10 @@ public class LxProtocolSensor {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -285,6 +299,11 @@ public class LxProtocolSensor {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(voltage.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -24,6 +24,7 @@
  */
 package com.github.besherman.lifx.impl.entities.internal.structle;
 
+import java.nio.ByteBuffer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -277,6 +278,12 @@ public class LxProtocolWan {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            StructleTypes.writeChars(buf, user, 32);
+            StructleTypes.writeChars(buf, pass, 32);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -387,6 +394,11 @@ public class LxProtocolWan {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(key);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -501,6 +513,11 @@ public class LxProtocolWan {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(key);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -647,6 +664,13 @@ public class LxProtocolWan {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(target);
+            buf.put(site);
+            buf.put(device.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -793,6 +817,13 @@ public class LxProtocolWan {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(target);
+            buf.put(site);
+            buf.put(device.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -937,6 +968,13 @@ public class LxProtocolWan {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(target);
+            buf.put(site);
+            buf.put(device.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -965,5 +1003,9 @@ public class LxProtocolWan {
         public byte[] getBytes() {
         	return new byte[0];
         }
+
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
     }
 }
\ No newline at end of file
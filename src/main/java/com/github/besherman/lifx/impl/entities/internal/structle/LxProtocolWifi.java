@@ -24,6 +24,7 @@
  */
 package com.github.besherman.lifx.impl.entities.internal.structle;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 
 import java.util.logging.Level;
@@ -197,6 +198,11 @@ public class LxProtocolWifi {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(interfacetype.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -307,6 +313,12 @@ public class LxProtocolWifi {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(interfacetype.getBytes());
+            buf.put(active.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -491,6 +503,14 @@ public class LxProtocolWifi {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(interfacetype.getBytes());
+            buf.put(status.getBytes());
+            buf.put(ipv4.getBytes());
+            buf.put(ipv6);
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -542,6 +562,10 @@ public class LxProtocolWifi {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -883,6 +907,14 @@ public class LxProtocolWifi {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(interfacetype.getBytes());
+            StructleTypes.writeChars(buf, ssid, 32);
+            StructleTypes.writeChars(buf, pass, 64);
+            buf.put(security.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -1153,6 +1185,15 @@ public class LxProtocolWifi {
             return bytes;
         }
 
+        @Override
+        public void encodeTo(ByteBuffer buf) {
+            buf.put(interfacetype.getBytes());
+            StructleTypes.writeChars(buf, ssid, 32);
+            buf.put(security.getBytes());
+            buf.put(strength.getBytes());
+            buf.put(channel.getBytes());
+        }
+
         public static int getPayloadSize() {
             return PAYLOAD_SIZE;
         }
@@ -28,10 +28,12 @@ import com.github.besherman.lifx.impl.entities.internal.LFXByteUtils;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.Charset;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class StructleTypes {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
 
     ////////////////////////////////////////////////////////////////////////////
     //
@@ -40,6 +42,13 @@ public class StructleTypes {
         protected static final int PAYLOAD_OFFSET = 36;
         public abstract void printMessageData();
         public abstract byte[] getBytes();
+
+        /**
+         * Writes the same bytes as getBytes() to the little endian buffer
+         * at its current position, straight from the fields without an
+         * intermediate array.
+         */
+        public abstract void encodeTo(ByteBuffer buf);
     }
 
     ////////////////////////////////////////////////////////////////////////////
@@ -668,6 +677,97 @@ public class StructleTypes {
         }
     }
 
+    /**
+     * Reads an unsigned byte at the offset.
+     */
+    public static int readUInt8(byte[] data, int offset) {
+        return data[offset] & 0xff;
+    }
+
+    /**
+     * Reads a little-endian signed 16 bit value at the offset.
+     */
+    public static int readInt16(byte[] data, int offset) {
+        return (short)((data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8);
+    }
+
+    /**
+     * Reads a little-endian unsigned 16 bit value at the offset.
+     */
+    public static int readUInt16(byte[] data, int offset) {
+        return (data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8;
+    }
+
+    /**
+     * Reads a little-endian unsigned 32 bit value at the offset.
+     */
+    public static long readUInt32(byte[] data, int offset) {
+        return ((data[offset] & 0xff) | (data[offset + 1] & 0xff) << 8 
+                | (data[offset + 2] & 0xff) << 16 | (data[offset + 3] & 0xffL) << 24);
+    }
+
+    /**
+     * Reads a little-endian 64 bit value at the offset. Like 
+     * UInt64.getSignedValue() values above Long.MAX_VALUE become negative.
+     */
+    public static long readUInt64(byte[] data, int offset) {
+        return (readUInt32(data, offset) | readUInt32(data, offset + 4) << 32);
+    }
+
+    /**
+     * Reads a boolean at the offset, anything but 0 is true.
+     */
+    public static boolean readBool8(byte[] data, int offset) {
+        return data[offset] != 0;
+    }
+
+    /**
+     * Reads a little-endian float at the offset.
+     */
+    public static float readFloat32(byte[] data, int offset) {
+        return Float.intBitsToFloat((int) readUInt32(data, offset));
+    }
+
+    /**
+     * Reads a zero terminated UTF-8 string of at most length bytes at the 
+     * offset.
+     */
+    public static String readString(byte[] data, int offset, int length) {
+        int end = 0;
+        while(end < length && data[offset + end] != 0x00) {
+            end++;
+        }
+        return new String(data, offset, end, UTF_8);
+    }
+
+    /**
+     * Writes the string as UTF-8 to the buffer, cut or padded with zeros
+     * to exactly length bytes.
+     */
+    public static void writeString(ByteBuffer buf, String value, int length) {
+        byte[] bytes = value.getBytes(UTF_8);
+        int count = Math.min(bytes.length, length);
+        buf.put(bytes, 0, count);
+        for(int i = count; i < length; i++) {
+            buf.put((byte) 0);
+        }
+    }
+
+    /**
+     * Writes the low byte of each char of the string to the buffer, cut or
+     * padded with zeros to exactly length bytes. Used by the wifi and wan
+     * payloads that are not UTF-8.
+     */
+    public static void writeChars(ByteBuffer buf, String value, int length) {
+        int count = Math.min(value.length(), length);
+        for(int i = 0; i < count; i++) {
+            buf.put((byte) value.charAt(i));
+        }
+        for(int i = count; i < length; i++) {
+            buf.put((byte) 0);
+        }
+    }
+
     public static long getLongValue(byte b0, byte b1, byte b2, byte b3, byte b4, byte b5, byte b6, byte b7) {
         byte[] bytes = new byte[]{b0, b1, b2, b3, b4, b5, b6, b7};
 
@@ -37,12 +37,13 @@ import static com.github.besherman.lifx.impl.entities.internal.structle.LxProtoc
 import static com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_TAG_LABELS;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolDevice;
 import com.github.besherman.lifx.impl.network.LFXMessageRouter;
+import com.github.besherman.lifx.impl.network.LFXRoutedMessage;
+import com.github.besherman.lifx.impl.network.LFXTopologyCache;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.EnumSet;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -51,6 +52,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -69,9 +71,11 @@ import java.util.logging.Logger;
 public class LFXAllGroups implements LFXGroupCollection {
     private final Map<LFXTagID, LFXGroupImpl> allGroups = new ConcurrentHashMap<>();
     private final Set<LFXGroupImpl> availableGroups = new CopyOnWriteArraySet<>(); 
+    // guards which lights are in the groups, their labels and which groups 
+    // are available, the dispatch workers update them at the same time
     private final Object availableLock = new Object();
     private final List<LFXGroupCollectionListener> listeners = new CopyOnWriteArrayList<>();
-    private final Set<LFXTagID> hasNotReceivedLabel = Collections.synchronizedSet(EnumSet.allOf(LFXTagID.class));
+    private final AtomicLong hasNotReceivedLabel = new AtomicLong(LFXTagID.ALL_TAGS_MASK);
     private volatile CountDownLatch allLabelsLoaded = new CountDownLatch(1);
     private LFXAllLights allLights;
     private LFXMessageRouter router;
@@ -94,8 +98,10 @@ public class LFXAllGroups implements LFXGroupCollection {
         this.allLights.addLightCollectionListener(new LFXLightCollectionListener() {
             @Override public void lightAdded(LFXLight light) {}
             @Override public void lightRemoved(LFXLight light) {
-                for(LFXGroupImpl group: allGroups.values()) {
-                    group.removeImpl((LFXLightImpl)light);
+                synchronized(availableLock) {
+                    for(LFXGroupImpl group: allGroups.values()) {
+                        group.removeImpl((LFXLightImpl)light);
+                    }
                 }
             }
         });
@@ -159,8 +165,7 @@ public class LFXAllGroups implements LFXGroupCollection {
             Iterator<LFXLight> it = group.iterator();
             while(it.hasNext()) {
                 LFXLightImpl light = (LFXLightImpl)it.next();
-                Set<LFXTagID> tags = getTagIDsForLight(light);
-                tags.remove(impl.getTagID());            
+                long tags = getTagMaskForLight(light) & ~impl.getTagID().getMask();
 
                 LxProtocolDevice.SetTags payload = new LxProtocolDevice.SetTags(LFXTagID.pack(tags));
                 LFXMessage msg = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_SET_TAGS, light.getTarget(), payload);
@@ -234,13 +239,13 @@ public class LFXAllGroups implements LFXGroupCollection {
         }     
         
         // TODO: i am not a fan of this
-        hasNotReceivedLabel.addAll(EnumSet.allOf(LFXTagID.class));
+        hasNotReceivedLabel.set(LFXTagID.ALL_TAGS_MASK);
         allLabelsLoaded = new CountDownLatch(1);
     }
     
     
     public boolean isLoaded() {
-        return hasNotReceivedLabel.isEmpty();
+        return hasNotReceivedLabel.get() == 0;
     }
     
     public boolean waitForInitLoaded(long timeout, TimeUnit unit) throws InterruptedException {
@@ -249,9 +254,49 @@ public class LFXAllGroups implements LFXGroupCollection {
     }
     
     
+    /**
+     * Sets the group labels and which lights are in the groups from the 
+     * cache. Must be called after the lights have been loaded from it.
+     */
+    public void loadFromCache(LFXTopologyCache cache) {
+        synchronized(availableLock) {
+            Set<LFXGroupImpl> changed = new LinkedHashSet<>();
+            for(LFXLight light: allLights) {
+                LFXDeviceID device = ((LFXLightImpl)light).getDeviceID();
+                setLightGroups(Collections.singleton(device), cache.getLightTags(device), changed);
+            }
+
+            long received = 0;
+            for(LFXTagID id: LFXTagID.values()) {
+                String label = cache.getTagLabel(id);
+                if(label != null) {
+                    allGroups.get(id).labelDidChangeTo(label);
+                    changed.add(allGroups.get(id));
+                    received |= id.getMask();
+                }
+            }
+            labelsReceived(received);
+
+            for(LFXGroupImpl group: changed) {
+                updateAvailability(group);
+            }
+        }
+    }
+    
+    /**
+     * Stores the labels we have received in the cache.
+     */
+    public void saveTo(LFXTopologyCache cache) {
+        for(LFXTagID id: LFXTagID.values()) {
+            LFXGroupImpl group = allGroups.get(id);
+            if(group != null && (hasNotReceivedLabel.get() & id.getMask()) == 0) {
+                cache.putTagLabel(id, group.getLabel());
+            }
+        }
+    }
+    
     public void sendAddLightToGroup(LFXLightImpl light, LFXGroupImpl group) {
-        Set<LFXTagID> tags = getTagIDsForLight(light);
-        tags.add(group.getTagID());
+        long tags = getTagMaskForLight(light) | group.getTagID().getMask();
         LxProtocolDevice.SetTags payload = new LxProtocolDevice.SetTags(LFXTagID.pack(tags));            
         for(int i = 0; i < 3; i++) {
             router.sendMessage(new LFXMessage(Type.LX_PROTOCOL_DEVICE_SET_TAGS, light.getTarget(), payload));        
@@ -259,8 +304,7 @@ public class LFXAllGroups implements LFXGroupCollection {
     }
     
     public void sendRemoveLightToGroup(LFXLightImpl light, LFXGroupImpl group) {
-        Set<LFXTagID> tags = getTagIDsForLight(light);
-        tags.remove(group.getTagID());
+        long tags = getTagMaskForLight(light) & ~group.getTagID().getMask();
         LxProtocolDevice.SetTags payload = new LxProtocolDevice.SetTags(LFXTagID.pack(tags));            
         for(int i = 0; i < 3; i++) {
             router.sendMessage(new LFXMessage(Type.LX_PROTOCOL_DEVICE_SET_TAGS, light.getTarget(), payload));        
@@ -268,63 +312,115 @@ public class LFXAllGroups implements LFXGroupCollection {
     }
     
     /**
-     * Returns all tags that the light has.
+     * Returns a mask of all tags that the light has.
      */
-    public Set<LFXTagID> getTagIDsForLight(LFXLightImpl light) {
-        Set<LFXTagID> result = new HashSet<>();
+    public long getTagMaskForLight(LFXLightImpl light) {
+        long result = 0;
         for(LFXGroupImpl group: availableGroups) {
             if(group.contains(light)) {
-                result.add(group.getTagID());
+                result |= group.getTagID().getMask();
             }
         }
         return result;
     }    
     
     
-    public void handleMessage(Set<LFXDeviceID> targets, LFXMessage message) {
-        Type type = message.getType();
-        if(type == LX_PROTOCOL_DEVICE_STATE_TAGS) {
-            LxProtocolDevice.StateTags payload = message.getPayload();
-            Set<LFXTagID> ids = LFXTagID.unpack(payload.getTags());                            
-            setLightGroups(targets, ids);
-        } else if(type == LX_PROTOCOL_DEVICE_STATE_TAG_LABELS) {
-            LxProtocolDevice.StateTagLabels payload = message.getPayload();
-            Set<LFXTagID> tags = LFXTagID.unpack(payload.getTags());
-            String label = payload.getLabel();            
-            if(targets.size() == 1) {
-                setGroupLabels(targets.iterator().next(), tags, label); 
+    /**
+     * Updates the groups from the messages. Which groups are available is 
+     * only checked once for the whole batch, so the listeners are not told
+     * about a group that comes and goes within it.
+     * 
+     * The groups are shared by all lights, so the batch is handled under 
+     * the lock if it has any tag messages.
+     */
+    public void handleMessages(List<LFXRoutedMessage> messages) {
+        for(LFXRoutedMessage routed: messages) {
+            Type type = routed.getMessage().getType();
+            if(type == LX_PROTOCOL_DEVICE_STATE_TAGS || type == LX_PROTOCOL_DEVICE_STATE_TAG_LABELS) {
+                synchronized(availableLock) {
+                    handleTagMessages(messages);
+                }
+                return;
+            }
+        }
+    }
+    
+    private void handleTagMessages(List<LFXRoutedMessage> messages) {
+        Set<LFXGroupImpl> changed = null;
+        for(LFXRoutedMessage routed: messages) {
+            LFXMessage message = routed.getMessage();
+            Set<LFXDeviceID> targets = routed.getTargets();
+            Type type = message.getType();
+            if(type == LX_PROTOCOL_DEVICE_STATE_TAGS) {
+                LxProtocolDevice.StateTags payload = message.getPayload();
+                long tags = payload.getTagsValue();
+                changed = changed != null ? changed : new LinkedHashSet<LFXGroupImpl>();
+                setLightGroups(targets, tags, changed);
+            } else if(type == LX_PROTOCOL_DEVICE_STATE_TAG_LABELS) {
+                LxProtocolDevice.StateTagLabels payload = message.getPayload();
+                long tags = payload.getTagsValue();
+                String label = payload.getLabel();            
+                if(targets.size() == 1) {
+                    changed = changed != null ? changed : new LinkedHashSet<LFXGroupImpl>();
+                    setGroupLabels(targets.iterator().next(), tags, label, changed); 
+                }
+            }        
+        }
+        
+        if(changed != null) {
+            for(LFXGroupImpl group: changed) {
+                updateAvailability(group);
             }
-        }        
+        }
     }
 
-    private void setLightGroups(Set<LFXDeviceID> targets, Set<LFXTagID> ids) {
+    private void setLightGroups(Set<LFXDeviceID> targets, long tags, Set<LFXGroupImpl> changed) {
         for(LFXDeviceID deviceId: targets) {
             LFXLightImpl light = allLights.getLight(deviceId);
+            if(light == null) {
+                // removed as lost while the message was queued
+                continue;
+            }
             for(LFXGroupImpl group: allGroups.values()) {
-                if(ids.contains(group.getTagID())) {
+                if((tags & group.getTagID().getMask()) != 0) {
                     group.addImpl(light);
                 } else {
                     group.removeImpl(light);
                 }
 
-                updateAvailability(group);
+                changed.add(group);
             }
         }                
     }
 
-    private void setGroupLabels(LFXDeviceID source, Set<LFXTagID> ids, String label) {        
-        for(LFXTagID id: ids) {
-            LFXGroupImpl group = allGroups.get(id);
+    private void setGroupLabels(LFXDeviceID source, long tags, String label, Set<LFXGroupImpl> changed) {        
+        for(long rest = tags; rest != 0; rest &= rest - 1) {
+            LFXGroupImpl group = allGroups.get(LFXTagID.fromBit(Long.numberOfTrailingZeros(rest)));
             if(group.contains(source)) {
                 group.labelDidChangeTo(label);
-                updateAvailability(group);
+                changed.add(group);
             } 
         }
         
-        if(!hasNotReceivedLabel.isEmpty()) {
-            hasNotReceivedLabel.removeAll(ids);
-            if(hasNotReceivedLabel.isEmpty()) {
-                allLabelsLoaded.countDown();
+        labelsReceived(tags);
+    }
+    
+    /**
+     * Clears the tags from the set of tags we are still waiting for a label 
+     * for, and releases waitForInitLoaded when the last one arrives.
+     */
+    private void labelsReceived(long tags) {
+        while(true) {
+            long missing = hasNotReceivedLabel.get();
+            if(missing == 0 || (missing & tags) == 0) {
+                return;
+            }
+            long left = missing & ~tags;
+            if(hasNotReceivedLabel.compareAndSet(missing, left)) {
+                if(left == 0) {
+                    allLabelsLoaded.countDown();
+                }
+                return;
             }
         }
     }
@@ -30,9 +30,12 @@ import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
 import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
 import com.github.besherman.lifx.impl.network.LFXMessageRouter;
+import com.github.besherman.lifx.impl.network.LFXRoutedMessage;
 import com.github.besherman.lifx.impl.network.LFXTimerQueue;
+import com.github.besherman.lifx.impl.network.LFXTopologyCache;
+import com.github.besherman.lifx.impl.util.LFXLongMap;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -103,23 +106,77 @@ public class LFXAllLights implements LFXLightCollection {
         return allLightsLoaded.getCount() == 0;
     }
     
-    public void handleMessage(LFXMessageRouter router, LFXTimerQueue timer, Set<LFXDeviceID> targets, LFXMessage message) {
-        for(LFXDeviceID device: targets) {
-            LFXLightImpl light = lights.get(device);
-            if(light == null) {
-                light = new LFXLightImpl(router, timer, device);
-                router.sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_LABEL, light.getTarget()));
-                router.sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_POWER, light.getTarget()));
-                router.sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_TIME, light.getTarget()));                                
-                light.getDetails().load();
+    /**
+     * Passes the messages to the lights. New lights are added to the 
+     * collection, and the listeners told, after the whole batch has been 
+     * handled so they see the lights with as much state as possible.
+     * 
+     * The workers call this at the same time, but each light is only 
+     * created and updated by the worker that gets its messages.
+     */
+    public void handleMessages(LFXMessageRouter router, LFXTimerQueue timer, List<LFXRoutedMessage> messages) {
+        // keyed by the device id value
+        LFXLongMap<LFXLightImpl> newLights = null;
+        for(LFXRoutedMessage routed: messages) {
+            for(LFXDeviceID device: routed.getTargets()) {
+                LFXLightImpl light = lights.get(device);
+                if(light == null && newLights != null) {
+                    light = newLights.get(device.getValue());
+                }
+                if(light == null) {
+                    light = new LFXLightImpl(router, timer, device);
+                    router.sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_LABEL, light.getTarget()));
+                    router.sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_POWER, light.getTarget()));
+                    router.sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_TIME, light.getTarget()));                                
+                    light.getDetails().load();
+                    if(newLights == null) {
+                        newLights = new LFXLongMap<>();
+                    }
+                    newLights.put(device.getValue(), light);
+                }
+                light.handleMessage(routed.getMessage());
             }
-            light.handleMessage(message);
-            
-            if(!lights.contains(light)) {
+        }
+        
+        if(newLights != null) {
+            for(LFXLightImpl light: newLights.values()) {
+                lights.add(light);
+            }
+        }
+        
+        checkLoaded();
+    }
+    
+    /**
+     * Adds the lights that the router loaded from the topology cache. They 
+     * are loaded already, so none of the requests that are sent to newly 
+     * discovered lights are sent to them. Lights that the cache doesn't have
+     * the details of are left to be discovered.
+     */
+    public void loadFromCache(LFXMessageRouter router, LFXTimerQueue timer, LFXTopologyCache cache) {
+        for(LFXDeviceID device: router.getCachedLights()) {
+            if(lights.get(device) == null && cache.hasLightDetails(device)) {
+                LFXLightImpl light = new LFXLightImpl(router, timer, device);
+                light.restore(cache);
                 lights.add(light);
             }
         }
         
+        if(!lights.isEmpty()) {
+            checkLoaded();
+        }
+    }
+    
+    /**
+     * Stores what is known about the lights in the cache.
+     */
+    public void saveTo(LFXTopologyCache cache) {
+        for(LFXLight l: lights) {
+            ((LFXLightImpl)l).saveTo(cache);
+        }
+    }
+    
+    private void checkLoaded() {
         if(allLightsLoaded.getCount() > 0) {
             for(LFXLight l: lights) {
                 if(((LFXLightImpl)l).isLoaded() == false) {
@@ -138,7 +195,7 @@ public class LFXAllLights implements LFXLightCollection {
         while(it.hasNext()) {
             LFXDeviceID id = it.next();
             LFXLightImpl light = lights.get(id);            
-            if(light.isLost()) {
+            if(light != null && light.isLost()) {
                 lights.remove(light);
             } 
         }
@@ -24,15 +24,16 @@
 package com.github.besherman.lifx.impl.light;
 
 import com.github.besherman.lifx.impl.entities.internal.LFXTagID;
-import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
 import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
 import com.github.besherman.lifx.impl.entities.internal.LFXTarget;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolDevice;
 import com.github.besherman.lifx.impl.network.LFXLightHandler;
 import com.github.besherman.lifx.impl.network.LFXMessageRouter;
+import com.github.besherman.lifx.impl.network.LFXRoutedMessage;
 import com.github.besherman.lifx.impl.network.LFXTimerQueue;
-import java.util.EnumSet;
+import com.github.besherman.lifx.impl.network.LFXTopologyCache;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -98,9 +99,9 @@ public class LFXDefaultLightHandler implements LFXLightHandler {
     }    
     
     @Override
-    public void handleMessage(Set<LFXDeviceID> targets, LFXMessage message) {
-        lights.handleMessage(router, timerQueue, targets, message);
-        groups.handleMessage(targets, message);
+    public void handleMessages(List<LFXRoutedMessage> messages) {
+        lights.handleMessages(router, timerQueue, messages);
+        groups.handleMessages(messages);
     }
 
     @Override
@@ -108,7 +109,13 @@ public class LFXDefaultLightHandler implements LFXLightHandler {
         lights.open();
         groups.open();
         
-        timerQueue = new LFXTimerQueue();        
+        timerQueue = router.createTimerQueue();        
+        
+        LFXTopologyCache cache = router.getTopologyCache();
+        if(cache != null) {
+            lights.loadFromCache(router, timerQueue, cache);
+            groups.loadFromCache(cache);
+        }
         
         timerQueue.doLater(sendGetGroupLabelsAction, 1, TimeUnit.SECONDS);
         
@@ -131,6 +138,12 @@ public class LFXDefaultLightHandler implements LFXLightHandler {
 
     @Override
     public void close() {
+        LFXTopologyCache cache = router.getTopologyCache();
+        if(cache != null) {
+            lights.saveTo(cache);
+            groups.saveTo(cache);
+        }
+        
         lights.close();
         groups.close();
         
@@ -154,8 +167,7 @@ public class LFXDefaultLightHandler implements LFXLightHandler {
             
             // get the tag labels
             {
-                Set<LFXTagID> allTags = EnumSet.allOf(LFXTagID.class);
-                LxProtocolDevice.GetTagLabels payload = new LxProtocolDevice.GetTagLabels(LFXTagID.pack(allTags));
+                LxProtocolDevice.GetTagLabels payload = new LxProtocolDevice.GetTagLabels(LFXTagID.pack(LFXTagID.ALL_TAGS_MASK));
                 // TODO: is it correct to do this as a broadcast? maybee just ask one
                 LFXMessage msg = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_TAG_LABELS, LFXTarget.getBroadcastTarget(), payload);
                 router.sendMessage(msg);                
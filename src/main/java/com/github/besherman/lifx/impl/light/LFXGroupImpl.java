@@ -36,14 +36,13 @@ import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
 import com.github.besherman.lifx.impl.entities.internal.LFXTarget;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolDevice;
-import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolLight;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes;
 import com.github.besherman.lifx.impl.network.LFXMessageRouter;
+import com.github.besherman.lifx.impl.network.LFXMessageTemplate;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
-import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
@@ -59,7 +58,11 @@ public class LFXGroupImpl implements LFXGroup {
     private final PropertyChangeSupport pcs = new PropertyChangeSupport(this);
     private final LFXLightCollectionImpl lights = new LFXLightCollectionImpl();
     
-    private String label = "";
+    // set by the dispatch workers, read by anyone
+    private volatile String label = "";
+    
+    // colors are sent often, so the message is only routed and encoded once
+    private LFXMessageTemplate colorTemplate;
     
 
     public LFXGroupImpl(LFXMessageRouter router, LFXAllGroups groups, LFXTagID id) {        
@@ -158,12 +161,12 @@ public class LFXGroupImpl implements LFXGroup {
 
     @Override
     public void setColor(int color) {
-        setColor(new LFXHSBKColor(color));
+        setPackedColor(LFXHSBKColor.packRGB(color, 6500), 250);
     }
 
     @Override
     public void setColor(int color, long duration) {
-        setColor(new LFXHSBKColor(color), duration);
+        setPackedColor(LFXHSBKColor.packRGB(color, 6500), duration);
     }
 
     @Override
@@ -179,18 +182,36 @@ public class LFXGroupImpl implements LFXGroup {
         
         // TODO: fire event
         
-        StructleTypes.UInt8 stream = new StructleTypes.UInt8(0);
-        LxProtocolLight.Hsbk protocolColor = LFXBinaryTypes.getLXProtocolLightHsbkFromLFXHSBKColor(color);
-        StructleTypes.UInt32 protocolDuration = new StructleTypes.UInt32(duration);
-        LxProtocolLight.Set payload = new LxProtocolLight.Set(stream, protocolColor, protocolDuration);
-        LFXMessage message = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_SET, getTarget(), payload);        
-        
-        router.sendMessage(message);
+        sendColor(color.toPacked(), duration);
         
         for(LFXLight light: lights) {
             ((LFXLightImpl)light).colorDidChangeTo(color);
         }        
     }
+    
+    /**
+     * Sets the color of all lights in this group, without creating any 
+     * objects.
+     * @param packedColor the color, see {@link LFXHSBKColor#pack}
+     * @param duration the fade time in milliseconds
+     */
+    public void setPackedColor(long packedColor, long duration) {
+        sendColor(packedColor, duration);
+        
+        for(LFXLight light: lights) {
+            ((LFXLightImpl)light).colorDidChangeTo(packedColor);
+        }        
+    }
+    
+    private synchronized void sendColor(long packedColor, long duration) {
+        if(colorTemplate == null) {
+            colorTemplate = router.createTemplate(LxProtocol.Type.LX_PROTOCOL_LIGHT_SET, getTarget());
+        }
+        colorTemplate.setColor(LFXHSBKColor.getPackedHue(packedColor), LFXHSBKColor.getPackedSaturation(packedColor), 
+                LFXHSBKColor.getPackedBrightness(packedColor), LFXHSBKColor.getPackedKelvin(packedColor));
+        colorTemplate.setDuration(duration);
+        colorTemplate.send();
+    }
 
     @Override
     public void add(LFXLight light) {
@@ -273,8 +294,7 @@ public class LFXGroupImpl implements LFXGroup {
      * the light.
      */
     public void setLabelImpl(String label) {
-        Set<LFXTagID> tag = EnumSet.of(id);
-        LxProtocolDevice.SetTagLabels payload = new LxProtocolDevice.SetTagLabels(LFXTagID.pack(tag), label);
+        LxProtocolDevice.SetTagLabels payload = new LxProtocolDevice.SetTagLabels(LFXTagID.pack(id.getMask()), label);
         // note that we send this to all lights
         LFXMessage msg = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_SET_TAG_LABELS, LFXTarget.getBroadcastTarget(), payload);
         for(int i = 0; i < 3; i++) {
@@ -32,8 +32,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,7 +42,8 @@ import java.util.logging.Logger;
  * This is final because it should not be extended. Use composition instead.
  */
 public final class LFXLightCollectionImpl implements LFXLightCollection {
-    private final Map<LFXDeviceID, LFXLightImpl> lights = new ConcurrentHashMap<>();
+    // lights are added and removed by several dispatch workers at once
+    private final ConcurrentMap<LFXDeviceID, LFXLightImpl> lights = new ConcurrentHashMap<>();
     private final List<LFXLightCollectionListener> listeners = new CopyOnWriteArrayList<>();
     
     @Override
@@ -95,16 +96,14 @@ public final class LFXLightCollectionImpl implements LFXLightCollection {
     }
     
     public void remove(LFXLightImpl light) {
-        if(lights.containsKey(light.getDeviceID())) {
+        if(lights.remove(light.getDeviceID(), light)) {
             light.close();
-            lights.remove(light.getDeviceID());
             fireLightRemoved(light);
         }        
     }
 
     public void add(LFXLightImpl light) {
-        if(!lights.containsKey(light.getDeviceID())) {
-            lights.put(light.getDeviceID(), light);
+        if(lights.putIfAbsent(light.getDeviceID(), light) == null) {
             fireLightAdded(light);
         }
     }
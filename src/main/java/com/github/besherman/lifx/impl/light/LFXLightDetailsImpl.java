@@ -29,6 +29,7 @@ import com.github.besherman.lifx.LFXInterfaceStat;
 import com.github.besherman.lifx.LFXLightDetails;
 import com.github.besherman.lifx.LFXVersion;
 import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTypes;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
 import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
 import com.github.besherman.lifx.impl.entities.internal.LFXTarget;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
@@ -37,10 +38,10 @@ import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolLight
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt32;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt64;
 import com.github.besherman.lifx.impl.network.LFXMessageRouter;
+import com.github.besherman.lifx.impl.network.LFXTopologyCache;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -189,6 +190,31 @@ public class LFXLightDetailsImpl implements LFXLightDetails {
     public boolean isLoaded() {
         return messagesUntilLoaded.isEmpty();
     }
+    
+    /**
+     * Sets the firmware, versions and location from the cache. The details 
+     * count as loaded after this, the rest of them are not known until 
+     * load() is called.
+     */
+    public void restore(LFXTopologyCache cache, LFXDeviceID device) {
+        wifiFirmware = cache.getLightFirmware(device, "wifiFirmware");
+        meshFirmware = cache.getLightFirmware(device, "meshFirmware");
+        versions = cache.getLightVersions(device);
+        location = cache.getLightLocation(device);
+        messagesUntilLoaded.clear();
+    }
+    
+    /**
+     * Stores the details that don't change often in the cache.
+     */
+    public void saveTo(LFXTopologyCache cache, LFXDeviceID device) {
+        if(isLoaded()) {
+            cache.putLightFirmware(device, "wifiFirmware", wifiFirmware);
+            cache.putLightFirmware(device, "meshFirmware", meshFirmware);
+            cache.putLightVersions(device, versions);
+            cache.putLightLocation(device, location);
+        }
+    }
 
     public void handleMessage(LFXMessage message) {
         switch (message.getType()) {
@@ -199,7 +225,7 @@ public class LFXLightDetailsImpl implements LFXLightDetails {
             }
             case LX_PROTOCOL_DEVICE_STATE_INFO: {
                 LxProtocolDevice.StateInfo payload = message.getPayload();
-                infoDidChangeTo(payload.getUptime().getBigIntegerValue(), payload.getDowntime().getBigIntegerValue());
+                infoDidChangeTo(payload.getUptimeValue(), payload.getDowntimeValue());
                 break;
             }
             case LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH: {
@@ -271,13 +297,13 @@ public class LFXLightDetailsImpl implements LFXLightDetails {
         pcs.firePropertyChange("temperature", oldTemp, temperature);
     }
 
-    private void infoDidChangeTo(BigInteger newUptime, BigInteger newDowntime) {
+    private void infoDidChangeTo(long newUptime, long newDowntime) {
         long oldUptime = uptime;
-        uptime = newUptime.divide(new BigInteger("1000000")).longValue();
+        uptime = newUptime / 1000000;
         pcs.firePropertyChange("uptime", oldUptime, uptime);
 
         long oldDowntime = downtime;
-        downtime = newDowntime.divide(new BigInteger("1000000")).longValue();
+        downtime = newDowntime / 1000000;
         pcs.firePropertyChange("downtime", oldDowntime, downtime);
     }
 
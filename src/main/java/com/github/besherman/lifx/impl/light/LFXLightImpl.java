@@ -37,16 +37,18 @@ import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolDevic
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolLight;
 import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes;
 import com.github.besherman.lifx.impl.network.LFXMessageRouter;
+import com.github.besherman.lifx.impl.network.LFXMessageTemplate;
 import com.github.besherman.lifx.impl.network.LFXTimerQueue;
+import com.github.besherman.lifx.impl.network.LFXTopologyCache;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class LFXLightImpl implements LFXLight {
     private final LFXMessageRouter router;    
@@ -59,9 +61,15 @@ public class LFXLightImpl implements LFXLight {
     
     private boolean enabled;
     private String label = "";
-    private LFXHSBKColor color;
+    // the LFXHSBKColor, or a Long when the color is only known packed and 
+    // the object is created on demand. Written by the dispatcher and read by 
+    // user threads, so both are kept behind one reference.
+    private final AtomicReference<Object> color = new AtomicReference<>();
     private Date time;        
     private long lastSeenTimestamp;
+    
+    // colors are sent often, so the message is only routed and encoded once
+    private LFXMessageTemplate colorTemplate;
 
     // the messages we wait for unit we call this light loaded
     private final Set<LxProtocol.Type> messagesUntilLoaded = Collections.synchronizedSet(new HashSet<>(Arrays.asList(
@@ -128,17 +136,24 @@ public class LFXLightImpl implements LFXLight {
 
     @Override
     public LFXHSBKColor getColor() {
-        return color;
+        Object current = color.get();
+        if(current instanceof Long) {
+            LFXHSBKColor unpacked = LFXHSBKColor.fromPacked((Long) current);
+            // keep it unless the color changed while we unpacked it
+            color.compareAndSet(current, unpacked);
+            return unpacked;
+        }
+        return (LFXHSBKColor) current;
     }
 
     @Override
     public void setColor(int color) {
-        setColor(new LFXHSBKColor(color));
+        setPackedColor(LFXHSBKColor.packRGB(color, 6500), 250);
     }
 
     @Override
     public void setColor(int color, long duration) {
-        setColor(new LFXHSBKColor(color), duration);
+        setPackedColor(LFXHSBKColor.packRGB(color, 6500), duration);
     }
 
     @Override
@@ -152,33 +167,51 @@ public class LFXLightImpl implements LFXLight {
             throw new IllegalArgumentException("color can not be null");
         }
         
-        StructleTypes.UInt8 stream = new StructleTypes.UInt8(0);
-        LxProtocolLight.Hsbk protocolColor = LFXBinaryTypes.getLXProtocolLightHsbkFromLFXHSBKColor(color);
-        StructleTypes.UInt32 protocolDuration = new StructleTypes.UInt32(duration);
-        LxProtocolLight.Set payload = new LxProtocolLight.Set(stream, protocolColor, protocolDuration);
-        LFXMessage message = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_SET, target, payload);        
-        
-        router.sendMessage(message);
+        sendColor(color.toPacked(), duration);
         
         colorDidChangeTo(color);        
+    }
+    
+    /**
+     * Sets the lights color over time, without creating any objects.
+     * @param packedColor the color to set, see {@link LFXHSBKColor#pack}.
+     * @param duration the fade time in milliseconds.
+     */
+    public void setPackedColor(long packedColor, long duration) {
+        sendColor(packedColor, duration);
+        
+        colorDidChangeTo(packedColor);
+    }
+    
+    private synchronized void sendColor(long packedColor, long duration) {
+        if(colorTemplate == null) {
+            colorTemplate = router.createTemplate(LxProtocol.Type.LX_PROTOCOL_LIGHT_SET, target);
+        }
+        colorTemplate.setColor(LFXHSBKColor.getPackedHue(packedColor), LFXHSBKColor.getPackedSaturation(packedColor), 
+                LFXHSBKColor.getPackedBrightness(packedColor), LFXHSBKColor.getPackedKelvin(packedColor));
+        colorTemplate.setDuration(duration);
+        colorTemplate.send();
     }    
 
     @Override
     public float getBrightness() {
-        return color != null ? color.getBrightness() : 0;
+        LFXHSBKColor current = getColor();
+        return current != null ? current.getBrightness() : 0;
     }
 
     @Override
     public void setBrightness(float brightness) {
-        if(color != null) {
-            setColor(new LFXHSBKColor(color.getHue(), color.getSaturation(), brightness, color.getKelvin()));            
+        LFXHSBKColor current = getColor();
+        if(current != null) {
+            setColor(new LFXHSBKColor(current.getHue(), current.getSaturation(), brightness, current.getKelvin()));            
         }
     }
 
     @Override
     public void setBrightness(float brightness, long duration) {
-        if(color != null) {
-            setColor(new LFXHSBKColor(color.getHue(), color.getSaturation(), brightness, color.getKelvin()), duration);            
+        LFXHSBKColor current = getColor();
+        if(current != null) {
+            setColor(new LFXHSBKColor(current.getHue(), current.getSaturation(), brightness, current.getKelvin()), duration);            
         }
     }
     
@@ -264,6 +297,31 @@ public class LFXLightImpl implements LFXLight {
         alarms.close();
     }
     
+    /**
+     * Sets the label, power, color and details from the cache, before any
+     * listeners have been added. The light counts as loaded after this, 
+     * the values are replaced as soon as the light answers.
+     */
+    public void restore(LFXTopologyCache cache) {
+        label = cache.getLightLabel(deviceID);
+        enabled = cache.getLightPower(deviceID);
+        color.set(cache.getLightColor(deviceID));
+        details.restore(cache, deviceID);
+        messagesUntilLoaded.clear();
+    }
+    
+    /**
+     * Stores what is known about the light in the cache.
+     */
+    public void saveTo(LFXTopologyCache cache) {
+        if(isLoaded()) {
+            cache.putLightLabel(deviceID, label);
+            cache.putLightPower(deviceID, enabled);
+            cache.putLightColor(deviceID, getColor());
+            details.saveTo(cache, deviceID);
+        }
+    }
+    
     public void handleMessage(LFXMessage message) {
         lastSeenTimestamp = System.currentTimeMillis();
         switch (message.getType()) {
@@ -271,7 +329,7 @@ public class LFXLightImpl implements LFXLight {
                 LxProtocolLight.State payload = (LxProtocolLight.State) message.getPayload();
                 labelDidChangeTo(payload.getLabel());
                 colorDidChangeTo(LFXBinaryTypes.getLFXHSBKColorFromLXProtocolLightHsbk(payload.getColor()));
-                powerDidChangeTo(LFXBinaryTypes.getLFXPowerStateFromLFXProtocolPowerLevel(payload.getPower()));
+                powerDidChangeTo(LFXBinaryTypes.getLFXPowerStateFromLFXProtocolPowerLevel(payload.getPowerValue()));
                 break;
             }
             case LX_PROTOCOL_DEVICE_STATE_LABEL: {
@@ -281,19 +339,19 @@ public class LFXLightImpl implements LFXLight {
             }
             case LX_PROTOCOL_DEVICE_STATE_POWER: {
                 LxProtocolDevice.StatePower payload = (LxProtocolDevice.StatePower) message.getPayload();
-                powerDidChangeTo(LFXBinaryTypes.getLFXPowerStateFromLFXProtocolPowerLevel(payload.getLevel()));
+                powerDidChangeTo(LFXBinaryTypes.getLFXPowerStateFromLFXProtocolPowerLevel(payload.getLevelValue()));
                 break;
             }
             case LX_PROTOCOL_DEVICE_STATE_TIME: {
                 LxProtocolDevice.StateTime payload = message.getPayload();
-                timeDidChangeTo(payload.getTime().getBigIntegerValue());
+                timeDidChangeTo(payload.getTimeValue());
                 break;
             }
             case LX_PROTOCOL_DEVICE_STATE_INFO: {
                 // The light handler does not send this automatically, but when
                 // the LFXLightDetailsImpl sends it we can read it 
                 LxProtocolDevice.StateInfo payload = message.getPayload();                                
-                timeDidChangeTo(payload.getTime().getBigIntegerValue());
+                timeDidChangeTo(payload.getTimeValue());
                 break;
             }
             default:
@@ -313,10 +371,24 @@ public class LFXLightImpl implements LFXLight {
     }
 
     public void colorDidChangeTo(LFXHSBKColor newColor) {
-        LFXHSBKColor oldColor = color;
-        color = newColor;
+        Object oldColor = color.getAndSet(newColor);
+        if(oldColor instanceof Long) {
+            oldColor = LFXHSBKColor.fromPacked((Long) oldColor);
+        }
         pcs.firePropertyChange("color", oldColor, newColor);        
     }
+    
+    /**
+     * Same as colorDidChangeTo(LFXHSBKColor), but the color object is only
+     * created if someone listens for it or asks for it.
+     */
+    public void colorDidChangeTo(long newPackedColor) {
+        if(pcs.hasListeners("color")) {
+            colorDidChangeTo(LFXHSBKColor.fromPacked(newPackedColor));
+        } else {
+            color.set(newPackedColor);
+        }
+    }
 
     public void powerDidChangeTo(LFXPowerState powerState) {
         boolean oldValue = enabled;
@@ -324,9 +396,9 @@ public class LFXLightImpl implements LFXLight {
         pcs.firePropertyChange("power", oldValue, enabled);
     }
     
-    private void timeDidChangeTo(BigInteger newTime) {
+    private void timeDidChangeTo(long newTime) {
         Date oldTime = time;
-        long msSinceEpoch = newTime.longValue() / 1000000;
+        long msSinceEpoch = newTime / 1000000;
         time = new Date(msSinceEpoch);        
         pcs.firePropertyChange("time", oldTime, time);
     }    
@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct buffers used for outgoing datagrams. A message is encoded
+ * into a leased buffer by the writer right before it is sent, and the 
+ * buffer is released once it has been sent.
+ * 
+ * The pool only saves the buffers. Each send still creates an 
+ * LFXSocketMessage, and an LFXMessage unless a template can reuse the one 
+ * it sent last. The counters only count buffers: the writer leases one at
+ * a time, so with a pool of one the allocation count stays at 1 and the
+ * lease and release counts should match.
+ */
+public class LFXByteBufferPool {
+    private final BlockingQueue<ByteBuffer> free;
+    private final int bufferSize;
+    
+    private final AtomicLong allocations = new AtomicLong();
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong releases = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * @param bufferSize the size of each buffer
+     * @param maxPooled the max number of buffers kept in the pool
+     */
+    public LFXByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    /**
+     * Returns a cleared little endian buffer. The buffer should be given back 
+     * with {@link #release(java.nio.ByteBuffer)} when it is no longer used.
+     */
+    public ByteBuffer lease() {
+        leases.incrementAndGet();
+        ByteBuffer buf = free.poll();
+        if(buf == null) {
+            allocations.incrementAndGet();
+            buf = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        buf.clear();
+        return buf;
+    }
+    
+    /**
+     * Gives a buffer back to the pool.
+     */
+    public void release(ByteBuffer buf) {
+        if(buf == null) {
+            return;
+        }
+        releases.incrementAndGet();
+        if(!free.offer(buf)) {
+            // the pool is full, let the GC have it
+            discarded.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Returns the number of buffers that has been allocated.
+     */
+    public long getAllocationCount() {
+        return allocations.get();
+    }
+    
+    /**
+     * Returns the number of times a buffer has been leased.
+     */
+    public long getLeaseCount() {
+        return leases.get();
+    }
+
+    /**
+     * Returns the number of times a buffer has been released.
+     */
+    public long getReleaseCount() {
+        return releases.get();
+    }
+    
+    /**
+     * Returns the number of released buffers that did not fit in the pool.
+     */
+    public long getDiscardCount() {
+        return discarded.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LFXByteBufferPool{" + "allocations=" + allocations + ", leases=" + leases 
+                + ", releases=" + releases + ", discarded=" + discarded + '}';
+    }
+}
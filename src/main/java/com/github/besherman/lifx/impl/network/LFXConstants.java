@@ -29,7 +29,7 @@ package com.github.besherman.lifx.impl.network;
  */
 public class LFXConstants {    
     /**
-     * Returns the wait time between sending messages. Flooding the network
+     * Returns the wait time between sending messages to the same gateway. Flooding the network
      * will just cause the bulbs to get confused.
      * 
      * lifx-sdk-android sets this to 200
@@ -39,6 +39,27 @@ public class LFXConstants {
                 "com.github.besherman.lifx.messageSendRateLimitInterval", "20"));        
     }
     
+    /**
+     * Returns how many messages per second we send to a single gateway. Each
+     * gateway is paced on its own so many gateways can be served in parallel.
+     * 
+     * Defaults to one message per send rate limit interval.
+     */
+    public static double getSendRatePerGateway() {
+        String defaultValue = Double.toString(1000.0 / Math.max(1, getNetworkLoopSendRateLimitInterval()));
+        return Double.parseDouble(System.getProperty(
+                "com.github.besherman.lifx.sendRatePerGateway", defaultValue));
+    }
+    
+    /**
+     * Returns how many messages can be sent back to back to a gateway that
+     * has been quiet for a while.
+     */
+    public static double getSendBurstPerGateway() {
+        return Double.parseDouble(System.getProperty(
+                "com.github.besherman.lifx.sendBurstPerGateway", "1"));
+    }
+    
     /**
      * Messages that are to be sent to the network are added to a queue. This
      * is the max size of that queue.
@@ -53,7 +74,19 @@ public class LFXConstants {
     }
 
     /**
-     * How long the response tracker waits until it resends a message.     
+     * Returns how many milliseconds a request for information, like GET_LABEL, 
+     * may wait in the outgoing queue. If it has not been sent by then it
+     * is dropped, the lights are polled regularly anyway. 0 means that
+     * they never expire.
+     */
+    public static int getRequestMessageDeadline() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.requestMessageDeadline", "2000"));
+    }
+
+    /**
+     * How long the response tracker waits until it resends a message to a 
+     * light it hasn't measured the round trip time for yet.     
      */
     public static int getResponseTrackerResendTimeout() {
         return Integer.parseInt(System.getProperty(
@@ -61,11 +94,103 @@ public class LFXConstants {
     }
     
     /**
-     * The response tracker has a single timer that wakes it up and checks for
-     * timeouts. This is how long it sleeps.
+     * The shortest time in milliseconds the response tracker waits before 
+     * it resends a message, no matter how quickly the light usually answers.
+     */
+    public static int getResponseTrackerMinTimeout() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.responseTrackerMinTimeout", "100"));        
+    }
+    
+    /**
+     * The longest time in milliseconds the response tracker waits before it
+     * resends a message, the wait is doubled for each resend up to this.
+     */
+    public static int getResponseTrackerMaxTimeout() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.responseTrackerMaxTimeout", "5000"));        
+    }
+    
+    /**
+     * How many times the response tracker resends a message before it 
+     * gives up.
+     */
+    public static int getResponseTrackerMaxRetries() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.responseTrackerMaxRetries", "5"));        
+    }
+    
+    /**
+     * All timers, like the response tracker's resend timeouts, share a 
+     * timing wheel. This is the wheel's resolution in milliseconds.
+     */
+    public static int getTimerTickDuration() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.timerTickDuration", "10"));
+    }
+    
+    /**
+     * Returns how many threads pass received messages to the light handlers.
+     * Messages for the same light are always handled by the same thread so 
+     * they are handled in order.
+     */
+    public static int getDispatchWorkers() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.dispatchWorkers", "1"));
+    }
+    
+    /**
+     * Received messages wait in a queue until a dispatch thread takes them.
+     * This is the max size of each thread's queue, messages that don't fit 
+     * are dropped. Rounded up to a power of two.
      */
-    public static int getResponseTrackerInterval() {
+    public static int getDispatchQueueSize() {
         return Integer.parseInt(System.getProperty(
-                "com.github.besherman.lifx.responseTrackerInterval", "100"));
+                "com.github.besherman.lifx.dispatchQueueSize", "1024"));
+    }
+    
+    /**
+     * Returns the receive buffer size (SO_RCVBUF) of the sockets, or 0 to 
+     * use the default of the operating system.
+     */
+    public static int getReceiveBufferSize() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.receiveBufferSize", "0"));
+    }
+    
+    /**
+     * Returns how many milliseconds the routing table remembers a gateway 
+     * after it last heard from it.
+     */
+    public static int getGatewayTimeout() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.gatewayTimeout", "20000"));
+    }
+    
+    /**
+     * Returns how many milliseconds the routing table remembers a light 
+     * after it last heard from it.
+     */
+    public static int getLightTimeout() {
+        return Integer.parseInt(System.getProperty(
+                "com.github.besherman.lifx.lightTimeout", "35000"));
+    }
+    
+    /**
+     * Returns the file the gateways and lights are cached in between runs,
+     * or null if they are not cached. With a cache the lights can be used
+     * right away when the client is opened.
+     */
+    public static String getTopologyCacheFile() {
+        return System.getProperty("com.github.besherman.lifx.topologyCache");
+    }
+    
+    /**
+     * Returns how many milliseconds a gateway or light in the topology cache
+     * is trusted after it was last seen.
+     */
+    public static long getTopologyCacheMaxAge() {
+        return Long.parseLong(System.getProperty(
+                "com.github.besherman.lifx.topologyCacheMaxAge", "86400000"));
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded ring buffer for exactly one producer thread and one consumer
+ * thread. Neither side takes a lock, the producer never blocks - if the 
+ * ring is full the element is dropped and counted.
+ */
+public class LFXDispatchRing<E> {
+    private final Object[] elements;
+    private final int mask;
+    
+    // the next index to read, only written by the consumer
+    private final AtomicLong head = new AtomicLong();
+    
+    // the next index to write, only written by the producer
+    private final AtomicLong tail = new AtomicLong();
+    
+    private final AtomicLong overflows = new AtomicLong();
+    private volatile int highWaterMark = 0;
+
+    /**
+     * @param capacity the max number of elements, rounded up to a power of two
+     */
+    public LFXDispatchRing(int capacity) {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if(size < capacity) {
+            size <<= 1;
+        }
+        this.elements = new Object[size];
+        this.mask = size - 1;
+    }
+    
+    /**
+     * Adds an element. May only be called by the producer thread.
+     * 
+     * @return false if the ring is full
+     */
+    public boolean offer(E element) {
+        long t = tail.get();
+        int size = (int)(t - head.get());
+        if(size >= elements.length) {
+            overflows.incrementAndGet();
+            return false;
+        }
+        elements[(int)t & mask] = element;
+        
+        // a full volatile write, the consumer checks the tail after saying
+        // it is going to sleep and we check if it sleeps after this
+        tail.set(t + 1);
+        
+        if(size + 1 > highWaterMark) {
+            highWaterMark = size + 1;
+        }
+        return true;
+    }
+    
+    /**
+     * Removes the oldest element. May only be called by the consumer thread.
+     * 
+     * @return the element or null if the ring is empty
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long h = head.get();
+        if(h >= tail.get()) {
+            return null;
+        }
+        int index = (int)h & mask;
+        E element = (E)elements[index];
+        elements[index] = null;
+        head.lazySet(h + 1);
+        return element;
+    }
+    
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+    
+    /**
+     * Returns the number of elements waiting. 
+     */
+    public int size() {
+        // read head first so the size is never negative
+        long h = head.get();
+        return (int)(tail.get() - h);
+    }
+    
+    public int capacity() {
+        return elements.length;
+    }
+    
+    /**
+     * Returns the most elements that have been waiting at the same time.
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+    
+    /**
+     * Returns the number of elements that have been dropped because the 
+     * ring was full.
+     */
+    public long getOverflows() {
+        return overflows.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LFXDispatchRing{" + "size=" + size() + ", capacity=" + capacity() + ", highWaterMark=" + highWaterMark + ", overflows=" + getOverflows() + '}';
+    }
+}
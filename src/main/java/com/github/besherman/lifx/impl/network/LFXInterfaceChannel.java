@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * A channel used to talk to the lights on one network interface. The 
+ * channel knows the broadcast address of its interface and which hosts it
+ * can reach directly.
+ * 
+ * The wildcard channel is bound to all interfaces, it receives broadcasts
+ * from the lights and is used for hosts no other channel can reach.
+ */
+public class LFXInterfaceChannel {
+    private final DatagramChannel channel;
+    private final InetSocketAddress broadcast;
+    private final byte[] network;
+    private final int prefixLength;
+
+    /**
+     * @param local the address to bind to, null for the wildcard address
+     * @param prefixLength the length of the interface's network prefix
+     * @param broadcast where to send broadcast messages, may be null
+     */
+    public LFXInterfaceChannel(InetSocketAddress local, int prefixLength, InetSocketAddress broadcast) throws IOException {
+        this.channel = DatagramChannel.open();
+        this.broadcast = broadcast;
+        this.prefixLength = prefixLength;
+        
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setBroadcast(true);
+            channel.socket().setReuseAddress(true);
+            int receiveBufferSize = LFXConstants.getReceiveBufferSize();
+            if(receiveBufferSize > 0) {
+                channel.socket().setReceiveBufferSize(receiveBufferSize);
+            }
+            channel.socket().bind(local);
+        } catch(IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        
+        this.network = local.getAddress().isAnyLocalAddress() 
+                ? null : local.getAddress().getAddress();
+    }
+    
+    public DatagramChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the broadcast address of the interface, or null if it has none.
+     */
+    public InetSocketAddress getBroadcast() {
+        return broadcast;
+    }
+    
+    /**
+     * Returns true if the host is on the same network as the interface. The
+     * wildcard channel doesn't reach any host in particular.
+     */
+    public boolean reaches(InetAddress host) {
+        byte[] addr = host.getAddress();
+        if(network == null || addr.length != network.length) {
+            return false;
+        }
+        int bits = prefixLength;
+        for(int i = 0; i < addr.length && bits > 0; i++, bits -= 8) {
+            int mask = bits >= 8 ? 0xff : (0xff << (8 - bits)) & 0xff;
+            if((addr[i] & mask) != (network[i] & mask)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return "LFXInterfaceChannel{" + "local=" + channel.socket().getLocalSocketAddress() + ", broadcast=" + broadcast + '}';
+    }
+}
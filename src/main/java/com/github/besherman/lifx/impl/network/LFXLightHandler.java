@@ -23,9 +23,7 @@
  */
 package com.github.besherman.lifx.impl.network;
 
-import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
-import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
-import java.util.Set;
+import java.util.List;
 
 /**
  * This is the main interface for handling and keeping track of lights. The
@@ -40,16 +38,22 @@ public interface LFXLightHandler {
     void setRouter(LFXMessageRouter router);
     
     /**
-     * Handles a message from the network.
+     * Handles a batch of messages from the network, in the order they were
+     * received. The batch holds whatever arrived since the last one, so
+     * work that only needs doing once, like checking if everything is 
+     * loaded, should be done once per batch.
      * 
-     * @param targets the recipients of the message, can be empty
-     * @param message the received message
+     * This is called from several dispatch workers at the same time. The 
+     * messages for a light always come from the same worker, but anything
+     * that is shared between lights has to be thread safe.
+     * 
+     * @param messages the received messages and their recipients, never empty
      */
-    void handleMessage(Set<LFXDeviceID> targets, LFXMessage message);    
+    void handleMessages(List<LFXRoutedMessage> messages);    
     
     /**
      * Opens the handler. This will always be called after setRouter() and 
-     * before handleMessage.
+     * before handleMessages.
      */
     void open();
     
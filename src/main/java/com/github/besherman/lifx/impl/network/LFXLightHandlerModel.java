@@ -25,6 +25,8 @@ package com.github.besherman.lifx.impl.network;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * This class simply keeps track of light handlers.
@@ -38,38 +40,62 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class LFXLightHandlerModel {
     private final List<LFXLightHandler> handlers = new CopyOnWriteArrayList<>();
     private final List<LFXLightHandlerModelListener> listeners = new CopyOnWriteArrayList<>();
-    private final Object lock = new Object();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
     
     public void addLightHandler(LFXLightHandler handler) {
-        synchronized(lock) {
+        lock.writeLock().lock();
+        try {
             if(!handlers.contains(handler)) {
                 handlers.add(handler);       
                 for(LFXLightHandlerModelListener l: listeners) {
                     l.handlerAdded(handler);
                 }
             }
+        } finally {
+            lock.writeLock().unlock();
         }
     }
     
     public void removeLightHandler(LFXLightHandler handler) {
-        synchronized(lock) {
+        lock.writeLock().lock();
+        try {
             if(handlers.contains(handler)) {
                 handlers.remove(handler);       
                 for(LFXLightHandlerModelListener l: listeners) {
                     l.handlerRemoved(handler);
                 }
             }
+        } finally {
+            lock.writeLock().unlock();
         }
     }    
 
     public void forEach(LFXLightHandlerModelConsumer action) {
-        // This has to be synchronized because this is going to call close()
+        // This has to be locked because this is going to call close()
         // on the handler, and that is not allowed to happen AFTER the
         // handler has been removed.
-        synchronized(lock) {
+        lock.writeLock().lock();
+        try {
             for(LFXLightHandler handler: handlers) {
                 action.accept(handler);
             }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Like forEach() but several threads can do this at the same time. This
+     * is used to pass messages to the handlers from the dispatch workers.
+     */
+    public void forEachShared(LFXLightHandlerModelConsumer action) {
+        lock.readLock().lock();
+        try {
+            for(LFXLightHandler handler: handlers) {
+                action.accept(handler);
+            }
+        } finally {
+            lock.readLock().unlock();
         }
     }
     
@@ -0,0 +1,254 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Passes routed messages from the reader thread to the light handlers on a
+ * pool of worker threads. This way a slow listener stalls the handlers but
+ * not the socket.
+ * 
+ * Each worker has its own ring and the messages for a light always go to 
+ * the same worker, so the messages for a light are handled in the order 
+ * they were received. If a worker falls too far behind, new messages for 
+ * it are dropped - the lights are polled regularly so the state will 
+ * catch up.
+ */
+public class LFXMessageDispatcher {
+    private static final Logger logger = Logger.getLogger(LFXMessageDispatcher.class.getName());
+    
+    /**
+     * The max number of messages a worker passes to the handlers at a time.
+     */
+    private static final int MAX_BATCH = 64;
+    
+    private final LFXLightHandlerModel handlers;
+    private final Worker[] workers;
+    private Thread[] threads;
+
+    public LFXMessageDispatcher(LFXLightHandlerModel handlers, int workerCount, int queueSize) {
+        if(workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be positive");
+        }
+        this.handlers = handlers;
+        this.workers = new Worker[workerCount];
+        for(int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(new LFXDispatchRing<LFXRoutedMessage>(queueSize));
+        }
+    }
+    
+    public void open() {
+        threads = new Thread[workers.length];
+        for(int i = 0; i < workers.length; i++) {
+            threads[i] = new Thread(workers[i], "LIFX Dispatch Worker " + i);
+            threads[i].setDaemon(true);
+            workers[i].setThread(threads[i]);
+            threads[i].start();
+        }
+    }
+    
+    /**
+     * Stops the workers and waits for them to finish. Messages that are
+     * still waiting are dropped.
+     */
+    public void close() {
+        for(Worker worker: workers) {
+            worker.close();
+        }
+        
+        try {
+            for(Thread thread: threads) {
+                thread.join();
+            }
+        } catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        
+        logger.log(Level.FINE, "Stopped dispatcher {0}", this);
+    }
+    
+    /**
+     * Queues the messages for the workers. This must only be called from 
+     * the reader thread since each ring only allows one producer.
+     */
+    public void dispatch(List<LFXRoutedMessage> messages) {
+        if(workers.length == 1) {
+            for(LFXRoutedMessage message: messages) {
+                workers[0].ring.offer(message);
+            }
+            workers[0].wakeup();
+            return;
+        }
+        
+        boolean[] touched = new boolean[workers.length];
+        for(LFXRoutedMessage message: messages) {
+            Set<LFXDeviceID> targets = message.getTargets();
+            int first = targets.isEmpty() ? 0 : getWorkerIndex(targets.iterator().next());
+            
+            boolean split = false;
+            for(LFXDeviceID target: targets) {
+                if(getWorkerIndex(target) != first) {
+                    split = true;
+                    break;
+                }
+            }
+            
+            if(!split) {
+                workers[first].ring.offer(message);
+                touched[first] = true;
+            } else {
+                // each worker gets the message with the targets it owns
+                for(int i = 0; i < workers.length; i++) {
+                    Set<LFXDeviceID> owned = new HashSet<>();
+                    for(LFXDeviceID target: targets) {
+                        if(getWorkerIndex(target) == i) {
+                            owned.add(target);
+                        }
+                    }
+                    if(!owned.isEmpty()) {
+                        workers[i].ring.offer(new LFXRoutedMessage(owned, message.getMessage()));
+                        touched[i] = true;
+                    }
+                }
+            }
+        }
+        
+        for(int i = 0; i < workers.length; i++) {
+            if(touched[i]) {
+                workers[i].wakeup();
+            }
+        }
+    }
+    
+    private int getWorkerIndex(LFXDeviceID device) {
+        int h = device.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % workers.length;
+    }
+    
+    /**
+     * Returns the number of messages waiting for a worker.
+     */
+    public int getQueuedMessages() {
+        int result = 0;
+        for(Worker worker: workers) {
+            result += worker.ring.size();
+        }
+        return result;
+    }
+    
+    /**
+     * Returns the number of messages that have been dropped because a 
+     * worker's queue was full.
+     */
+    public long getOverflows() {
+        long result = 0;
+        for(Worker worker: workers) {
+            result += worker.ring.getOverflows();
+        }
+        return result;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("LFXMessageDispatcher{");
+        for(int i = 0; i < workers.length; i++) {
+            if(i > 0) {
+                sb.append(", ");
+            }
+            sb.append(workers[i].ring);
+        }
+        return sb.append('}').toString();
+    }
+    
+    private class Worker implements Runnable {
+        private final LFXDispatchRing<LFXRoutedMessage> ring;
+        private final AtomicBoolean running = new AtomicBoolean(true);
+        private volatile boolean waiting = false;
+        private volatile Thread thread;
+
+        public Worker(LFXDispatchRing<LFXRoutedMessage> ring) {
+            this.ring = ring;
+        }
+        
+        public void setThread(Thread thread) {
+            this.thread = thread;
+        }
+        
+        public void wakeup() {
+            if(waiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+        
+        public void close() {
+            running.set(false);
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            final List<LFXRoutedMessage> batch = new ArrayList<>();
+            while(running.get()) {
+                LFXRoutedMessage message;
+                while(batch.size() < MAX_BATCH && (message = ring.poll()) != null) {
+                    batch.add(message);
+                }
+                
+                if(!batch.isEmpty()) {
+                    handlers.forEachShared(new LFXLightHandlerModelConsumer() {
+                        @Override
+                        public void accept(LFXLightHandler handler) {
+                            try {                    
+                                handler.handleMessages(batch);
+                            } catch(Exception ex) {
+                                logger.log(Level.SEVERE,
+                                        "Failed to handle message", ex);
+                            }                
+                        }
+                    });
+                    batch.clear();
+                } else {
+                    // say that we are going to sleep before checking the ring
+                    // one last time, otherwise a wakeup could be missed
+                    waiting = true;
+                    if(ring.isEmpty() && running.get()) {
+                        LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                    }
+                    waiting = false;
+                }
+            }
+        }
+    }
+}
@@ -30,15 +30,14 @@ import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
 import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
 import com.github.besherman.lifx.impl.entities.internal.LFXTarget;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.net.SocketException;
-import java.net.UnknownHostException;
 import java.util.ArrayList;
-import java.util.EnumSet;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -55,9 +54,12 @@ public class LFXMessageRouter {
     private static final Logger logger = Logger.getLogger(LFXMessageRouter.class.getName());
 
     private final LFXRoutingTable routingTable = new LFXRoutingTable();
-    private final LFXNetworkSettings networkSettings;
     private final LFXLightHandlerModel handlers;
-    private final BlockingQueue<LFXSocketMessage> outgoingQueue;
+    private final LFXSendScheduler outgoingQueue;
+    private final LFXMessageDispatcher dispatcher;
+    private final LFXTimingWheel timingWheel;
+    private final LFXTopologyCache topologyCache;
+    private volatile Set<LFXDeviceID> cachedLights = Collections.emptySet();
     
     private final AtomicBoolean opened = new AtomicBoolean(false);    
     private final CountDownLatch firstPANReceived = new CountDownLatch(1);    
@@ -66,14 +68,68 @@ public class LFXMessageRouter {
     
     private LFXTimerQueue timerQueue;
     
+    private volatile LFXInterfaceChannel wildcardChannel;
+    private volatile List<LFXInterfaceChannel> interfaceChannels = Collections.emptyList();
+    
 
-    public LFXMessageRouter(String broadcastAddress, LFXLightHandlerModel handlers, BlockingQueue<LFXSocketMessage> outgoingQueue) {
-        networkSettings = new LFXNetworkSettings(broadcastAddress);
+    /**
+     * @param topologyCache the cache to start from and save to when closed, 
+     *                      or null to discover everything from scratch
+     */
+    public LFXMessageRouter(LFXLightHandlerModel handlers, LFXSendScheduler outgoingQueue, 
+            LFXTimingWheel timingWheel, LFXTopologyCache topologyCache) {
         this.handlers = handlers;
+        this.topologyCache = topologyCache;
+        this.dispatcher = new LFXMessageDispatcher(handlers, 
+                LFXConstants.getDispatchWorkers(), LFXConstants.getDispatchQueueSize());
         this.outgoingQueue = outgoingQueue;
+        this.timingWheel = timingWheel;
         this.responseTracker.setOutgoingQueue(outgoingQueue);
     }
     
+    /**
+     * Returns a new timer queue that runs its tasks on the connection's 
+     * timing wheel. The caller has to close it.
+     */
+    public LFXTimerQueue createTimerQueue() {
+        return new LFXTimerQueue(timingWheel);
+    }
+    
+    /**
+     * Returns the dispatcher that passes messages to the handlers, it 
+     * keeps count of queued and dropped messages.
+     */
+    public LFXMessageDispatcher getDispatcher() {
+        return dispatcher;
+    }
+    
+    /**
+     * Returns the topology cache, or null if there is none. Handlers read
+     * what they know about the lights from it when they are opened and 
+     * store it when they are closed.
+     */
+    public LFXTopologyCache getTopologyCache() {
+        return topologyCache;
+    }
+    
+    /**
+     * Returns the lights that were loaded from the topology cache when the
+     * router was opened. The routing table knows where they are, so they 
+     * can be used before they have been heard from.
+     */
+    public Set<LFXDeviceID> getCachedLights() {
+        return cachedLights;
+    }
+    
+    /**
+     * Sets the channels to send on. Broadcasts are sent on all interface 
+     * channels, or on the wildcard channel if there are none. 
+     */
+    public void setChannels(LFXInterfaceChannel wildcardChannel, List<LFXInterfaceChannel> interfaceChannels) {
+        this.wildcardChannel = wildcardChannel;
+        this.interfaceChannels = new ArrayList<>(interfaceChannels);
+    }
+    
     /**
      * Waits for the first PAN message to arrive. This is the message that
      * the "responsible" light sends out and is going to be the first message
@@ -89,9 +145,14 @@ public class LFXMessageRouter {
     
     public void open() {
         if(!opened.getAndSet(true)) {
-            timerQueue = new LFXTimerQueue();  
+            timerQueue = createTimerQueue();  
 
-            responseTracker.open();
+            responseTracker.open(timingWheel);
+            dispatcher.open();
+            
+            if(topologyCache != null) {
+                loadTopologyCache();
+            }
 
             for(int i = 0; i < 5; i++) {
                 timerQueue.doLater(sendGatewayDiscoveryAction, i, TimeUnit.SECONDS);                    
@@ -127,6 +188,9 @@ public class LFXMessageRouter {
         if(opened.getAndSet(false)) {
             handlers.removeLightHandlerModelListener(lightHandlerModelListener);
             
+            // no messages may reach the handlers after they have been closed
+            dispatcher.close();
+            
             handlers.forEach(new LFXLightHandlerModelConsumer() {
                 @Override
                 public void accept(LFXLightHandler handler) {
@@ -144,114 +208,199 @@ public class LFXMessageRouter {
             responseTracker.close();
 
             timerQueue.close();        
+            
+            if(topologyCache != null) {
+                routingTable.saveTo(topologyCache);
+                topologyCache.save();
+            }
+            cachedLights = Collections.emptySet();
         } else {
             logger.log(Level.SEVERE,
                     "MessageRouter already closed");
         }
     }    
     
+    /**
+     * Fills the routing table with the gateways and lights in the topology 
+     * cache and asks the gateways for their lights, so the cached lights
+     * are either heard from soon or forgotten like any other lost light.
+     */
+    private void loadTopologyCache() {
+        topologyCache.load();
+        
+        Map<LFXSiteID, InetSocketAddress> gateways = topologyCache.getGateways();
+        for(Map.Entry<LFXSiteID, InetSocketAddress> e: gateways.entrySet()) {
+            routingTable.addCachedGateway(e.getKey(), e.getValue(), 
+                    getChannelForHost(e.getValue().getAddress()));
+        }
+        
+        Set<LFXDeviceID> lights = new HashSet<>();
+        for(LFXDeviceID device: topologyCache.getLights()) {
+            LFXSiteID site = topologyCache.getLightSite(device);
+            if(gateways.containsKey(site)) {
+                routingTable.addCachedLight(device, site, topologyCache.getLightTags(device));
+                lights.add(device);
+            }
+        }
+        routingTable.publish();
+        cachedLights = Collections.unmodifiableSet(lights);
+        
+        logger.log(Level.FINE, "Loaded {0} gateways and {1} lights from {2}", 
+                new Object[] {gateways.size(), lights.size(), topologyCache.getFile()});
+        
+        if(!gateways.isEmpty()) {
+            firstPANReceived.countDown();
+            for(LFXSiteID site: gateways.keySet()) {
+                new SendGetLightsFromSite(site).run();
+            }
+        }
+    }
+    
     public void handleMessage(LFXMessage message) { 
+        handleMessages(Collections.singletonList(message));
+    }
+    
+    /**
+     * Handles a batch of messages from the network. The routing table is 
+     * updated with every message, but stale entries are only removed and 
+     * the changes published once. Gateways and lights that were found are
+     * asked for more after that, since they can't be reached before. The 
+     * messages are then queued for the handlers, which get them on the
+     * dispatch threads.
+     * 
+     * This must only be called from the reader thread.
+     */
+    public void handleMessages(List<LFXMessage> messages) {
+        List<LFXRoutedMessage> routed = new ArrayList<>(messages.size());
+        List<LFXSiteID> newSites = new ArrayList<>();
+        List<LFXDeviceID> newDevices = new ArrayList<>();
+        for(LFXMessage message: messages) {
+            LFXRoutedMessage r = routeMessage(message, newSites, newDevices);
+            if(r != null) {
+                routed.add(r);
+            }
+        }
+        
+        List<LFXDeviceID> lostDevices = new ArrayList<>();
+        routingTable.removeStaleEntries(lostDevices);
+        routingTable.publish();
+        
+        for(LFXDeviceID lostDevice: lostDevices) {
+            responseTracker.lightLost(lostDevice);
+        }
+        
+        for(LFXSiteID newSite: newSites) {
+            firstPANReceived.countDown();
+
+            // We want to find all lights as soon as possible, but we have to 
+            // know about the gateways before we can do that. So when we get
+            // info about a gateway we look for lights.
+            //
+            // Later we'll periodically ask for new lights every 15 seconds
+            //
+            Runnable sendGetLights = new SendGetLightsFromSite(newSite);
+            sendGetLights.run();
+            timerQueue.doLater(sendGetLights, 100, TimeUnit.MILLISECONDS);                
+            timerQueue.doLater(sendGetLights, 200, TimeUnit.MILLISECONDS);
+        }
+        
+        for(LFXDeviceID newDevice: newDevices) {
+            // the routing table needs to know about tags, so we ask about
+            // them when we find a new light                
+            sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_TAGS, new LFXTarget(newDevice)));
+        }
+        
+        if(!routed.isEmpty()) {
+            dispatcher.dispatch(routed);
+        }
+    }
+    
+    /**
+     * Updates the routing information with the message and figures out which
+     * lights it is meant for. Gateways and lights that were not known 
+     * before are added to the lists.
+     * 
+     * @return the message with its targets, or null if the handlers 
+     *         don't need to see it
+     */
+    private LFXRoutedMessage routeMessage(LFXMessage message, List<LFXSiteID> newSites, List<LFXDeviceID> newDevices) { 
         if(!message.isAResponseMessage()) {
-            return;
+            return null;
         }        
         
         
         if(message.getType() == LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY) {
-            LFXSiteID newSite = routingTable.updateTableWithPAN(message);
+            LFXSiteID newSite = routingTable.updateTableWithPAN(message, 
+                    getChannelForHost(message.getSourceNetworkHost()));
             if(newSite != null) {            
-                firstPANReceived.countDown();
-
-                // We want to find all lights as soon as possible, but we have to 
-                // know about the gateways before we can do that. So when we get
-                // info about a gateway we look for lights.
-                //
-                // Later we'll periodically ask for new lights every 15 seconds
-                //
-                Runnable sendGetLights = new SendGetLightsFromSite(newSite);
-                sendGetLights.run();
-                timerQueue.doLater(sendGetLights, 100, TimeUnit.MILLISECONDS);                
-                timerQueue.doLater(sendGetLights, 200, TimeUnit.MILLISECONDS);
+                newSites.add(newSite);
             } 
+            return null;
         } else {    
             responseTracker.updateReponse(message);
             
             LFXDeviceID newDevice = routingTable.updateTableWithLight(message);
             if(newDevice != null) {
-                // the routing table needs to know about tags, so we ask about
-                // them when we find a new light                
-                sendMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_TAGS, new LFXTarget(newDevice)));
+                newDevices.add(newDevice);
             }
             
-            
-            LFXBinaryPath path = message.getPath();
 
-            Set<LFXDeviceID> targets = new HashSet<>();
-            switch (path.getBinaryTargetID().getTargetType()) {
+            // the routing table hands out immutable snapshots, no need to copy
+            Set<LFXDeviceID> targets;
+            switch (message.getTargetType()) {
                 case BROADCAST: {
-                    targets.addAll(routingTable.getLightsAtSite(path.getSiteID()));                
+                    targets = routingTable.getLightsAtSite(message.getPath().getSiteID());
                     break;
                 }
 
                 case DEVICE: {                
-                    targets.add(path.getBinaryTargetID().getDeviceID());
+                    // the table was just updated with the light
+                    targets = routingTable.getLightAsTarget(message.getDeviceIDValue());
                     break;
                 }
 
                 case TAG: {
-                    targets.addAll(routingTable.getLightsAtSiteWithTags(path.getSiteID(), path.getBinaryTargetID().getGroupTagField()));
+                    LFXBinaryPath path = message.getPath();
+                    targets = routingTable.getLightsAtSiteWithTags(path.getSiteID(), path.getBinaryTargetID().getGroupTagMask());
+                    break;
+                }
+                
+                default: {
+                    targets = Collections.emptySet();
                     break;
                 }
             }
             
-            passMessageToHandlers(targets, message);            
+            return new LFXRoutedMessage(targets, message);
         }        
     }
     
-    private void passMessageToHandlers(final Set<LFXDeviceID> targets, final LFXMessage message) {
-        handlers.forEach(new LFXLightHandlerModelConsumer() {
-            @Override
-            public void accept(LFXLightHandler handler) {
-                try {                    
-                    handler.handleMessage(targets, message);
-                } catch(Exception ex) {
-                    logger.log(Level.SEVERE,
-                            "Failed to handle message", ex);
-                }                
-            }
-        });                    
-    }
-
-    
     ////////////////////////////////////////////////////////////////////////////
     //
     ////////////////////////////////////////////////////////////////////////////
     
+    /**
+     * Sends the message. Requests for information are dropped if they 
+     * can't be sent within the request deadline.
+     */
     public void sendMessage(LFXMessage message) {
+        sendMessage(message, getDefaultDeadline(message.getType()), TimeUnit.NANOSECONDS);
+    }
+    
+    /**
+     * Sends the message, but drops it if it has not been sent within the 
+     * given time. 
+     * 
+     * @param deadline how long the message may wait to be sent, 0 means 
+     *                 that it may wait forever
+     */
+    public void sendMessage(LFXMessage message, long deadline, TimeUnit unit) {
+        long maxDelay = unit.toNanos(deadline);
+        
         // For messages that have their Target set        
         LFXTarget target = message.getTarget();
         if (target != null) {
-            List<LFXBinaryPath> binaryPaths = new ArrayList<>();
-            switch (target.getTargetType()) {
-                case BROADCAST: {
-                    for(LFXSiteID site: routingTable.getAllSites()) {
-                        LFXBinaryPath path = new LFXBinaryPath(site, new LFXBinaryTargetID());
-                        binaryPaths.add(path);
-                    }
-                    break;
-                }
-                case DEVICE: {
-                    LFXSiteID site = routingTable.getLightsSiteID(target.getDeviceID());
-                    binaryPaths.add(new LFXBinaryPath(site, new LFXBinaryTargetID(target.getDeviceID())));
-                    break;                    
-                }
-                case TAG: {
-                    for(LFXSiteID site: routingTable.getSiteIDsWhereLightHasTag(target.getTag())) {
-                        LFXBinaryTargetID targetID = new LFXBinaryTargetID(EnumSet.of(target.getTag()));
-                        binaryPaths.add(new LFXBinaryPath(site, targetID));                        
-                    }
-                    break;
-                }
-            }
+            List<LFXBinaryPath> binaryPaths = getPathsForTarget(target);
             
             if(binaryPaths.isEmpty()) {
                 // well, there can be two cases for this:
@@ -262,58 +411,169 @@ public class LFXMessageRouter {
             }
             
             for(LFXBinaryPath path: binaryPaths) {
-                sendWithPath(message.withPath(path));
+                sendWithPath(message.withPath(path), maxDelay);
             }     
         } else if(message.getPath() != null) {
             // For message that have their Binary Path set explicitly (for internal use only)
-            sendWithPath(message);
+            sendWithPath(message, maxDelay);
         } else {
             throw new RuntimeException("message has neither target nor path");
         }
     } 
     
-    private void sendWithPath(LFXMessage message) {
+    /**
+     * Returns a template that sends messages of the type to the target with
+     * only the payload changing. The template is not thread safe.
+     */
+    public LFXMessageTemplate createTemplate(LxProtocol.Type type, LFXTarget target) {
+        return new LFXMessageTemplate(this, type, target);
+    }
+    
+    /**
+     * Returns where messages to the target go right now, one route per 
+     * gateway the message is sent to. Used by templates, which bind to the
+     * routes and ask again when {@link #getRoutingGeneration()} changes.
+     */
+    List<LFXMessageTemplate.Route> getRoutesForTarget(LFXTarget target) {
+        List<LFXMessageTemplate.Route> routes = new ArrayList<>();
+        for(LFXBinaryPath path: getPathsForTarget(target)) {
+            if(path.getSiteID() == null) {
+                // a light we don't know where it is yet
+                continue;
+            }
+            if(path.getSiteID().isZeroSite()) {
+                for(LFXSiteID site : routingTable.getAllSites()) {
+                    addRoute(routes, path, site);
+                }
+            } else {
+                addRoute(routes, path, path.getSiteID());
+            }
+        }
+        return routes;
+    }
+    
+    private void addRoute(List<LFXMessageTemplate.Route> routes, LFXBinaryPath path, LFXSiteID site) {
+        InetSocketAddress address = routingTable.getAddressForSiteID(site);
+        LFXInterfaceChannel channel = routingTable.getChannelForSiteID(site);
+        if(address != null && channel != null) {
+            routes.add(new LFXMessageTemplate.Route(path, address, channel));
+        } else {
+            // this should not happen
+            logger.log(Level.SEVERE,
+                    "No address for gateway, this should not happen");
+        }
+    }
+    
+    /**
+     * Returns a number that changes when the routes to the lights change.
+     */
+    int getRoutingGeneration() {
+        return routingTable.getGeneration();
+    }
+    
+    /**
+     * Returns how many nanoseconds a message of the type may wait to be 
+     * sent, 0 if it may wait forever.
+     */
+    long getDefaultDeadline(LxProtocol.Type type) {
+        return getMessagePriority(type) == LFXSocketMessage.LOW_PRIORITY
+                ? TimeUnit.MILLISECONDS.toNanos(LFXConstants.getRequestMessageDeadline()) : 0;
+    }
+    
+    private List<LFXBinaryPath> getPathsForTarget(LFXTarget target) {
+        List<LFXBinaryPath> binaryPaths = new ArrayList<>();
+        switch (target.getTargetType()) {
+            case BROADCAST: {
+                for(LFXSiteID site: routingTable.getAllSites()) {
+                    LFXBinaryPath path = new LFXBinaryPath(site, new LFXBinaryTargetID());
+                    binaryPaths.add(path);
+                }
+                break;
+            }
+            case DEVICE: {
+                LFXSiteID site = routingTable.getLightsSiteID(target.getDeviceID());
+                binaryPaths.add(new LFXBinaryPath(site, new LFXBinaryTargetID(target.getDeviceID())));
+                break;                    
+            }
+            case TAG: {
+                for(LFXSiteID site: routingTable.getSiteIDsWhereLightHasTag(target.getTag())) {
+                    LFXBinaryTargetID targetID = new LFXBinaryTargetID(target.getTag().getMask());
+                    binaryPaths.add(new LFXBinaryPath(site, targetID));                        
+                }
+                break;
+            }
+        }
+        return binaryPaths;
+    }
+    
+    private void sendWithPath(LFXMessage message, long maxDelay) {
         if (message.getPath().getSiteID().isZeroSite()) {
             // send to all gateways
-            for (InetSocketAddress address : routingTable.getAllSiteAddresses()) {
-                sendToAddress(message, address);
+            for (LFXSiteID site : routingTable.getAllSites()) {
+                sendToSite(message, site, maxDelay);
             }
         } else {            
-            InetSocketAddress address = routingTable.getAddressForSiteID(message.getPath().getSiteID());
-            if(address != null) {
-                sendToAddress(message, address);                
-            } else {
-                // this should not happen
-                logger.log(Level.SEVERE,
-                        "No address for gateway, this should not happen");
-            }            
+            sendToSite(message, message.getPath().getSiteID(), maxDelay);
         }        
     }
     
+    private void sendToSite(LFXMessage message, LFXSiteID site, long maxDelay) {
+        InetSocketAddress address = routingTable.getAddressForSiteID(site);
+        LFXInterfaceChannel channel = routingTable.getChannelForSiteID(site);
+        if(address != null && channel != null) {
+            sendToAddress(message, address, channel, maxDelay);                
+        } else {
+            // this should not happen
+            logger.log(Level.SEVERE,
+                    "No address for gateway, this should not happen");
+        }            
+    }
+    
     private void sendBroadcast(LFXMessage message) {
-        InetSocketAddress broadcastAddress;
-        try {
-            broadcastAddress = networkSettings.getBroadcast();
-        } catch(SocketException | UnknownHostException ex) {
-            Logger.getLogger(LFXMessageRouter.class.getName()).log(Level.SEVERE, 
-
-                    "Failed to get broadcast address", ex);
-            return;
+        List<LFXInterfaceChannel> channels = interfaceChannels;
+        if(channels.isEmpty() && wildcardChannel != null) {
+            channels = Collections.singletonList(wildcardChannel);
+        }
+        
+        for(LFXInterfaceChannel channel: channels) {
+            if(channel.getBroadcast() != null) {
+                sendToAddress(message, channel.getBroadcast(), channel, 0);
+            } else {
+                logger.log(Level.SEVERE,
+                        "No broadcast address for {0}", channel);
+            }
+        }
+    }
+    
+    /**
+     * Returns the channel for the interface that is on the same network as 
+     * the host, or the wildcard channel if there is none.
+     */
+    private LFXInterfaceChannel getChannelForHost(InetAddress host) {
+        if(host != null) {
+            for(LFXInterfaceChannel channel: interfaceChannels) {
+                if(channel.reaches(host)) {
+                    return channel;
+                }
+            }
         }
-        sendToAddress(message, broadcastAddress);
+        return wildcardChannel;
     }
     
     int maxQueueLength = 0;
     
-    private void sendToAddress(LFXMessage message, InetSocketAddress address) {
+    /**
+     * Queues the message for the address, the message path must already 
+     * be set.
+     */
+    void sendToAddress(LFXMessage message, InetSocketAddress address, LFXInterfaceChannel channel, long maxDelay) {
         int messagesInQueue = outgoingQueue.size();
         if(messagesInQueue > maxQueueLength) {
             //Logger.getLogger(LFXMessageRouter.class.getName()).log(Level.INFO, "New max queue size is " + messagesInQueue);
             maxQueueLength = messagesInQueue;
         }
         
-        byte[] messageData = message.getMessageDataRepresentation();
-        LFXSocketMessage sm = new LFXSocketMessage(messageData, address, getMessagePriority(message));
+        LFXSocketMessage sm = new LFXSocketMessage(message, address, channel, getMessagePriority(message.getType()), maxDelay);
         if(!outgoingQueue.offer(sm)) {
             logger.log(Level.SEVERE,
                     "Failed to send message, queue is full");
@@ -325,31 +585,9 @@ public class LFXMessageRouter {
      * Give higher priority to SET messages because this is what the user sees
      * so it improves the experience.
      */
-    private int getMessagePriority(LFXMessage message) {
-        switch(message.getType()) {
-            case LX_PROTOCOL_DEVICE_SET_SITE: 
-            case LX_PROTOCOL_DEVICE_SET_TIME: 
-            case LX_PROTOCOL_DEVICE_SET_DUMMY_LOAD: 
-            case LX_PROTOCOL_DEVICE_SET_POWER: 
-            case LX_PROTOCOL_DEVICE_SET_LABEL: 
-            case LX_PROTOCOL_DEVICE_SET_TAGS: 
-            case LX_PROTOCOL_DEVICE_SET_TAG_LABELS: 
-            case LX_PROTOCOL_DEVICE_SET_FACTORY_TEST_MODE: 
-            case LX_PROTOCOL_LIGHT_SET: 
-            case LX_PROTOCOL_LIGHT_SET_WAVEFORM: 
-            case LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE: 
-            case LX_PROTOCOL_LIGHT_SET_DIM_RELATIVE: 
-            case LX_PROTOCOL_LIGHT_SET_RGBW: 
-            case LX_PROTOCOL_LIGHT_SET_CALIBRATION_COEFFICIENTS: 
-            case LX_PROTOCOL_LIGHT_SET_SIMPLE_EVENT: 
-            case LX_PROTOCOL_LIGHT_SET_POWER: 
-            case LX_PROTOCOL_LIGHT_SET_WAVEFORM_OPTIONAL: 
-            case LX_PROTOCOL_WIFI_SET: 
-            case LX_PROTOCOL_WIFI_SET_ACCESS_POINT: 
-                return LFXSocketMessage.HIGH_PRIORITY;
-        }
-        
-        return LFXSocketMessage.LOW_PRIORITY;
+    private int getMessagePriority(LxProtocol.Type type) {
+        return LxProtocol.getTypeInfo(type).isChange() 
+                ? LFXSocketMessage.HIGH_PRIORITY : LFXSocketMessage.LOW_PRIORITY;
     }
     
     
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXTarget;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxCodec;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.LxProtocolTypeBase;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * Sends the same kind of message to the same target over and over, like the
+ * colors of an animation. The target is resolved to gateways and the headers
+ * are encoded when the template is bound, so each send only copies the 
+ * payload after the header. The template binds itself on the first send and
+ * again when the routes have changed, or on every send while the target 
+ * can't be reached.
+ * 
+ * Each route keeps the message it sent last, and once the writer has sent 
+ * it the next send copies the payload into it and sends it again. A new 
+ * message is only created while the last one is still waiting in the queue,
+ * or if the message may be resent.
+ * 
+ * Created by {@link LFXMessageRouter#createTemplate}. A template is not 
+ * thread safe, the users synchronize on it.
+ */
+public class LFXMessageTemplate {
+    private final LFXMessageRouter router;
+    private final LxProtocol.Type type;
+    private final LFXTarget target;
+    private final long maxDelay;
+    // messages that are tracked may be resent, so they can't be reused
+    private final boolean reusable;
+    private final byte[] payload;
+    // little endian view of the payload, used to patch fields at their offset
+    private final ByteBuffer payloadBuffer;
+    
+    private List<Route> routes;
+    private int generation;
+
+    LFXMessageTemplate(LFXMessageRouter router, LxProtocol.Type type, LFXTarget target) {
+        this.router = router;
+        this.type = type;
+        this.target = target;
+        this.maxDelay = router.getDefaultDeadline(type);
+        this.reusable = LxProtocol.getTypeInfo(type).getResponseType() == null;
+        this.payload = new byte[LxProtocol.getPayloadSize(type)];
+        this.payloadBuffer = ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    public LxProtocol.Type getType() {
+        return type;
+    }
+    
+    public LFXTarget getTarget() {
+        return target;
+    }
+    
+    /**
+     * Replaces the whole payload.
+     */
+    public void setPayload(LxProtocolTypeBase value) {
+        payloadBuffer.clear();
+        value.encodeTo(payloadBuffer);
+    }
+    
+    /**
+     * Patches the color of a LX_PROTOCOL_LIGHT_SET or 
+     * LX_PROTOCOL_LIGHT_SET_WAVEFORM payload.
+     */
+    public void setColor(int hue, int saturation, int brightness, int kelvin) {
+        int offset;
+        switch(type) {
+            case LX_PROTOCOL_LIGHT_SET:
+                offset = LxCodec.LightSet.COLOR;
+                break;
+            case LX_PROTOCOL_LIGHT_SET_WAVEFORM:
+                offset = LxCodec.LightSetWaveform.COLOR;
+                break;
+            default:
+                throw new IllegalStateException(type + " has no color");
+        }
+        payloadBuffer.position(offset);
+        LxCodec.Hsbk.encode(payloadBuffer, hue, saturation, brightness, kelvin);
+    }
+    
+    /**
+     * Patches the duration of a LX_PROTOCOL_LIGHT_SET or 
+     * LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE payload.
+     */
+    public void setDuration(long duration) {
+        int offset;
+        switch(type) {
+            case LX_PROTOCOL_LIGHT_SET:
+                offset = LxCodec.LightSet.DURATION;
+                break;
+            case LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE:
+                offset = LxCodec.LightSetDimAbsolute.DURATION;
+                break;
+            default:
+                throw new IllegalStateException(type + " has no duration");
+        }
+        payloadBuffer.putInt(offset, (int) duration);
+    }
+    
+    /**
+     * Sends the current payload to every gateway the target is reached 
+     * through. Nothing is sent if the target can't be reached yet.
+     */
+    public void send() {
+        int current = router.getRoutingGeneration();
+        if(routes == null || routes.isEmpty() || generation != current) {
+            bind(current);
+        }
+        
+        for(Route route: routes) {
+            byte[] data = reusable && route.message != null ? route.message.reuseData() : null;
+            if(data == null) {
+                data = new byte[LFXMessage.BASE_MESSAGE_SIZE + payload.length];
+                System.arraycopy(route.header, 0, data, 0, LFXMessage.BASE_MESSAGE_SIZE);
+                route.message = new LFXMessage(route.path, data);
+            }
+            System.arraycopy(payload, 0, data, LFXMessage.BASE_MESSAGE_SIZE, payload.length);
+            router.sendToAddress(route.message, route.address, route.channel, maxDelay);
+        }
+    }
+    
+    private void bind(int generation) {
+        List<Route> newRoutes = router.getRoutesForTarget(target);
+        for(Route route: newRoutes) {
+            LFXMessage.writeHeader(ByteBuffer.wrap(route.header), type, route.path, payload.length);
+        }
+        this.routes = newRoutes;
+        this.generation = generation;
+    }
+    
+    /**
+     * A gateway that the messages are sent through and the header for it.
+     */
+    static class Route {
+        private final LFXBinaryPath path;
+        private final InetSocketAddress address;
+        private final LFXInterfaceChannel channel;
+        private final byte[] header = new byte[LFXMessage.BASE_MESSAGE_SIZE];
+        // the message that was sent last
+        private LFXMessage message;
+
+        public Route(LFXBinaryPath path, InetSocketAddress address, LFXInterfaceChannel channel) {
+            this.path = path;
+            this.address = address;
+            this.channel = channel;
+        }
+    }
+}
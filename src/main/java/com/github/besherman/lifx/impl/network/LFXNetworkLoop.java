@@ -28,6 +28,7 @@ package com.github.besherman.lifx.impl.network;
  * @author Richard
  */
 
+import java.io.File;
 import java.io.IOException;
 
 /**
@@ -43,6 +44,7 @@ public class LFXNetworkLoop {
     private LFXNetworkLoopConnection connection;
     private final Object conLock = new Object();
     private String broadcastAddress = null;
+    private File cacheFile = null;
     
     
     private LFXNetworkLoop() {        
@@ -66,7 +68,7 @@ public class LFXNetworkLoop {
     public void open() throws IOException {
         synchronized(conLock) {
             if(connection == null) {
-                LFXNetworkLoopConnection newConnection = new LFXNetworkLoopConnection(broadcastAddress, handlers);
+                LFXNetworkLoopConnection newConnection = new LFXNetworkLoopConnection(broadcastAddress, cacheFile, handlers);
                 newConnection.open();
                 connection = newConnection;
             }
@@ -86,6 +88,15 @@ public class LFXNetworkLoop {
         this.broadcastAddress = broadcastAddress;
     }
     
+    /**
+     * Sets the file the topology cache is kept in, it is used the next 
+     * time the loop is opened. Null means that the cache file in the 
+     * settings is used, if there is one.
+     */
+    public void setCacheFile(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+    
     public void addHandler(LFXLightHandler handler) {
         handlers.addLightHandler(handler);
     }
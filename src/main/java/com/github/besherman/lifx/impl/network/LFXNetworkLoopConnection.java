@@ -30,18 +30,21 @@ package com.github.besherman.lifx.impl.network;
 
 import com.github.besherman.lifx.impl.entities.internal.LFXByteUtils;
 import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import java.io.File;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.InterfaceAddress;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -54,13 +57,21 @@ import java.util.logging.Logger;
  *    <li>Reading messages from the network and passing them to the {@link LFXMessageRouter}.</li>
  *    <li>Reading messages from the outgoing queue and writing them to the network.</li> 
  * </ol>
+ * 
+ * Unless a broadcast address has been given there is one channel for each 
+ * active network interface, so lights on all networks the host is connected 
+ * to are found. A channel bound to all interfaces receives the broadcasts.
  */
 public class LFXNetworkLoopConnection {
     private static final int PORT = 56700;    
-    private final int messageSendRateLimitInterval;        
     
     private final LFXMessageRouter router;            
-    private final BlockingQueue<LFXSocketMessage> outgoingQueue;     
+    private final LFXSendScheduler outgoingQueue;     
+    private final LFXByteBufferPool bufferPool;
+    private final LFXNetworkSettings networkSettings;
+    private final LFXTimingWheel timingWheel;
+    
+    private final List<LFXInterfaceChannel> channels = new ArrayList<>();
         
     private Reader reader;    
     private Thread readingThread;
@@ -68,22 +79,40 @@ public class LFXNetworkLoopConnection {
     private Writer writer;
     private Thread writingThread;        
     
-    public LFXNetworkLoopConnection(String broadcastAddress, LFXLightHandlerModel handlers) {
-        this.messageSendRateLimitInterval = LFXConstants.getNetworkLoopSendRateLimitInterval();        
+    /**
+     * @param cacheFile where the topology cache is kept, or null to use 
+     *                  the one in the settings, if any
+     */
+    public LFXNetworkLoopConnection(String broadcastAddress, File cacheFile, LFXLightHandlerModel handlers) {
         int outgoingQueueSize = LFXConstants.getOutgoingQueueSize();
         
-        this.outgoingQueue = new PriorityBlockingQueue<>(outgoingQueueSize);
-        this.router = new LFXMessageRouter(broadcastAddress, handlers, outgoingQueue);
+        this.outgoingQueue = new LFXSendScheduler(LFXConstants.getSendRatePerGateway(), 
+                LFXConstants.getSendBurstPerGateway(), outgoingQueueSize);
+        // messages are encoded just before they are sent, so the writer
+        // only needs one buffer at a time
+        this.bufferPool = new LFXByteBufferPool(Writer.BUF_SIZE, 1);
+        this.networkSettings = new LFXNetworkSettings(broadcastAddress);
+        this.timingWheel = new LFXTimingWheel(LFXConstants.getTimerTickDuration(), TimeUnit.MILLISECONDS, 512);
+        
+        if(cacheFile == null && LFXConstants.getTopologyCacheFile() != null) {
+            cacheFile = new File(LFXConstants.getTopologyCacheFile());
+        }
+        LFXTopologyCache cache = cacheFile != null 
+                ? new LFXTopologyCache(cacheFile, LFXConstants.getTopologyCacheMaxAge()) : null;
+        this.router = new LFXMessageRouter(handlers, outgoingQueue, timingWheel, cache);
     }
     
     
     public void open() throws IOException {
         try {
-            writer = new Writer(outgoingQueue, messageSendRateLimitInterval);
+            openChannels();
+            timingWheel.start();
+            
+            writer = new Writer(outgoingQueue, bufferPool);
             writingThread = new Thread(writer, "LIFX Network Writer");
             writingThread.start();
 
-            reader = new Reader(writer.getChannel(), router);
+            reader = new Reader(channels, router);
             readingThread = new Thread(reader, "LIFX Network Reader");        
             readingThread.start();                     
         } catch(IOException ex) {
@@ -112,24 +141,70 @@ public class LFXNetworkLoopConnection {
         } catch(InterruptedException ex) {
             // TODO: maybee we should interrupt the writing thread here?
         }
+        
+        timingWheel.stop();
+        
+        for(LFXInterfaceChannel channel: channels) {
+            try {
+                channel.close();
+            } catch(IOException ex) {
+                Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
+                        "Failed to close DatagramChannel", ex);
+            }
+        }
+        channels.clear();
     }    
     
+    /**
+     * Opens the wildcard channel and, unless the user has given us a 
+     * broadcast address, one channel for each active interface. The channels
+     * are then given to the router.
+     */
+    private void openChannels() throws IOException {
+        InetSocketAddress broadcast = null;
+        try {
+            broadcast = networkSettings.getBroadcast();
+        } catch(IOException ex) {
+            Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
+                    "Failed to get broadcast address", ex);
+        }
+        
+        LFXInterfaceChannel wildcard = new LFXInterfaceChannel(new InetSocketAddress(PORT), 0, broadcast);
+        channels.add(wildcard);
+        
+        List<LFXInterfaceChannel> interfaces = new ArrayList<>();
+        if(!networkSettings.isBroadcastConfigured()) {
+            for(InterfaceAddress addr: networkSettings.getActiveIPv4Addresses()) {
+                try {
+                    // the lights answer to the port we send from so there is
+                    // no need for a fixed port here
+                    LFXInterfaceChannel channel = new LFXInterfaceChannel(
+                            new InetSocketAddress(addr.getAddress(), 0), 
+                            addr.getNetworkPrefixLength(), 
+                            new InetSocketAddress(addr.getBroadcast(), networkSettings.getBroadcastPort()));
+                    channels.add(channel);
+                    interfaces.add(channel);
+                } catch(IOException ex) {
+                    Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
+                            "Failed to open channel for " + addr.getAddress(), ex);
+                }
+            }
+        }
+        
+        Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.FINE, 
+                "Opened channels {0}", channels);
+        router.setChannels(wildcard, interfaces);
+    }
+    
     private static class Writer implements Runnable {
         private static final int BUF_SIZE = 255;
-        private final DatagramChannel channel;
-        private final BlockingQueue<LFXSocketMessage> outgoingQueue;
+        private final LFXSendScheduler outgoingQueue;
+        private final LFXByteBufferPool bufferPool;
         private final AtomicBoolean running = new AtomicBoolean(true);    
-        private final int messageSendRateLimitInterval;
 
-        public Writer(BlockingQueue<LFXSocketMessage> outgoingQueue, int messageSendRateLimitInterval) throws IOException {
-            this.channel = DatagramChannel.open();
-            this.channel.socket().setBroadcast(true);
+        public Writer(LFXSendScheduler outgoingQueue, LFXByteBufferPool bufferPool) {
             this.outgoingQueue = outgoingQueue;
-            this.messageSendRateLimitInterval = messageSendRateLimitInterval;
-        }
-        
-        public DatagramChannel getChannel() {
-            return channel;
+            this.bufferPool = bufferPool;
         }
         
         public void close() {
@@ -138,7 +213,6 @@ public class LFXNetworkLoopConnection {
 
         @Override
         public void run() {
-            ByteBuffer buf = ByteBuffer.allocate(BUF_SIZE);
             try {
                 // we don't want to stop before the queue is empty because
                 // then the stuff we asked for wont happen and the user
@@ -146,33 +220,32 @@ public class LFXNetworkLoopConnection {
                 // so nothing new will end up on the queue                
                 while(running.get() || !outgoingQueue.isEmpty()) {
                     //
-                    // Send outgoing messages
+                    // Send outgoing messages, the queue makes sure that
+                    // we don't flood any of the gateways
                     //                    
                     LFXSocketMessage msg = outgoingQueue.poll(1, TimeUnit.SECONDS);                    
                     if(msg != null) {
-                        buf.clear();
-                        buf.put(msg.getMessageData());
-                        buf.flip();
-
+                        ByteBuffer buf = null;
                         try {
-                            channel.send(buf, msg.getAddress());
+                            buf = msg.encode(bufferPool);
+                            msg.getChannel().getChannel().send(buf, msg.getAddress());
+                            msg.markSent();
                         } catch(Exception ex) {
                             Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
                                     "Failed to send message", ex);
+                        } finally {
+                            if(buf != null) {
+                                bufferPool.release(buf);
+                            }
                         }
-
-                        Thread.sleep(messageSendRateLimitInterval);                                            
                     }                    
                 }                
             } catch(Exception ex) {
                 Logger.getLogger(Writer.class.getName()).log(Level.SEVERE, "Writer died unexpectadly");
             } finally {
-                try {
-                    channel.close();
-                } catch(IOException ex) {
-                    Logger.getLogger(Writer.class.getName()).log(Level.SEVERE, 
-                            "Failed to close DatagramChannel", ex);
-                }
+                Logger.getLogger(Writer.class.getName()).log(Level.FINE, "Send buffers: {0}", bufferPool);
+                Logger.getLogger(Writer.class.getName()).log(Level.FINE, "Coalesced messages: {0}", outgoingQueue.getCoalescedCount());
+                Logger.getLogger(Writer.class.getName()).log(Level.FINE, "Expired messages: {0}", outgoingQueue.getExpiredCount());
             }
         }      
                 
@@ -186,14 +259,13 @@ public class LFXNetworkLoopConnection {
         private final Selector selector;
         private final LFXMessageRouter router;  
 
-        public Reader(DatagramChannel channel, LFXMessageRouter router) throws IOException {            
+        public Reader(List<LFXInterfaceChannel> channels, LFXMessageRouter router) throws IOException {            
             this.router = router;
-            channel.configureBlocking(false);
-            channel.socket().setReuseAddress(true);
-            channel.socket().bind(new InetSocketAddress(PORT));
 
             selector = Selector.open();
-            channel.register(selector, SelectionKey.OP_READ);                    
+            for(LFXInterfaceChannel channel: channels) {
+                channel.getChannel().register(selector, SelectionKey.OP_READ);                    
+            }
         }
 
         public void close() {                        
@@ -201,13 +273,84 @@ public class LFXNetworkLoopConnection {
             selector.wakeup();
         }
 
+        /**
+         * Parses the datagram in the buffer. Only responses are parsed since 
+         * the router ignores everything else.
+         * 
+         * @return the message or null if it should be ignored
+         */
+        private LFXMessage parseDatagram(ByteBuffer buf, InetAddress source) {
+            LxProtocol.Type type = LFXMessage.peekType(buf);
+            if(type != null && !LFXMessage.isAResponseType(type)) {
+                return null;
+            }
+            
+            int start = buf.position();
+            LFXMessage msg = null;
+            try {
+                if(type == null) {
+                    throw new IllegalStateException("message is too short, non-addressable or of unknown type");
+                }
+                msg = new LFXMessage(buf, source);
+            } catch(Exception ex) {
+                Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
+                        "Failed to parse message: " + toHex(buf, start), ex);
+            }                                    
+
+            if(msg != null) {                                            
+                Logger.getLogger(Reader.class.getName()).log(Level.FINEST, "Received message {0}", type);
+            }
+            return msg;
+        }
+        
+        /**
+         * Reads all datagrams that are waiting on the channel.
+         */
+        private void drain(DatagramChannel ch, ByteBuffer buf, List<LFXMessage> batch) {
+            while(true) {
+                buf.clear();
+                SocketAddress source;
+                try {
+                    source = ch.receive(buf);
+                } catch(IOException ex) {
+                    Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
+                            "Failed to receive message", ex);
+                    return;
+                }   
+
+                // source is null when there is nothing more to read
+                if(source == null) {
+                    return;
+                }
+                
+                // sometimes we get an empty package for some reason
+                if(buf.flip().hasRemaining()) {
+                    LFXMessage msg = parseDatagram(buf, ((InetSocketAddress)source).getAddress());
+                    if(msg != null) {
+                        batch.add(msg);
+                    }
+                } 
+            }
+        }
+        
+        private static String toHex(ByteBuffer buf, int start) {
+            byte[] bytes = new byte[buf.limit() - start];
+            for(int i = 0; i < bytes.length; i++) {
+                bytes[i] = buf.get(start + i);
+            }
+            return LFXByteUtils.byteArrayToHexString(bytes);
+        }
+        
         @Override
         public void run() {
             Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.FINE, "Starting event loop");        
             try {
                 router.open();
                 
-                ByteBuffer buf = ByteBuffer.allocate(BUF_SIZE);
+                // the same buffer is reused for every datagram, messages we
+                // don't care about are skipped by just peeking at the header
+                ByteBuffer buf = ByteBuffer.allocateDirect(BUF_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                List<LFXMessage> batch = new ArrayList<>();
                 while(running.get()) {
                     //
                     // Check for new messages
@@ -224,50 +367,22 @@ public class LFXNetworkLoopConnection {
                         Set<SelectionKey> keys = selector.selectedKeys();
                         for(SelectionKey key: keys) {
                             if(key.isReadable()) {                            
-                                buf.clear();
-                                DatagramChannel ch = (DatagramChannel)key.channel();                        
-                                SocketAddress source = null;
-
-                                try {
-                                    source = ch.receive(buf);
-                                } catch(IOException ex) {
-                                    Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
-                                            "Failed to receive message", ex);
-                                }   
-
-                                // source is null when receive got nothing
-                                if(source != null) {
-                                    buf.flip();                                
-                                    byte[] bytes = new byte[buf.remaining()];
-                                    buf.get(bytes);
-
-                                    // sometimes we get an empty package for some reason
-                                    if(bytes.length > 0) { 
-                                        String messageAsHex = LFXByteUtils.byteArrayToHexString(bytes);                                        
-                                        
-                                        LFXMessage msg = null;
-                                        try {
-                                            msg = new LFXMessage(bytes);
-                                        } catch(Exception ex) {
-                                            Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
-                                                    "Failed to parse message: " + messageAsHex, ex);
-                                        }                                    
-
-                                        if(msg != null) {                                            
-                                            Logger.getLogger(Reader.class.getName()).log(Level.FINEST, "Received message {0}", msg.getType());
-                                            try {                                    
-                                                InetAddress addr = ((InetSocketAddress)source).getAddress();
-                                                router.handleMessage(msg.withSource(addr));
-                                            } catch(Exception ex) {
-                                                Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
-                                                        "Failed to handle message: " + messageAsHex, ex);
-                                            }
-                                        }
-                                    }
-                                } 
+                                drain((DatagramChannel)key.channel(), buf, batch);
                             }                        
                         }
                         keys.clear();
+                        
+                        // everything that arrived is handed to the router
+                        // in one go
+                        if(!batch.isEmpty()) {
+                            try {                                    
+                                router.handleMessages(batch);
+                            } catch(Exception ex) {
+                                Logger.getLogger(LFXNetworkLoopConnection.class.getName()).log(Level.SEVERE, 
+                                        "Failed to handle messages", ex);
+                            }
+                            batch.clear();
+                        }
                     }                    
                 }
 
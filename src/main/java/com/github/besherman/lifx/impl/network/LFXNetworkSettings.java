@@ -31,7 +31,9 @@ import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 
 /**
  *
@@ -64,6 +66,37 @@ public class LFXNetworkSettings {
         return broadcastAddress;
     }
     
+    /**
+     * Returns true if the user has told us which broadcast address to use, 
+     * in that case we don't go looking on the other interfaces.
+     */
+    public boolean isBroadcastConfigured() {
+        return broadcastAddressString != null;
+    }
+    
+    public int getBroadcastPort() {
+        return broadcastPort;
+    }
+    
+    /**
+     * Returns the IPv4 addresses, that can broadcast, of all interfaces 
+     * that are up and not loopback.
+     */
+    public List<InterfaceAddress> getActiveIPv4Addresses() throws SocketException {
+        List<InterfaceAddress> result = new ArrayList<>();
+        Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+        while(networkInterfaces != null && networkInterfaces.hasMoreElements()) {
+            NetworkInterface iface = networkInterfaces.nextElement();
+            if(iface.isUp() && !iface.isLoopback()) {
+                for(InterfaceAddress ifaceAddr: iface.getInterfaceAddresses()) {
+                    if(ifaceAddr.getAddress() instanceof Inet4Address && ifaceAddr.getBroadcast() != null) {
+                        result.add(ifaceAddr);
+                    }
+                }
+            }
+        }
+        return result;
+    }
   
     
     private static InetAddress getFirstActiveBroadcast() throws SocketException {
@@ -31,55 +31,78 @@ import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
 import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol.Type;
+import com.github.besherman.lifx.impl.util.LFXLongMap;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.concurrent.BlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol.Type.*;
-
 /**
  * Keeps track of sent messages and if there is no response for a while the
- * same message is sent again.
+ * same message is sent again. Each sent message has its own timeout on the
+ * timing wheel, which is cancelled when the response arrives.
+ * 
+ * The expected responses are indexed by light and response type, so finding
+ * the requests a response answers doesn't depend on how many are waiting.
+ * 
+ * How long to wait is based on the measured round trip time of each light.
+ * The wait is doubled for each resend and after a number of resends the
+ * tracker gives up.
  */
 public class LFXResponseTracker {
     private LFXTimerQueue timerQueue;
-    private BlockingQueue<LFXSocketMessage> outgoingQueue;
-    private final Map<LxProtocol.Type, LxProtocol.Type> reqResp = createReqResp();
+    private LFXSendScheduler outgoingQueue;
     private final Object lock = new Object();
-    private final PriorityQueue<Expected> expectedResponses = new PriorityQueue<>();
+    private final LFXLongMap<List<Expected>> expectedResponses = new LFXLongMap<>();
+    private final LFXLongMap<LFXRttEstimator> estimators = new LFXLongMap<>();
     private final LFXRoutingTable routingTable;
     
     private int messageSendRateLimitInterval;
-    private int responseTrackerInterval;
-    private int responseTrackerTimeout;
+    private long initialTimeout;
+    private long minTimeout;
+    private long maxTimeout;
+    private int maxRetries;
     
     public LFXResponseTracker(LFXRoutingTable routingTable) {
         this.routingTable = routingTable;
     }
     
-    public void setOutgoingQueue(BlockingQueue<LFXSocketMessage> outgoingQueue) {
+    public void setOutgoingQueue(LFXSendScheduler outgoingQueue) {
         this.outgoingQueue = outgoingQueue;
     }    
     
-    public void open() {
-        timerQueue = new LFXTimerQueue();                
-        responseTrackerTimeout = LFXConstants.getResponseTrackerResendTimeout();        
-        responseTrackerInterval = LFXConstants.getResponseTrackerInterval();        
+    public void open(LFXTimingWheel timingWheel) {
+        timerQueue = new LFXTimerQueue(timingWheel);                
+        initialTimeout = TimeUnit.MILLISECONDS.toNanos(LFXConstants.getResponseTrackerResendTimeout());
+        minTimeout = TimeUnit.MILLISECONDS.toNanos(LFXConstants.getResponseTrackerMinTimeout());
+        maxTimeout = TimeUnit.MILLISECONDS.toNanos(LFXConstants.getResponseTrackerMaxTimeout());
+        maxRetries = LFXConstants.getResponseTrackerMaxRetries();
         messageSendRateLimitInterval = LFXConstants.getNetworkLoopSendRateLimitInterval();
-        
-        timerQueue.doRepeatedly(updateTimeoutsRunnable, responseTrackerInterval, TimeUnit.MILLISECONDS);
     }
     
     public void close() {
         if(timerQueue != null) {
             timerQueue.close();
         }
+        synchronized(lock) {
+            expectedResponses.clear();
+            estimators.clear();
+        }
+    }
+    
+    /**
+     * Returns the number of requests waiting for a response.
+     */
+    public int getExpectedCount() {
+        synchronized(lock) {
+            int count = 0;
+            for(List<Expected> list: expectedResponses.values()) {
+                count += list.size();
+            }
+            return count;
+        }
     }
     
     public void trackResponse(LFXMessage message, LFXSocketMessage sm) {
@@ -93,138 +116,198 @@ public class LFXResponseTracker {
             return;
         }
         
-        Type expectedResponse = reqResp.get(message.getType());
+        Type expectedResponse = LxProtocol.getTypeInfo(message.getType()).getResponseType();
         if(expectedResponse != null) {
             synchronized(lock) {
-                expectedResponses.add(new Expected(expectedResponse, target.getDeviceID(), getTimeout(), sm));
+                Expected ex = new Expected(target.getDeviceID(), expectedResponse, sm);
+                add(ex);
+                ex.setTimeoutKey(timerQueue.doLater(ex, getTimeout(ex), TimeUnit.NANOSECONDS));
             }
         }        
     }
     
+    /**
+     * Returns the number of lights whose round trip time is being measured.
+     */
+    public int getEstimatorCount() {
+        synchronized(lock) {
+            return estimators.size();
+        }
+    }
+    
+    /**
+     * Forgets the round trip time of a light that the routing table has 
+     * removed. Requests that are still waiting for it give up when they 
+     * time out.
+     */
+    public void lightLost(LFXDeviceID device) {
+        synchronized(lock) {
+            estimators.remove(device.getValue());
+        }
+    }
 
     public void updateReponse(LFXMessage message) {
+        if(message.getTargetType() != LFXBinaryTargetType.DEVICE) {
+            return;
+        }
+        
+        long device = message.getDeviceIDValue();
+        long key = key(device, message.getType());
+        long now = System.nanoTime();
         synchronized(lock) {
-            Iterator<Expected> it = expectedResponses.iterator();
-            while(it.hasNext()) {
-                Expected ex = it.next();
-                if(ex.isResponse(message)) {
-                    it.remove();                    
+            List<Expected> answered = expectedResponses.remove(key);
+            if(answered != null) {
+                boolean sampled = false;
+                for(Expected ex: answered) {
+                    timerQueue.cancel(ex.getTimeoutKey());
+                    
+                    // if the message was resent we can't know which one 
+                    // was answered, so it doesn't say anything about the
+                    // round trip time
+                    long sent = ex.getMessage().getSentTime();
+                    if(!sampled && ex.attempts == 1 && sent != 0) {
+                        getEstimator(device).addSample(now - sent);
+                        sampled = true;
+                    }
                 }
             }
         }
     }
     
-    private long getTimeout() {
-        long timeoutAfter = System.currentTimeMillis() + responseTrackerTimeout;
+    private void add(Expected ex) {
+        List<Expected> list = expectedResponses.get(ex.key);
+        if(list == null) {
+            list = new ArrayList<>(1);
+            expectedResponses.put(ex.key, list);
+        }
+        list.add(ex);
+    }
+    
+    private boolean remove(Expected ex) {
+        List<Expected> list = expectedResponses.get(ex.key);
+        if(list == null || !list.remove(ex)) {
+            return false;
+        }
+        if(list.isEmpty()) {
+            expectedResponses.remove(ex.key);
+        }
+        return true;
+    }
+    
+    private LFXRttEstimator getEstimator(long device) {
+        LFXRttEstimator estimator = estimators.get(device);
+        if(estimator == null) {
+            estimator = new LFXRttEstimator(initialTimeout, minTimeout, maxTimeout);
+            estimators.put(device, estimator);
+        }
+        return estimator;
+    }
+    
+    /**
+     * Returns how many nanoseconds to wait for a response.
+     */
+    private long getTimeout(Expected ex) {
+        long timeout = getEstimator(ex.getDeviceID().getValue()).getTimeout(ex.attempts);
 
         // the outgoing message queue might be long, so we have to take
         // take that into account as well            
-        timeoutAfter +=  outgoingQueue.size() * messageSendRateLimitInterval;
+        timeout += TimeUnit.MILLISECONDS.toNanos(outgoingQueue.size() * messageSendRateLimitInterval);
         
-        return timeoutAfter;
+        return timeout;
     }
     
     
-    private void updateTimeouts() {
+    /**
+     * Called by the timing wheel when there has been no response in time.
+     */
+    private void timedOut(Expected ex) {
         synchronized(lock) {
-            while(!expectedResponses.isEmpty() && expectedResponses.peek().isTimedOut()) {                
-                Expected ex = expectedResponses.poll();
-                if(routingTable.isLightStillAlive(ex.getDeviceID())) {                    
-                    ex.reschedule(getTimeout());
-                    Logger.getLogger(LFXResponseTracker.class.getName()).log(Level.FINE, "Resending " + ex.type);
-                    if(!outgoingQueue.offer(ex.getMessage())) {
+            if(!remove(ex)) {
+                // the response arrived just before the timeout
+                return;
+            }
+            
+            if(!routingTable.isLightStillAlive(ex.getDeviceID())) {
+                estimators.remove(ex.getDeviceID().getValue());
+            } else if(ex.getMessage().isDropped()) {
+                // its deadline passed before it was sent, too late to care 
+                // about the answer
+                Logger.getLogger(LFXResponseTracker.class.getName()).log(Level.FINE, "Giving up on " + ex);
+            } else if(!ex.getMessage().isQueued() && ex.attempts > maxRetries) {
+                Logger.getLogger(LFXResponseTracker.class.getName()).log(Level.FINE, 
+                        "Giving up on " + ex + " after " + maxRetries + " resends");
+            } else {                    
+                if(ex.getMessage().isQueued()) {
+                    // the request hasn't even been sent yet, so there is
+                    // no point in sending it again - just wait some more
+                    Logger.getLogger(LFXResponseTracker.class.getName()).log(Level.FINE, "Still queued " + ex);
+                } else {
+                    Logger.getLogger(LFXResponseTracker.class.getName()).log(Level.FINE, "Resending " + ex);
+                    ex.attempts++;
+                    LFXSocketMessage copy = ex.getMessage().copy();
+                    if(outgoingQueue.offer(copy)) {
+                        ex.setMessage(copy);
+                    } else {
                         Logger.getLogger(LFXResponseTracker.class.getName()).log(Level.SEVERE, 
                                 "Failed to send message, queue is full");
                     }
-                    expectedResponses.add(ex);
                 }
+                add(ex);
+                ex.setTimeoutKey(timerQueue.doLater(ex, getTimeout(ex), TimeUnit.NANOSECONDS));
             }
         }
     }
 
-    private final Runnable updateTimeoutsRunnable = new Runnable() {
-        @Override public void run() {
-            updateTimeouts();
-        }
-    };
-
 
     
-    private static Map<LxProtocol.Type, LxProtocol.Type> createReqResp() {
-        Map<LxProtocol.Type, LxProtocol.Type> map = new HashMap<>();
-        map.put(LX_PROTOCOL_DEVICE_GET_PAN_GATEWAY, LX_PROTOCOL_DEVICE_STATE_PAN_GATEWAY);
-        map.put(LX_PROTOCOL_DEVICE_GET_TIME, LX_PROTOCOL_DEVICE_STATE_TIME);
-        map.put(LX_PROTOCOL_DEVICE_GET_RESET_SWITCH, LX_PROTOCOL_DEVICE_STATE_RESET_SWITCH);
-        map.put(LX_PROTOCOL_DEVICE_GET_DUMMY_LOAD, LX_PROTOCOL_DEVICE_STATE_DUMMY_LOAD);
-        map.put(LX_PROTOCOL_DEVICE_GET_MESH_INFO, LX_PROTOCOL_DEVICE_STATE_MESH_INFO);
-        map.put(LX_PROTOCOL_DEVICE_GET_MESH_FIRMWARE, LX_PROTOCOL_DEVICE_STATE_MESH_FIRMWARE);
-        map.put(LX_PROTOCOL_DEVICE_GET_WIFI_INFO, LX_PROTOCOL_DEVICE_STATE_WIFI_INFO);
-        map.put(LX_PROTOCOL_DEVICE_GET_WIFI_FIRMWARE, LX_PROTOCOL_DEVICE_STATE_WIFI_FIRMWARE);
-        map.put(LX_PROTOCOL_DEVICE_GET_POWER, LX_PROTOCOL_DEVICE_STATE_POWER);
-        map.put(LX_PROTOCOL_DEVICE_GET_LABEL, LX_PROTOCOL_DEVICE_STATE_LABEL);
-        map.put(LX_PROTOCOL_DEVICE_GET_TAGS, LX_PROTOCOL_DEVICE_STATE_TAGS);         
-        // map.put(LX_PROTOCOL_DEVICE_GET_TAG_LABELS, LX_PROTOCOL_DEVICE_STATE_TAG_LABELS); // takes arguments
-        map.put(LX_PROTOCOL_DEVICE_GET_VERSION, LX_PROTOCOL_DEVICE_STATE_VERSION);
-        map.put(LX_PROTOCOL_DEVICE_GET_INFO, LX_PROTOCOL_DEVICE_STATE_INFO);
-        map.put(LX_PROTOCOL_DEVICE_GET_MCU_RAIL_VOLTAGE, LX_PROTOCOL_DEVICE_STATE_MCU_RAIL_VOLTAGE);
-        map.put(LX_PROTOCOL_DEVICE_GET_LOCATION, LX_PROTOCOL_DEVICE_STATE_LOCATION);
-        map.put(LX_PROTOCOL_LIGHT_GET, LX_PROTOCOL_LIGHT_STATE);
-        map.put(LX_PROTOCOL_LIGHT_GET_RAIL_VOLTAGE, LX_PROTOCOL_LIGHT_STATE_RAIL_VOLTAGE);
-        map.put(LX_PROTOCOL_LIGHT_GET_TEMPERATURE, LX_PROTOCOL_LIGHT_STATE_TEMPERATURE);
-        //map.put(LX_PROTOCOL_LIGHT_GET_SIMPLE_EVENT, LX_PROTOCOL_LIGHT_STATE_SIMPLE_EVENT); // takes arguments
-        map.put(LX_PROTOCOL_LIGHT_GET_POWER, LX_PROTOCOL_LIGHT_STATE_POWER);
-        map.put(LX_PROTOCOL_WIFI_GET, LX_PROTOCOL_WIFI_STATE);
-        map.put(LX_PROTOCOL_WIFI_GET_ACCESS_POINT, LX_PROTOCOL_WIFI_STATE_ACCESS_POINT);
-        map.put(LX_PROTOCOL_SENSOR_GET_AMBIENT_LIGHT, LX_PROTOCOL_SENSOR_STATE_AMBIENT_LIGHT);
-        map.put(LX_PROTOCOL_SENSOR_GET_DIMMER_VOLTAGE, LX_PROTOCOL_SENSOR_STATE_DIMMER_VOLTAGE);
-        return map;        
+    /**
+     * Returns the key for a response of the type from the device, the 48
+     * bits of the device id and 16 bits for the type.
+     */
+    private static long key(long device, Type type) {
+        return (device << 16) | type.ordinal();
     }
     
-    private static class Expected implements Comparable<Expected> {
-        private final Type type;
+    private class Expected implements Runnable {
+        private final long key;
         private final LFXDeviceID device;
-        private long timeoutAfterTimestamp;
-        private final LFXSocketMessage originalSocketMessage;
+        private final Type type;
+        private LFXSocketMessage socketMessage;
+        private Object timeoutKey;
+        
+        // how many times the message has been sent
+        private int attempts = 1;
 
-        public Expected(Type type, LFXDeviceID device, long timeoutAfter, LFXSocketMessage message) {
-            this.type = type;
+        public Expected(LFXDeviceID device, Type type, LFXSocketMessage message) {
+            this.key = key(device.getValue(), type);
             this.device = device;
-            this.timeoutAfterTimestamp = timeoutAfter;
-            this.originalSocketMessage = message;
+            this.type = type;
+            this.socketMessage = message;
         }
 
         @Override
-        public int compareTo(Expected other) {
-            return Long.compare(timeoutAfterTimestamp, other.timeoutAfterTimestamp);
+        public void run() {
+            timedOut(this);
         }
         
-        public boolean isTimedOut() {
-            return System.currentTimeMillis() > timeoutAfterTimestamp;
+        public Object getTimeoutKey() {
+            return timeoutKey;
         }
         
-        public void reschedule(long newTimeout) {
-            this.timeoutAfterTimestamp = newTimeout;
+        public void setTimeoutKey(Object timeoutKey) {
+            this.timeoutKey = timeoutKey;
         }
         
         public LFXSocketMessage getMessage() {
-            return originalSocketMessage;
+            return socketMessage;
         }      
         
-        public LFXDeviceID getDeviceID() {
-            return device;
+        public void setMessage(LFXSocketMessage message) {
+            this.socketMessage = message;
         }
         
-        public boolean isResponse(LFXMessage message) {
-            if(message.getType().equals(type)) {
-                LFXBinaryTargetID target = message.getPath().getBinaryTargetID();
-                if(target.geTargetType() == LFXBinaryTargetType.DEVICE) {
-                    if(this.device.equals(target.getDeviceID())) {
-                        return true;
-                    } 
-                }
-            }
-            
-            return false;
+        public LFXDeviceID getDeviceID() {
+            return device;
         }
 
         @Override
@@ -0,0 +1,57 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import java.util.Set;
+
+/**
+ * A message from the network together with the lights it was meant for.
+ */
+public class LFXRoutedMessage {
+    private final Set<LFXDeviceID> targets;
+    private final LFXMessage message;
+
+    public LFXRoutedMessage(Set<LFXDeviceID> targets, LFXMessage message) {
+        this.targets = targets;
+        this.message = message;
+    }
+
+    /**
+     * Returns the recipients of the message, can be empty.
+     */
+    public Set<LFXDeviceID> getTargets() {
+        return targets;
+    }
+
+    public LFXMessage getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "LFXRoutedMessage{" + "targets=" + targets + ", message=" + message.getType() + '}';
+    }
+}
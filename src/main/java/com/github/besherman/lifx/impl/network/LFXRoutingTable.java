@@ -31,128 +31,167 @@ import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
 import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
 import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolDevice;
+import com.github.besherman.lifx.impl.util.LFXLongMap;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Keeps track of the gateways and the lights behind them.
+ * 
+ * The lights are indexed by site and by tag, so finding the lights a 
+ * message is for doesn't mean looking at every light. The sets that are 
+ * returned are immutable snapshots that are reused until the lights they
+ * hold change.
+ * 
+ * The table is only changed by the reader thread. What the send path needs
+ * is copied into an immutable snapshot which is published once per batch 
+ * of messages, so threads that send messages never wait for the reader.
+ * Only the parts of the snapshot that changed are copied, and the 
+ * generation only changes when a route that was handed out may be wrong.
+ * 
+ * Gateways and lights are kept in the order they were last heard from, so
+ * finding the ones that are lost only looks at the oldest entries. The 
+ * lights are kept by the value of their device id, and their order is a 
+ * list through the entries.
  *
  * @author Richard
  */
 public class LFXRoutingTable {
-    private final Map<LFXSiteID, GatewayEntry> gateways = new HashMap<>();
-    private final Map<LFXDeviceID, LightEntry> lights = new HashMap<>();
+    // ordered by when the gateway was last seen, oldest first
+    private final Map<LFXSiteID, GatewayEntry> gateways = new LinkedHashMap<>();
+    // keyed by the device id value
+    private final LFXLongMap<LightEntry> lights = new LFXLongMap<>();
+    // the lights ordered by when they were last seen
+    private LightEntry oldestLight = null;
+    private LightEntry newestLight = null;
+    // keyed by the site id value
+    private final LFXLongMap<SiteEntry> sites = new LFXLongMap<>();
+    private volatile Snapshot snapshot = new Snapshot();
+    // what has changed since the snapshot was published
+    private boolean gatewaysChanged = false;
+    private boolean lightsChanged = false;
+    private boolean tagsChanged = false;
+    // a light moved or was removed, not just added
+    private boolean lightRoutesChanged = false;
+    private final long gatewayTimeout = LFXConstants.getGatewayTimeout();
+    private final long lightTimeout = LFXConstants.getLightTimeout();
 
     public LFXRoutingTable() {
     }
     
     // 
-    // Information needed handle message
+    // Information needed handle message, only used by the reader thread
     //
         
     /**
      * Returns all lights at the given site.
      */
     public synchronized Set<LFXDeviceID> getLightsAtSite(LFXSiteID siteID) {
-        Set<LFXDeviceID> result = new HashSet<>();
-        for(LightEntry light: lights.values()) {
-            if(light.isSite(siteID)) {
-                result.add(light.getDevice());
-            }
-        }
-        return result;
+        SiteEntry site = sites.get(siteID.getValue());
+        return site != null ? site.getLights() : Collections.<LFXDeviceID>emptySet();
     }
 
     /**
-     * Return all lights at the site that has one or more of the given tags.
+     * Returns the light as the only target of a message, the same set every
+     * time, or null if the light is not known.
      */
-    public synchronized Set<LFXDeviceID> getLightsAtSiteWithTags(LFXSiteID siteID, Set<LFXTagID> groupTagField) {
-        Set<LFXDeviceID> result = new HashSet<>();
-        for(LightEntry light: lights.values()) {
-            if(light.isSite(siteID) && light.hasTags(groupTagField)) {
-                result.add(light.getDevice());
-            }
-        }
-        return result;
+    public synchronized Set<LFXDeviceID> getLightAsTarget(long deviceID) {
+        LightEntry light = lights.get(deviceID);
+        return light != null ? light.getTargets() : null;
+    }
+
+    /**
+     * Return all lights at the site that has one or more of the tags in the
+     * mask.
+     */
+    public synchronized Set<LFXDeviceID> getLightsAtSiteWithTags(LFXSiteID siteID, long tagMask) {
+        SiteEntry site = sites.get(siteID.getValue());
+        return site != null 
+                ? site.getLightsWithTags(tagMask) 
+                : Collections.<LFXDeviceID>emptySet();
     }
     
     
     
     
     // 
-    // Information needed to create the binary path, before sending
+    // Information needed to create the binary path, before sending. These
+    // read the last published snapshot and never block.
     // 
     
     /**
      * Returns all sites we know of.
      */
-    public synchronized Set<LFXSiteID> getAllSites() {
-        return new HashSet<>(gateways.keySet());
+    public Set<LFXSiteID> getAllSites() {
+        return snapshot.gateways.keySet();
     }
 
     /**
      * Returns the light's site id.
      */
-    public synchronized LFXSiteID getLightsSiteID(LFXDeviceID deviceID) {
-        LightEntry entry = lights.get(deviceID);
-        if(entry != null) {
-            return entry.getSite();
-        }
-        return null;
+    public LFXSiteID getLightsSiteID(LFXDeviceID deviceID) {
+        return snapshot.lightSites.get(deviceID.getValue());
     }
 
     /**
      * Returns all sites that has a light with the given tag.
      */
-    public synchronized Set<LFXSiteID> getSiteIDsWhereLightHasTag(LFXTagID tag) {
-        Set<LFXSiteID> sites = new HashSet<>();
-        for(LightEntry entry: lights.values()) {
-            if(entry.hasTag(tag)) {
-                sites.add(entry.getSite());
-            }
-        }
-        return sites;
+    public Set<LFXSiteID> getSiteIDsWhereLightHasTag(LFXTagID tag) {
+        return snapshot.tagSites[tag.ordinal()];
     }
     
     
     
+    /**
+     * Returns a number that changes when a published snapshot changes a 
+     * route that was there before: a gateway, a light that moved or was 
+     * removed, or which sites have a tag. Whoever caches what the methods 
+     * above return knows when to ask again. Lights that are found don't 
+     * change it, so a target that could not be reached has to be asked 
+     * about again.
+     */
+    public int getGeneration() {
+        return snapshot.generation;
+    }
+    
     //
     // Information needed when sending a message
     //
-    
+
     /**
-     * Returns the addresses to all gateways we know of.
+     * Returns the address of the given site.
      */
-    public synchronized Collection<InetSocketAddress> getAllSiteAddresses() {
-        Set<InetSocketAddress> addresses = new HashSet<>();
-        for(GatewayEntry gw: gateways.values()) {
-            addresses.add(gw.getAddress());
-        }            
-        return addresses;        
+    public InetSocketAddress getAddressForSiteID(LFXSiteID siteID) {
+        Gateway gateway = snapshot.gateways.get(siteID);        
+        return gateway != null ? gateway.address : null;
     }
     
     /**
-     * Returns the address of the given site.
+     * Returns the channel that reaches the given site.
      */
-    public synchronized InetSocketAddress getAddressForSiteID(LFXSiteID siteID) {
-        GatewayEntry entry = gateways.get(siteID);        
-        return entry != null ? entry.getAddress() : null;
-    } 
+    public LFXInterfaceChannel getChannelForSiteID(LFXSiteID siteID) {
+        Gateway gateway = snapshot.gateways.get(siteID);        
+        return gateway != null ? gateway.channel : null;
+    }
     
     
     //
     //
     //
     
-    public synchronized boolean isLightStillAlive(LFXDeviceID deviceID) {
-        return lights.containsKey(deviceID);
+    public boolean isLightStillAlive(LFXDeviceID deviceID) {
+        return snapshot.lightSites.containsKey(deviceID.getValue());
     }
 
     
@@ -162,9 +201,10 @@ public class LFXRoutingTable {
      * This is its distinct from updateTable() because the caller wants to know
      * if a new gateway was found so that it can ask it for new lights.
      * 
+     * @param channel the channel that reaches the gateway
      * @return the site id if a new gateway was found
      */
-    public synchronized LFXSiteID updateTableWithPAN(LFXMessage message) {
+    public synchronized LFXSiteID updateTableWithPAN(LFXMessage message, LFXInterfaceChannel channel) {
         LFXSiteID newGatewayDiscovered = null;
         LFXBinaryPath path = message.getPath();
         
@@ -172,9 +212,9 @@ public class LFXRoutingTable {
             LxProtocolDevice.StatePanGateway statePanGatewayPayload = (LxProtocolDevice.StatePanGateway) message.getPayload();
 
             InetAddress host = message.getSourceNetworkHost();
-            int port = (int) statePanGatewayPayload.getPort().getValue();
+            int port = (int) statePanGatewayPayload.getPortValue();
             LFXSiteID site = path.getSiteID();
-            LxProtocolDevice.Service service = LxProtocolDevice.serviceMap.get(statePanGatewayPayload.getService().getValue());
+            LxProtocolDevice.Service service = LxProtocolDevice.serviceMap.get(statePanGatewayPayload.getServiceValue());
 
             if (service == LxProtocolDevice.Service.LX_PROTOCOL_DEVICE_SERVICE_TCP) {
                 // TODO: can this happen?
@@ -184,15 +224,19 @@ public class LFXRoutingTable {
             GatewayEntry gateway = gateways.get(site);
             if(gateway == null) {   
                 Logger.getLogger(LFXRoutingTable.class.getName()).log(Level.FINE, "Found new gateway: {0}", site);
-                gateway = new GatewayEntry(new InetSocketAddress(host, port), site);
+                gateway = new GatewayEntry(new InetSocketAddress(host, port), channel, site);
                 gateways.put(site, gateway);
                 newGatewayDiscovered = site;
+                gatewaysChanged = true;
             } else {
-                gateway.refresh(new InetSocketAddress(host, port));
+                if(gateway.refresh(new InetSocketAddress(host, port), channel)) {
+                    gatewaysChanged = true;
+                }
+                // move it last
+                gateways.remove(site);
+                gateways.put(site, gateway);
             }        
         }
-
-        removeStaleGateways();
      
         return newGatewayDiscovered;
     }
@@ -202,166 +246,590 @@ public class LFXRoutingTable {
      */
     public synchronized LFXDeviceID updateTableWithLight(LFXMessage message) {
         LFXDeviceID newLightDiscovered = null;
-        LFXBinaryPath path = message.getPath();
         
-        if(path.getBinaryTargetID().getTargetType() == LFXBinaryTargetType.DEVICE) {
-            LFXSiteID site = path.getSiteID();
-            LFXDeviceID device = path.getBinaryTargetID().getDeviceID();
+        // the ids are only created for lights that are new or have moved
+        if(message.getTargetType() == LFXBinaryTargetType.DEVICE) {
+            long site = message.getSiteIDValue();
+            long device = message.getDeviceIDValue();
             
             LightEntry entry = lights.get(device);
             if(entry == null) {
-                Logger.getLogger(LFXRoutingTable.class.getName()).log(Level.FINE, "Found new light: {0}", device);
-                entry = new LightEntry(device);
+                entry = new LightEntry(new LFXDeviceID(device), new LFXSiteID(site));
+                Logger.getLogger(LFXRoutingTable.class.getName()).log(Level.FINE, "Found new light: {0}", entry.getDevice());
                 lights.put(device, entry);
-                newLightDiscovered = device;
-            }            
-            entry.refresh(site);
+                addToSite(entry);
+                newLightDiscovered = entry.getDevice();
+                lightsChanged = true;
+            } else {
+                if(!entry.isSite(site)) {
+                    removeFromSite(entry);
+                    entry.refresh(new LFXSiteID(site));
+                    addToSite(entry);
+                    lightsChanged = true;
+                    lightRoutesChanged = true;
+                } else {
+                    entry.refresh(entry.getSite());
+                }
+            }
+            moveLast(entry);
         }
         
         if(message.getType() == LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_TAGS) {
             LxProtocolDevice.StateTags payload = message.getPayload();            
-            LFXDeviceID device = path.getBinaryTargetID().getDeviceID();
-            Set<LFXTagID> tags = LFXTagID.unpack(payload.getTags());
+            long device = message.getDeviceIDValue();
+            long tags = payload.getTagsValue();
                         
             LightEntry entry = lights.get(device);
             if(entry != null) {
-                entry.setTags(tags);
+                SiteEntry siteEntry = sites.get(entry.getSite().getValue());
+                long union = siteEntry.getTagUnion();
+                siteEntry.setTags(entry, tags);
+                tagsChanged |= siteEntry.getTagUnion() != union;
             } else {
                 // If we get tags information before we have discovered the 
                 // light we ignore it... right?                
             }
         }
         
-        removeStaleGateways();
-        removeStaleLights();      
-        
         return newLightDiscovered;
     }
     
     /**
-     * Removed gateways that we haven't seen for a while.
+     * Adds a gateway from the topology cache. It gets the full timeout from
+     * now to answer and is then removed like any other gateway. Until it 
+     * answers it is not saved to the cache, so that the cache keeps when 
+     * it was really last seen.
      */
-    private void removeStaleGateways() {
-        Iterator<LFXSiteID> it = gateways.keySet().iterator();
-        while(it.hasNext()) {
-            LFXSiteID site = it.next();
-            GatewayEntry gateway = gateways.get(site);
-            if(gateway.isLost()) {
-                it.remove();
+    public synchronized void addCachedGateway(LFXSiteID site, InetSocketAddress address, LFXInterfaceChannel channel) {
+        if(!gateways.containsKey(site)) {
+            GatewayEntry entry = new GatewayEntry(address, channel, site);
+            entry.setCached(true);
+            gateways.put(site, entry);
+            gatewaysChanged = true;
+        }
+    }
+    
+    /**
+     * Adds a light from the topology cache. It gets the full timeout from
+     * now to answer and is then removed like any other light. Until it 
+     * answers it is not saved to the cache, so that the cache keeps when 
+     * it was really last seen.
+     */
+    public synchronized void addCachedLight(LFXDeviceID device, LFXSiteID site, long tags) {
+        if(!lights.containsKey(device.getValue())) {
+            LightEntry entry = new LightEntry(device, site);
+            entry.setCached(true);
+            lights.put(device.getValue(), entry);
+            moveLast(entry);
+            entry.setTags(tags);
+            addToSite(entry);
+            lightsChanged = true;
+        }
+    }
+    
+    /**
+     * Stores the gateways and where the lights are in the cache.
+     */
+    public synchronized void saveTo(LFXTopologyCache cache) {
+        for(GatewayEntry gw: gateways.values()) {
+            if(!gw.isCached()) {
+                cache.putGateway(gw.getSiteID(), gw.getAddress(), gw.getLastSeen());
             }
         }
+        for(LightEntry light: lights.values()) {
+            if(!light.isCached()) {
+                cache.putLightRoute(light.getDevice(), light.getSite(), light.getTags(), light.getLastSeen());
+            }
+        }
+    }
+    
+    /**
+     * Removes gateways and lights we haven't heard from in a while. This is
+     * called once for every batch of messages from the network.
+     * 
+     * @param lostLights the lights that are removed are added to this
+     */
+    public synchronized void removeStaleEntries(List<LFXDeviceID> lostLights) {
+        long now = System.currentTimeMillis();
+        removeStaleGateways(now);
+        removeStaleLights(now, lostLights);
+    }
+    
+    /**
+     * Makes the changes since the last call visible to the send path. This 
+     * is called once for every batch of messages from the network, the 
+     * parts of the snapshot that have not changed are reused.
+     */
+    public synchronized void publish() {
+        if(!gatewaysChanged && !lightsChanged && !tagsChanged) {
+            return;
+        }
+        
+        Snapshot previous = snapshot;
+        Map<LFXSiteID, Gateway> gatewayCopy = previous.gateways;
+        if(gatewaysChanged) {
+            gatewayCopy = new HashMap<>();
+            for(GatewayEntry gw: gateways.values()) {
+                gatewayCopy.put(gw.getSiteID(), new Gateway(gw.getAddress(), gw.getChannel()));
+            }
+            gatewayCopy = Collections.unmodifiableMap(gatewayCopy);
+        }
+        LFXLongMap<LFXSiteID> lightSites = previous.lightSites;
+        if(lightsChanged) {
+            lightSites = new LFXLongMap<>(lights.size());
+            for(LightEntry light: lights.values()) {
+                lightSites.put(light.getDevice().getValue(), light.getSite());
+            }
+        }
+        Set<LFXSiteID>[] tagSites = previous.tagSites;
+        if(tagsChanged) {
+            tagSites = createTagSites();
+        }
+        
+        boolean routesChanged = gatewaysChanged || tagsChanged || lightRoutesChanged;
+        snapshot = new Snapshot(routesChanged ? previous.generation + 1 : previous.generation, 
+                gatewayCopy, lightSites, tagSites);
+        
+        gatewaysChanged = false;
+        lightsChanged = false;
+        tagsChanged = false;
+        lightRoutesChanged = false;
+    }
+    
+    /**
+     * Returns the sites that have a light with each tag, indexed by the bit
+     * of the tag.
+     */
+    private Set<LFXSiteID>[] createTagSites() {
+        Set<LFXSiteID>[] tagSites = Snapshot.noTagSites();
+        for(SiteEntry site: sites.values()) {
+            long union = site.getTagUnion();
+            while(union != 0) {
+                int bit = Long.numberOfTrailingZeros(union);
+                if(tagSites[bit].isEmpty()) {
+                    tagSites[bit] = new HashSet<>();
+                }
+                tagSites[bit].add(site.getSiteID());
+                union &= union - 1;
+            }
+        }
+        for(int bit = 0; bit < tagSites.length; bit++) {
+            if(!tagSites[bit].isEmpty()) {
+                tagSites[bit] = Collections.unmodifiableSet(tagSites[bit]);
+            }
+        }
+        return tagSites;
     }
     
     /**
-     * Removes lights we haven't heard from in a while. Returns the lost lights.
+     * Removed gateways that we haven't seen for a while. The oldest come 
+     * first so we can stop at the first one that is still alive.
      */
-    private void removeStaleLights() {
-        Iterator<LFXDeviceID> it = lights.keySet().iterator();
+    private void removeStaleGateways(long now) {
+        Iterator<GatewayEntry> it = gateways.values().iterator();
         while(it.hasNext()) {
-            LFXDeviceID id = it.next();
-            LightEntry entry = lights.get(id);
-            if(entry.isLost()) {
-                it.remove();
+            GatewayEntry gateway = it.next();
+            if(!gateway.isLost(now, gatewayTimeout)) {
+                break;
             }
+            it.remove();
+            gatewaysChanged = true;
+        }
+    }
+    
+    /**
+     * Removes lights we haven't heard from in a while. The oldest come 
+     * first so we can stop at the first one that is still alive.
+     */
+    private void removeStaleLights(long now, List<LFXDeviceID> lostLights) {
+        while(oldestLight != null && oldestLight.isLost(now, lightTimeout)) {
+            LightEntry entry = oldestLight;
+            unlink(entry);
+            lights.remove(entry.getDevice().getValue());
+            removeFromSite(entry);
+            lostLights.add(entry.getDevice());
+            lightsChanged = true;
+            lightRoutesChanged = true;
         }        
     }
+    
+    private void addToSite(LightEntry entry) {
+        SiteEntry site = getSiteEntry(entry.getSite());
+        long union = site.getTagUnion();
+        site.add(entry);
+        tagsChanged |= site.getTagUnion() != union;
+    }
+    
+    private void removeFromSite(LightEntry entry) {
+        SiteEntry site = sites.get(entry.getSite().getValue());
+        long union = site.getTagUnion();
+        site.remove(entry);
+        tagsChanged |= site.getTagUnion() != union;
+        if(site.isEmpty()) {
+            sites.remove(site.getSiteID().getValue());
+        }
+    }
+    
+    /**
+     * Moves the light last in the last seen order, or adds it there.
+     */
+    private void moveLast(LightEntry entry) {
+        if(entry == newestLight) {
+            return;
+        }
+        unlink(entry);
+        entry.previous = newestLight;
+        if(newestLight != null) {
+            newestLight.next = entry;
+        } else {
+            oldestLight = entry;
+        }
+        newestLight = entry;
+    }
+    
+    private void unlink(LightEntry entry) {
+        if(entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else if(entry == oldestLight) {
+            oldestLight = entry.next;
+        }
+        if(entry.next != null) {
+            entry.next.previous = entry.previous;
+        } else if(entry == newestLight) {
+            newestLight = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private SiteEntry getSiteEntry(LFXSiteID siteID) {
+        SiteEntry site = sites.get(siteID.getValue());
+        if(site == null) {
+            site = new SiteEntry(siteID);
+            sites.put(siteID.getValue(), site);
+        }
+        return site;
+    }
+
+    /**
+     * The lights at a site and the lights with each tag. The sets that are 
+     * handed out are kept until the lights they hold change, so a change of
+     * one tag doesn't throw away what is known about the others.
+     */
+    private static class SiteEntry {
+        private final LFXSiteID siteID;
+        // keyed by the device id value
+        private final LFXLongMap<LightEntry> lights = new LFXLongMap<>();
+        
+        // the lights with each tag, indexed by the bit of the tag
+        private final Set<LFXDeviceID>[] tagLights = newSetArray();
+        private long tagUnion = 0;
+        
+        private Set<LFXDeviceID> lightsSnapshot = null;
+        private final Set<LFXDeviceID>[] tagSnapshots = newSetArray();
+        // masks with more than one tag, dropped when one of the tags change
+        private final Map<Long, Set<LFXDeviceID>> maskSnapshots = new HashMap<>();
+
+        public SiteEntry(LFXSiteID siteID) {
+            this.siteID = siteID;
+        }
 
+        public LFXSiteID getSiteID() {
+            return siteID;
+        }
+        
+        public boolean isEmpty() {
+            return lights.isEmpty();
+        }
+        
+        public long getTagUnion() {
+            return tagUnion;
+        }
+        
+        public void add(LightEntry light) {
+            lights.put(light.getDevice().getValue(), light);
+            addTags(light.getDevice(), light.getTags());
+            lightsSnapshot = null;
+        }
+        
+        public void remove(LightEntry light) {
+            if(lights.remove(light.getDevice().getValue()) != null) {
+                removeTags(light.getDevice(), light.getTags());
+                lightsSnapshot = null;
+            }
+        }
+        
+        public void setTags(LightEntry light, long tags) {
+            long old = light.getTags();
+            if(old != tags) {
+                removeTags(light.getDevice(), old & ~tags);
+                addTags(light.getDevice(), tags & ~old);
+                light.setTags(tags);
+            }
+        }
+        
+        public Set<LFXDeviceID> getLights() {
+            if(lightsSnapshot == null) {
+                Set<LFXDeviceID> tmp = new HashSet<>();
+                for(LightEntry light: lights.values()) {
+                    tmp.add(light.getDevice());
+                }
+                lightsSnapshot = Collections.unmodifiableSet(tmp);
+            }
+            return lightsSnapshot;
+        }
+        
+        public Set<LFXDeviceID> getLightsWithTags(long mask) {
+            mask &= tagUnion;
+            if(mask == 0) {
+                return Collections.emptySet();
+            }
+            if((mask & (mask - 1)) == 0) {
+                return getLightsWithTag(Long.numberOfTrailingZeros(mask));
+            }
+            
+            Set<LFXDeviceID> result = maskSnapshots.get(mask);
+            if(result == null) {
+                Set<LFXDeviceID> tmp = new HashSet<>();
+                for(long bits = mask; bits != 0; bits &= bits - 1) {
+                    tmp.addAll(tagLights[Long.numberOfTrailingZeros(bits)]);
+                }
+                result = Collections.unmodifiableSet(tmp);
+                maskSnapshots.put(mask, result);
+            }
+            return result;
+        }
+        
+        private Set<LFXDeviceID> getLightsWithTag(int bit) {
+            Set<LFXDeviceID> result = tagSnapshots[bit];
+            if(result == null) {
+                result = Collections.unmodifiableSet(new HashSet<>(tagLights[bit]));
+                tagSnapshots[bit] = result;
+            }
+            return result;
+        }
+        
+        private void addTags(LFXDeviceID device, long tags) {
+            for(long bits = tags; bits != 0; bits &= bits - 1) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                if(tagLights[bit] == null) {
+                    tagLights[bit] = new HashSet<>();
+                }
+                tagLights[bit].add(device);
+                tagUnion |= 1L << bit;
+            }
+            tagsChanged(tags);
+        }
+        
+        private void removeTags(LFXDeviceID device, long tags) {
+            for(long bits = tags; bits != 0; bits &= bits - 1) {
+                int bit = Long.numberOfTrailingZeros(bits);
+                tagLights[bit].remove(device);
+                if(tagLights[bit].isEmpty()) {
+                    tagLights[bit] = null;
+                    tagUnion &= ~(1L << bit);
+                }
+            }
+            tagsChanged(tags);
+        }
+        
+        private void tagsChanged(long tags) {
+            if(tags == 0) {
+                return;
+            }
+            for(long bits = tags; bits != 0; bits &= bits - 1) {
+                tagSnapshots[Long.numberOfTrailingZeros(bits)] = null;
+            }
+            Iterator<Long> it = maskSnapshots.keySet().iterator();
+            while(it.hasNext()) {
+                if((it.next() & tags) != 0) {
+                    it.remove();
+                }
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private static Set<LFXDeviceID>[] newSetArray() {
+            return new Set[64];
+        }
+    }
     
     private static class LightEntry {
         private final LFXDeviceID device;
+        private final Set<LFXDeviceID> targets;
         private LFXSiteID site;
         private long lastSeen = System.currentTimeMillis();
-        private Set<LFXTagID> tags = new HashSet<>();
+        // loaded from the cache and not heard from yet
+        private boolean cached;
+        private long tags = 0;
+        // neighbours in the last seen order
+        private LightEntry previous;
+        private LightEntry next;
 
-        public LightEntry(LFXDeviceID device) {
+        public LightEntry(LFXDeviceID device, LFXSiteID site) {
             this.device = device;
-            this.site = new LFXSiteID();
+            this.targets = Collections.singleton(device);
+            this.site = site;
         }    
         
         public LFXDeviceID getDevice() {
             return device;
         }
         
-        public boolean isSite(LFXSiteID site) {
-            return this.site.equals(site);
+        public Set<LFXDeviceID> getTargets() {
+            return targets;
         }
         
+        public boolean isSite(long site) {
+            return this.site.getValue() == site;
+        }
         
         public void refresh(LFXSiteID site) {
             this.site = site;
             this.lastSeen = System.currentTimeMillis();
+            this.cached = false;
         }
         
-        public boolean isLost() {
-            // TODO: configure this
-            return (System.currentTimeMillis() - lastSeen) > 35 * 1000;
-        }        
+        public boolean isLost(long now, long timeout) {
+            return (now - lastSeen) > timeout;
+        }
+        
+        public long getLastSeen() {
+            return lastSeen;
+        }
 
-        private boolean hasTags(Set<LFXTagID> groupTagField) {
-            for(LFXTagID tag: groupTagField) {
-                if(tags.contains(tag)) {
-                    return true;
-                }
-            }
-            return false;
+        public boolean isCached() {
+            return cached;
+        }
+
+        public void setCached(boolean cached) {
+            this.cached = cached;
         }
 
         private LFXSiteID getSite() {
             return site;
         }
 
-        private boolean hasTag(LFXTagID tag) {
-            return tags.contains(tag);
-        }     
+        private long getTags() {
+            return tags;
+        }
 
-        private void setTags(Set<LFXTagID> tags) {
+        private void setTags(long tags) {
             this.tags = tags;
         }
 
         @Override
         public String toString() {
-            return "LightEntry{" + "device=" + device + ", site=" + site + ", lastSeen=" + lastSeen + ", tags=" + tags + '}';
+            return "LightEntry{" + "device=" + device + ", site=" + site + ", lastSeen=" + lastSeen + ", tags=" + Long.toHexString(tags) + '}';
+        }
+    }
+    
+    /**
+     * What the send path knows about the lights and gateways. Never changed
+     * once it has been published.
+     */
+    private static class Snapshot {
+        private final int generation;
+        private final Map<LFXSiteID, Gateway> gateways;
+        // keyed by the device id value, never changed after publishing
+        private final LFXLongMap<LFXSiteID> lightSites;
+        // the sites that have a light with a tag, indexed by the tag's bit
+        private final Set<LFXSiteID>[] tagSites;
+
+        public Snapshot() {
+            this(0, Collections.<LFXSiteID, Gateway>emptyMap(), 
+                    new LFXLongMap<LFXSiteID>(), 
+                    noTagSites());
         }
         
+        /**
+         * The maps must not be changed after this, they are shared with the
+         * snapshots that come after.
+         */
+        public Snapshot(int generation, Map<LFXSiteID, Gateway> gateways, LFXLongMap<LFXSiteID> lightSites, Set<LFXSiteID>[] tagSites) {
+            this.generation = generation;
+            this.gateways = gateways;
+            this.lightSites = lightSites;
+            this.tagSites = tagSites;
+        }
         
-    } 
+        @SuppressWarnings("unchecked")
+        private static Set<LFXSiteID>[] noTagSites() {
+            Set<LFXSiteID>[] tagSites = new Set[64];
+            Arrays.fill(tagSites, Collections.<LFXSiteID>emptySet());
+            return tagSites;
+        }
+    }
+    
+    private static class Gateway {
+        private final InetSocketAddress address;
+        private final LFXInterfaceChannel channel;
+
+        public Gateway(InetSocketAddress address, LFXInterfaceChannel channel) {
+            this.address = address;
+            this.channel = channel;
+        }
+    }
     
-    private static class GatewayEntry {        
+    private static class GatewayEntry {
         private final LFXSiteID site;
         
         private InetSocketAddress address;
+        private LFXInterfaceChannel channel;
         private long lastSeen = System.currentTimeMillis();
+        // loaded from the cache and not heard from yet
+        private boolean cached;
 
-        public GatewayEntry(InetSocketAddress address, LFXSiteID site) {
+        public GatewayEntry(InetSocketAddress address, LFXInterfaceChannel channel, LFXSiteID site) {
             this.address = address;
+            this.channel = channel;
             this.site = site;
         }
         
-        public void refresh(InetSocketAddress address) {
+        /**
+         * Returns true if the address or channel changed.
+         */
+        public boolean refresh(InetSocketAddress address, LFXInterfaceChannel channel) {
+            boolean changed = !address.equals(this.address) || channel != this.channel;
             this.address = address;
+            this.channel = channel;
             lastSeen = System.currentTimeMillis();
+            cached = false;
+            return changed;
         }
         
-        public boolean isLost() {
-            // TODO: configure this
-            return (System.currentTimeMillis() - lastSeen) > 20 * 1000;
+        public boolean isLost(long now, long timeout) {
+            return (now - lastSeen) > timeout;
+        }
+        
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        public boolean isCached() {
+            return cached;
+        }
+
+        public void setCached(boolean cached) {
+            this.cached = cached;
         }
 
         public InetSocketAddress getAddress() {
             return address;
         }
 
+        public LFXInterfaceChannel getChannel() {
+            return channel;
+        }
+
         public LFXSiteID getSiteID() {
             return site;
         }
 
         @Override
         public String toString() {
-            return "GatewayEntry{" + "site=" + site + ", address=" + address + ", lastSeen=" + lastSeen + '}';
+            return "GatewayEntry{" + "site=" + site + ", address=" + address + ", channel=" + channel + ", lastSeen=" + lastSeen + '}';
         }
-        
-        
-
     }
     
 }
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+/**
+ * Estimates the round trip time to a light from measured samples, the same
+ * way TCP does it (Jacobson/Karels). The retransmission timeout is the 
+ * smoothed round trip time plus four times its variation, so a light on a 
+ * steady network gets a timeout close to its round trip time and one on a 
+ * flaky network gets more slack.
+ * 
+ * Not thread safe.
+ */
+public class LFXRttEstimator {
+    private final long initialTimeout;
+    private final long minTimeout;
+    private final long maxTimeout;
+    
+    private boolean hasSample = false;
+    private double smoothedRtt;
+    private double rttVariation;
+
+    /**
+     * All times are in nanoseconds.
+     * 
+     * @param initialTimeout the timeout to use before there are any samples
+     * @param minTimeout the timeout is never shorter than this
+     * @param maxTimeout the timeout is never longer than this, not even 
+     *                   after backing off
+     */
+    public LFXRttEstimator(long initialTimeout, long minTimeout, long maxTimeout) {
+        this.initialTimeout = initialTimeout;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+    }
+    
+    /**
+     * Adds a measured round trip time. Only use times from messages that 
+     * were sent once, otherwise it is impossible to know which one the 
+     * response belongs to (Karn's algorithm).
+     */
+    public void addSample(long rtt) {
+        if(!hasSample) {
+            smoothedRtt = rtt;
+            rttVariation = rtt / 2.0;
+            hasSample = true;
+        } else {
+            rttVariation = 0.75 * rttVariation + 0.25 * Math.abs(smoothedRtt - rtt);
+            smoothedRtt = 0.875 * smoothedRtt + 0.125 * rtt;
+        }
+    }
+    
+    /**
+     * Returns how long to wait for a response.
+     * 
+     * @param attempt how many times the message has been sent, the timeout
+     *                is doubled for each resend
+     */
+    public long getTimeout(int attempt) {
+        long timeout = hasSample 
+                ? (long)(smoothedRtt + 4 * rttVariation) 
+                : initialTimeout;
+        timeout = Math.max(minTimeout, timeout);
+        for(int i = 1; i < attempt && timeout < maxTimeout; i++) {
+            timeout *= 2;
+        }
+        return Math.min(maxTimeout, timeout);
+    }
+    
+    public long getSmoothedRtt() {
+        return (long)smoothedRtt;
+    }
+
+    @Override
+    public String toString() {
+        return "LFXRttEstimator{" + "srtt=" + (long)smoothedRtt + ", rttvar=" + (long)rttVariation + ", rto=" + getTimeout(1) + '}';
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The outgoing message queue. Messages are kept in one priority queue per
+ * destination and each destination has its own token bucket, so a busy
+ * gateway does not hold back messages to the other gateways.
+ * 
+ * A message that sets the state of a light replaces an unsent message of the
+ * same type to the same target, in its place in the queue but with the
+ * deadline of the newer message. So dragging a color slider will not fill 
+ * the queue with colors the light will show long after the slider has 
+ * stopped, and the last color is not dropped with the first one's deadline.
+ *
+ * The router and the response tracker offer messages, the writer takes them
+ * when the destination is allowed to send.
+ */
+public class LFXSendScheduler {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<InetSocketAddress, Destination> destinations = new HashMap<>();
+    private final double tokensPerSecond;
+    private final double burst;
+    private final int maxSize;
+    private int size = 0;
+    private long coalesced = 0;
+    private long expired = 0;
+
+    /**
+     * @param tokensPerSecond how many messages per second each destination may receive
+     * @param burst how many messages a destination may receive back to back
+     * @param maxSize the max number of messages waiting to be sent
+     */
+    public LFXSendScheduler(double tokensPerSecond, double burst, int maxSize) {
+        if(tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("tokensPerSecond must be positive");
+        }
+        if(burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1");
+        }
+        this.tokensPerSecond = tokensPerSecond;
+        this.burst = burst;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds a message to the queue.
+     *
+     * @return false if the queue is full
+     */
+    public boolean offer(LFXSocketMessage message) {
+        lock.lock();
+        try {
+            Destination dest = destinations.get(message.getAddress());
+            Object key = message.getCoalescingKey();
+            if(dest != null && key != null) {
+                // replacing doesn't need room, so it works in a full queue
+                LFXSocketMessage waiting = dest.coalescable.get(key);
+                if(waiting != null) {
+                    replace(dest, waiting, message);
+                    return true;
+                }
+            }
+            if(size >= maxSize) {
+                return false;
+            }
+            if(dest == null) {
+                dest = new Destination(System.nanoTime());
+                destinations.put(message.getAddress(), dest);
+            }
+            if(key != null) {
+                dest.coalescable.put(key, message);
+            }
+            dest.queue.add(message);
+            message.setQueued(true);
+            size++;
+            changed.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Puts the newer message in the place of the waiting one. The queue is
+     * only reordered if the newer message has a higher priority.
+     */
+    private void replace(Destination dest, LFXSocketMessage waiting, LFXSocketMessage newer) {
+        if(newer.getPriority() < waiting.getPriority()) {
+            dest.queue.remove(waiting);
+            waiting.replaceWith(newer);
+            dest.queue.add(waiting);
+        } else {
+            waiting.replaceWith(newer);
+        }
+        coalesced++;
+    }
+
+    /**
+     * Returns the next message that is allowed to be sent, waiting if
+     * necessary until one is available. Messages whose deadline has passed
+     * are dropped on the way, they don't use up any tokens.
+     *
+     * @return the message or null if the time ran out
+     */
+    public LFXSocketMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while(true) {
+                long now = System.nanoTime();
+                long wait = remaining;
+
+                Destination best = null;
+                Iterator<Destination> it = destinations.values().iterator();
+                while(it.hasNext()) {
+                    Destination dest = it.next();
+                    dest.refill(now);
+                    while(!dest.queue.isEmpty() && dest.queue.peek().isExpired(now)) {
+                        dest.remove().markDropped();
+                        size--;
+                        expired++;
+                    }
+                    if(dest.queue.isEmpty()) {
+                        if(dest.isIdle()) {
+                            // a full bucket is the same as a new one
+                            it.remove();
+                        }
+                    } else if(dest.tokens >= 1) {
+                        // among those that may send, keep the priority order
+                        if(best == null || dest.queue.peek().compareTo(best.queue.peek()) < 0) {
+                            best = dest;
+                        }
+                    } else {
+                        wait = Math.min(wait, dest.nanosUntilToken());
+                    }
+                }
+
+                if(best != null) {
+                    best.tokens -= 1;
+                    size--;
+                    return best.remove();
+                }
+
+                if(remaining <= 0) {
+                    return null;
+                }
+
+                long waited = wait - changed.awaitNanos(wait);
+                remaining -= waited;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    /**
+     * Returns the number of messages that were dropped because their 
+     * deadline passed before they could be sent.
+     */
+    public long getExpiredCount() {
+        lock.lock();
+        try {
+            return expired;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of messages that have replaced an unsent message.
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A token bucket and the messages waiting for it.
+     */
+    private class Destination {
+        private final PriorityQueue<LFXSocketMessage> queue = new PriorityQueue<>();
+        private final Map<Object, LFXSocketMessage> coalescable = new HashMap<>();
+        private double tokens = burst;
+        private long lastRefill;
+
+        public Destination(long now) {
+            this.lastRefill = now;
+        }
+
+        public void refill(long now) {
+            tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerSecond / 1e9);
+            lastRefill = now;
+        }
+
+        public long nanosUntilToken() {
+            return Math.max(1, (long)Math.ceil((1 - tokens) * 1e9 / tokensPerSecond));
+        }
+
+        public LFXSocketMessage remove() {
+            LFXSocketMessage message = queue.poll();
+            message.setQueued(false);
+            if(message.getCoalescingKey() != null) {
+                coalescable.remove(message.getCoalescingKey());
+            }
+            return message;
+        }
+
+        public boolean isIdle() {
+            return tokens >= burst;
+        }
+    }
+}
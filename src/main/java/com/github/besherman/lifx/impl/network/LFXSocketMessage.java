@@ -23,13 +23,20 @@
  */
 package com.github.besherman.lifx.impl.network;
 
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.util.LFXObjectUtils;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
 import java.net.InetSocketAddress;
-import java.util.IdentityHashMap;
-import java.util.Map;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.nio.ByteBuffer;
 
 /**
- *
+ * A message waiting to be sent. The message is not encoded until the writer
+ * is about to send it, so a message that is replaced by a newer one while
+ * it is waiting costs nothing.
+ * 
+ * A message can have a deadline, if it has not been sent by then it is 
+ * dropped since the answer, or the change, doesn't matter any more.
  */
 public class LFXSocketMessage implements Comparable<LFXSocketMessage> {
     public static final int LOW_PRIORITY = 100;
@@ -37,24 +44,158 @@ public class LFXSocketMessage implements Comparable<LFXSocketMessage> {
     
     
     private final long timestamp;
-    private final int priority;
-    private final byte[] bytes;
+    // changed by the scheduler when a newer message replaces this one
+    private long deadline;
+    private long maxDelay;
+    private boolean hasDeadline;
+    private int priority;
+    private LFXMessage message;
     private final InetSocketAddress address;
+    private final LFXInterfaceChannel channel;
+    private final CoalescingKey coalescingKey;
+    private volatile boolean queued = false;
+    private volatile boolean dropped = false;
+    private volatile long sentTime = 0;
 
-    public LFXSocketMessage(byte[] bytes, InetSocketAddress address, int priority) {
-        this.bytes = bytes;
+    public LFXSocketMessage(LFXMessage message, InetSocketAddress address, LFXInterfaceChannel channel, int priority) {
+        this(message, address, channel, priority, 0);
+    }
+    
+    /**
+     * @param maxDelay how many nanoseconds the message may wait before it is 
+     *                 sent, 0 if it may wait forever
+     */
+    public LFXSocketMessage(LFXMessage message, InetSocketAddress address, LFXInterfaceChannel channel, int priority, long maxDelay) {
+        this(message, address, channel, priority, System.nanoTime(), maxDelay);
+    }
+    
+    private LFXSocketMessage(LFXMessage message, InetSocketAddress address, LFXInterfaceChannel channel, int priority, long timestamp, long maxDelay) {
+        this.message = message;
         this.address = address;
+        this.channel = channel;
         this.priority = priority;
-        this.timestamp = System.nanoTime();
+        this.timestamp = timestamp;
+        this.maxDelay = maxDelay;
+        this.hasDeadline = maxDelay > 0;
+        this.deadline = timestamp + maxDelay;
+        this.coalescingKey = isCoalescable(message.getType()) 
+                ? new CoalescingKey(message.getPath(), message.getType()) : null;
+    }
+    
+    /**
+     * Returns a new socket message with the same content. This is used for 
+     * resending, so the copy may wait as long as this one could, counted 
+     * from now.
+     */
+    public LFXSocketMessage copy() {
+        return new LFXSocketMessage(message, address, channel, priority, System.nanoTime(), maxDelay);
+    }
+    
+    /**
+     * Returns true if the message has a deadline and it has passed.
+     * 
+     * @param now the current System.nanoTime()
+     */
+    public boolean isExpired(long now) {
+        return hasDeadline && now - deadline > 0;
+    }
+    
+    /**
+     * Encodes the message into a buffer from the pool. The caller has to 
+     * give the buffer back to the pool.
+     * 
+     * @return the encoded message, ready to be sent
+     */
+    public ByteBuffer encode(LFXByteBufferPool pool) {
+        ByteBuffer buffer = pool.lease();
+        message.writeMessageDataRepresentation(buffer);
+        buffer.flip();
+        return buffer;
+    }
+    
+    public LFXMessage getMessage() {
+        return message;
+    }
+    
+    /**
+     * Replaces the message with the one in a newer socket message with the 
+     * same coalescing key. This keeps its place in the queue but takes the
+     * deadline of the newer one, so the newest state is not dropped when 
+     * the oldest has waited too long, and the higher of the priorities. 
+     * 
+     * Only called by the scheduler, which has to reorder the queue if the
+     * priority changes.
+     */
+    void replaceWith(LFXSocketMessage newer) {
+        this.message = newer.message;
+        this.maxDelay = newer.maxDelay;
+        this.hasDeadline = newer.hasDeadline;
+        this.deadline = newer.deadline;
+        this.priority = Math.min(priority, newer.priority);
+    }
+    
+    /**
+     * Returns the priority, lower values are sent first.
+     */
+    public int getPriority() {
+        return priority;
+    }
+    
+    /**
+     * Returns a key that is equal for all messages where a newer message 
+     * makes an older, unsent one pointless. Returns null if the message 
+     * should always be sent.
+     */
+    public Object getCoalescingKey() {
+        return coalescingKey;
+    }
+    
+    /**
+     * Returns true while the message is waiting in the outgoing queue.
+     */
+    public boolean isQueued() {
+        return queued;
+    }
+    
+    void setQueued(boolean queued) {
+        this.queued = queued;
     }
     
-    public byte[] getMessageData() {
-        return bytes;
+    /**
+     * Returns true if the message was dropped from the queue because its 
+     * deadline passed before it could be sent.
+     */
+    public boolean isDropped() {
+        return dropped;
+    }
+    
+    void markDropped() {
+        this.dropped = true;
+    }
+    
+    /**
+     * Returns the System.nanoTime() when the message was sent, or 0 if it 
+     * hasn't been sent.
+     */
+    public long getSentTime() {
+        return sentTime;
+    }
+    
+    void markSent() {
+        long now = System.nanoTime();
+        this.sentTime = now != 0 ? now : 1;
     }
     
     public InetSocketAddress getAddress() {
         return address;
     }
+    
+    /**
+     * Returns the channel that reaches the address.
+     */
+    public LFXInterfaceChannel getChannel() {
+        return channel;
+    }
 
     /**
      * Order by priority first then timestamp;
@@ -66,4 +207,51 @@ public class LFXSocketMessage implements Comparable<LFXSocketMessage> {
                 ? comparePrio
                 : Long.compare(this.timestamp, other.timestamp);
     }
+    
+    /**
+     * Only messages that set the complete state are coalesced, for those 
+     * only the last one matters. 
+     */
+    private static boolean isCoalescable(LxProtocol.Type type) {
+        switch(type) {
+            case LX_PROTOCOL_LIGHT_SET: 
+            case LX_PROTOCOL_LIGHT_SET_DIM_ABSOLUTE: 
+            case LX_PROTOCOL_LIGHT_SET_RGBW: 
+                return true;
+        }
+        return false;
+    }
+    
+    private static class CoalescingKey {
+        private final LFXBinaryPath path;
+        private final LxProtocol.Type type;
+
+        public CoalescingKey(LFXBinaryPath path, LxProtocol.Type type) {
+            this.path = path;
+            this.type = type;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 3;
+            hash = 53 * hash + LFXObjectUtils.hashCode(this.path);
+            hash = 53 * hash + LFXObjectUtils.hashCode(this.type);
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null) {
+                return false;
+            }
+            if (getClass() != obj.getClass()) {
+                return false;
+            }
+            final CoalescingKey other = (CoalescingKey) obj;
+            if (!LFXObjectUtils.equals(this.path, other.path)) {
+                return false;
+            }
+            return this.type == other.type;
+        }
+    }
 }
@@ -23,24 +23,33 @@
  */
 package com.github.besherman.lifx.impl.network;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Scheduler for tasks to be performed at a later time. 
+ * Scheduler for tasks to be performed at a later time. The tasks are run
+ * by a {@link LFXTimingWheel} that is shared with the rest of the 
+ * connection, closing the queue only cancels the tasks scheduled through it.
  */
 public class LFXTimerQueue {
-    private static final AtomicInteger instanceCounter = new AtomicInteger(0);
-    private final Timer timer = new Timer("LIFX Timer Queue " + instanceCounter.incrementAndGet(), false);
+    private final LFXTimingWheel wheel;
+    private final Set<Task> tasks = Collections.newSetFromMap(new ConcurrentHashMap<Task, Boolean>());
+    private volatile boolean closed = false;
     
-    public LFXTimerQueue() {        
-        
+    public LFXTimerQueue(LFXTimingWheel wheel) {        
+        this.wheel = wheel;
     }
     
+    /**
+     * Cancels all tasks. Tasks scheduled after this are ignored.
+     */
     public void close() {
-        timer.cancel();
+        closed = true;
+        for(Task task: tasks) {
+            task.cancel();
+        }
     }
 
     /**
@@ -52,8 +61,8 @@ public class LFXTimerQueue {
      * @return a unique key used to cancel the action
      */
     public Object doLater(Runnable runnable, long time, TimeUnit unit) {        
-        TimerTaskImpl task = new TimerTaskImpl(runnable);
-        timer.schedule(task, unit.toMillis(time));
+        Task task = new Task(runnable, 0);
+        task.schedule(unit.toNanos(time));
         return task;
     }
     
@@ -67,9 +76,9 @@ public class LFXTimerQueue {
      * @return a unique key used to cancel the action
      */
     public Object doRepeatedly(Runnable runnable, long duration, TimeUnit unit) {
-        long ms = unit.toMillis(duration);
-        TimerTaskImpl task = new TimerTaskImpl(runnable);
-        timer.scheduleAtFixedRate(task, ms, ms);
+        long period = unit.toNanos(duration);
+        Task task = new Task(runnable, period);
+        task.schedule(period);
         return task;
     }    
     
@@ -81,19 +90,57 @@ public class LFXTimerQueue {
         if(key == null) {
             throw new IllegalArgumentException("key can not be null");
         }
-        ((TimerTaskImpl)key).cancel();
+        ((Task)key).cancel();
     }
     
     
-    private static class TimerTaskImpl extends TimerTask {
+    private class Task implements Runnable {
         private final Runnable runnable;
+        private final long period;
+        private volatile LFXTimingWheel.Timeout timeout;
+        private volatile boolean cancelled = false;
+        private long nextRun;
 
-        public TimerTaskImpl(Runnable runnable) {
+        public Task(Runnable runnable, long period) {
             this.runnable = runnable;
+            this.period = period;
         }        
         
+        public void schedule(long delay) {
+            nextRun = System.nanoTime() + delay;
+            scheduleNextRun();
+        }
+        
+        private void scheduleNextRun() {
+            if(!closed && !cancelled) {
+                tasks.add(this);
+                long delay = Math.max(0, nextRun - System.nanoTime());
+                timeout = wheel.schedule(this, delay, TimeUnit.NANOSECONDS);
+            }
+        }
+        
+        public void cancel() {
+            cancelled = true;
+            tasks.remove(this);
+            LFXTimingWheel.Timeout t = timeout;
+            if(t != null) {
+                t.cancel();
+            }
+        }
+        
         @Override
         public void run() {
+            if(closed || cancelled) {
+                return;
+            }
+            if(period > 0) {
+                // at a fixed rate, so being late once doesn't push all 
+                // later runs
+                nextRun += period;
+                scheduleNextRun();
+            } else {
+                tasks.remove(this);
+            }
             runnable.run();
         }
     }
@@ -0,0 +1,318 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timing wheel. Scheduling and cancelling a task is O(1) no matter
+ * how many tasks are waiting, and all tasks are run by a single thread.
+ * 
+ * Time is divided into ticks and each tick has a bucket of the tasks that
+ * are due in it. The wheel only has so many buckets, so a task that is due 
+ * more than a turn of the wheel away waits in its bucket for a number of 
+ * rounds. The thread sleeps until the next bucket that has something in 
+ * it, so an idle wheel doesn't wake up at all.
+ * 
+ * Tasks are run on the wheel's thread and should be quick, a slow task 
+ * delays all others.
+ */
+public class LFXTimingWheel {
+    private static final Logger logger = Logger.getLogger(LFXTimingWheel.class.getName());
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Bucket[] buckets;
+    private final int mask;
+    private final long tickNanos;
+    private final long startTime;
+    
+    // the next tick to process
+    private long tick = 0;
+    
+    // the tick the thread will wake up after, if it is sleeping
+    private long wakeupTick = Long.MAX_VALUE;
+    private int pending = 0;
+    
+    private volatile boolean running = false;
+    private Thread thread;
+
+    /**
+     * @param tickDuration the resolution of the wheel
+     * @param unit the unit of tickDuration
+     * @param ticksPerWheel the number of buckets, rounded up to a power of two
+     */
+    public LFXTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        if(tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be positive");
+        }
+        if(ticksPerWheel < 1) {
+            throw new IllegalArgumentException("ticksPerWheel must be positive");
+        }
+        int size = Integer.highestOneBit(ticksPerWheel);
+        if(size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.buckets = new Bucket[size];
+        for(int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+        this.startTime = System.nanoTime();
+    }
+    
+    public void start() {
+        running = true;
+        thread = new Thread(worker, "LIFX Timing Wheel");
+        thread.start();
+    }
+    
+    /**
+     * Stops the thread. Tasks that have not been run yet never will be.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        
+        if(thread != null) {
+            try {
+                thread.join();
+            } catch(InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /**
+     * Runs the task once after the delay.
+     * 
+     * @return the handle used to cancel the task
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+        lock.lock();
+        try {
+            if(pending == 0) {
+                // the thread has been sleeping, skip the ticks that passed
+                tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos);
+            }
+            
+            long ticks = Math.max(tick, (timeout.deadline - startTime) / tickNanos);
+            timeout.remainingRounds = (ticks - tick) / buckets.length;
+            buckets[(int)(ticks & mask)].add(timeout);
+            pending++;
+            
+            if(ticks < wakeupTick) {
+                changed.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return timeout;
+    }
+    
+    /**
+     * Returns the number of tasks waiting to be run.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the first tick, from the current one, whose bucket has 
+     * something in it, or -1 if all are empty.
+     */
+    private long getNextBusyTick() {
+        for(int i = 0; i < buckets.length; i++) {
+            if(!buckets[(int)((tick + i) & mask)].isEmpty()) {
+                return tick + i;
+            }
+        }
+        return -1;
+    }
+    
+    private final Runnable worker = new Runnable() {
+        @Override
+        public void run() {
+            List<Timeout> expired = new ArrayList<>();
+            lock.lock();
+            try {
+                while(running) {
+                    long now = System.nanoTime();
+                    long tickEnd = startTime + (tick + 1) * tickNanos;
+                    if(now - tickEnd < 0) {
+                        long next = getNextBusyTick();
+                        try {
+                            if(next < 0) {
+                                wakeupTick = Long.MAX_VALUE;
+                                changed.await();
+                            } else {
+                                wakeupTick = next;
+                                changed.awaitNanos(startTime + (next + 1) * tickNanos - now);
+                            }
+                        } catch(InterruptedException ex) {
+                            running = false;
+                        }
+                        wakeupTick = Long.MAX_VALUE;
+                        continue;
+                    }
+                    
+                    buckets[(int)(tick & mask)].expire(expired);
+                    pending -= expired.size();
+                    tick++;
+                    
+                    if(!expired.isEmpty()) {
+                        lock.unlock();
+                        try {
+                            for(Timeout timeout: expired) {
+                                try {
+                                    timeout.task.run();
+                                } catch(Exception ex) {
+                                    logger.log(Level.SEVERE, "Timer task failed", ex);
+                                }
+                            }
+                        } finally {
+                            lock.lock();
+                        }
+                        expired.clear();
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    };
+    
+    /**
+     * A scheduled task.
+     */
+    public final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+        
+        /**
+         * Cancels the task.
+         * 
+         * @return false if the task has already been run or cancelled
+         */
+        public boolean cancel() {
+            lock.lock();
+            try {
+                if(bucket == null) {
+                    return false;
+                }
+                bucket.remove(this);
+                pending--;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    /**
+     * A doubly linked list of timeouts, so a timeout can be removed without
+     * searching for it.
+     */
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+        
+        public boolean isEmpty() {
+            return head == null;
+        }
+        
+        public void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if(tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+        
+        public void remove(Timeout timeout) {
+            if(timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if(timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+        
+        /**
+         * Moves the timeouts that are due to the list, the rest wait 
+         * another round.
+         */
+        public void expire(List<Timeout> expired) {
+            Timeout timeout = head;
+            while(timeout != null) {
+                Timeout next = timeout.next;
+                if(timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    expired.add(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+}
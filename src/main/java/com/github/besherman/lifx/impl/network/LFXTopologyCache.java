@@ -0,0 +1,428 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.LFXHSBKColor;
+import com.github.besherman.lifx.LFXInterfaceFirmware;
+import com.github.besherman.lifx.LFXVersion;
+import com.github.besherman.lifx.impl.entities.internal.LFXByteUtils;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.LFXTagID;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * What we knew about the gateways and lights the last time the client was 
+ * closed. With this the client can use the lights right away when it is 
+ * opened instead of waiting for them to be discovered and asking each of 
+ * them about its label, firmware and so on.
+ * 
+ * Entries that have not been seen for longer than the max age are ignored
+ * and are dropped the next time the cache is saved. The entries that are 
+ * used are only a guess, lights that don't answer are removed by the 
+ * routing table and the light collection just as if they were discovered.
+ * 
+ * The cache is stored as a properties file, with keys like 
+ * light.&lt;id&gt;.label.
+ */
+public class LFXTopologyCache {
+    private static final Logger logger = Logger.getLogger(LFXTopologyCache.class.getName());
+    
+    private static final String GATEWAY = "gateway.";
+    private static final String LIGHT = "light.";
+    private static final String TAG = "tag.";
+    
+    private final File file;
+    private final long maxAge;
+    private final Properties props = new Properties();
+
+    /**
+     * @param file the file the cache is stored in
+     * @param maxAge how many milliseconds an entry is used after it was 
+     *               last seen
+     */
+    public LFXTopologyCache(File file, long maxAge) {
+        if(file == null) {
+            throw new IllegalArgumentException("file can not be null");
+        }
+        this.file = file;
+        this.maxAge = maxAge;
+    }
+
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     * Reads the cache from the file. A missing or broken file gives an 
+     * empty cache.
+     */
+    public synchronized void load() {
+        props.clear();
+        if(!file.isFile()) {
+            return;
+        }
+        
+        try {
+            InputStream in = new BufferedInputStream(new FileInputStream(file));
+            try {
+                props.load(in);
+            } finally {
+                in.close();
+            }
+        } catch(IOException | IllegalArgumentException ex) {
+            logger.log(Level.SEVERE, "Failed to load topology cache from " + file, ex);
+            props.clear();
+        }
+    }
+    
+    /**
+     * Writes the cache to the file, without the entries that are too old.
+     * The file is written next to the old one and then moved in place, so
+     * a crash while writing doesn't leave a broken cache behind.
+     */
+    public synchronized void save() {
+        removeOldEntries(System.currentTimeMillis());
+        
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp));
+            try {
+                props.store(out, "LIFX topology cache");
+            } finally {
+                out.close();
+            }
+            if(!tmp.renameTo(file)) {
+                // renameTo does not replace existing files on all platforms
+                if(!file.delete() || !tmp.renameTo(file)) {
+                    throw new IOException("failed to rename " + tmp + " to " + file);
+                }
+            }
+        } catch(IOException ex) {
+            logger.log(Level.SEVERE, "Failed to save topology cache to " + file, ex);
+        }
+    }
+    
+    
+    //
+    // Gateways
+    //
+    
+    /**
+     * Returns the gateways that have been seen within the max age.
+     */
+    public synchronized Map<LFXSiteID, InetSocketAddress> getGateways() {
+        Map<LFXSiteID, InetSocketAddress> result = new HashMap<>();
+        long now = System.currentTimeMillis();
+        for(String id: getIDs(GATEWAY)) {
+            if(!isFresh(GATEWAY + id, now)) {
+                continue;
+            }
+            try {
+                InetAddress host = InetAddress.getByName(props.getProperty(GATEWAY + id + ".host"));
+                int port = Integer.parseInt(props.getProperty(GATEWAY + id + ".port"));
+                result.put(new LFXSiteID(id), new InetSocketAddress(host, port));
+            } catch(IOException | RuntimeException ex) {
+                logger.log(Level.FINE, "Ignoring broken cache entry for gateway " + id, ex);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Returns when the gateway was last seen, in milliseconds since the epoch.
+     */
+    public synchronized long getGatewayLastSeen(LFXSiteID site) {
+        return getLastSeen(GATEWAY + site.getStringValue());
+    }
+    
+    public synchronized void putGateway(LFXSiteID site, InetSocketAddress address, long lastSeen) {
+        String key = GATEWAY + site.getStringValue();
+        props.setProperty(key + ".host", address.getAddress().getHostAddress());
+        props.setProperty(key + ".port", Integer.toString(address.getPort()));
+        props.setProperty(key + ".seen", Long.toString(lastSeen));
+    }
+    
+    
+    //
+    // Lights
+    //
+    
+    /**
+     * Returns the lights that have been seen within the max age.
+     */
+    public synchronized Set<LFXDeviceID> getLights() {
+        Set<LFXDeviceID> result = new HashSet<>();
+        long now = System.currentTimeMillis();
+        for(String id: getIDs(LIGHT)) {
+            if(isFresh(LIGHT + id, now) && props.getProperty(LIGHT + id + ".site") != null) {
+                try {
+                    result.add(new LFXDeviceID(LFXByteUtils.hexStringToByteArray(id)));
+                } catch(IllegalArgumentException ex) {
+                    logger.log(Level.FINE, "Ignoring broken cache entry for light " + id, ex);
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Stores where the light is and what tags it has, this is what the 
+     * routing table needs to send messages to it.
+     */
+    public synchronized void putLightRoute(LFXDeviceID device, LFXSiteID site, long tags, long lastSeen) {
+        String key = LIGHT + device.getStringRepresentation();
+        props.setProperty(key + ".site", site.getStringValue());
+        props.setProperty(key + ".tags", Long.toHexString(tags));
+        props.setProperty(key + ".seen", Long.toString(lastSeen));
+    }
+    
+    /**
+     * Returns when the light was last seen, in milliseconds since the epoch.
+     */
+    public synchronized long getLightLastSeen(LFXDeviceID device) {
+        return getLastSeen(LIGHT + device.getStringRepresentation());
+    }
+    
+    public synchronized LFXSiteID getLightSite(LFXDeviceID device) {
+        String value = getLightProperty(device, "site");
+        return value != null ? new LFXSiteID(value) : null;
+    }
+    
+    public synchronized long getLightTags(LFXDeviceID device) {
+        String value = getLightProperty(device, "tags");
+        try {
+            return value != null ? new BigInteger(value, 16).longValue() : 0;
+        } catch(NumberFormatException ex) {
+            return 0;
+        }
+    }
+    
+    public synchronized String getLightLabel(LFXDeviceID device) {
+        return getLightProperty(device, "label");
+    }
+    
+    public synchronized void putLightLabel(LFXDeviceID device, String label) {
+        putLightProperty(device, "label", label);
+    }
+    
+    public synchronized boolean getLightPower(LFXDeviceID device) {
+        return Boolean.parseBoolean(getLightProperty(device, "power"));
+    }
+    
+    public synchronized void putLightPower(LFXDeviceID device, boolean power) {
+        putLightProperty(device, "power", Boolean.toString(power));
+    }
+    
+    public synchronized LFXHSBKColor getLightColor(LFXDeviceID device) {
+        String value = getLightProperty(device, "color");
+        if(value == null) {
+            return null;
+        }
+        try {
+            String[] parts = value.split(",");
+            return new LFXHSBKColor(Float.parseFloat(parts[0]), Float.parseFloat(parts[1]), 
+                    Float.parseFloat(parts[2]), Integer.parseInt(parts[3]));
+        } catch(RuntimeException ex) {
+            return null;
+        }
+    }
+    
+    public synchronized void putLightColor(LFXDeviceID device, LFXHSBKColor color) {
+        putLightProperty(device, "color", color == null ? null : 
+                color.getHue() + "," + color.getSaturation() + "," + color.getBrightness() + "," + color.getKelvin());
+    }
+    
+    public synchronized LFXInterfaceFirmware getLightFirmware(LFXDeviceID device, String name) {
+        String value = getLightProperty(device, name);
+        if(value == null) {
+            return null;
+        }
+        try {
+            String[] parts = value.split(",");
+            return new LFXInterfaceFirmware(new Date(Long.parseLong(parts[0])), new BigInteger(parts[1]), 
+                    Integer.parseInt(parts[2]), Integer.parseInt(parts[3]));
+        } catch(RuntimeException ex) {
+            return null;
+        }
+    }
+    
+    /**
+     * @param name wifiFirmware or meshFirmware
+     */
+    public synchronized void putLightFirmware(LFXDeviceID device, String name, LFXInterfaceFirmware firmware) {
+        putLightProperty(device, name, firmware == null ? null : 
+                firmware.getBuild().getTime() + "," + firmware.getInstall() + "," 
+                + firmware.getMajorVersion() + "," + firmware.getMinorVersion());
+    }
+    
+    public synchronized List<LFXVersion> getLightVersions(LFXDeviceID device) {
+        List<LFXVersion> result = new ArrayList<>();
+        String value = getLightProperty(device, "versions");
+        if(value != null && !value.isEmpty()) {
+            try {
+                for(String version: value.split(";")) {
+                    String[] parts = version.split(",");
+                    result.add(new LFXVersion(Long.parseLong(parts[0]), Long.parseLong(parts[1]), Long.parseLong(parts[2])));
+                }
+            } catch(RuntimeException ex) {
+                result.clear();
+            }
+        }
+        return result;
+    }
+    
+    public synchronized void putLightVersions(LFXDeviceID device, Collection<LFXVersion> versions) {
+        StringBuilder builder = new StringBuilder();
+        for(LFXVersion version: versions) {
+            if(builder.length() > 0) {
+                builder.append(';');
+            }
+            builder.append(version.getProduct()).append(',')
+                    .append(version.getVendor()).append(',')
+                    .append(version.getVersion());
+        }
+        putLightProperty(device, "versions", builder.toString());
+    }
+    
+    public synchronized String getLightLocation(LFXDeviceID device) {
+        return getLightProperty(device, "location");
+    }
+    
+    public synchronized void putLightLocation(LFXDeviceID device, String location) {
+        putLightProperty(device, "location", location);
+    }
+    
+    /**
+     * Returns true if the cache has the details of the light, including its
+     * color and power, so that they don't have to be asked for.
+     */
+    public synchronized boolean hasLightDetails(LFXDeviceID device) {
+        return getLightProperty(device, "label") != null
+                && getLightProperty(device, "versions") != null
+                && getLightColor(device) != null
+                && getLightProperty(device, "power") != null;
+    }
+    
+    
+    //
+    // Tags
+    //
+    
+    /**
+     * Returns the label of the tag, or null if it is not known.
+     */
+    public synchronized String getTagLabel(LFXTagID tag) {
+        return props.getProperty(TAG + tag.ordinal() + ".label");
+    }
+    
+    public synchronized void putTagLabel(LFXTagID tag, String label) {
+        props.setProperty(TAG + tag.ordinal() + ".label", label);
+    }
+    
+    
+    //
+    //
+    //
+    
+    private String getLightProperty(LFXDeviceID device, String name) {
+        return props.getProperty(LIGHT + device.getStringRepresentation() + "." + name);
+    }
+    
+    private void putLightProperty(LFXDeviceID device, String name, String value) {
+        String key = LIGHT + device.getStringRepresentation() + "." + name;
+        if(value != null) {
+            props.setProperty(key, value);
+        } else {
+            props.remove(key);
+        }
+    }
+    
+    /**
+     * Returns the ids of all entries with the given prefix, for 
+     * light.&lt;id&gt;.seen that is the &lt;id&gt; part.
+     */
+    private Set<String> getIDs(String prefix) {
+        Set<String> result = new HashSet<>();
+        for(String key: props.stringPropertyNames()) {
+            if(key.startsWith(prefix) && key.endsWith(".seen")) {
+                result.add(key.substring(prefix.length(), key.length() - ".seen".length()));
+            }
+        }
+        return result;
+    }
+    
+    private long getLastSeen(String key) {
+        try {
+            return Long.parseLong(props.getProperty(key + ".seen"));
+        } catch(NumberFormatException ex) {
+            return 0;
+        }
+    }
+    
+    private boolean isFresh(String key, long now) {
+        return now - getLastSeen(key) <= maxAge;
+    }
+    
+    private void removeOldEntries(long now) {
+        Set<String> old = new HashSet<>();
+        for(String prefix: new String[] {GATEWAY, LIGHT}) {
+            for(String id: getIDs(prefix)) {
+                if(!isFresh(prefix + id, now)) {
+                    old.add(prefix + id + ".");
+                }
+            }
+        }
+        if(old.isEmpty()) {
+            return;
+        }
+        for(String key: props.stringPropertyNames()) {
+            int dot = key.indexOf('.', key.indexOf('.') + 1);
+            if(dot > 0 && old.contains(key.substring(0, dot + 1))) {
+                props.remove(key);
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.util;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A hash map with primitive long keys. The keys and values are kept in two
+ * arrays using open addressing with linear probing, so neither looking up
+ * nor adding a key allocates anything, unless the table has to grow. 
+ * 
+ * Null values are not allowed, a null slot is a free slot. Not thread safe.
+ */
+public class LFXLongMap<V> {
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size = 0;
+
+    public LFXLongMap() {
+        this(16);
+    }
+    
+    /**
+     * @param expectedSize how many entries the map should hold without 
+     *                     growing
+     */
+    public LFXLongMap(int expectedSize) {
+        int capacity = 4;
+        while(capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+    
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int i = indexFor(key);
+        while(values[i] != null) {
+            if(keys[i] == key) {
+                return (V)values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+    
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * Maps the key to the value.
+     * 
+     * @return the previous value, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if(value == null) {
+            throw new IllegalArgumentException("value can not be null");
+        }
+        
+        int i = indexFor(key);
+        while(values[i] != null) {
+            if(keys[i] == key) {
+                V old = (V)values[i];
+                values[i] = value;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        
+        // keep the table at most half full so the probe sequences are short
+        if(size * 2 > values.length) {
+            resize(values.length * 2);
+        }
+        return null;
+    }
+    
+    /**
+     * Removes the key.
+     * 
+     * @return the value, or null if the key was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int i = indexFor(key);
+        while(values[i] != null) {
+            if(keys[i] == key) {
+                V old = (V)values[i];
+                values[i] = null;
+                size--;
+                closeGap(i);
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+    
+    /**
+     * Returns a read only view of the values.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new ValueIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+    
+    /**
+     * Moves the entries after the free slot back, so that no entry is 
+     * separated from its home slot by a free slot. This way no tombstones
+     * are needed.
+     */
+    private void closeGap(int free) {
+        int i = (free + 1) & mask;
+        while(values[i] != null) {
+            int home = indexFor(keys[i]);
+            // the entry may move to the free slot unless its home slot is 
+            // cyclically between the free slot and where it is now
+            boolean stays = free <= i 
+                    ? (free < home && home <= i) 
+                    : (free < home || home <= i);
+            if(!stays) {
+                keys[free] = keys[i];
+                values[free] = values[i];
+                values[i] = null;
+                free = i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+    
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        for(int j = 0; j < oldValues.length; j++) {
+            if(oldValues[j] != null) {
+                int i = indexFor(oldKeys[j]);
+                while(values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+    
+    private int indexFor(long key) {
+        // spread the bits, ids often differ only in a few bytes
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int)(h ^ (h >>> 32)) & mask;
+    }
+    
+    private class ValueIterator implements Iterator<V> {
+        private int next = advance(0);
+        
+        private int advance(int i) {
+            while(i < values.length && values[i] == null) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if(next >= values.length) {
+                throw new NoSuchElementException();
+            }
+            V value = (V)values[next];
+            next = advance(next + 1);
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,357 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.entities.internal.structle;
+
+import com.github.besherman.lifx.build.StructleCodecGenerator;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.Bool8;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.Float32;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.Int16;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.LxProtocolTypeBase;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt16;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt32;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt64;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt8;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the generated codecs write the same bytes as the structle 
+ * classes and read back what they wrote.
+ */
+public class LxCodecTest {
+    private static final String LABEL = "Kitchen åäö";
+    private static final long TAGS = 0x8000000000000005L;
+    
+    // the nested classes of LxCodec that have a test below
+    private static final Class<?>[] TESTED = {
+        LxCodec.Hsbk.class,
+        LxCodec.DeviceStatePanGateway.class,
+        LxCodec.DeviceStateTime.class,
+        LxCodec.DeviceSetPower.class,
+        LxCodec.DeviceStatePower.class,
+        LxCodec.DeviceSetLabel.class,
+        LxCodec.DeviceStateLabel.class,
+        LxCodec.DeviceSetTags.class,
+        LxCodec.DeviceStateTags.class,
+        LxCodec.DeviceGetTagLabels.class,
+        LxCodec.DeviceSetTagLabels.class,
+        LxCodec.DeviceStateTagLabels.class,
+        LxCodec.DeviceStateVersion.class,
+        LxCodec.DeviceStateInfo.class,
+        LxCodec.LightSet.class,
+        LxCodec.LightSetWaveform.class,
+        LxCodec.LightSetDimAbsolute.class,
+        LxCodec.LightState.class
+    };
+    
+    @Test
+    public void testEveryCodecIsTested() throws Exception {
+        Set<Class<?>> tested = new HashSet<>(Arrays.asList(TESTED));
+        for(Class<?> codec: LxCodec.class.getDeclaredClasses()) {
+            assertTrue(codec.getSimpleName() + " has no round trip test", tested.contains(codec));
+            try {
+                LxProtocol.Type type = (LxProtocol.Type) codec.getField("TYPE").get(null);
+                assertEquals(codec.getSimpleName(), LxProtocol.getPayloadSize(type), codec.getField("SIZE").getInt(null));
+            } catch(NoSuchFieldException ex) {
+                // a struct, not a message
+            }
+        }
+    }
+    
+    @Test
+    public void testGeneratedCodecIsUpToDate() throws IOException {
+        File basedir = new File(System.getProperty("basedir", "."));
+        String expected = StructleCodecGenerator.generate(new File(basedir, "src/build/structle/lx-protocol.schema"));
+        String actual = read(StructleCodecGenerator.getGeneratedFile(new File(basedir, "src/main/java")));
+        assertEquals("LxCodec.java is not what the schema generates, run mvn -Pgenerate-structle process-test-classes",
+                expected.replace("\r\n", "\n"), actual.replace("\r\n", "\n"));
+    }
+    
+    @Test
+    public void testEveryPayloadEncodesLikeGetBytes() {
+        for(LxProtocol.Type type: LxProtocol.Type.values()) {
+            int size = LxProtocol.getPayloadSize(type);
+            byte[] data = new byte[36 + size];
+            for(int i = 0; i < size; i++) {
+                // printable so that the string fields survive a round trip
+                data[36 + i] = (byte) ('a' + i % 26);
+            }
+            LxProtocolTypeBase payload;
+            switch(type) {
+                // the byte constructors of these leave some fields empty
+                case LX_PROTOCOL_WAN_CONNECT_PLAIN:
+                    payload = new LxProtocolWan.ConnectPlain(null, "user", "pass");
+                    break;
+                case LX_PROTOCOL_WAN_SUB:
+                    payload = new LxProtocolWan.Sub(null, new byte[8], new byte[6], new Bool8(true));
+                    break;
+                case LX_PROTOCOL_WAN_STATE_SUB:
+                    payload = new LxProtocolWan.StateSub(null, new byte[8], new byte[6], new Bool8(true));
+                    break;
+                default:
+                    payload = LxProtocol.decodePayload(type, data, 36);
+            }
+            assertArrayEquals(type.toString(), payload.getBytes(), encodeTo(payload, size));
+        }
+    }
+    
+    @Test
+    public void testHsbk() {
+        ByteBuffer buf = allocate(LxCodec.Hsbk.SIZE);
+        LxCodec.Hsbk.encode(buf, 0xFFFF, 0x8001, 1, 9000);
+        byte[] data = checkEncoded(buf, hsbk(0xFFFF, 0x8001, 1, 9000));
+        
+        // the getters read from where the payload starts
+        byte[] message = new byte[3 + data.length];
+        System.arraycopy(data, 0, message, 3, data.length);
+        assertEquals(0xFFFF, LxCodec.Hsbk.getHue(message, 3));
+        assertEquals(0x8001, LxCodec.Hsbk.getSaturation(message, 3));
+        assertEquals(1, LxCodec.Hsbk.getBrightness(message, 3));
+        assertEquals(9000, LxCodec.Hsbk.getKelvin(message, 3));
+    }
+    
+    @Test
+    public void testDeviceStatePanGateway() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStatePanGateway.SIZE);
+        LxCodec.DeviceStatePanGateway.encode(buf, 1, 0xF0000001L);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StatePanGateway(null, new UInt8(1), new UInt32(0xF0000001L)));
+        assertEquals(1, LxCodec.DeviceStatePanGateway.getService(data, 0));
+        assertEquals(0xF0000001L, LxCodec.DeviceStatePanGateway.getPort(data, 0));
+    }
+    
+    @Test
+    public void testDeviceStateTime() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStateTime.SIZE);
+        LxCodec.DeviceStateTime.encode(buf, 1420070400000000000L);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StateTime(null, new UInt64(1420070400000000000L)));
+        assertEquals(1420070400000000000L, LxCodec.DeviceStateTime.getTime(data, 0));
+    }
+    
+    @Test
+    public void testDeviceSetPower() {
+        ByteBuffer buf = allocate(LxCodec.DeviceSetPower.SIZE);
+        LxCodec.DeviceSetPower.encode(buf, 0xFFFF);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.SetPower(new UInt16(0xFFFF)));
+        assertEquals(0xFFFF, LxCodec.DeviceSetPower.getLevel(data, 0));
+    }
+    
+    @Test
+    public void testDeviceStatePower() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStatePower.SIZE);
+        LxCodec.DeviceStatePower.encode(buf, 0xFFFF);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StatePower(new UInt16(0xFFFF)));
+        assertEquals(0xFFFF, LxCodec.DeviceStatePower.getLevel(data, 0));
+    }
+    
+    @Test
+    public void testDeviceSetLabel() {
+        ByteBuffer buf = allocate(LxCodec.DeviceSetLabel.SIZE);
+        LxCodec.DeviceSetLabel.encode(buf, LABEL);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.SetLabel(LABEL));
+        assertEquals(LABEL, LxCodec.DeviceSetLabel.getLabel(data, 0));
+    }
+    
+    @Test
+    public void testDeviceStateLabel() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStateLabel.SIZE);
+        LxCodec.DeviceStateLabel.encode(buf, LABEL);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StateLabel(null, LABEL));
+        assertEquals(LABEL, LxCodec.DeviceStateLabel.getLabel(data, 0));
+    }
+    
+    @Test
+    public void testDeviceSetTags() {
+        ByteBuffer buf = allocate(LxCodec.DeviceSetTags.SIZE);
+        LxCodec.DeviceSetTags.encode(buf, TAGS);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.SetTags(new UInt64(TAGS)));
+        assertEquals(TAGS, LxCodec.DeviceSetTags.getTags(data, 0));
+    }
+    
+    @Test
+    public void testDeviceStateTags() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStateTags.SIZE);
+        LxCodec.DeviceStateTags.encode(buf, TAGS);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StateTags(null, new UInt64(TAGS)));
+        assertEquals(TAGS, LxCodec.DeviceStateTags.getTags(data, 0));
+    }
+    
+    @Test
+    public void testDeviceGetTagLabels() {
+        ByteBuffer buf = allocate(LxCodec.DeviceGetTagLabels.SIZE);
+        LxCodec.DeviceGetTagLabels.encode(buf, TAGS);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.GetTagLabels(new UInt64(TAGS)));
+        assertEquals(TAGS, LxCodec.DeviceGetTagLabels.getTags(data, 0));
+    }
+    
+    @Test
+    public void testDeviceSetTagLabels() {
+        ByteBuffer buf = allocate(LxCodec.DeviceSetTagLabels.SIZE);
+        LxCodec.DeviceSetTagLabels.encode(buf, TAGS, LABEL);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.SetTagLabels(new UInt64(TAGS), LABEL));
+        assertEquals(TAGS, LxCodec.DeviceSetTagLabels.getTags(data, 0));
+        assertEquals(LABEL, LxCodec.DeviceSetTagLabels.getLabel(data, 0));
+    }
+    
+    @Test
+    public void testDeviceStateTagLabels() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStateTagLabels.SIZE);
+        LxCodec.DeviceStateTagLabels.encode(buf, TAGS, LABEL);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StateTagLabels(new UInt64(TAGS), LABEL));
+        assertEquals(TAGS, LxCodec.DeviceStateTagLabels.getTags(data, 0));
+        assertEquals(LABEL, LxCodec.DeviceStateTagLabels.getLabel(data, 0));
+    }
+    
+    @Test
+    public void testDeviceStateVersion() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStateVersion.SIZE);
+        LxCodec.DeviceStateVersion.encode(buf, 1, 0xFFFFFFFFL, 0x80000000L);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StateVersion(
+                new UInt32(1), new UInt32(0xFFFFFFFFL), new UInt32(0x80000000L)));
+        assertEquals(1, LxCodec.DeviceStateVersion.getVendor(data, 0));
+        assertEquals(0xFFFFFFFFL, LxCodec.DeviceStateVersion.getProduct(data, 0));
+        assertEquals(0x80000000L, LxCodec.DeviceStateVersion.getVersion(data, 0));
+    }
+    
+    @Test
+    public void testDeviceStateInfo() {
+        ByteBuffer buf = allocate(LxCodec.DeviceStateInfo.SIZE);
+        LxCodec.DeviceStateInfo.encode(buf, 1420070400000000000L, 3600000000000L, 0);
+        byte[] data = checkEncoded(buf, new LxProtocolDevice.StateInfo(null, 
+                new UInt64(1420070400000000000L), new UInt64(3600000000000L), new UInt64(0)));
+        assertEquals(1420070400000000000L, LxCodec.DeviceStateInfo.getTime(data, 0));
+        assertEquals(3600000000000L, LxCodec.DeviceStateInfo.getUptime(data, 0));
+        assertEquals(0, LxCodec.DeviceStateInfo.getDowntime(data, 0));
+    }
+    
+    @Test
+    public void testLightSet() {
+        ByteBuffer buf = allocate(LxCodec.LightSet.SIZE);
+        LxCodec.LightSet.encode(buf, 0, 0xFFFF, 0x8001, 1, 9000, 0xFFFFFFFFL);
+        byte[] data = checkEncoded(buf, new LxProtocolLight.Set(new UInt8(0), 
+                hsbk(0xFFFF, 0x8001, 1, 9000), new UInt32(0xFFFFFFFFL)));
+        assertEquals(0, LxCodec.LightSet.getStream(data, 0));
+        assertEquals(0xFFFF, LxCodec.LightSet.getColorHue(data, 0));
+        assertEquals(0x8001, LxCodec.LightSet.getColorSaturation(data, 0));
+        assertEquals(1, LxCodec.LightSet.getColorBrightness(data, 0));
+        assertEquals(9000, LxCodec.LightSet.getColorKelvin(data, 0));
+        assertEquals(0xFFFFFFFFL, LxCodec.LightSet.getDuration(data, 0));
+    }
+    
+    @Test
+    public void testLightSetWaveform() {
+        ByteBuffer buf = allocate(LxCodec.LightSetWaveform.SIZE);
+        LxCodec.LightSetWaveform.encode(buf, 0, true, 0xFFFF, 0x8001, 1, 9000, 1000, 2.5f, -16384, 3);
+        byte[] data = checkEncoded(buf, new LxProtocolLight.SetWaveform(null, new UInt8(0), new Bool8(true), 
+                hsbk(0xFFFF, 0x8001, 1, 9000), new UInt32(1000), new Float32(2.5f), new Int16((short) -16384), new UInt8(3)));
+        assertEquals(0, LxCodec.LightSetWaveform.getStream(data, 0));
+        assertTrue(LxCodec.LightSetWaveform.getTransienttype(data, 0));
+        assertEquals(0xFFFF, LxCodec.LightSetWaveform.getColorHue(data, 0));
+        assertEquals(0x8001, LxCodec.LightSetWaveform.getColorSaturation(data, 0));
+        assertEquals(1, LxCodec.LightSetWaveform.getColorBrightness(data, 0));
+        assertEquals(9000, LxCodec.LightSetWaveform.getColorKelvin(data, 0));
+        assertEquals(1000, LxCodec.LightSetWaveform.getPeriod(data, 0));
+        assertEquals(2.5f, LxCodec.LightSetWaveform.getCycles(data, 0), 0);
+        assertEquals(-16384, LxCodec.LightSetWaveform.getDutyCycle(data, 0));
+        assertEquals(3, LxCodec.LightSetWaveform.getWaveform(data, 0));
+    }
+    
+    @Test
+    public void testLightSetDimAbsolute() {
+        ByteBuffer buf = allocate(LxCodec.LightSetDimAbsolute.SIZE);
+        LxCodec.LightSetDimAbsolute.encode(buf, -2, 250);
+        byte[] data = checkEncoded(buf, new LxProtocolLight.SetDimAbsolute(null, new Int16((short) -2), new UInt32(250)));
+        assertEquals(-2, LxCodec.LightSetDimAbsolute.getBrightness(data, 0));
+        assertEquals(250, LxCodec.LightSetDimAbsolute.getDuration(data, 0));
+    }
+    
+    @Test
+    public void testLightState() {
+        ByteBuffer buf = allocate(LxCodec.LightState.SIZE);
+        LxCodec.LightState.encode(buf, 0xFFFF, 0x8001, 1, 9000, -1, 0xFFFF, LABEL, TAGS);
+        byte[] data = checkEncoded(buf, new LxProtocolLight.State(null, hsbk(0xFFFF, 0x8001, 1, 9000), 
+                new Int16((short) -1), new UInt16(0xFFFF), LABEL, new UInt64(TAGS)));
+        assertEquals(0xFFFF, LxCodec.LightState.getColorHue(data, 0));
+        assertEquals(0x8001, LxCodec.LightState.getColorSaturation(data, 0));
+        assertEquals(1, LxCodec.LightState.getColorBrightness(data, 0));
+        assertEquals(9000, LxCodec.LightState.getColorKelvin(data, 0));
+        assertEquals(-1, LxCodec.LightState.getDim(data, 0));
+        assertEquals(0xFFFF, LxCodec.LightState.getPower(data, 0));
+        assertEquals(LABEL, LxCodec.LightState.getLabel(data, 0));
+        assertEquals(TAGS, LxCodec.LightState.getTags(data, 0));
+    }
+    
+    private static LxProtocolLight.Hsbk hsbk(int hue, int saturation, int brightness, int kelvin) {
+        return new LxProtocolLight.Hsbk(null, new UInt16(hue), new UInt16(saturation), 
+                new UInt16(brightness), new UInt16(kelvin));
+    }
+    
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    /**
+     * Checks that the codec filled the buffer with the same bytes as the
+     * structle class, and returns them.
+     */
+    private static byte[] checkEncoded(ByteBuffer buf, LxProtocolTypeBase expected) {
+        assertEquals("encoded size", buf.capacity(), buf.position());
+        assertArrayEquals(expected.getBytes(), buf.array());
+        assertArrayEquals(expected.getBytes(), encodeTo(expected, buf.capacity()));
+        return buf.array();
+    }
+    
+    /**
+     * Returns what the payload writes to a buffer of the size.
+     */
+    private static byte[] encodeTo(LxProtocolTypeBase payload, int size) {
+        ByteBuffer buf = allocate(size);
+        payload.encodeTo(buf);
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+    
+    private static String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), "UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetID;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LFXResponseTrackerTest {
+    private static final LFXSiteID SITE = new LFXSiteID(0x111111111111L);
+    private static final LFXDeviceID LIGHT_1 = new LFXDeviceID(0xd073d5000001L);
+    private static final LFXDeviceID LIGHT_2 = new LFXDeviceID(0xd073d5000002L);
+    private static final InetSocketAddress GATEWAY = new InetSocketAddress("10.0.0.1", 56700);
+    private static final String[] PROPERTIES = {
+        "com.github.besherman.lifx.responseTrackerTimeout",
+        "com.github.besherman.lifx.responseTrackerMinTimeout",
+        "com.github.besherman.lifx.responseTrackerMaxRetries",
+    };
+    
+    private LFXTimingWheel wheel;
+    private LFXSendScheduler scheduler;
+    private LFXRoutingTable table;
+    private LFXResponseTracker tracker;
+    
+    @Before
+    public void setUp() {
+        System.setProperty("com.github.besherman.lifx.responseTrackerTimeout", "20");
+        System.setProperty("com.github.besherman.lifx.responseTrackerMinTimeout", "10");
+        System.setProperty("com.github.besherman.lifx.responseTrackerMaxRetries", "1");
+        
+        wheel = new LFXTimingWheel(5, TimeUnit.MILLISECONDS, 64);
+        wheel.start();
+        scheduler = new LFXSendScheduler(1000, 100, 100);
+        table = new LFXRoutingTable();
+        table.addCachedLight(LIGHT_1, SITE, 0);
+        table.addCachedLight(LIGHT_2, SITE, 0);
+        table.publish();
+        tracker = new LFXResponseTracker(table);
+        tracker.setOutgoingQueue(scheduler);
+        tracker.open(wheel);
+    }
+    
+    @After
+    public void tearDown() {
+        tracker.close();
+        wheel.stop();
+        for(String property: PROPERTIES) {
+            System.clearProperty(property);
+        }
+    }
+    
+    @Test
+    public void testResponseMatchesLightAndType() {
+        send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_POWER);
+        send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_LABEL);
+        send(LIGHT_2, LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_POWER);
+        assertEquals(3, tracker.getExpectedCount());
+        
+        tracker.updateReponse(message(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_LABEL));
+        assertEquals(2, tracker.getExpectedCount());
+        
+        // a response nobody asked for changes nothing
+        tracker.updateReponse(message(LIGHT_2, LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_LABEL));
+        assertEquals(2, tracker.getExpectedCount());
+        
+        tracker.updateReponse(message(LIGHT_2, LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_POWER));
+        tracker.updateReponse(message(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_POWER));
+        assertEquals(0, tracker.getExpectedCount());
+    }
+    
+    @Test
+    public void testOneResponseAnswersAllEqualRequests() {
+        send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        assertEquals(2, tracker.getExpectedCount());
+        tracker.updateReponse(message(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_STATE));
+        assertEquals(0, tracker.getExpectedCount());
+    }
+    
+    @Test
+    public void testOnlyRequestsToLightsAreTracked() {
+        // no response is expected
+        send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_SET);
+        // tagged
+        LFXMessage tagged = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, 
+                new LFXBinaryPath(SITE, new LFXBinaryTargetID(1L)));
+        tracker.trackResponse(tagged, new LFXSocketMessage(tagged, GATEWAY, null, LFXSocketMessage.LOW_PRIORITY));
+        // no site
+        LFXMessage noSite = new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, 
+                new LFXBinaryPath(new LFXSiteID(), new LFXBinaryTargetID(LIGHT_1)));
+        tracker.trackResponse(noSite, new LFXSocketMessage(noSite, GATEWAY, null, LFXSocketMessage.LOW_PRIORITY));
+        assertEquals(0, tracker.getExpectedCount());
+    }
+    
+    @Test
+    public void testResendsUntilItGivesUp() throws InterruptedException {
+        LFXSocketMessage sent = send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        assertSame(sent, scheduler.poll(0, TimeUnit.MILLISECONDS));
+        
+        LFXSocketMessage resent = scheduler.poll(1, TimeUnit.SECONDS);
+        assertNotNull(resent);
+        assertNotSame(sent, resent);
+        assertSame(sent.getMessage(), resent.getMessage());
+        assertEquals(1, tracker.getExpectedCount());
+        
+        // one resend is all it gets
+        assertNull(scheduler.poll(200, TimeUnit.MILLISECONDS));
+        assertEquals(0, tracker.getExpectedCount());
+    }
+    
+    @Test
+    public void testQueuedRequestIsNotResent() throws InterruptedException {
+        send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        Thread.sleep(100);
+        assertEquals(1, scheduler.size());
+        assertEquals(1, tracker.getExpectedCount());
+    }
+    
+    @Test
+    public void testSentMessageIsTrackedPastItsDeadline() throws InterruptedException {
+        LFXSocketMessage sent = send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, TimeUnit.MILLISECONDS.toNanos(15));
+        assertSame(sent, scheduler.poll(0, TimeUnit.MILLISECONDS));
+        sent.markSent();
+        
+        // the resend gets as long to be sent as the first one had
+        LFXSocketMessage resent = scheduler.poll(1, TimeUnit.SECONDS);
+        assertNotNull(resent);
+        assertSame(sent.getMessage(), resent.getMessage());
+        assertEquals(1, tracker.getExpectedCount());
+    }
+    
+    @Test
+    public void testDroppedMessageIsNotTracked() throws InterruptedException {
+        LFXSocketMessage dropped = send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, TimeUnit.MILLISECONDS.toNanos(1));
+        Thread.sleep(5);
+        assertNull(scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertTrue(dropped.isDropped());
+        
+        Thread.sleep(100);
+        assertEquals(0, tracker.getExpectedCount());
+        assertTrue(scheduler.isEmpty());
+    }
+    
+    @Test
+    public void testLostLightIsForgotten() {
+        send(LIGHT_1, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        send(LIGHT_2, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        assertEquals(2, tracker.getEstimatorCount());
+        
+        tracker.lightLost(LIGHT_1);
+        assertEquals(1, tracker.getEstimatorCount());
+    }
+    
+    private LFXSocketMessage send(LFXDeviceID device, LxProtocol.Type type) {
+        return send(device, type, 0);
+    }
+    
+    private LFXSocketMessage send(LFXDeviceID device, LxProtocol.Type type, long maxDelay) {
+        LFXMessage message = message(device, type);
+        LFXSocketMessage sm = new LFXSocketMessage(message, GATEWAY, null, LFXSocketMessage.LOW_PRIORITY, maxDelay);
+        scheduler.offer(sm);
+        tracker.trackResponse(message, sm);
+        return sm;
+    }
+    
+    private static LFXMessage message(LFXDeviceID device, LxProtocol.Type type) {
+        return new LFXMessage(type, new LFXBinaryPath(SITE, new LFXBinaryTargetID(device)));
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetID;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetType;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.LFXTagID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocolDevice;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt16;
+import com.github.besherman.lifx.impl.entities.internal.structle.StructleTypes.UInt64;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class LFXRoutingTableTest {
+    private static final LFXSiteID SITE_A = new LFXSiteID(0x111111111111L);
+    private static final LFXSiteID SITE_B = new LFXSiteID(0x222222222222L);
+    private static final LFXDeviceID LIGHT_1 = new LFXDeviceID(0xd073d5000001L);
+    private static final LFXDeviceID LIGHT_2 = new LFXDeviceID(0xd073d5000002L);
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private LFXRoutingTable table;
+    
+    @Before
+    public void setUp() {
+        table = new LFXRoutingTable();
+        table.addCachedGateway(SITE_A, new InetSocketAddress("10.0.0.1", 56700), null);
+        table.addCachedGateway(SITE_B, new InetSocketAddress("10.0.0.2", 56700), null);
+        table.publish();
+    }
+    
+    @Test
+    public void testChangesAreOnlyVisibleAfterPublish() {
+        assertEquals(LIGHT_1, table.updateTableWithLight(power(SITE_A, LIGHT_1)));
+        assertNull(table.getLightsSiteID(LIGHT_1));
+        assertFalse(table.isLightStillAlive(LIGHT_1));
+        
+        table.publish();
+        assertEquals(SITE_A, table.getLightsSiteID(LIGHT_1));
+        assertTrue(table.isLightStillAlive(LIGHT_1));
+        assertEquals(new InetSocketAddress("10.0.0.1", 56700), table.getAddressForSiteID(SITE_A));
+    }
+    
+    @Test
+    public void testNewLightsKeepTheGeneration() {
+        int generation = table.getGeneration();
+        table.updateTableWithLight(power(SITE_A, LIGHT_1));
+        table.updateTableWithLight(power(SITE_B, LIGHT_2));
+        table.publish();
+        assertEquals(generation, table.getGeneration());
+        
+        // hearing from them again changes nothing
+        assertNull(table.updateTableWithLight(power(SITE_A, LIGHT_1)));
+        table.publish();
+        assertEquals(generation, table.getGeneration());
+    }
+    
+    @Test
+    public void testMovedLightChangesTheGeneration() {
+        table.updateTableWithLight(power(SITE_A, LIGHT_1));
+        table.publish();
+        int generation = table.getGeneration();
+        
+        table.updateTableWithLight(power(SITE_B, LIGHT_1));
+        table.publish();
+        assertEquals(SITE_B, table.getLightsSiteID(LIGHT_1));
+        assertTrue(table.getGeneration() != generation);
+    }
+    
+    @Test
+    public void testReceivedMessagesAreRoutedByTheirHeader() {
+        LFXMessage first = received(power(SITE_A, LIGHT_1));
+        assertEquals(LFXBinaryTargetType.DEVICE, first.getTargetType());
+        assertEquals(SITE_A.getValue(), first.getSiteIDValue());
+        assertEquals(LIGHT_1.getValue(), first.getDeviceIDValue());
+        assertEquals(LIGHT_1, table.updateTableWithLight(first));
+        
+        Set<LFXDeviceID> targets = table.getLightAsTarget(LIGHT_1.getValue());
+        assertEquals(Collections.singleton(LIGHT_1), targets);
+        assertNull(table.getLightAsTarget(LIGHT_2.getValue()));
+        
+        // the light moves, the target set is the same
+        table.updateTableWithLight(received(power(SITE_B, LIGHT_1)));
+        table.publish();
+        assertEquals(SITE_B, table.getLightsSiteID(LIGHT_1));
+        assertSame(targets, table.getLightAsTarget(LIGHT_1.getValue()));
+        
+        LFXMessage tagged = received(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_GET_POWER, 
+                new LFXBinaryPath(SITE_A, new LFXBinaryTargetID(8))));
+        assertEquals(LFXBinaryTargetType.TAG, tagged.getTargetType());
+        assertEquals(8, tagged.getPath().getBinaryTargetID().getGroupTagMask());
+        try {
+            tagged.getDeviceIDValue();
+            fail("a tagged message has no device");
+        } catch(IllegalStateException ex) {
+        }
+    }
+    
+    @Test
+    public void testTagsAtSite() {
+        LFXTagID tag = LFXTagID.fromBit(3);
+        table.updateTableWithLight(power(SITE_A, LIGHT_1));
+        table.updateTableWithLight(power(SITE_A, LIGHT_2));
+        table.publish();
+        int generation = table.getGeneration();
+        assertTrue(table.getSiteIDsWhereLightHasTag(tag).isEmpty());
+        
+        // the first light with the tag adds the site to it
+        table.updateTableWithLight(tags(SITE_A, LIGHT_1, tag.getMask()));
+        table.publish();
+        assertEquals(Collections.singleton(SITE_A), table.getSiteIDsWhereLightHasTag(tag));
+        assertEquals(Collections.singleton(LIGHT_1), table.getLightsAtSiteWithTags(SITE_A, tag.getMask()));
+        assertTrue(table.getGeneration() != generation);
+        generation = table.getGeneration();
+        
+        // the second light at the same site doesn't change the routes
+        table.updateTableWithLight(tags(SITE_A, LIGHT_2, tag.getMask()));
+        table.publish();
+        assertEquals(generation, table.getGeneration());
+        assertEquals(2, table.getLightsAtSiteWithTags(SITE_A, tag.getMask()).size());
+        
+        table.updateTableWithLight(tags(SITE_A, LIGHT_2, tag.getMask() | 1));
+        table.publish();
+        assertEquals(Collections.singleton(LIGHT_2), table.getLightsAtSiteWithTags(SITE_A, 1));
+        assertEquals(2, table.getLightsAtSiteWithTags(SITE_A, tag.getMask() | 1).size());
+        
+        table.updateTableWithLight(tags(SITE_A, LIGHT_1, 0));
+        table.updateTableWithLight(tags(SITE_A, LIGHT_2, 0));
+        table.publish();
+        assertTrue(table.getSiteIDsWhereLightHasTag(tag).isEmpty());
+        assertTrue(table.getLightsAtSiteWithTags(SITE_A, tag.getMask()).isEmpty());
+        assertEquals(2, table.getLightsAtSite(SITE_A).size());
+    }
+    
+    @Test
+    public void testTagSetsAreReusedUntilTheyChange() {
+        LFXTagID tag = LFXTagID.fromBit(3);
+        LFXTagID other = LFXTagID.fromBit(5);
+        table.updateTableWithLight(power(SITE_A, LIGHT_1));
+        table.updateTableWithLight(power(SITE_B, LIGHT_2));
+        table.updateTableWithLight(tags(SITE_A, LIGHT_1, tag.getMask()));
+        table.updateTableWithLight(tags(SITE_B, LIGHT_2, tag.getMask() | other.getMask()));
+        table.publish();
+        
+        Set<LFXSiteID> sites = table.getSiteIDsWhereLightHasTag(tag);
+        assertEquals(new HashSet<>(Arrays.asList(SITE_A, SITE_B)), sites);
+        assertSame(sites, table.getSiteIDsWhereLightHasTag(tag));
+        assertEquals(Collections.singleton(SITE_B), table.getSiteIDsWhereLightHasTag(other));
+        
+        Set<LFXDeviceID> lights = table.getLightsAtSiteWithTags(SITE_B, tag.getMask());
+        Set<LFXDeviceID> both = table.getLightsAtSiteWithTags(SITE_B, tag.getMask() | other.getMask());
+        assertEquals(Collections.singleton(LIGHT_2), both);
+        assertSame(both, table.getLightsAtSiteWithTags(SITE_B, tag.getMask() | other.getMask()));
+        
+        // dropping the other tag keeps the set for the first one
+        table.updateTableWithLight(tags(SITE_B, LIGHT_2, tag.getMask()));
+        table.publish();
+        assertSame(lights, table.getLightsAtSiteWithTags(SITE_B, tag.getMask()));
+        assertTrue(table.getLightsAtSiteWithTags(SITE_B, other.getMask()).isEmpty());
+        assertTrue(table.getSiteIDsWhereLightHasTag(other).isEmpty());
+        assertEquals(lights, table.getLightsAtSiteWithTags(SITE_B, tag.getMask() | other.getMask()));
+        
+        try {
+            sites.add(SITE_A);
+            fail("the sets are shared and must not be changed");
+        } catch(UnsupportedOperationException ex) {
+        }
+    }
+    
+    @Test
+    public void testStaleLightsAreReported() throws InterruptedException {
+        System.setProperty("com.github.besherman.lifx.lightTimeout", "20");
+        try {
+            table = new LFXRoutingTable();
+        } finally {
+            System.clearProperty("com.github.besherman.lifx.lightTimeout");
+        }
+        table.addCachedGateway(SITE_A, new InetSocketAddress("10.0.0.1", 56700), null);
+        table.updateTableWithLight(power(SITE_A, LIGHT_1));
+        Thread.sleep(30);
+        table.updateTableWithLight(power(SITE_A, LIGHT_2));
+        
+        List<LFXDeviceID> lost = new ArrayList<>();
+        table.removeStaleEntries(lost);
+        table.publish();
+        assertEquals(Collections.singletonList(LIGHT_1), lost);
+        assertFalse(table.isLightStillAlive(LIGHT_1));
+        assertTrue(table.isLightStillAlive(LIGHT_2));
+    }
+    
+    @Test
+    public void testCachedLightsGetAFullTimeout() throws IOException {
+        File file = new File(folder.getRoot(), "topology.properties");
+        long lastRun = System.currentTimeMillis() - 60 * 60 * 1000;
+        LFXTopologyCache cache = new LFXTopologyCache(file, 24 * 60 * 60 * 1000);
+        cache.putGateway(SITE_A, new InetSocketAddress("10.0.0.1", 56700), lastRun);
+        cache.putLightRoute(LIGHT_1, SITE_A, 0, lastRun);
+        cache.putLightRoute(LIGHT_2, SITE_A, 0, lastRun);
+        cache.save();
+        
+        // loaded the way the router does it on start
+        cache = new LFXTopologyCache(file, 24 * 60 * 60 * 1000);
+        cache.load();
+        table = new LFXRoutingTable();
+        for(Map.Entry<LFXSiteID, InetSocketAddress> e: cache.getGateways().entrySet()) {
+            table.addCachedGateway(e.getKey(), e.getValue(), null);
+        }
+        for(LFXDeviceID device: cache.getLights()) {
+            table.addCachedLight(device, cache.getLightSite(device), cache.getLightTags(device));
+        }
+        table.publish();
+        
+        // the first batch from the network only has one of the lights
+        table.updateTableWithLight(power(SITE_A, LIGHT_1));
+        List<LFXDeviceID> lost = new ArrayList<>();
+        table.removeStaleEntries(lost);
+        table.publish();
+        assertTrue(lost.isEmpty());
+        assertTrue(table.isLightStillAlive(LIGHT_1));
+        assertTrue(table.isLightStillAlive(LIGHT_2));
+        assertEquals(SITE_A, table.getLightsSiteID(LIGHT_2));
+        assertEquals(new InetSocketAddress("10.0.0.1", 56700), table.getAddressForSiteID(SITE_A));
+        
+        // only what answered is saved as seen, the rest can still age out
+        table.saveTo(cache);
+        assertTrue(cache.getLightLastSeen(LIGHT_1) > lastRun);
+        assertEquals(lastRun, cache.getLightLastSeen(LIGHT_2));
+        assertEquals(lastRun, cache.getGatewayLastSeen(SITE_A));
+    }
+    
+    private static LFXMessage power(LFXSiteID site, LFXDeviceID device) {
+        return new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_POWER, 
+                new LFXBinaryPath(site, new LFXBinaryTargetID(device)), 
+                new LxProtocolDevice.StatePower(new UInt16(0xFFFF)));
+    }
+    
+    private static LFXMessage received(LFXMessage message) {
+        return new LFXMessage(message.getMessageDataRepresentation());
+    }
+    
+    private static LFXMessage tags(LFXSiteID site, LFXDeviceID device, long tags) {
+        return new LFXMessage(LxProtocol.Type.LX_PROTOCOL_DEVICE_STATE_TAGS, 
+                new LFXBinaryPath(site, new LFXBinaryTargetID(device)), 
+                new LxProtocolDevice.StateTags(null, new UInt64(tags)));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryPath;
+import com.github.besherman.lifx.impl.entities.internal.LFXBinaryTargetID;
+import com.github.besherman.lifx.impl.entities.internal.LFXDeviceID;
+import com.github.besherman.lifx.impl.entities.internal.LFXMessage;
+import com.github.besherman.lifx.impl.entities.internal.LFXSiteID;
+import com.github.besherman.lifx.impl.entities.internal.structle.LxProtocol;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LFXSendSchedulerTest {
+    private static final InetSocketAddress GATEWAY_A = new InetSocketAddress("10.0.0.1", 56700);
+    private static final InetSocketAddress GATEWAY_B = new InetSocketAddress("10.0.0.2", 56700);
+    private static final LFXBinaryPath PATH = new LFXBinaryPath(new LFXSiteID(0x111111111111L), 
+            new LFXBinaryTargetID(new LFXDeviceID(0xd073d5000001L)));
+    
+    @Test
+    public void testBurstThenRate() throws InterruptedException {
+        LFXSendScheduler scheduler = new LFXSendScheduler(20, 2, 100);
+        for(int i = 0; i < 3; i++) {
+            assertTrue(scheduler.offer(message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET)));
+        }
+        
+        // the burst is sent right away, then the bucket is empty
+        assertNotNull(scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertNotNull(scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertNull(scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, scheduler.size());
+        
+        // one token every 50 ms
+        long start = System.nanoTime();
+        assertNotNull(scheduler.poll(1, TimeUnit.SECONDS));
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("waited " + waited + " ms", waited >= 30);
+        assertTrue(scheduler.isEmpty());
+    }
+    
+    @Test
+    public void testGatewaysHaveTheirOwnBuckets() throws InterruptedException {
+        LFXSendScheduler scheduler = new LFXSendScheduler(1, 1, 100);
+        scheduler.offer(message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET));
+        scheduler.offer(message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET));
+        scheduler.offer(message(GATEWAY_B, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET));
+        
+        assertEquals(GATEWAY_A, scheduler.poll(0, TimeUnit.MILLISECONDS).getAddress());
+        // A has to wait a second, B doesn't
+        assertEquals(GATEWAY_B, scheduler.poll(0, TimeUnit.MILLISECONDS).getAddress());
+        assertNull(scheduler.poll(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void testPriorityOrder() throws InterruptedException {
+        LFXSendScheduler scheduler = new LFXSendScheduler(100, 10, 100);
+        LFXSocketMessage low = new LFXSocketMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, PATH), 
+                GATEWAY_A, null, LFXSocketMessage.LOW_PRIORITY);
+        LFXSocketMessage high = new LFXSocketMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, PATH), 
+                GATEWAY_A, null, LFXSocketMessage.HIGH_PRIORITY);
+        scheduler.offer(low);
+        scheduler.offer(high);
+        assertSame(high, scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertSame(low, scheduler.poll(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void testNewerStateReplacesUnsentState() throws InterruptedException {
+        LFXSendScheduler scheduler = new LFXSendScheduler(100, 10, 100);
+        LFXSocketMessage first = message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_SET);
+        LFXSocketMessage second = message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_SET);
+        scheduler.offer(first);
+        assertTrue(first.isQueued());
+        scheduler.offer(second);
+        assertEquals(1, scheduler.size());
+        assertEquals(1, scheduler.getCoalescedCount());
+        
+        LFXSocketMessage sent = scheduler.poll(0, TimeUnit.MILLISECONDS);
+        assertSame(first, sent);
+        assertSame(second.getMessage(), sent.getMessage());
+        assertFalse(sent.isQueued());
+        
+        // once it has been taken the next one is queued on its own
+        scheduler.offer(message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_SET));
+        assertEquals(1, scheduler.size());
+        assertEquals(1, scheduler.getCoalescedCount());
+    }
+    
+    @Test
+    public void testNewerStateTakesOverTheDeadlineAndPriority() throws InterruptedException {
+        LFXSendScheduler scheduler = new LFXSendScheduler(100, 10, 100);
+        LFXSocketMessage get = message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        LFXSocketMessage first = new LFXSocketMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_SET, PATH), 
+                GATEWAY_A, null, LFXSocketMessage.LOW_PRIORITY, TimeUnit.MILLISECONDS.toNanos(1));
+        scheduler.offer(get);
+        scheduler.offer(first);
+        Thread.sleep(5);
+        
+        // the first one has waited too long, but the newest state has not
+        LFXSocketMessage newest = new LFXSocketMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_SET, PATH), 
+                GATEWAY_A, null, LFXSocketMessage.HIGH_PRIORITY, TimeUnit.SECONDS.toNanos(10));
+        assertTrue(scheduler.offer(newest));
+        assertEquals(2, scheduler.size());
+        
+        // it is sent before the older get since it has a higher priority
+        LFXSocketMessage sent = scheduler.poll(0, TimeUnit.MILLISECONDS);
+        assertSame(first, sent);
+        assertSame(newest.getMessage(), sent.getMessage());
+        assertFalse(sent.isDropped());
+        assertSame(get, scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(0, scheduler.getExpiredCount());
+    }
+    
+    @Test
+    public void testNewerStateReplacesUnsentStateInAFullQueue() {
+        LFXSendScheduler scheduler = new LFXSendScheduler(1, 1, 2);
+        LFXSocketMessage first = message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_SET);
+        assertTrue(scheduler.offer(first));
+        assertTrue(scheduler.offer(message(GATEWAY_B, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET)));
+        
+        LFXSocketMessage newer = message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_SET);
+        assertTrue(scheduler.offer(newer));
+        assertSame(newer.getMessage(), first.getMessage());
+        assertEquals(1, scheduler.getCoalescedCount());
+        assertEquals(2, scheduler.size());
+        
+        // anything that needs a place of its own is still refused
+        assertFalse(scheduler.offer(message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET)));
+        assertFalse(scheduler.offer(message(GATEWAY_B, LxProtocol.Type.LX_PROTOCOL_LIGHT_SET)));
+    }
+    
+    @Test
+    public void testExpiredMessagesDontUseTokens() throws InterruptedException {
+        LFXSendScheduler scheduler = new LFXSendScheduler(1, 1, 100);
+        LFXSocketMessage expired = new LFXSocketMessage(new LFXMessage(LxProtocol.Type.LX_PROTOCOL_LIGHT_GET, PATH), 
+                GATEWAY_A, null, LFXSocketMessage.HIGH_PRIORITY, 1);
+        LFXSocketMessage waiting = message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET);
+        scheduler.offer(expired);
+        scheduler.offer(waiting);
+        Thread.sleep(2);
+        
+        assertSame(waiting, scheduler.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, scheduler.getExpiredCount());
+        assertTrue(expired.isDropped());
+        assertFalse(waiting.isDropped());
+        assertTrue(scheduler.isEmpty());
+    }
+    
+    @Test
+    public void testFullQueue() {
+        LFXSendScheduler scheduler = new LFXSendScheduler(1, 1, 2);
+        assertTrue(scheduler.offer(message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET)));
+        assertTrue(scheduler.offer(message(GATEWAY_B, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET)));
+        assertFalse(scheduler.offer(message(GATEWAY_A, LxProtocol.Type.LX_PROTOCOL_LIGHT_GET)));
+        assertEquals(2, scheduler.size());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testBurstMustBeAtLeastOne() {
+        new LFXSendScheduler(1, 0.5, 10);
+    }
+    
+    private static LFXSocketMessage message(InetSocketAddress address, LxProtocol.Type type) {
+        return new LFXSocketMessage(new LFXMessage(type, PATH), address, null, LFXSocketMessage.LOW_PRIORITY);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.network;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LFXTimingWheelTest {
+    private LFXTimingWheel wheel;
+    
+    @Before
+    public void setUp() {
+        // 4 buckets of 5 ms, one turn is 20 ms
+        wheel = new LFXTimingWheel(5, TimeUnit.MILLISECONDS, 3);
+        wheel.start();
+    }
+    
+    @After
+    public void tearDown() {
+        wheel.stop();
+    }
+    
+    @Test
+    public void testTaskRunsAfterItsDelay() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicLong ranAt = new AtomicLong();
+        long start = System.nanoTime();
+        wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                ranAt.set(System.nanoTime());
+                done.countDown();
+            }
+        }, 30, TimeUnit.MILLISECONDS);
+        assertEquals(1, wheel.getPendingCount());
+        
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        long delay = TimeUnit.NANOSECONDS.toMillis(ranAt.get() - start);
+        assertTrue("ran after " + delay + " ms", delay >= 30);
+        assertEquals(0, wheel.getPendingCount());
+    }
+    
+    @Test
+    public void testTasksMoreThanATurnAwayWaitForTheirRound() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(2);
+        final AtomicLong nearAt = new AtomicLong();
+        final AtomicLong farAt = new AtomicLong();
+        long start = System.nanoTime();
+        // the same bucket, but the second one is three turns later
+        wheel.schedule(countDown(done, nearAt), 10, TimeUnit.MILLISECONDS);
+        wheel.schedule(countDown(done, farAt), 70, TimeUnit.MILLISECONDS);
+        
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(nearAt.get() - start) >= 10);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(farAt.get() - start) >= 70);
+    }
+    
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        LFXTimingWheel.Timeout cancelled = wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        CountDownLatch done = new CountDownLatch(1);
+        LFXTimingWheel.Timeout ran = wheel.schedule(countDown(done, new AtomicLong()), 20, TimeUnit.MILLISECONDS);
+        
+        assertTrue(cancelled.cancel());
+        assertFalse(cancelled.cancel());
+        assertEquals(1, wheel.getPendingCount());
+        
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+        assertFalse(ran.cancel());
+    }
+    
+    @Test
+    public void testFailingTaskDoesntStopTheWheel() throws InterruptedException {
+        wheel.schedule(new Runnable() {
+            @Override
+            public void run() {
+                throw new IllegalStateException("expected by the test");
+            }
+        }, 1, TimeUnit.MILLISECONDS);
+        CountDownLatch done = new CountDownLatch(1);
+        wheel.schedule(countDown(done, new AtomicLong()), 10, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void testIdleWheelSkipsThePassedTicks() throws InterruptedException {
+        Thread.sleep(50);
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicLong ranAt = new AtomicLong();
+        long start = System.nanoTime();
+        wheel.schedule(countDown(done, ranAt), 15, TimeUnit.MILLISECONDS);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(ranAt.get() - start) >= 15);
+    }
+    
+    private static Runnable countDown(final CountDownLatch latch, final AtomicLong ranAt) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ranAt.set(System.nanoTime());
+                latch.countDown();
+            }
+        };
+    }
+}
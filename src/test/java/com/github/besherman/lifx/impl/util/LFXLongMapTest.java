@@ -0,0 +1,188 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2015 Richard.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.besherman.lifx.impl.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LFXLongMapTest {
+    
+    @Test
+    public void testPutGetAndOverwrite() {
+        LFXLongMap<String> map = new LFXLongMap<>();
+        assertNull(map.put(1, "a"));
+        assertNull(map.put(-1, "b"));
+        assertNull(map.put(0, "c"));
+        assertEquals(3, map.size());
+        assertEquals("a", map.get(1));
+        assertEquals("b", map.get(-1));
+        assertEquals("c", map.get(0));
+        assertNull(map.get(2));
+        
+        assertEquals("a", map.put(1, "d"));
+        assertEquals("d", map.get(1));
+        assertEquals(3, map.size());
+        assertTrue(map.containsKey(1));
+        assertFalse(map.containsKey(2));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testNullValue() {
+        new LFXLongMap<String>().put(1, null);
+    }
+    
+    @Test
+    public void testRemove() {
+        LFXLongMap<String> map = new LFXLongMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        assertEquals("a", map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertEquals("b", map.get(2));
+        assertEquals(1, map.size());
+    }
+    
+    @Test
+    public void testRemoveAcrossWrapAround() {
+        // 16 slots, the table doesn't grow below 8 entries
+        LFXLongMap<String> map = new LFXLongMap<>(8);
+        long[] last = keysWithHome(15, 3, 16);
+        long first = keysWithHome(0, 1, 16)[0];
+        
+        // the entries after the first one wrap around to slot 0 and 2,
+        // with the entry that belongs in slot 0 between them in slot 1
+        map.put(last[0], "a");
+        map.put(last[1], "b");
+        map.put(first, "c");
+        map.put(last[2], "d");
+        
+        // the gap at the end of the table is closed by moving entries back 
+        // from the start of it
+        assertEquals("a", map.remove(last[0]));
+        assertEquals("b", map.get(last[1]));
+        assertEquals("c", map.get(first));
+        assertEquals("d", map.get(last[2]));
+        
+        assertEquals("b", map.remove(last[1]));
+        assertEquals("c", map.get(first));
+        assertEquals("d", map.get(last[2]));
+        
+        assertEquals("c", map.remove(first));
+        assertEquals("d", map.get(last[2]));
+        assertEquals(1, map.size());
+    }
+    
+    @Test
+    public void testResizeKeepsEntries() {
+        LFXLongMap<Long> map = new LFXLongMap<>(1);
+        for(long key = 0; key < 10000; key++) {
+            map.put(key * 0x10001L, key);
+        }
+        assertEquals(10000, map.size());
+        for(long key = 0; key < 10000; key++) {
+            assertEquals(Long.valueOf(key), map.get(key * 0x10001L));
+        }
+        assertNull(map.get(10000 * 0x10001L));
+    }
+    
+    @Test
+    public void testClear() {
+        LFXLongMap<String> map = new LFXLongMap<>();
+        for(int i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+        }
+        map.clear();
+        assertEquals(0, map.size());
+        assertTrue(map.isEmpty());
+        assertNull(map.get(5));
+        assertFalse(map.values().iterator().hasNext());
+        
+        map.put(5, "x");
+        assertEquals("x", map.get(5));
+        assertEquals(1, map.size());
+    }
+    
+    @Test
+    public void testValues() {
+        LFXLongMap<String> map = new LFXLongMap<>();
+        Set<String> expected = new HashSet<>();
+        for(int i = 0; i < 100; i++) {
+            map.put(i, "v" + i);
+            expected.add("v" + i);
+        }
+        for(int i = 0; i < 100; i += 3) {
+            map.remove(i);
+            expected.remove("v" + i);
+        }
+        
+        List<String> values = new ArrayList<>(map.values());
+        assertEquals(expected.size(), map.values().size());
+        assertEquals(expected.size(), values.size());
+        assertEquals(expected, new HashSet<>(values));
+    }
+    
+    @Test
+    public void testSameAsHashMap() {
+        Random random = new Random(4711);
+        LFXLongMap<Integer> map = new LFXLongMap<>();
+        Map<Long, Integer> expected = new HashMap<>();
+        // few keys so that the same ones are put and removed many times
+        for(int i = 0; i < 100000; i++) {
+            long key = random.nextInt(300);
+            if(random.nextBoolean()) {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for(long key = 0; key < 300; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+    
+    /**
+     * Returns keys whose home slot in a table with the capacity is the 
+     * given slot, using the same hash as the map.
+     */
+    private static long[] keysWithHome(int slot, int count, int capacity) {
+        long[] result = new long[count];
+        int found = 0;
+        for(long key = 1; found < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            if(((int)(h ^ (h >>> 32)) & (capacity - 1)) == slot) {
+                result[found++] = key;
+            }
+        }
+        return result;
+    }
+}